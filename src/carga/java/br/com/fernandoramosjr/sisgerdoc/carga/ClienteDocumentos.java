@@ -0,0 +1,88 @@
+package br.com.fernandoramosjr.sisgerdoc.carga;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Chamadas a {@code /documentos} com o {@link HttpClient} do JDK. Os métodos retornam o status HTTP.
+ */
+class ClienteDocumentos {
+
+    private static final String PREFIXO_ID = "Documento criado com ID: ";
+
+    private final HttpClient httpClient;
+    private final String url;
+    private final String apiKey;
+
+    ClienteDocumentos(String url, String apiKey) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        this.url = url;
+        this.apiKey = apiKey;
+    }
+
+    /**
+     * @return o ID do documento criado, ou {@code null} quando o upload falha
+     */
+    Long criar(String nome, byte[] conteudo) throws IOException, InterruptedException {
+        HttpResponse<String> resposta = envia(multipart("POST", url + "/documentos", nome, conteudo),
+                HttpResponse.BodyHandlers.ofString());
+        if (resposta.statusCode() != 200 || !resposta.body().startsWith(PREFIXO_ID)) {
+            return null;
+        }
+        return Long.valueOf(resposta.body().substring(PREFIXO_ID.length()).trim());
+    }
+
+    int baixar(Long id) throws IOException, InterruptedException {
+        HttpRequest requisicao = requisicao(url + "/documentos/" + id).GET().build();
+        return envia(requisicao, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    int atualizar(Long id, String nome, byte[] conteudo) throws IOException, InterruptedException {
+        return envia(multipart("PUT", url + "/documentos/" + id, nome, conteudo),
+                HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    int apagar(Long id) throws IOException, InterruptedException {
+        HttpRequest requisicao = requisicao(url + "/documentos/" + id).DELETE().build();
+        return envia(requisicao, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private <T> HttpResponse<T> envia(HttpRequest requisicao, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        return httpClient.send(requisicao, handler);
+    }
+
+    private HttpRequest.Builder requisicao(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri))
+                .timeout(Duration.ofMinutes(2))
+                .header("X-API-KEY", apiKey);
+    }
+
+    private HttpRequest multipart(String metodo, String uri, String nome, byte[] conteudo) {
+        String boundary = "carga-" + UUID.randomUUID();
+        List<byte[]> partes = new ArrayList<>();
+        partes.add(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"nome\"\r\n\r\n"
+                + nome + "\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + nome + ".bin\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        partes.add(conteudo);
+        partes.add(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return requisicao(uri)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .method(metodo, HttpRequest.BodyPublishers.ofByteArrays(partes))
+                .build();
+    }
+}
@@ -0,0 +1,74 @@
+package br.com.fernandoramosjr.sisgerdoc.carga;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Latências de uma operação do teste de carga, guardadas uma a uma para que os percentis sejam exatos.
+ */
+class RegistroLatencias {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private long[] latencias = new long[1024];
+    private int quantidade;
+    private long erros;
+
+    void registra(long nanos, boolean sucesso) {
+        lock.lock();
+        try {
+            if (!sucesso) {
+                erros++;
+            }
+            if (quantidade == latencias.length) {
+                latencias = Arrays.copyOf(latencias, quantidade * 2);
+            }
+            latencias[quantidade++] = nanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void acumula(RegistroLatencias outro) {
+        lock.lock();
+        try {
+            for (int i = 0; i < outro.quantidade; i++) {
+                if (quantidade == latencias.length) {
+                    latencias = Arrays.copyOf(latencias, quantidade * 2);
+                }
+                latencias[quantidade++] = outro.latencias[i];
+            }
+            erros += outro.erros;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Map<String, Object> resume(double segundos) {
+        lock.lock();
+        try {
+            long[] ordenadas = Arrays.copyOf(latencias, quantidade);
+            Arrays.sort(ordenadas);
+            Map<String, Object> resumo = new LinkedHashMap<>();
+            resumo.put("requisicoes", quantidade);
+            resumo.put("erros", erros);
+            resumo.put("vazao", quantidade / segundos);
+            resumo.put("p50", milissegundos(ordenadas, 0.5));
+            resumo.put("p99", milissegundos(ordenadas, 0.99));
+            resumo.put("p999", milissegundos(ordenadas, 0.999));
+            resumo.put("maximo", quantidade > 0 ? ordenadas[quantidade - 1] / 1_000_000.0 : 0.0);
+            return resumo;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static double milissegundos(long[] ordenadas, double percentil) {
+        if (ordenadas.length == 0) {
+            return 0.0;
+        }
+        int posicao = (int) Math.ceil(percentil * ordenadas.length) - 1;
+        return ordenadas[Math.max(posicao, 0)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,347 @@
+package br.com.fernandoramosjr.sisgerdoc.carga;
+
+import br.com.fernandoramosjr.sisgerdoc.SistemaGerenciadorDeDocumentosApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Teste de carga de ponta a ponta contra {@code /documentos}, sem ferramentas externas. Sobe a aplicação real (H2 em
+ * memória e um diretório de upload temporário) ou usa o servidor em {@code url}, e gera uma mistura de uploads,
+ * downloads, atualizações e exclusões.
+ * <p>
+ * Com {@code taxa} maior que zero a carga é de malha aberta: as chegadas seguem um processo de Poisson com a taxa
+ * informada, independentemente das respostas, e a latência é medida a partir do instante agendado de cada
+ * requisição, de modo que a fila formada quando o servidor não acompanha também é medida. Com {@code taxa=0},
+ * {@code concorrencia} clientes enviam uma requisição após a outra. A sequência de operações, tamanhos e
+ * intervalos é determinada pela {@code semente}.
+ * <p>
+ * Opções no formato {@code chave=valor}; argumentos iniciados por {@code --} são repassados à aplicação embutida,
+ * por exemplo {@code --file.storage.engine=segmentos}.
+ */
+public class TesteCarga {
+
+    enum Operacao {
+        UPLOAD, DOWNLOAD, ATUALIZACAO, EXCLUSAO;
+
+        String nome() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final Map<String, String> PADROES = Map.of(
+            "taxa", "50",
+            "concorrencia", "64",
+            "duracao", "PT60S",
+            "aquecimento", "PT10S",
+            "mistura", "upload=20,download=70,atualizacao=5,exclusao=5",
+            "tamanhos", "4KB=50,64KB=30,1MB=15,8MB=5",
+            "documentosIniciais", "200",
+            "semente", "42",
+            "url", "",
+            "saida", "target/carga-resultado.json");
+
+    private final Map<String, String> opcoes;
+    private final List<String> propriedadesAplicacao;
+    private final double taxa;
+    private final int concorrencia;
+    private final Duration duracao;
+    private final Duration aquecimento;
+    private final Map<Operacao, Integer> mistura = new EnumMap<>(Operacao.class);
+    private final Map<Integer, Integer> tamanhos = new LinkedHashMap<>();
+    private final Map<Integer, byte[]> conteudos = new LinkedHashMap<>();
+    private final Map<Operacao, RegistroLatencias> registros = new EnumMap<>(Operacao.class);
+    private final List<Long> documentos = new ArrayList<>();
+    private ClienteDocumentos cliente;
+    private volatile long inicioMedicao;
+
+    TesteCarga(Map<String, String> opcoes, List<String> propriedadesAplicacao) {
+        this.opcoes = opcoes;
+        this.propriedadesAplicacao = propriedadesAplicacao;
+        this.taxa = Double.parseDouble(opcoes.get("taxa"));
+        this.concorrencia = Integer.parseInt(opcoes.get("concorrencia"));
+        this.duracao = Duration.parse(opcoes.get("duracao"));
+        this.aquecimento = Duration.parse(opcoes.get("aquecimento"));
+        leiaPesos(opcoes.get("mistura"), (chave, peso) -> mistura.put(Operacao.valueOf(chave.toUpperCase(Locale.ROOT)), peso));
+        leiaPesos(opcoes.get("tamanhos"), (chave, peso) -> tamanhos.put((int) DataSize.parse(chave).toBytes(), peso));
+        Random random = new Random(Long.parseLong(opcoes.get("semente")));
+        for (int tamanho : tamanhos.keySet()) {
+            byte[] conteudo = new byte[tamanho];
+            random.nextBytes(conteudo);
+            conteudos.put(tamanho, conteudo);
+        }
+        for (Operacao operacao : Operacao.values()) {
+            registros.put(operacao, new RegistroLatencias());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opcoes = new TreeMap<>(PADROES);
+        List<String> propriedadesAplicacao = new ArrayList<>();
+        for (String argumento : args) {
+            if (argumento.startsWith("--")) {
+                propriedadesAplicacao.add(argumento.substring(2));
+            } else if (argumento.contains("=")) {
+                String[] partes = argumento.split("=", 2);
+                if (!PADROES.containsKey(partes[0])) {
+                    throw new IllegalArgumentException("Opção desconhecida: " + partes[0] + ". Disponíveis: " + PADROES.keySet());
+                }
+                opcoes.put(partes[0], partes[1]);
+            }
+        }
+        new TesteCarga(opcoes, propriedadesAplicacao).executa();
+    }
+
+    void executa() throws Exception {
+        Path diretorio = null;
+        ConfigurableApplicationContext contexto = null;
+        String url = opcoes.get("url");
+        String apiKey = System.getProperty("api.key", "1234567890");
+        try {
+            if (url.isBlank()) {
+                diretorio = Files.createTempDirectory("sisgerdoc-carga");
+                contexto = iniciaAplicacao(diretorio);
+                url = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port");
+                apiKey = contexto.getEnvironment().getProperty("api.key");
+            }
+            cliente = new ClienteDocumentos(url, apiKey);
+            System.out.println("Carga contra " + url + ": " + opcoes);
+
+            populaDocumentos(Integer.parseInt(opcoes.get("documentosIniciais")));
+            long inicio = System.nanoTime();
+            inicioMedicao = inicio + aquecimento.toNanos();
+            long fim = inicioMedicao + duracao.toNanos();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                if (taxa > 0) {
+                    geraMalhaAberta(executor, inicio, fim);
+                } else {
+                    geraMalhaFechada(executor, fim);
+                }
+            }
+            relata((System.nanoTime() - inicioMedicao) / 1e9);
+        } finally {
+            if (contexto != null) {
+                contexto.close();
+            }
+            if (diretorio != null) {
+                FileSystemUtils.deleteRecursively(diretorio);
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext iniciaAplicacao(Path diretorio) {
+        List<String> propriedades = new ArrayList<>(List.of(
+                "server.port=0",
+                "file.upload-dir=" + diretorio,
+                "spring.datasource.url=jdbc:h2:mem:carga",
+                // Um log por requisição distorceria a medição
+                "logging.level.root=WARN",
+                // Os clientes da carga usam uma só API key; os limites por chave mediriam o 429, não a aplicação
+                "api.limite.requisicoes-por-segundo=0",
+                "api.limite.bytes-por-segundo=0",
+                "api.limite.transferencias-simultaneas=0"));
+        propriedades.addAll(propriedadesAplicacao);
+        // Como argumentos de linha de comando, para prevalecer sobre o application.properties; uma chave repetida
+        // viraria lista, então o valor passado depois substitui o anterior
+        Map<String, String> argumentos = new LinkedHashMap<>();
+        for (String propriedade : propriedades) {
+            argumentos.put(propriedade.split("=", 2)[0], "--" + propriedade);
+        }
+        return new SpringApplicationBuilder(SistemaGerenciadorDeDocumentosApplication.class)
+                .run(argumentos.values().toArray(String[]::new));
+    }
+
+    private void populaDocumentos(int quantidade) throws InterruptedException {
+        Random random = new Random(Long.parseLong(opcoes.get("semente")) + 1);
+        Semaphore limite = new Semaphore(concorrencia);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < quantidade; i++) {
+                int tamanho = sorteia(tamanhos, random);
+                limite.acquire();
+                executor.submit(() -> {
+                    try {
+                        Long id = cliente.criar("carga inicial", conteudos.get(tamanho));
+                        if (id != null) {
+                            adicionaDocumento(id);
+                        }
+                    } finally {
+                        limite.release();
+                    }
+                    return null;
+                });
+            }
+        }
+        System.out.println("Documentos iniciais: " + documentos.size());
+    }
+
+    private void geraMalhaAberta(ExecutorService executor, long inicio, long fim) throws InterruptedException {
+        Random random = new Random(Long.parseLong(opcoes.get("semente")));
+        Semaphore limite = new Semaphore(concorrencia);
+        long proxima = inicio;
+        while (proxima < fim) {
+            long espera;
+            while ((espera = proxima - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(espera);
+            }
+            Requisicao requisicao = sorteiaRequisicao(random);
+            long agendada = proxima;
+            // Acima da concorrência máxima a requisição espera, e a espera entra na latência
+            limite.acquire();
+            executor.submit(() -> {
+                try {
+                    executaRequisicao(requisicao, agendada);
+                } finally {
+                    limite.release();
+                }
+            });
+            proxima += (long) (-Math.log(1 - random.nextDouble()) / taxa * 1e9);
+        }
+    }
+
+    private void geraMalhaFechada(ExecutorService executor, long fim) {
+        long semente = Long.parseLong(opcoes.get("semente"));
+        for (int i = 0; i < concorrencia; i++) {
+            Random random = new Random(semente + i);
+            executor.submit(() -> {
+                while (System.nanoTime() < fim) {
+                    executaRequisicao(sorteiaRequisicao(random), System.nanoTime());
+                }
+            });
+        }
+    }
+
+    private record Requisicao(Operacao operacao, Long id, byte[] conteudo) {
+    }
+
+    // O documento é escolhido aqui, na ordem da sequência sorteada; exclusões o retiram na hora
+    private Requisicao sorteiaRequisicao(Random random) {
+        Operacao operacao = sorteia(mistura, random);
+        byte[] conteudo = conteudos.get(sorteia(tamanhos, random));
+        Long id = null;
+        if (operacao != Operacao.UPLOAD) {
+            synchronized (documentos) {
+                if (!documentos.isEmpty()) {
+                    int posicao = random.nextInt(documentos.size());
+                    id = documentos.get(posicao);
+                    if (operacao == Operacao.EXCLUSAO) {
+                        documentos.set(posicao, documentos.get(documentos.size() - 1));
+                        documentos.remove(documentos.size() - 1);
+                    }
+                }
+            }
+            if (id == null) {
+                operacao = Operacao.UPLOAD;
+            }
+        }
+        return new Requisicao(operacao, id, conteudo);
+    }
+
+    private void executaRequisicao(Requisicao requisicao, long agendada) {
+        boolean sucesso;
+        try {
+            sucesso = switch (requisicao.operacao()) {
+                case UPLOAD -> {
+                    Long id = cliente.criar("carga", requisicao.conteudo());
+                    if (id != null) {
+                        adicionaDocumento(id);
+                    }
+                    yield id != null;
+                }
+                case DOWNLOAD -> cliente.baixar(requisicao.id()) == 200;
+                case ATUALIZACAO -> cliente.atualizar(requisicao.id(), "carga atualizada", requisicao.conteudo()) == 200;
+                case EXCLUSAO -> cliente.apagar(requisicao.id()) == 200;
+            };
+        } catch (IOException e) {
+            sucesso = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long concluida = System.nanoTime();
+        if (agendada >= inicioMedicao) {
+            registros.get(requisicao.operacao()).registra(concluida - agendada, sucesso);
+        }
+    }
+
+    private void adicionaDocumento(Long id) {
+        synchronized (documentos) {
+            documentos.add(id);
+        }
+    }
+
+    private void relata(double segundos) throws IOException {
+        RegistroLatencias total = new RegistroLatencias();
+        Map<String, Object> resultados = new LinkedHashMap<>();
+        System.out.printf("%n%-12s %11s %8s %10s %10s %10s %10s %10s%n",
+                "operacao", "requisicoes", "erros", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (Map.Entry<Operacao, RegistroLatencias> registro : registros.entrySet()) {
+            total.acumula(registro.getValue());
+            resultados.put(registro.getKey().nome(), imprime(registro.getKey().nome(), registro.getValue().resume(segundos)));
+        }
+        resultados.put("total", imprime("total", total.resume(segundos)));
+
+        Map<String, Object> relatorio = new LinkedHashMap<>();
+        relatorio.put("executadoEm", LocalDateTime.now().toString());
+        relatorio.put("opcoes", opcoes);
+        relatorio.put("propriedadesAplicacao", propriedadesAplicacao);
+        relatorio.put("segundosMedidos", segundos);
+        relatorio.put("resultados", resultados);
+        Path saida = Path.of(opcoes.get("saida"));
+        if (saida.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(saida.toAbsolutePath().getParent());
+        }
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(saida.toFile(), relatorio);
+        System.out.println("\nResultado gravado em " + saida.toAbsolutePath());
+    }
+
+    private Map<String, Object> imprime(String operacao, Map<String, Object> resumo) {
+        System.out.printf(Locale.ROOT, "%-12s %11d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n", operacao,
+                resumo.get("requisicoes"), resumo.get("erros"), resumo.get("vazao"), resumo.get("p50"),
+                resumo.get("p99"), resumo.get("p999"), resumo.get("maximo"));
+        return resumo;
+    }
+
+    private static <T> T sorteia(Map<T, Integer> pesos, Random random) {
+        int total = pesos.values().stream().mapToInt(Integer::intValue).sum();
+        int sorteado = random.nextInt(total);
+        for (Map.Entry<T, Integer> peso : pesos.entrySet()) {
+            sorteado -= peso.getValue();
+            if (sorteado < 0) {
+                return peso.getKey();
+            }
+        }
+        throw new IllegalStateException("Pesos inválidos: " + pesos);
+    }
+
+    private static void leiaPesos(String valor, ObjIntConsumer<String> destino) {
+        for (String item : valor.split(",")) {
+            String[] partes = item.trim().split("=", 2);
+            int peso = Integer.parseInt(partes[1].trim());
+            if (peso < 0) {
+                throw new IllegalArgumentException("Peso negativo: " + item);
+            }
+            destino.accept(partes[0].trim(), peso);
+        }
+    }
+}
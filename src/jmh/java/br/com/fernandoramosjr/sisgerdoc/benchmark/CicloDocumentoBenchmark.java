@@ -0,0 +1,101 @@
+package br.com.fernandoramosjr.sisgerdoc.benchmark;
+
+import br.com.fernandoramosjr.sisgerdoc.SistemaGerenciadorDeDocumentosApplication;
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.service.DocumentoService;
+import br.com.fernandoramosjr.sisgerdoc.storage.ConteudoArmazenado;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ciclos completos do {@link DocumentoService} com a aplicação real: H2 em memória, transações e o storage engine
+ * configurado gravando num diretório temporário. O envio HTTP fica de fora; o download lê o conteúdo armazenado.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CicloDocumentoBenchmark {
+
+    @Param({"1024", "1048576"})
+    int tamanho;
+
+    @Param({"arquivo", "segmentos"})
+    String engine;
+
+    private ConfigurableApplicationContext contexto;
+    private DocumentoService documentoService;
+    private Path diretorio;
+    private MockMultipartFile arquivo;
+    private Long documentoExistente;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        diretorio = Files.createTempDirectory("sisgerdoc-benchmark");
+        contexto = new SpringApplicationBuilder(SistemaGerenciadorDeDocumentosApplication.class)
+                .properties("server.port=0",
+                        "file.upload-dir=" + diretorio,
+                        "file.storage.engine=" + engine,
+                        "spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "documento.indice.habilitado=false",
+                        "logging.level.root=WARN")
+                .run();
+        documentoService = contexto.getBean(DocumentoService.class);
+        byte[] conteudo = new byte[tamanho];
+        new Random(42).nextBytes(conteudo);
+        arquivo = new MockMultipartFile("file", "benchmark.bin", "application/octet-stream", conteudo);
+        documentoExistente = documentoService.criarNovoDocumento("Documento do benchmark", arquivo).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerra() throws IOException {
+        contexto.close();
+        FileSystemUtils.deleteRecursively(diretorio);
+    }
+
+    // Cria, baixa e apaga, para que o banco e o diretório não cresçam durante a medição
+    @Benchmark
+    public long criarBaixarApagar() throws IOException {
+        Documento documento = documentoService.criarNovoDocumento("Relatorio de Execucao", arquivo);
+        long lidos = baixa(documento.getId());
+        documentoService.deletarDocumento(documento.getId());
+        return lidos;
+    }
+
+    @Benchmark
+    public long baixar() throws IOException {
+        return baixa(documentoExistente);
+    }
+
+    private long baixa(Long id) throws IOException {
+        ConteudoArmazenado conteudo = documentoService.buscarDocumentoParaDownload(id).getConteudo();
+        long tamanhoConteudo = conteudo.getTamanho();
+        conteudo.transfere(0, tamanhoConteudo, Channels.newChannel(OutputStream.nullOutputStream()));
+        return tamanhoConteudo;
+    }
+}
@@ -0,0 +1,69 @@
+package br.com.fernandoramosjr.sisgerdoc.benchmark;
+
+import br.com.fernandoramosjr.sisgerdoc.util.DocumentoUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cópia do conteúdo recebido para o arquivo temporário do upload, com e sem o cálculo do SHA-256 (ETag).
+ * O arquivo de destino é reaproveitado, então o resultado depende do cache de páginas do sistema operacional.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CopiaConteudoBenchmark {
+
+    @Param({"4096", "262144", "16777216"})
+    int tamanho;
+
+    private byte[] conteudo;
+    private Path diretorio;
+    private Path destino;
+    private DocumentoUtil documentoUtil;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        conteudo = new byte[tamanho];
+        new Random(42).nextBytes(conteudo);
+        diretorio = Files.createTempDirectory("sisgerdoc-benchmark");
+        destino = diretorio.resolve("destino.part");
+        documentoUtil = new DocumentoUtil(diretorio.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void apaga() throws IOException {
+        FileSystemUtils.deleteRecursively(diretorio);
+    }
+
+    @Benchmark
+    public long copiaConteudo() throws IOException {
+        return documentoUtil.copiaConteudo(new ByteArrayInputStream(conteudo), destino, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public String copiaConteudoComHash() throws IOException {
+        return documentoUtil.copiaConteudoComHash(new ByteArrayInputStream(conteudo), destino, false);
+    }
+}
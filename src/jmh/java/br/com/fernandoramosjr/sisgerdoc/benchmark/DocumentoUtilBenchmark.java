@@ -0,0 +1,49 @@
+package br.com.fernandoramosjr.sisgerdoc.benchmark;
+
+import br.com.fernandoramosjr.sisgerdoc.util.DocumentoUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Geração do nome dos arquivos, feita em todo upload: normalização do nome do documento e formatação do ID.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentoUtilBenchmark {
+
+    @Param({"Contrato", "Relatório de Execução Orçamentária 2025"})
+    String nome;
+
+    private DocumentoUtil documentoUtil;
+    private long id;
+
+    @Setup
+    public void setup() {
+        documentoUtil = new DocumentoUtil("benchmark");
+    }
+
+    @Benchmark
+    public String normalizaNome() {
+        return DocumentoUtil.normalizaNome(nome);
+    }
+
+    @Benchmark
+    public String geraFileName() {
+        return documentoUtil.geraFileName(nome, ++id, "arquivo.pdf");
+    }
+}
@@ -0,0 +1,48 @@
+package br.com.fernandoramosjr.sisgerdoc.config;
+
+import br.com.fernandoramosjr.sisgerdoc.service.EstatisticaService;
+import br.com.fernandoramosjr.sisgerdoc.storage.ArquivoStorageEngine;
+import br.com.fernandoramosjr.sisgerdoc.storage.CamadaFriaStorageEngine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.system.DiskSpaceMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+@Configuration
+public class MetricasConfig {
+
+    // Contadores mantidos em memória pelo serviço de estatísticas; só a primeira coleta consulta o banco.
+    // O espaço livre do diretório de upload vem de disk.free (management.metrics.system.diskspace.paths)
+    @Bean
+    public MeterBinder armazenamentoMetricas(EstatisticaService estatisticaService) {
+        return registry -> {
+            Gauge.builder("sisgerdoc.armazenamento.documentos", estatisticaService,
+                            service -> service.obterEstatisticas().getTotalDocumentos())
+                    .description("Documentos armazenados")
+                    .register(registry);
+            Gauge.builder("sisgerdoc.armazenamento.bytes", estatisticaService,
+                            service -> service.obterEstatisticas().getTotalBytes())
+                    .description("Bytes ocupados pelos documentos armazenados")
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+
+    // disk.free e disk.total também para cada volume de file.storage.volumes.raizes e para a camada fria, com a
+    // tag path; o diretório de upload já é medido pela configuração do Actuator e não é registrado de novo
+    @Bean
+    public MeterBinder volumesMetricas(ArquivoStorageEngine arquivoStorageEngine, CamadaFriaStorageEngine camadaFria) {
+        return registry -> {
+            Set<Path> diretorios = new LinkedHashSet<>(arquivoStorageEngine.getRaizes());
+            if (camadaFria.isHabilitada()) {
+                diretorios.add(camadaFria.getDiretorio());
+            }
+            diretorios.stream().skip(1).forEach(diretorio -> new DiskSpaceMetrics(diretorio.toFile()).bindTo(registry));
+        };
+    }
+}
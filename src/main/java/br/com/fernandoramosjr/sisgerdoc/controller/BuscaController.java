@@ -0,0 +1,109 @@
+package br.com.fernandoramosjr.sisgerdoc.controller;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.PaginaBuscaDto;
+import br.com.fernandoramosjr.sisgerdoc.service.IndiceConteudoService;
+import br.com.fernandoramosjr.sisgerdoc.service.IndiceNomeService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/documentos/search")
+public class BuscaController {
+
+    private static final Logger logger = LogManager.getLogger(BuscaController.class);
+    private static final int LIMITE_MAXIMO_PAGINA = 100;
+    private final IndiceConteudoService indiceConteudoService;
+    private final IndiceNomeService indiceNomeService;
+
+    public BuscaController(IndiceConteudoService indiceConteudoService, IndiceNomeService indiceNomeService) {
+        this.indiceConteudoService = indiceConteudoService;
+        this.indiceNomeService = indiceNomeService;
+    }
+
+    @Operation(
+            summary = "Busca documentos pelo conteúdo",
+            description = "Retorna os documentos que contêm todos os termos da consulta no nome ou no texto do arquivo, ordenados por relevância (BM25, com peso maior para o nome). Maiúsculas e acentos são ignorados. O índice é atualizado em segundo plano: um documento recém-enviado pode levar alguns segundos para aparecer. Só arquivos de texto têm o conteúdo indexado.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Página de resultados",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = PaginaBuscaDto.class))),
+                    @ApiResponse(responseCode = "400", description = "Consulta ou paginação inválida",
+                            content = @Content),
+                    @ApiResponse(responseCode = "409", description = "Índice de conteúdo desabilitado",
+                            content = @Content),
+                    @ApiResponse(responseCode = "500", description = "Erro ao consultar o índice",
+                            content = @Content)
+            }
+    )
+    @GetMapping
+    public ResponseEntity<PaginaBuscaDto> buscar(
+            @Parameter(description = "Termos procurados", required = true, example = "contrato aluguel")
+            @RequestParam("q") String consulta,
+            @Parameter(description = "Página, a partir de 0", example = "0")
+            @RequestParam(value = "pagina", defaultValue = "0") int pagina,
+            @Parameter(description = "Quantidade de itens por página (máximo " + LIMITE_MAXIMO_PAGINA + ")", example = "20")
+            @RequestParam(value = "limite", defaultValue = "20") int limite) {
+        if (pagina < 0 || limite < 1 || limite > LIMITE_MAXIMO_PAGINA) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(indiceConteudoService.buscar(consulta, pagina, limite));
+        } catch (IllegalArgumentException e) {
+            logger.error("Consulta de busca inválida. Erro: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            logger.error("Busca indisponível. Erro: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IOException e) {
+            logger.error("Erro ao consultar o índice de conteúdo. Erro: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @Operation(
+            summary = "Busca documentos por trecho do nome ou por nome aproximado",
+            description = "Usa um índice de trigramas dos nomes, sem varrer a tabela. Maiúsculas e acentos são ignorados, com a mesma normalização do nome do arquivo. Nomes que contêm a consulta vêm primeiro; depois, os nomes aproximados (por exemplo, com erros de digitação), ordenados pela fração dos trigramas da consulta encontrados no nome, que é a pontuação retornada. A consulta precisa ter ao menos 3 caracteres, e só os 500 melhores resultados podem ser paginados.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Página de resultados",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = PaginaBuscaDto.class))),
+                    @ApiResponse(responseCode = "400", description = "Consulta ou paginação inválida",
+                            content = @Content),
+                    @ApiResponse(responseCode = "500", description = "Erro ao consultar o índice",
+                            content = @Content)
+            }
+    )
+    @GetMapping("/nome")
+    public ResponseEntity<PaginaBuscaDto> buscarPorNome(
+            @Parameter(description = "Trecho ou nome aproximado", required = true, example = "relatorio")
+            @RequestParam("q") String consulta,
+            @Parameter(description = "Página, a partir de 0", example = "0")
+            @RequestParam(value = "pagina", defaultValue = "0") int pagina,
+            @Parameter(description = "Quantidade de itens por página (máximo " + LIMITE_MAXIMO_PAGINA + ")", example = "20")
+            @RequestParam(value = "limite", defaultValue = "20") int limite) {
+        if (pagina < 0 || limite < 1 || limite > LIMITE_MAXIMO_PAGINA) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(indiceNomeService.buscar(consulta, pagina, limite));
+        } catch (IllegalArgumentException e) {
+            logger.error("Consulta de busca por nome inválida. Erro: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            logger.error("Erro ao consultar o índice de nomes. Erro: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -2,16 +2,28 @@ package br.com.fernandoramosjr.sisgerdoc.controller;
 
 import br.com.fernandoramosjr.sisgerdoc.model.Documento;
 import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoDownloadDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.FiltroDocumentoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.PaginaDocumentosDto;
+import br.com.fernandoramosjr.sisgerdoc.service.DocumentoMetricas;
 import br.com.fernandoramosjr.sisgerdoc.service.DocumentoService;
+import br.com.fernandoramosjr.sisgerdoc.storage.ConteudoArmazenado;
+import br.com.fernandoramosjr.sisgerdoc.util.DownloadUtil;
+import io.micrometer.core.instrument.Timer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -22,16 +34,31 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static br.com.fernandoramosjr.sisgerdoc.service.DocumentoMetricas.ARQUIVO;
+import static br.com.fernandoramosjr.sisgerdoc.service.DocumentoMetricas.ATUALIZACAO;
+import static br.com.fernandoramosjr.sisgerdoc.service.DocumentoMetricas.DOWNLOAD;
+import static br.com.fernandoramosjr.sisgerdoc.service.DocumentoMetricas.EXCLUSAO;
+import static br.com.fernandoramosjr.sisgerdoc.service.DocumentoMetricas.UPLOAD;
 
 @RestController
 @RequestMapping("/documentos")
 public class DocumentoController {
 
     private static final Logger logger = LogManager.getLogger(DocumentoController.class);
+    private static final int LIMITE_MAXIMO_PAGINA = 500;
     private final DocumentoService documentoService;
+    private final DocumentoMetricas documentoMetricas;
+
+    @Value("${documento.download.cache-control:no-cache}")
+    String cacheControl = "no-cache";
 
-    public DocumentoController(DocumentoService documentoService) {
+    public DocumentoController(DocumentoService documentoService, DocumentoMetricas documentoMetricas) {
         this.documentoService = documentoService;
+        this.documentoMetricas = documentoMetricas;
     }
 
     @Operation(
@@ -52,22 +79,139 @@ public class DocumentoController {
             @Parameter(description = "Arquivo binário do documento", required = true)
             @RequestParam("file") MultipartFile file) {
         logger.info("Iniciando criação do documento. Nome: {}", nome);
+        documentoMetricas.iniciaTransferencia(UPLOAD);
         try {
             Documento documento = documentoService.criarNovoDocumento(nome, file);
             logger.info("Documento criado com sucesso. ID: {}", documento.getId());
             return ResponseEntity.ok("Documento criado com ID: " + documento.getId());
         } catch (IOException e) {
             logger.error("Erro ao salvar o documento. Nome: {}. Erro: {}", nome, e.getMessage(), e);
+            documentoMetricas.registraErro(UPLOAD, "erro_io");
             return ResponseEntity.status(500).body("Erro ao salvar o documento");
+        } finally {
+            documentoMetricas.terminaTransferencia(UPLOAD);
+        }
+    }
+
+    @Operation(
+            summary = "Cria um novo documento via streaming",
+            description = "Recebe o mesmo corpo multipart de POST /documentos (campos nome e file), mas processa o corpo conforme ele chega, gravando o arquivo direto no diretório de upload. Indicado para arquivos grandes.",
+            security = @SecurityRequirement(name = "ApiKeyAuth"),
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Documento criado com sucesso",
+                            content = @Content(mediaType = "text/plain", schema = @Schema(implementation = String.class))),
+                    @ApiResponse(responseCode = "500", description = "Erro ao salvar o documento",
+                            content = @Content(mediaType = "text/plain"))
+            }
+    )
+    @PostMapping(value = "/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> criarNovoDocumentoStreaming(HttpServletRequest request) {
+        logger.info("Iniciando criação do documento via streaming. Tamanho informado: {}", request.getContentLengthLong());
+        documentoMetricas.iniciaTransferencia(UPLOAD);
+        try {
+            Documento documento = documentoService.criarNovoDocumentoStreaming(request.getContentType(), request.getInputStream());
+            logger.info("Documento criado com sucesso via streaming. ID: {}", documento.getId());
+            return ResponseEntity.ok("Documento criado com ID: " + documento.getId());
+        } catch (IOException e) {
+            logger.error("Erro ao salvar o documento via streaming. Erro: {}", e.getMessage(), e);
+            documentoMetricas.registraErro(UPLOAD, "erro_io");
+            return ResponseEntity.status(500).body("Erro ao salvar o documento");
+        } finally {
+            documentoMetricas.terminaTransferencia(UPLOAD);
+        }
+    }
+
+    @Operation(
+            summary = "Cria vários documentos em lote",
+            description = "Recebe vários arquivos no campo files e, opcionalmente, um nome para cada um no campo nomes (na mesma ordem). Sem nomes, usa o nome do arquivo sem a extensão. Os arquivos são gravados em paralelo e os registros inseridos em lote numa única transação: se algum arquivo falhar, nenhum documento é criado.",
+            security = @SecurityRequirement(name = "ApiKeyAuth"),
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Documentos criados com sucesso",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = DocumentoResumoDto.class)))),
+                    @ApiResponse(responseCode = "400", description = "Quantidade de arquivos ou de nomes inválida",
+                            content = @Content),
+                    @ApiResponse(responseCode = "500", description = "Erro ao salvar os documentos",
+                            content = @Content)
+            }
+    )
+    @PostMapping(value = "/lote", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<List<DocumentoResumoDto>> criarDocumentosEmLote(
+            @Parameter(description = "Nomes dos documentos, na mesma ordem dos arquivos")
+            @RequestParam(value = "nomes", required = false) List<String> nomes,
+            @Parameter(description = "Arquivos binários dos documentos", required = true)
+            @RequestParam("files") List<MultipartFile> files) {
+        logger.info("Iniciando criação de documentos em lote. Quantidade: {}", files.size());
+        documentoMetricas.iniciaTransferencia(UPLOAD);
+        try {
+            List<DocumentoResumoDto> criados = documentoService.criarDocumentosEmLote(nomes, files).stream()
+                    .map(documento -> new DocumentoResumoDto(documento.getId(), documento.getNome(), documento.getFileName(),
+                            documento.getFileSize(), documento.getCriadoEm()))
+                    .toList();
+            logger.info("Lote de documentos criado com sucesso. Quantidade: {}", criados.size());
+            return ResponseEntity.ok(criados);
+        } catch (IllegalArgumentException e) {
+            logger.error("Lote de documentos inválido. Erro: {}", e.getMessage());
+            documentoMetricas.registraErro(UPLOAD, "invalido");
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            logger.error("Erro ao salvar o lote de documentos. Erro: {}", e.getMessage(), e);
+            documentoMetricas.registraErro(UPLOAD, "erro_io");
+            return ResponseEntity.status(500).build();
+        } finally {
+            documentoMetricas.terminaTransferencia(UPLOAD);
+        }
+    }
+
+    @Operation(
+            summary = "Lista documentos",
+            description = "Retorna os metadados dos documentos, do mais recente para o mais antigo, com paginação por cursor. Para obter a próxima página, envie o valor de proximoCursor no parâmetro cursor.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Página de documentos",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = PaginaDocumentosDto.class))),
+                    @ApiResponse(responseCode = "400", description = "Cursor ou filtros inválidos",
+                            content = @Content)
+            }
+    )
+    @GetMapping
+    public ResponseEntity<PaginaDocumentosDto> listarDocumentos(
+            @Parameter(description = "Prefixo do nome do documento", example = "Contrato")
+            @RequestParam(value = "nome", required = false) String nome,
+            @Parameter(description = "Tamanho mínimo em bytes")
+            @RequestParam(value = "tamanhoMinimo", required = false) Long tamanhoMinimo,
+            @Parameter(description = "Tamanho máximo em bytes")
+            @RequestParam(value = "tamanhoMaximo", required = false) Long tamanhoMaximo,
+            @Parameter(description = "Criados a partir de (inclusive)", example = "2025-01-01T00:00:00")
+            @RequestParam(value = "criadoDe", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime criadoDe,
+            @Parameter(description = "Criados antes de (exclusive)", example = "2025-02-01T00:00:00")
+            @RequestParam(value = "criadoAte", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime criadoAte,
+            @Parameter(description = "Cursor retornado pela página anterior")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Quantidade de itens por página (máximo " + LIMITE_MAXIMO_PAGINA + ")", example = "50")
+            @RequestParam(value = "limite", defaultValue = "50") int limite) {
+        if (limite < 1 || limite > LIMITE_MAXIMO_PAGINA) {
+            return ResponseEntity.badRequest().build();
+        }
+        FiltroDocumentoDto filtro = new FiltroDocumentoDto(nome, tamanhoMinimo, tamanhoMaximo, criadoDe, criadoAte);
+        try {
+            return ResponseEntity.ok(documentoService.listarDocumentos(filtro, cursor, limite));
+        } catch (IllegalArgumentException e) {
+            logger.error("Parâmetros de listagem inválidos. Erro: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         }
     }
 
     @Operation(
             summary = "Retorna o documento pelo ID e inicia o download",
-            description = "Busca o documento no banco de dados e retorna o arquivo para download. Se o documento não for encontrado ou ocorrer erro na leitura, retorna 404.",
+            description = "Busca o documento no banco de dados e retorna o arquivo para download. Suporta os cabeçalhos Range e If-Range, inclusive com múltiplos intervalos, e requisições condicionais com If-None-Match e If-Modified-Since (ETag forte calculado no upload). Arquivos gravados comprimidos são enviados como estão, com Content-Encoding, quando o cliente aceita a codificação, e descomprimidos durante o envio caso contrário. Se o documento não for encontrado ou ocorrer erro na leitura, retorna 404.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Download iniciado com sucesso",
                             content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)),
+                    @ApiResponse(responseCode = "304", description = "Documento não modificado desde a versão em cache do cliente",
+                            content = @Content),
+                    @ApiResponse(responseCode = "206", description = "Intervalo(s) solicitado(s) do arquivo",
+                            content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)),
+                    @ApiResponse(responseCode = "416", description = "Nenhum intervalo solicitado alcança o arquivo",
+                            content = @Content),
                     @ApiResponse(responseCode = "404", description = "Documento não encontrado ou erro no download",
                             content = @Content)
             }
@@ -75,19 +219,52 @@ public class DocumentoController {
     @GetMapping("/{id}")
     public ResponseEntity<Resource> buscarDocumento(
             @Parameter(description = "ID do documento a ser baixado", required = true, example = "1")
-            @PathVariable Long id) {
+            @PathVariable Long id,
+            HttpServletRequest request,
+            HttpServletResponse response) {
         logger.info("Iniciando download do documento com ID: {}", id);
+        documentoMetricas.iniciaTransferencia(DOWNLOAD);
         try {
             DocumentoDownloadDto download = documentoService.buscarDocumentoParaDownload(id);
             String contentDisposition = "attachment; filename=\"" + download.getFileName() + "\"";
             logger.info("Documento encontrado. Iniciando envio do arquivo: {}", download.getFileName());
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+            ConteudoArmazenado conteudo = download.getConteudo();
+            if (conteudo == null && download.getResource().isFile()) {
+                conteudo = ConteudoArmazenado.deArquivo(download.getResource().getFile().toPath());
+            }
+            if (conteudo != null) {
+                long ultimaModificacao = download.getUltimaModificacao() != null
+                        ? download.getUltimaModificacao().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+                DownloadUtil downloadUtil = new DownloadUtil(request, response, download.getEtag(), ultimaModificacao);
+                // Com sendfile, o corpo é enviado pelo container depois do retorno e fica fora desta medição
+                Timer.Sample arquivo = documentoMetricas.inicia();
+                if (download.getCodificacao() == null) {
+                    downloadUtil.enviaArquivo(conteudo, contentDisposition);
+                } else if (downloadUtil.aceitaCodificacao(download.getCodificacao())) {
+                    downloadUtil.enviaArquivoCodificado(conteudo, contentDisposition, download.getCodificacao());
+                } else {
+                    downloadUtil.enviaArquivoDescomprimido(conteudo, contentDisposition, download.getTamanhoOriginal());
+                }
+                documentoMetricas.registraDuracao(arquivo, DOWNLOAD, ARQUIVO);
+                documentoMetricas.registraEnviado(downloadUtil.getBytesEnviados());
+                return null;
+            }
             return ResponseEntity.ok()
                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
                     .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
                     .body(download.getResource());
         } catch (FileNotFoundException | MalformedURLException e) {
             logger.error("Documento não encontrado ou erro no download. ID: {}. Erro: {}", id, e.getMessage(), e);
+            documentoMetricas.registraErro(DOWNLOAD, "nao_encontrado");
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (IOException e) {
+            logger.warn("Download interrompido. ID: {}. Erro: {}", id, e.getMessage());
+            documentoMetricas.registraErro(DOWNLOAD, "interrompido");
+            return null;
+        } finally {
+            documentoMetricas.terminaTransferencia(DOWNLOAD);
         }
     }
 
@@ -118,9 +295,11 @@ public class DocumentoController {
             return ResponseEntity.ok("Documento atualizado com sucesso");
         } catch (IOException e) {
             logger.error("Erro ao atualizar o documento. ID: {}. Erro: {}", id, e.getMessage(), e);
+            documentoMetricas.registraErro(ATUALIZACAO, "erro_io");
             return ResponseEntity.status(500).body("Erro ao atualizar o documento");
         } catch (RuntimeException ex) {
             logger.error("Documento não encontrado para atualização. ID: {}. Erro: {}", id, ex.getMessage(), ex);
+            documentoMetricas.registraErro(ATUALIZACAO, "nao_encontrado");
             return ResponseEntity.notFound().build();
         }
     }
@@ -148,9 +327,11 @@ public class DocumentoController {
             return ResponseEntity.ok("Documento apagado com sucesso");
         } catch (IOException e) {
             logger.error("Erro ao apagar o documento. ID: {}. Erro: {}", id, e.getMessage(), e);
+            documentoMetricas.registraErro(EXCLUSAO, "erro_io");
             return ResponseEntity.status(500).body("Erro ao apagar o documento");
         } catch (RuntimeException ex) {
             logger.error("Documento não encontrado para exclusão. ID: {}. Erro: {}", id, ex.getMessage(), ex);
+            documentoMetricas.registraErro(EXCLUSAO, "nao_encontrado");
             return ResponseEntity.notFound().build();
         }
     }
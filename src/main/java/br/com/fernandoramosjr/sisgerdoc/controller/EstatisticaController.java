@@ -0,0 +1,54 @@
+package br.com.fernandoramosjr.sisgerdoc.controller;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.CacheEstatisticasDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.EstatisticaArmazenamentoDto;
+import br.com.fernandoramosjr.sisgerdoc.service.DocumentoCache;
+import br.com.fernandoramosjr.sisgerdoc.service.EstatisticaService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/documentos/estatisticas")
+public class EstatisticaController {
+
+    private final EstatisticaService estatisticaService;
+    private final DocumentoCache documentoCache;
+
+    public EstatisticaController(EstatisticaService estatisticaService, DocumentoCache documentoCache) {
+        this.estatisticaService = estatisticaService;
+        this.documentoCache = documentoCache;
+    }
+
+    @Operation(
+            summary = "Retorna as estatísticas de armazenamento",
+            description = "Número de documentos e total de bytes armazenados, mantidos incrementalmente a cada operação.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Estatísticas atuais",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = EstatisticaArmazenamentoDto.class)))
+            }
+    )
+    @GetMapping
+    public ResponseEntity<EstatisticaArmazenamentoDto> obterEstatisticas() {
+        return ResponseEntity.ok(estatisticaService.obterEstatisticas());
+    }
+
+    @Operation(
+            summary = "Retorna as estatísticas do cache de metadados",
+            description = "Entradas, acertos, falhas e remoções do cache de documentos usado no download.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Estatísticas do cache",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = CacheEstatisticasDto.class)))
+            }
+    )
+    @GetMapping("/cache")
+    public ResponseEntity<CacheEstatisticasDto> obterEstatisticasCache() {
+        return ResponseEntity.ok(documentoCache.obterEstatisticas());
+    }
+}
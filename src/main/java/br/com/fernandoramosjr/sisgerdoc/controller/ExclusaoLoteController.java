@@ -0,0 +1,56 @@
+package br.com.fernandoramosjr.sisgerdoc.controller;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.ExclusaoLoteDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.ExclusaoLoteRequisicaoDto;
+import br.com.fernandoramosjr.sisgerdoc.service.DocumentoMetricas;
+import br.com.fernandoramosjr.sisgerdoc.service.ExclusaoLoteService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static br.com.fernandoramosjr.sisgerdoc.service.DocumentoMetricas.EXCLUSAO;
+
+@RestController
+@RequestMapping("/documentos/exclusao")
+public class ExclusaoLoteController {
+
+    private static final Logger logger = LogManager.getLogger(ExclusaoLoteController.class);
+
+    private final ExclusaoLoteService exclusaoLoteService;
+    private final DocumentoMetricas documentoMetricas;
+
+    public ExclusaoLoteController(ExclusaoLoteService exclusaoLoteService, DocumentoMetricas documentoMetricas) {
+        this.exclusaoLoteService = exclusaoLoteService;
+        this.documentoMetricas = documentoMetricas;
+    }
+
+    @Operation(
+            summary = "Exclui vários documentos",
+            description = "Recebe uma lista de IDs ou um filtro, com os mesmos campos da listagem, e exclui os documentos do banco em lotes. Os arquivos são removidos depois, em segundo plano; remocoesPendentes informa quantos aguardam na fila.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Documentos excluídos",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ExclusaoLoteDto.class))),
+                    @ApiResponse(responseCode = "400", description = "Nenhum ID ou filtro informado, ou IDs acima do máximo",
+                            content = @Content)
+            }
+    )
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ExclusaoLoteDto> excluirDocumentos(@RequestBody ExclusaoLoteRequisicaoDto requisicao) {
+        try {
+            return ResponseEntity.ok(exclusaoLoteService.excluir(requisicao.getIds(), requisicao.getFiltro()));
+        } catch (IllegalArgumentException e) {
+            logger.error("Parâmetros de exclusão em lote inválidos. Erro: {}", e.getMessage());
+            documentoMetricas.registraErro(EXCLUSAO, "parametros_invalidos");
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
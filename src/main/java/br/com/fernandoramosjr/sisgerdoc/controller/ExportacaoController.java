@@ -0,0 +1,111 @@
+package br.com.fernandoramosjr.sisgerdoc.controller;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.ExportacaoRequisicaoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.FiltroDocumentoDto;
+import br.com.fernandoramosjr.sisgerdoc.service.DocumentoMetricas;
+import br.com.fernandoramosjr.sisgerdoc.service.ExportacaoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static br.com.fernandoramosjr.sisgerdoc.service.DocumentoMetricas.DOWNLOAD;
+
+@RestController
+@RequestMapping("/documentos/exportar")
+public class ExportacaoController {
+
+    private static final Logger logger = LogManager.getLogger(ExportacaoController.class);
+    private static final String APPLICATION_ZIP = "application/zip";
+
+    private final ExportacaoService exportacaoService;
+    private final DocumentoMetricas documentoMetricas;
+
+    public ExportacaoController(ExportacaoService exportacaoService, DocumentoMetricas documentoMetricas) {
+        this.exportacaoService = exportacaoService;
+        this.documentoMetricas = documentoMetricas;
+    }
+
+    @Operation(
+            summary = "Exporta em um arquivo ZIP os documentos que atendem aos filtros",
+            description = "Recebe os mesmos filtros da listagem e envia um ZIP gerado durante a resposta, sem tamanho conhecido de antemão. Formatos já comprimidos são armazenados sem compressão. Documentos ilegíveis são listados em exportacao-avisos.txt, no fim do arquivo. Para escolher os documentos pelos IDs, use o POST.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Arquivo ZIP com os documentos",
+                            content = @Content(mediaType = APPLICATION_ZIP)),
+                    @ApiResponse(responseCode = "400", description = "Nenhum filtro informado",
+                            content = @Content)
+            }
+    )
+    @GetMapping(produces = APPLICATION_ZIP)
+    public ResponseEntity<Void> exportarDocumentos(
+            @Parameter(description = "Prefixo do nome do documento", example = "Contrato")
+            @RequestParam(value = "nome", required = false) String nome,
+            @Parameter(description = "Tamanho mínimo em bytes")
+            @RequestParam(value = "tamanhoMinimo", required = false) Long tamanhoMinimo,
+            @Parameter(description = "Tamanho máximo em bytes")
+            @RequestParam(value = "tamanhoMaximo", required = false) Long tamanhoMaximo,
+            @Parameter(description = "Criados a partir de (inclusive)", example = "2025-01-01T00:00:00")
+            @RequestParam(value = "criadoDe", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime criadoDe,
+            @Parameter(description = "Criados antes de (exclusive)", example = "2025-02-01T00:00:00")
+            @RequestParam(value = "criadoAte", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime criadoAte,
+            HttpServletResponse response) {
+        return exporta(null, new FiltroDocumentoDto(nome, tamanhoMinimo, tamanhoMaximo, criadoDe, criadoAte), response);
+    }
+
+    @Operation(
+            summary = "Exporta em um arquivo ZIP os documentos informados",
+            description = "Recebe no corpo a lista de IDs, na ordem do arquivo, e envia um ZIP gerado durante a resposta, sem tamanho conhecido de antemão. Os IDs vão no corpo porque milhares deles não cabem na URL. Documentos não encontrados ou ilegíveis são listados em exportacao-avisos.txt, no fim do arquivo.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Arquivo ZIP com os documentos",
+                            content = @Content(mediaType = APPLICATION_ZIP)),
+                    @ApiResponse(responseCode = "400", description = "Nenhum ID informado, ou IDs acima do máximo",
+                            content = @Content)
+            }
+    )
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = APPLICATION_ZIP)
+    public ResponseEntity<Void> exportarDocumentosPorIds(@RequestBody ExportacaoRequisicaoDto requisicao,
+                                                         HttpServletResponse response) {
+        List<Long> ids = requisicao.getIds() != null ? requisicao.getIds() : List.of();
+        return exporta(ids, null, response);
+    }
+
+    private ResponseEntity<Void> exporta(List<Long> ids, FiltroDocumentoDto filtro, HttpServletResponse response) {
+        try {
+            exportacaoService.validar(ids, filtro);
+        } catch (IllegalArgumentException e) {
+            logger.error("Parâmetros de exportação inválidos. Erro: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        documentoMetricas.iniciaTransferencia(DOWNLOAD);
+        try {
+            response.setContentType(APPLICATION_ZIP);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"documentos.zip\"");
+            int exportados = exportacaoService.exportar(ids, filtro, response.getOutputStream());
+            logger.info("Exportação enviada. Documentos: {}", exportados);
+        } catch (IOException e) {
+            // O status já foi enviado; o cliente percebe o ZIP truncado
+            logger.warn("Exportação interrompida. Erro: {}", e.getMessage());
+            documentoMetricas.registraErro(DOWNLOAD, "interrompido");
+        } finally {
+            documentoMetricas.terminaTransferencia(DOWNLOAD);
+        }
+        return null;
+    }
+}
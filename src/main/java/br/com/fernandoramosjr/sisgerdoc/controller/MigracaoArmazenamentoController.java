@@ -0,0 +1,59 @@
+package br.com.fernandoramosjr.sisgerdoc.controller;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.MigracaoArmazenamentoDto;
+import br.com.fernandoramosjr.sisgerdoc.service.MigracaoArmazenamentoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/documentos/armazenamento/migracao")
+public class MigracaoArmazenamentoController {
+
+    private static final Logger logger = LogManager.getLogger(MigracaoArmazenamentoController.class);
+    private final MigracaoArmazenamentoService migracaoArmazenamentoService;
+
+    public MigracaoArmazenamentoController(MigracaoArmazenamentoService migracaoArmazenamentoService) {
+        this.migracaoArmazenamentoService = migracaoArmazenamentoService;
+    }
+
+    @Operation(
+            summary = "Inicia a migração dos arquivos para o layout de diretórios e volumes configurado",
+            description = "Move, em segundo plano e em lotes, os arquivos já gravados para os subdiretórios definidos em file.storage.diretorios.niveis e para o volume escolhido entre file.storage.volumes.raizes, atualizando o caminho de cada documento. Só os arquivos fora do lugar são movidos, o que rebalanceia os volumes após incluir ou drenar um deles. Os documentos continuam disponíveis durante a migração.",
+            responses = {
+                    @ApiResponse(responseCode = "202", description = "Migração iniciada",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = MigracaoArmazenamentoDto.class))),
+                    @ApiResponse(responseCode = "409", description = "Já existe uma migração em execução",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = MigracaoArmazenamentoDto.class)))
+            }
+    )
+    @PostMapping
+    public ResponseEntity<MigracaoArmazenamentoDto> iniciarMigracao() {
+        logger.info("Solicitada migração do armazenamento");
+        HttpStatus status = migracaoArmazenamentoService.iniciarMigracao() ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT;
+        return ResponseEntity.status(status).body(migracaoArmazenamentoService.consultarMigracao());
+    }
+
+    @Operation(
+            summary = "Retorna o andamento da migração do armazenamento",
+            description = "Documentos verificados, migrados e com falha na execução atual ou na última execução.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Andamento da migração",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = MigracaoArmazenamentoDto.class)))
+            }
+    )
+    @GetMapping
+    public ResponseEntity<MigracaoArmazenamentoDto> consultarMigracao() {
+        return ResponseEntity.ok(migracaoArmazenamentoService.consultarMigracao());
+    }
+}
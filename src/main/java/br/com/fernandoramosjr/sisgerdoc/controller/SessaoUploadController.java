@@ -0,0 +1,168 @@
+package br.com.fernandoramosjr.sisgerdoc.controller;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.SessaoUploadDto;
+import br.com.fernandoramosjr.sisgerdoc.service.SessaoUploadService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/documentos/uploads")
+public class SessaoUploadController {
+
+    private static final Logger logger = LogManager.getLogger(SessaoUploadController.class);
+    private final SessaoUploadService sessaoUploadService;
+
+    public SessaoUploadController(SessaoUploadService sessaoUploadService) {
+        this.sessaoUploadService = sessaoUploadService;
+    }
+
+    @Operation(
+            summary = "Abre uma sessão de upload em partes",
+            description = "Cria uma sessão para envio do arquivo em chunks numerados de 0 a totalChunks - 1. Os chunks podem ser enviados em paralelo e em qualquer ordem.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sessão aberta com sucesso",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = SessaoUploadDto.class))),
+                    @ApiResponse(responseCode = "400", description = "Parâmetros inválidos", content = @Content),
+                    @ApiResponse(responseCode = "500", description = "Erro ao abrir a sessão", content = @Content)
+            }
+    )
+    @PostMapping
+    public ResponseEntity<SessaoUploadDto> abrirSessao(
+            @Parameter(description = "Nome do documento", required = true, example = "Contrato")
+            @RequestParam("nome") String nome,
+            @Parameter(description = "Nome original do arquivo, usado para a extensão", example = "contrato.pdf")
+            @RequestParam(value = "nomeArquivo", required = false) String nomeArquivo,
+            @Parameter(description = "Quantidade total de chunks", required = true, example = "10")
+            @RequestParam("totalChunks") Integer totalChunks) {
+        logger.info("Abrindo sessão de upload. Nome: {}", nome);
+        try {
+            return ResponseEntity.ok(sessaoUploadService.abrirSessao(nome, nomeArquivo, totalChunks));
+        } catch (IOException e) {
+            logger.error("Erro ao abrir sessão de upload. Nome: {}. Erro: {}", nome, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        } catch (IllegalArgumentException e) {
+            logger.error("Parâmetros inválidos para sessão de upload. Nome: {}. Erro: {}", nome, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(
+            summary = "Envia um chunk da sessão",
+            description = "Recebe o conteúdo binário do chunk no corpo da requisição. Reenviar um chunk substitui o anterior.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Chunk recebido", content = @Content(mediaType = "text/plain")),
+                    @ApiResponse(responseCode = "400", description = "Número de chunk inválido", content = @Content(mediaType = "text/plain")),
+                    @ApiResponse(responseCode = "409", description = "Sessão em conclusão", content = @Content(mediaType = "text/plain")),
+                    @ApiResponse(responseCode = "404", description = "Sessão não encontrada", content = @Content),
+                    @ApiResponse(responseCode = "500", description = "Erro ao gravar o chunk", content = @Content(mediaType = "text/plain"))
+            }
+    )
+    @PutMapping(value = "/{sessaoId}/chunks/{numero}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<String> receberChunk(
+            @PathVariable String sessaoId,
+            @PathVariable int numero,
+            InputStream conteudo) {
+        try {
+            sessaoUploadService.receberChunk(sessaoId, numero, conteudo);
+            return ResponseEntity.ok("Chunk " + numero + " recebido");
+        } catch (IOException e) {
+            logger.error("Erro ao gravar chunk. Sessão: {} - Chunk: {}. Erro: {}", sessaoId, numero, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Erro ao gravar o chunk");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Sessão de upload não encontrada. ID: {}. Erro: {}", sessaoId, e.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @Operation(
+            summary = "Consulta a sessão de upload",
+            description = "Retorna os chunks já recebidos, permitindo ao cliente retomar o envio apenas do que falta.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Situação da sessão",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = SessaoUploadDto.class))),
+                    @ApiResponse(responseCode = "404", description = "Sessão não encontrada", content = @Content)
+            }
+    )
+    @GetMapping("/{sessaoId}")
+    public ResponseEntity<SessaoUploadDto> consultarSessao(@PathVariable String sessaoId) {
+        try {
+            return ResponseEntity.ok(sessaoUploadService.consultarSessao(sessaoId));
+        } catch (IOException e) {
+            logger.error("Erro ao consultar sessão de upload. ID: {}. Erro: {}", sessaoId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        } catch (RuntimeException e) {
+            logger.error("Sessão de upload não encontrada. ID: {}. Erro: {}", sessaoId, e.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @Operation(
+            summary = "Conclui a sessão de upload",
+            description = "Monta o arquivo a partir dos chunks recebidos, cria o documento e encerra a sessão.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Documento criado com sucesso",
+                            content = @Content(mediaType = "text/plain", schema = @Schema(implementation = String.class))),
+                    @ApiResponse(responseCode = "404", description = "Sessão não encontrada", content = @Content),
+                    @ApiResponse(responseCode = "409", description = "Sessão incompleta ou já concluída", content = @Content(mediaType = "text/plain")),
+                    @ApiResponse(responseCode = "500", description = "Erro ao salvar o documento", content = @Content(mediaType = "text/plain"))
+            }
+    )
+    @PostMapping("/{sessaoId}/commit")
+    public ResponseEntity<String> concluirSessao(@PathVariable String sessaoId) {
+        logger.info("Concluindo sessão de upload. ID: {}", sessaoId);
+        try {
+            Documento documento = sessaoUploadService.concluirSessao(sessaoId);
+            return ResponseEntity.ok("Documento criado com ID: " + documento.getId());
+        } catch (IOException e) {
+            logger.error("Erro ao concluir sessão de upload. ID: {}. Erro: {}", sessaoId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Erro ao salvar o documento");
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Sessão de upload não encontrada. ID: {}. Erro: {}", sessaoId, e.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @Operation(
+            summary = "Cancela a sessão de upload",
+            description = "Descarta os chunks recebidos e encerra a sessão.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sessão cancelada", content = @Content(mediaType = "text/plain")),
+                    @ApiResponse(responseCode = "404", description = "Sessão não encontrada", content = @Content),
+                    @ApiResponse(responseCode = "409", description = "Sessão em conclusão", content = @Content(mediaType = "text/plain"))
+            }
+    )
+    @DeleteMapping("/{sessaoId}")
+    public ResponseEntity<String> cancelarSessao(@PathVariable String sessaoId) {
+        try {
+            sessaoUploadService.cancelarSessao(sessaoId);
+            return ResponseEntity.ok("Sessão cancelada");
+        } catch (IOException e) {
+            logger.error("Erro ao cancelar sessão de upload. ID: {}. Erro: {}", sessaoId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Erro ao cancelar a sessão");
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Sessão de upload não encontrada. ID: {}. Erro: {}", sessaoId, e.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
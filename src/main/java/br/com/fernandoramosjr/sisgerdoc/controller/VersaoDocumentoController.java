@@ -0,0 +1,120 @@
+package br.com.fernandoramosjr.sisgerdoc.controller;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.VersaoDocumentoDto;
+import br.com.fernandoramosjr.sisgerdoc.service.DocumentoMetricas;
+import br.com.fernandoramosjr.sisgerdoc.service.VersaoDocumentoService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.List;
+
+import static br.com.fernandoramosjr.sisgerdoc.service.DocumentoMetricas.DOWNLOAD;
+
+@RestController
+@RequestMapping("/documentos/{id}/versoes")
+public class VersaoDocumentoController {
+
+    private static final Logger logger = LogManager.getLogger(VersaoDocumentoController.class);
+
+    private final VersaoDocumentoService versaoDocumentoService;
+    private final DocumentoMetricas documentoMetricas;
+
+    public VersaoDocumentoController(VersaoDocumentoService versaoDocumentoService, DocumentoMetricas documentoMetricas) {
+        this.versaoDocumentoService = versaoDocumentoService;
+        this.documentoMetricas = documentoMetricas;
+    }
+
+    @Operation(
+            summary = "Lista as versões do documento",
+            description = "Retorna a versão atual seguida das anteriores, da mais recente para a mais antiga. Cada atualização com arquivo cria uma versão; tamanhoArmazenado mostra quanto a versão ocupa em disco, em geral só o delta em relação à seguinte.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Versões do documento",
+                            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    array = @ArraySchema(schema = @Schema(implementation = VersaoDocumentoDto.class)))),
+                    @ApiResponse(responseCode = "404", description = "Documento não encontrado",
+                            content = @Content)
+            }
+    )
+    @GetMapping
+    public ResponseEntity<List<VersaoDocumentoDto>> listarVersoes(
+            @Parameter(description = "ID do documento", required = true, example = "1")
+            @PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(versaoDocumentoService.listarVersoes(id));
+        } catch (FileNotFoundException e) {
+            logger.error("Documento não encontrado para listar versões. ID: {}", id);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @Operation(
+            summary = "Baixa uma versão do documento",
+            description = "Reconstrói a versão a partir da versão completa mais próxima e dos deltas seguintes, confere o SHA-256 e envia o arquivo. A versão atual é enviada direto do armazenamento.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Conteúdo da versão",
+                            content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)),
+                    @ApiResponse(responseCode = "404", description = "Documento ou versão não encontrados",
+                            content = @Content),
+                    @ApiResponse(responseCode = "500", description = "Histórico da versão incompleto ou corrompido",
+                            content = @Content)
+            }
+    )
+    @GetMapping("/{numero}")
+    public ResponseEntity<Void> buscarVersao(
+            @Parameter(description = "ID do documento", required = true, example = "1")
+            @PathVariable Long id,
+            @Parameter(description = "Número da versão", required = true, example = "1")
+            @PathVariable int numero,
+            HttpServletResponse response) {
+        documentoMetricas.iniciaTransferencia(DOWNLOAD);
+        try {
+            VersaoDocumentoDto versao = versaoDocumentoService.buscarVersao(id, numero);
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + versao.getFileName() + "\"");
+            if (versao.getTamanho() != null) {
+                response.setContentLengthLong(versao.getTamanho());
+            }
+            if (versao.getEtag() != null) {
+                response.setHeader(HttpHeaders.ETAG, "\"" + versao.getEtag() + "\"");
+            }
+            versaoDocumentoService.escreverVersao(id, numero, response.getOutputStream());
+            return null;
+        } catch (FileNotFoundException e) {
+            logger.error("Versão não encontrada. ID: {} - Versão: {} - Erro: {}", id, numero, e.getMessage());
+            documentoMetricas.registraErro(DOWNLOAD, "nao_encontrado");
+            return falha(response, HttpStatus.NOT_FOUND);
+        } catch (IOException e) {
+            logger.error("Erro ao enviar a versão. ID: {} - Versão: {} - Erro: {}", id, numero, e.getMessage(), e);
+            documentoMetricas.registraErro(DOWNLOAD, "erro_io");
+            return falha(response, HttpStatus.INTERNAL_SERVER_ERROR);
+        } finally {
+            documentoMetricas.terminaTransferencia(DOWNLOAD);
+        }
+    }
+
+    // A versão só é escrita depois de reconstruída e conferida; um erro após o início do envio é só registrado
+    private static ResponseEntity<Void> falha(HttpServletResponse response, HttpStatus status) {
+        if (response.isCommitted()) {
+            return null;
+        }
+        response.reset();
+        return ResponseEntity.status(status).build();
+    }
+}
@@ -0,0 +1,61 @@
+package br.com.fernandoramosjr.sisgerdoc.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "blobs")
+public class Blob {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    private String filePath;
+    private Long fileSize;
+    private Long referencias;
+    private LocalDateTime criadoEm;
+
+    public Blob() {}
+
+    public Blob(String hash, String filePath, Long fileSize, Long referencias, LocalDateTime criadoEm) {
+        this.hash = hash;
+        this.filePath = filePath;
+        this.fileSize = fileSize;
+        this.referencias = referencias;
+        this.criadoEm = criadoEm;
+    }
+
+    // Getters e Setters
+
+    public String getHash() {
+        return hash;
+    }
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+    public String getFilePath() {
+        return filePath;
+    }
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+    public Long getFileSize() {
+        return fileSize;
+    }
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+    public Long getReferencias() {
+        return referencias;
+    }
+    public void setReferencias(Long referencias) {
+        this.referencias = referencias;
+    }
+    public LocalDateTime getCriadoEm() {
+        return criadoEm;
+    }
+    public void setCriadoEm(LocalDateTime criadoEm) {
+        this.criadoEm = criadoEm;
+    }
+}
@@ -4,11 +4,19 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "documentos")
+@Table(name = "documentos", indexes = {
+        @Index(name = "idx_documentos_criado_em_id", columnList = "criadoEm, id"),
+        @Index(name = "idx_documentos_nome", columnList = "nome"),
+        @Index(name = "idx_documentos_file_size", columnList = "fileSize"),
+        @Index(name = "idx_documentos_segmento_id", columnList = "segmento, id"),
+        @Index(name = "idx_documentos_indexado_id", columnList = "indexado, id")
+})
 public class Documento {
 
+    // Sequência com alocação em blocos: o ID é reservado sem INSERT (DocumentoRepository.reservaIds), o que permite
+    // gravar cada linha uma única vez, já completa, e agrupar os INSERTs em lotes JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SequenciaDocumentos
     private Long id;
 
     private String nome;
@@ -16,6 +24,28 @@ public class Documento {
     private Long fileSize;
     private String fileName;
     private LocalDateTime criadoEm;
+    private LocalDateTime atualizadoEm;
+    // SHA-256 do conteúdo original, calculado na gravação e usado como ETag no download
+    @Column(length = 64)
+    private String etag;
+    @Column(length = 64)
+    private String blobHash;
+    // Preenchidos apenas quando o arquivo é gravado comprimido; nesse caso fileSize é o tamanho em disco
+    @Column(length = 16)
+    private String codificacao;
+    private Long tamanhoOriginal;
+    // Storage engine que guarda o conteúdo; nulo nos registros anteriores à sua criação, que ficam em arquivos
+    @Column(length = 16)
+    private String armazenamento;
+    // Posição do conteúdo quando empacotado num segmento; o tamanho é fileSize
+    private Long segmento;
+    private Long segmentoOffset;
+    // Nulo ou falso enquanto a versão atual do documento não estiver no índice de conteúdo
+    private Boolean indexado;
+    // Número da versão atual do conteúdo; nulo nos registros anteriores ao versionamento, que estão na versão 1
+    private Integer versao;
+    // Último download, gravado em lotes; nulo se o documento nunca foi baixado desde a criação da coluna
+    private LocalDateTime ultimoAcesso;
 
     public Documento() {}
 
@@ -31,6 +61,22 @@ public class Documento {
     public Documento(String nome, LocalDateTime criadoEm) {
         this.nome = nome;
         this.criadoEm = criadoEm;
+        this.atualizadoEm = criadoEm;
+    }
+
+    public Documento(Documento origem) {
+        this(origem.id, origem.nome, origem.filePath, origem.fileSize, origem.fileName, origem.criadoEm);
+        this.blobHash = origem.blobHash;
+        this.codificacao = origem.codificacao;
+        this.tamanhoOriginal = origem.tamanhoOriginal;
+        this.atualizadoEm = origem.atualizadoEm;
+        this.etag = origem.etag;
+        this.armazenamento = origem.armazenamento;
+        this.segmento = origem.segmento;
+        this.segmentoOffset = origem.segmentoOffset;
+        this.indexado = origem.indexado;
+        this.versao = origem.versao;
+        this.ultimoAcesso = origem.ultimoAcesso;
     }
 
     // Getters e Setters
@@ -71,4 +117,70 @@ public class Documento {
     public void setCriadoEm(LocalDateTime criadoEm) {
         this.criadoEm = criadoEm;
     }
+    public LocalDateTime getAtualizadoEm() {
+        return atualizadoEm;
+    }
+    public void setAtualizadoEm(LocalDateTime atualizadoEm) {
+        this.atualizadoEm = atualizadoEm;
+    }
+    public String getEtag() {
+        return etag;
+    }
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+    public String getBlobHash() {
+        return blobHash;
+    }
+    public void setBlobHash(String blobHash) {
+        this.blobHash = blobHash;
+    }
+    public String getCodificacao() {
+        return codificacao;
+    }
+    public void setCodificacao(String codificacao) {
+        this.codificacao = codificacao;
+    }
+    public Long getTamanhoOriginal() {
+        return tamanhoOriginal;
+    }
+    public void setTamanhoOriginal(Long tamanhoOriginal) {
+        this.tamanhoOriginal = tamanhoOriginal;
+    }
+    public String getArmazenamento() {
+        return armazenamento;
+    }
+    public void setArmazenamento(String armazenamento) {
+        this.armazenamento = armazenamento;
+    }
+    public Long getSegmento() {
+        return segmento;
+    }
+    public void setSegmento(Long segmento) {
+        this.segmento = segmento;
+    }
+    public Long getSegmentoOffset() {
+        return segmentoOffset;
+    }
+    public void setSegmentoOffset(Long segmentoOffset) {
+        this.segmentoOffset = segmentoOffset;
+    }
+    public Boolean getIndexado() {
+        return indexado;
+    }
+    public void setIndexado(Boolean indexado) {
+        this.indexado = indexado;
+    }
+    public Integer getVersao() {
+        return versao;
+    }
+    public void setVersao(Integer versao) {
+        this.versao = versao;
+    }
+    public LocalDateTime getUltimoAcesso() {
+        return ultimoAcesso;
+    }
+    public void setUltimoAcesso(LocalDateTime ultimoAcesso) {
+        this.ultimoAcesso = ultimoAcesso;
+    }
 }
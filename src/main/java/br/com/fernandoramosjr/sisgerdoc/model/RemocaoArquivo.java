@@ -0,0 +1,80 @@
+package br.com.fernandoramosjr.sisgerdoc.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Conteúdo de um documento já excluído do banco, aguardando a remoção do arquivo, do segmento ou da referência
+ * ao blob. As linhas são gravadas na mesma transação que exclui os documentos.
+ */
+@Entity
+@Table(name = "remocoes_arquivos")
+public class RemocaoArquivo {
+
+    // O ID do documento excluído; cada documento entra na fila uma única vez
+    @Id
+    private Long documentoId;
+
+    @Column(length = 16)
+    private String armazenamento;
+    private String filePath;
+    private Long segmento;
+    private Long segmentoOffset;
+    @Column(length = 64)
+    private String blobHash;
+    private Integer tentativas;
+    private LocalDateTime criadoEm;
+
+    public RemocaoArquivo() {}
+
+    // Getters e Setters
+
+    public Long getDocumentoId() {
+        return documentoId;
+    }
+    public void setDocumentoId(Long documentoId) {
+        this.documentoId = documentoId;
+    }
+    public String getArmazenamento() {
+        return armazenamento;
+    }
+    public void setArmazenamento(String armazenamento) {
+        this.armazenamento = armazenamento;
+    }
+    public String getFilePath() {
+        return filePath;
+    }
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+    public Long getSegmento() {
+        return segmento;
+    }
+    public void setSegmento(Long segmento) {
+        this.segmento = segmento;
+    }
+    public Long getSegmentoOffset() {
+        return segmentoOffset;
+    }
+    public void setSegmentoOffset(Long segmentoOffset) {
+        this.segmentoOffset = segmentoOffset;
+    }
+    public String getBlobHash() {
+        return blobHash;
+    }
+    public void setBlobHash(String blobHash) {
+        this.blobHash = blobHash;
+    }
+    public Integer getTentativas() {
+        return tentativas;
+    }
+    public void setTentativas(Integer tentativas) {
+        this.tentativas = tentativas;
+    }
+    public LocalDateTime getCriadoEm() {
+        return criadoEm;
+    }
+    public void setCriadoEm(LocalDateTime criadoEm) {
+        this.criadoEm = criadoEm;
+    }
+}
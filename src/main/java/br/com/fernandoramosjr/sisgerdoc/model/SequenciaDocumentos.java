@@ -0,0 +1,47 @@
+package br.com.fernandoramosjr.sisgerdoc.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.Properties;
+
+/**
+ * ID da sequência {@code documentos_seq}, alocada em blocos de 50, que aceita um valor já reservado. O serviço
+ * reserva os IDs antes de gravar os arquivos, porque o nome do arquivo depende do ID, e persiste a entidade completa
+ * uma única vez.
+ */
+@IdGeneratorType(SequenciaDocumentos.Gerador.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface SequenciaDocumentos {
+
+    class Gerador extends SequenceStyleGenerator {
+
+        @Override
+        public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) {
+            parameters.put(SEQUENCE_PARAM, "documentos_seq");
+            parameters.put(INCREMENT_PARAM, 50);
+            super.configure(type, parameters, serviceRegistry);
+        }
+
+        @Override
+        public Object generate(SharedSessionContractImplementor session, Object object) {
+            if (object instanceof Documento documento && documento.getId() != null) {
+                return documento.getId();
+            }
+            return super.generate(session, object);
+        }
+
+        @Override
+        public boolean allowAssignedIdentifiers() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package br.com.fernandoramosjr.sisgerdoc.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "sessoes_upload", indexes = @Index(name = "idx_sessoes_upload_atualizado_em", columnList = "atualizadoEm"))
+public class SessaoUpload {
+
+    @Id
+    private String id;
+
+    private String nome;
+    private String nomeArquivo;
+    private Integer totalChunks;
+    private LocalDateTime criadoEm;
+    private LocalDateTime atualizadoEm;
+    // Marcada durante a montagem do documento; a sessão e os chunks só são apagados depois que ele é criado
+    private boolean concluindo;
+
+    public SessaoUpload() {}
+
+    public SessaoUpload(String id, String nome, String nomeArquivo, Integer totalChunks, LocalDateTime criadoEm) {
+        this.id = id;
+        this.nome = nome;
+        this.nomeArquivo = nomeArquivo;
+        this.totalChunks = totalChunks;
+        this.criadoEm = criadoEm;
+        this.atualizadoEm = criadoEm;
+    }
+
+    // Getters e Setters
+
+    public String getId() {
+        return id;
+    }
+    public void setId(String id) {
+        this.id = id;
+    }
+    public String getNome() {
+        return nome;
+    }
+    public void setNome(String nome) {
+        this.nome = nome;
+    }
+    public String getNomeArquivo() {
+        return nomeArquivo;
+    }
+    public void setNomeArquivo(String nomeArquivo) {
+        this.nomeArquivo = nomeArquivo;
+    }
+    public Integer getTotalChunks() {
+        return totalChunks;
+    }
+    public void setTotalChunks(Integer totalChunks) {
+        this.totalChunks = totalChunks;
+    }
+    public LocalDateTime getCriadoEm() {
+        return criadoEm;
+    }
+    public void setCriadoEm(LocalDateTime criadoEm) {
+        this.criadoEm = criadoEm;
+    }
+    public LocalDateTime getAtualizadoEm() {
+        return atualizadoEm;
+    }
+    public void setAtualizadoEm(LocalDateTime atualizadoEm) {
+        this.atualizadoEm = atualizadoEm;
+    }
+    public boolean isConcluindo() {
+        return concluindo;
+    }
+    public void setConcluindo(boolean concluindo) {
+        this.concluindo = concluindo;
+    }
+}
@@ -0,0 +1,104 @@
+package br.com.fernandoramosjr.sisgerdoc.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Versão anterior do conteúdo de um documento. A versão atual continua no próprio documento; as anteriores são
+ * gravadas em {@code .versoes/<id>} como delta em relação à versão seguinte ou, periodicamente, completas.
+ */
+@Entity
+@Table(name = "versoes_documentos", uniqueConstraints = @UniqueConstraint(name = "uk_versoes_documentos_documento_numero",
+        columnNames = {"documentoId", "numero"}))
+public class VersaoDocumento {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long documentoId;
+    private Integer numero;
+    private String nome;
+    private String fileName;
+    // Tamanho do conteúdo original da versão
+    private Long tamanho;
+    // SHA-256 do conteúdo original, conferido na reconstrução
+    @Column(length = 64)
+    private String etag;
+    // Verdadeiro quando o arquivo guarda a versão inteira (com gzip); falso quando guarda o delta
+    private Boolean completa;
+    private Long tamanhoArmazenado;
+    private String filePath;
+    private LocalDateTime criadoEm;
+
+    public VersaoDocumento() {}
+
+    // Getters e Setters
+
+    public Long getId() {
+        return id;
+    }
+    public void setId(Long id) {
+        this.id = id;
+    }
+    public Long getDocumentoId() {
+        return documentoId;
+    }
+    public void setDocumentoId(Long documentoId) {
+        this.documentoId = documentoId;
+    }
+    public Integer getNumero() {
+        return numero;
+    }
+    public void setNumero(Integer numero) {
+        this.numero = numero;
+    }
+    public String getNome() {
+        return nome;
+    }
+    public void setNome(String nome) {
+        this.nome = nome;
+    }
+    public String getFileName() {
+        return fileName;
+    }
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+    public Long getTamanho() {
+        return tamanho;
+    }
+    public void setTamanho(Long tamanho) {
+        this.tamanho = tamanho;
+    }
+    public String getEtag() {
+        return etag;
+    }
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+    public Boolean getCompleta() {
+        return completa;
+    }
+    public void setCompleta(Boolean completa) {
+        this.completa = completa;
+    }
+    public Long getTamanhoArmazenado() {
+        return tamanhoArmazenado;
+    }
+    public void setTamanhoArmazenado(Long tamanhoArmazenado) {
+        this.tamanhoArmazenado = tamanhoArmazenado;
+    }
+    public String getFilePath() {
+        return filePath;
+    }
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+    public LocalDateTime getCriadoEm() {
+        return criadoEm;
+    }
+    public void setCriadoEm(LocalDateTime criadoEm) {
+        this.criadoEm = criadoEm;
+    }
+}
@@ -0,0 +1,50 @@
+package br.com.fernandoramosjr.sisgerdoc.model.dto;
+
+public class CacheEstatisticasDto {
+    private long entradas;
+    private long acertos;
+    private long falhas;
+    private long remocoes;
+    private double taxaAcerto;
+
+    public CacheEstatisticasDto() {}
+
+    public CacheEstatisticasDto(long entradas, long acertos, long falhas, long remocoes, double taxaAcerto) {
+        this.entradas = entradas;
+        this.acertos = acertos;
+        this.falhas = falhas;
+        this.remocoes = remocoes;
+        this.taxaAcerto = taxaAcerto;
+    }
+
+    public long getEntradas() {
+        return entradas;
+    }
+    public void setEntradas(long entradas) {
+        this.entradas = entradas;
+    }
+    public long getAcertos() {
+        return acertos;
+    }
+    public void setAcertos(long acertos) {
+        this.acertos = acertos;
+    }
+    public long getFalhas() {
+        return falhas;
+    }
+    public void setFalhas(long falhas) {
+        this.falhas = falhas;
+    }
+    public long getRemocoes() {
+        return remocoes;
+    }
+    public void setRemocoes(long remocoes) {
+        this.remocoes = remocoes;
+    }
+    public double getTaxaAcerto() {
+        return taxaAcerto;
+    }
+    public void setTaxaAcerto(double taxaAcerto) {
+        this.taxaAcerto = taxaAcerto;
+    }
+}
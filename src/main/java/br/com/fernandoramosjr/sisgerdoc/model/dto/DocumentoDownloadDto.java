@@ -1,10 +1,18 @@
 package br.com.fernandoramosjr.sisgerdoc.model.dto;
 
+import br.com.fernandoramosjr.sisgerdoc.storage.ConteudoArmazenado;
 import org.springframework.core.io.Resource;
 
+import java.time.LocalDateTime;
+
 public class DocumentoDownloadDto {
     private Resource resource;
+    private ConteudoArmazenado conteudo;
     private String fileName;
+    private String codificacao;
+    private Long tamanhoOriginal;
+    private String etag;
+    private LocalDateTime ultimaModificacao;
 
     public DocumentoDownloadDto() {}
 
@@ -13,16 +21,52 @@ public class DocumentoDownloadDto {
         this.fileName = fileName;
     }
 
+    public DocumentoDownloadDto(Resource resource, String fileName, String codificacao, Long tamanhoOriginal) {
+        this(resource, fileName);
+        this.codificacao = codificacao;
+        this.tamanhoOriginal = tamanhoOriginal;
+    }
+
     public Resource getResource() {
         return resource;
     }
     public void setResource(Resource resource) {
         this.resource = resource;
     }
+    public ConteudoArmazenado getConteudo() {
+        return conteudo;
+    }
+    public void setConteudo(ConteudoArmazenado conteudo) {
+        this.conteudo = conteudo;
+    }
     public String getFileName() {
         return fileName;
     }
     public void setFileName(String fileName) {
         this.fileName = fileName;
     }
-}
\ No newline at end of file
+    public String getCodificacao() {
+        return codificacao;
+    }
+    public void setCodificacao(String codificacao) {
+        this.codificacao = codificacao;
+    }
+    public Long getTamanhoOriginal() {
+        return tamanhoOriginal;
+    }
+    public void setTamanhoOriginal(Long tamanhoOriginal) {
+        this.tamanhoOriginal = tamanhoOriginal;
+    }
+    public String getEtag() {
+        return etag;
+    }
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+    public LocalDateTime getUltimaModificacao() {
+        return ultimaModificacao;
+    }
+    public void setUltimaModificacao(LocalDateTime ultimaModificacao) {
+        this.ultimaModificacao = ultimaModificacao;
+    }
+}
@@ -0,0 +1,19 @@
+package br.com.fernandoramosjr.sisgerdoc.model.dto;
+
+public class DocumentoEncontradoDto extends DocumentoResumoDto {
+    private float pontuacao;
+
+    public DocumentoEncontradoDto() {}
+
+    public DocumentoEncontradoDto(DocumentoResumoDto resumo, float pontuacao) {
+        super(resumo.getId(), resumo.getNome(), resumo.getFileName(), resumo.getFileSize(), resumo.getCriadoEm());
+        this.pontuacao = pontuacao;
+    }
+
+    public float getPontuacao() {
+        return pontuacao;
+    }
+    public void setPontuacao(float pontuacao) {
+        this.pontuacao = pontuacao;
+    }
+}
@@ -0,0 +1,52 @@
+package br.com.fernandoramosjr.sisgerdoc.model.dto;
+
+import java.time.LocalDateTime;
+
+public class DocumentoResumoDto {
+    private Long id;
+    private String nome;
+    private String fileName;
+    private Long fileSize;
+    private LocalDateTime criadoEm;
+
+    public DocumentoResumoDto() {}
+
+    public DocumentoResumoDto(Long id, String nome, String fileName, Long fileSize, LocalDateTime criadoEm) {
+        this.id = id;
+        this.nome = nome;
+        this.fileName = fileName;
+        this.fileSize = fileSize;
+        this.criadoEm = criadoEm;
+    }
+
+    public Long getId() {
+        return id;
+    }
+    public void setId(Long id) {
+        this.id = id;
+    }
+    public String getNome() {
+        return nome;
+    }
+    public void setNome(String nome) {
+        this.nome = nome;
+    }
+    public String getFileName() {
+        return fileName;
+    }
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+    public Long getFileSize() {
+        return fileSize;
+    }
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+    public LocalDateTime getCriadoEm() {
+        return criadoEm;
+    }
+    public void setCriadoEm(LocalDateTime criadoEm) {
+        this.criadoEm = criadoEm;
+    }
+}
@@ -0,0 +1,26 @@
+package br.com.fernandoramosjr.sisgerdoc.model.dto;
+
+public class EstatisticaArmazenamentoDto {
+    private long totalDocumentos;
+    private long totalBytes;
+
+    public EstatisticaArmazenamentoDto() {}
+
+    public EstatisticaArmazenamentoDto(long totalDocumentos, long totalBytes) {
+        this.totalDocumentos = totalDocumentos;
+        this.totalBytes = totalBytes;
+    }
+
+    public long getTotalDocumentos() {
+        return totalDocumentos;
+    }
+    public void setTotalDocumentos(long totalDocumentos) {
+        this.totalDocumentos = totalDocumentos;
+    }
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+}
@@ -0,0 +1,42 @@
+package br.com.fernandoramosjr.sisgerdoc.model.dto;
+
+public class ExclusaoLoteDto {
+    private long documentosExcluidos;
+    private long bytesExcluidos;
+    private long naoEncontrados;
+    private long remocoesPendentes;
+
+    public ExclusaoLoteDto() {}
+
+    public ExclusaoLoteDto(long documentosExcluidos, long bytesExcluidos, long naoEncontrados, long remocoesPendentes) {
+        this.documentosExcluidos = documentosExcluidos;
+        this.bytesExcluidos = bytesExcluidos;
+        this.naoEncontrados = naoEncontrados;
+        this.remocoesPendentes = remocoesPendentes;
+    }
+
+    public long getDocumentosExcluidos() {
+        return documentosExcluidos;
+    }
+    public void setDocumentosExcluidos(long documentosExcluidos) {
+        this.documentosExcluidos = documentosExcluidos;
+    }
+    public long getBytesExcluidos() {
+        return bytesExcluidos;
+    }
+    public void setBytesExcluidos(long bytesExcluidos) {
+        this.bytesExcluidos = bytesExcluidos;
+    }
+    public long getNaoEncontrados() {
+        return naoEncontrados;
+    }
+    public void setNaoEncontrados(long naoEncontrados) {
+        this.naoEncontrados = naoEncontrados;
+    }
+    public long getRemocoesPendentes() {
+        return remocoesPendentes;
+    }
+    public void setRemocoesPendentes(long remocoesPendentes) {
+        this.remocoesPendentes = remocoesPendentes;
+    }
+}
@@ -0,0 +1,28 @@
+package br.com.fernandoramosjr.sisgerdoc.model.dto;
+
+import java.util.List;
+
+public class ExclusaoLoteRequisicaoDto {
+    private List<Long> ids;
+    private FiltroDocumentoDto filtro;
+
+    public ExclusaoLoteRequisicaoDto() {}
+
+    public ExclusaoLoteRequisicaoDto(List<Long> ids, FiltroDocumentoDto filtro) {
+        this.ids = ids;
+        this.filtro = filtro;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+    public FiltroDocumentoDto getFiltro() {
+        return filtro;
+    }
+    public void setFiltro(FiltroDocumentoDto filtro) {
+        this.filtro = filtro;
+    }
+}
@@ -0,0 +1,20 @@
+package br.com.fernandoramosjr.sisgerdoc.model.dto;
+
+import java.util.List;
+
+public class ExportacaoRequisicaoDto {
+    private List<Long> ids;
+
+    public ExportacaoRequisicaoDto() {}
+
+    public ExportacaoRequisicaoDto(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+}
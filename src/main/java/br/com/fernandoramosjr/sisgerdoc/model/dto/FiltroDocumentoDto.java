@@ -0,0 +1,52 @@
+package br.com.fernandoramosjr.sisgerdoc.model.dto;
+
+import java.time.LocalDateTime;
+
+public class FiltroDocumentoDto {
+    private String nomePrefixo;
+    private Long tamanhoMinimo;
+    private Long tamanhoMaximo;
+    private LocalDateTime criadoDe;
+    private LocalDateTime criadoAte;
+
+    public FiltroDocumentoDto() {}
+
+    public FiltroDocumentoDto(String nomePrefixo, Long tamanhoMinimo, Long tamanhoMaximo, LocalDateTime criadoDe, LocalDateTime criadoAte) {
+        this.nomePrefixo = nomePrefixo;
+        this.tamanhoMinimo = tamanhoMinimo;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.criadoDe = criadoDe;
+        this.criadoAte = criadoAte;
+    }
+
+    public String getNomePrefixo() {
+        return nomePrefixo;
+    }
+    public void setNomePrefixo(String nomePrefixo) {
+        this.nomePrefixo = nomePrefixo;
+    }
+    public Long getTamanhoMinimo() {
+        return tamanhoMinimo;
+    }
+    public void setTamanhoMinimo(Long tamanhoMinimo) {
+        this.tamanhoMinimo = tamanhoMinimo;
+    }
+    public Long getTamanhoMaximo() {
+        return tamanhoMaximo;
+    }
+    public void setTamanhoMaximo(Long tamanhoMaximo) {
+        this.tamanhoMaximo = tamanhoMaximo;
+    }
+    public LocalDateTime getCriadoDe() {
+        return criadoDe;
+    }
+    public void setCriadoDe(LocalDateTime criadoDe) {
+        this.criadoDe = criadoDe;
+    }
+    public LocalDateTime getCriadoAte() {
+        return criadoAte;
+    }
+    public void setCriadoAte(LocalDateTime criadoAte) {
+        this.criadoAte = criadoAte;
+    }
+}
@@ -0,0 +1,44 @@
+package br.com.fernandoramosjr.sisgerdoc.model.dto;
+
+import java.time.LocalDateTime;
+
+public class LocalizacaoDocumentoDto {
+    private Long id;
+    private String filePath;
+    private Long segmento;
+    private LocalDateTime atualizadoEm;
+
+    public LocalizacaoDocumentoDto() {}
+
+    public LocalizacaoDocumentoDto(Long id, String filePath, Long segmento, LocalDateTime atualizadoEm) {
+        this.id = id;
+        this.filePath = filePath;
+        this.segmento = segmento;
+        this.atualizadoEm = atualizadoEm;
+    }
+
+    public Long getId() {
+        return id;
+    }
+    public void setId(Long id) {
+        this.id = id;
+    }
+    public String getFilePath() {
+        return filePath;
+    }
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+    public Long getSegmento() {
+        return segmento;
+    }
+    public void setSegmento(Long segmento) {
+        this.segmento = segmento;
+    }
+    public LocalDateTime getAtualizadoEm() {
+        return atualizadoEm;
+    }
+    public void setAtualizadoEm(LocalDateTime atualizadoEm) {
+        this.atualizadoEm = atualizadoEm;
+    }
+}
@@ -0,0 +1,61 @@
+package br.com.fernandoramosjr.sisgerdoc.model.dto;
+
+import java.time.LocalDateTime;
+
+public class MigracaoArmazenamentoDto {
+    private boolean emExecucao;
+    private long verificados;
+    private long migrados;
+    private long falhas;
+    private LocalDateTime iniciadoEm;
+    private LocalDateTime concluidoEm;
+
+    public MigracaoArmazenamentoDto() {}
+
+    public MigracaoArmazenamentoDto(boolean emExecucao, long verificados, long migrados, long falhas,
+                                    LocalDateTime iniciadoEm, LocalDateTime concluidoEm) {
+        this.emExecucao = emExecucao;
+        this.verificados = verificados;
+        this.migrados = migrados;
+        this.falhas = falhas;
+        this.iniciadoEm = iniciadoEm;
+        this.concluidoEm = concluidoEm;
+    }
+
+    public boolean isEmExecucao() {
+        return emExecucao;
+    }
+    public void setEmExecucao(boolean emExecucao) {
+        this.emExecucao = emExecucao;
+    }
+    public long getVerificados() {
+        return verificados;
+    }
+    public void setVerificados(long verificados) {
+        this.verificados = verificados;
+    }
+    public long getMigrados() {
+        return migrados;
+    }
+    public void setMigrados(long migrados) {
+        this.migrados = migrados;
+    }
+    public long getFalhas() {
+        return falhas;
+    }
+    public void setFalhas(long falhas) {
+        this.falhas = falhas;
+    }
+    public LocalDateTime getIniciadoEm() {
+        return iniciadoEm;
+    }
+    public void setIniciadoEm(LocalDateTime iniciadoEm) {
+        this.iniciadoEm = iniciadoEm;
+    }
+    public LocalDateTime getConcluidoEm() {
+        return concluidoEm;
+    }
+    public void setConcluidoEm(LocalDateTime concluidoEm) {
+        this.concluidoEm = concluidoEm;
+    }
+}
@@ -0,0 +1,34 @@
+package br.com.fernandoramosjr.sisgerdoc.model.dto;
+
+public class OcupacaoSegmentoDto {
+    private long segmento;
+    private long documentos;
+    private long bytes;
+
+    public OcupacaoSegmentoDto() {}
+
+    public OcupacaoSegmentoDto(long segmento, long documentos, long bytes) {
+        this.segmento = segmento;
+        this.documentos = documentos;
+        this.bytes = bytes;
+    }
+
+    public long getSegmento() {
+        return segmento;
+    }
+    public void setSegmento(long segmento) {
+        this.segmento = segmento;
+    }
+    public long getDocumentos() {
+        return documentos;
+    }
+    public void setDocumentos(long documentos) {
+        this.documentos = documentos;
+    }
+    public long getBytes() {
+        return bytes;
+    }
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+}
@@ -0,0 +1,44 @@
+package br.com.fernandoramosjr.sisgerdoc.model.dto;
+
+import java.util.List;
+
+public class PaginaBuscaDto {
+    private List<DocumentoEncontradoDto> documentos;
+    private long total;
+    private int pagina;
+    private int limite;
+
+    public PaginaBuscaDto() {}
+
+    public PaginaBuscaDto(List<DocumentoEncontradoDto> documentos, long total, int pagina, int limite) {
+        this.documentos = documentos;
+        this.total = total;
+        this.pagina = pagina;
+        this.limite = limite;
+    }
+
+    public List<DocumentoEncontradoDto> getDocumentos() {
+        return documentos;
+    }
+    public void setDocumentos(List<DocumentoEncontradoDto> documentos) {
+        this.documentos = documentos;
+    }
+    public long getTotal() {
+        return total;
+    }
+    public void setTotal(long total) {
+        this.total = total;
+    }
+    public int getPagina() {
+        return pagina;
+    }
+    public void setPagina(int pagina) {
+        this.pagina = pagina;
+    }
+    public int getLimite() {
+        return limite;
+    }
+    public void setLimite(int limite) {
+        this.limite = limite;
+    }
+}
@@ -0,0 +1,28 @@
+package br.com.fernandoramosjr.sisgerdoc.model.dto;
+
+import java.util.List;
+
+public class PaginaDocumentosDto {
+    private List<DocumentoResumoDto> documentos;
+    private String proximoCursor;
+
+    public PaginaDocumentosDto() {}
+
+    public PaginaDocumentosDto(List<DocumentoResumoDto> documentos, String proximoCursor) {
+        this.documentos = documentos;
+        this.proximoCursor = proximoCursor;
+    }
+
+    public List<DocumentoResumoDto> getDocumentos() {
+        return documentos;
+    }
+    public void setDocumentos(List<DocumentoResumoDto> documentos) {
+        this.documentos = documentos;
+    }
+    public String getProximoCursor() {
+        return proximoCursor;
+    }
+    public void setProximoCursor(String proximoCursor) {
+        this.proximoCursor = proximoCursor;
+    }
+}
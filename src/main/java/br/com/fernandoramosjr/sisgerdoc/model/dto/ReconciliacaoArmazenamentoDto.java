@@ -0,0 +1,78 @@
+package br.com.fernandoramosjr.sisgerdoc.model.dto;
+
+import java.time.LocalDateTime;
+
+public class ReconciliacaoArmazenamentoDto {
+    private long arquivosVerificados;
+    private long documentosVerificados;
+    private long arquivosOrfaos;
+    private long documentosSemArquivo;
+    private long arquivosMovidos;
+    private long documentosRemovidos;
+    private LocalDateTime iniciadoEm;
+    private LocalDateTime concluidoEm;
+
+    public ReconciliacaoArmazenamentoDto() {}
+
+    public ReconciliacaoArmazenamentoDto(long arquivosVerificados, long documentosVerificados, long arquivosOrfaos,
+                                         long documentosSemArquivo, long arquivosMovidos, long documentosRemovidos,
+                                         LocalDateTime iniciadoEm, LocalDateTime concluidoEm) {
+        this.arquivosVerificados = arquivosVerificados;
+        this.documentosVerificados = documentosVerificados;
+        this.arquivosOrfaos = arquivosOrfaos;
+        this.documentosSemArquivo = documentosSemArquivo;
+        this.arquivosMovidos = arquivosMovidos;
+        this.documentosRemovidos = documentosRemovidos;
+        this.iniciadoEm = iniciadoEm;
+        this.concluidoEm = concluidoEm;
+    }
+
+    public long getArquivosVerificados() {
+        return arquivosVerificados;
+    }
+    public void setArquivosVerificados(long arquivosVerificados) {
+        this.arquivosVerificados = arquivosVerificados;
+    }
+    public long getDocumentosVerificados() {
+        return documentosVerificados;
+    }
+    public void setDocumentosVerificados(long documentosVerificados) {
+        this.documentosVerificados = documentosVerificados;
+    }
+    public long getArquivosOrfaos() {
+        return arquivosOrfaos;
+    }
+    public void setArquivosOrfaos(long arquivosOrfaos) {
+        this.arquivosOrfaos = arquivosOrfaos;
+    }
+    public long getDocumentosSemArquivo() {
+        return documentosSemArquivo;
+    }
+    public void setDocumentosSemArquivo(long documentosSemArquivo) {
+        this.documentosSemArquivo = documentosSemArquivo;
+    }
+    public long getArquivosMovidos() {
+        return arquivosMovidos;
+    }
+    public void setArquivosMovidos(long arquivosMovidos) {
+        this.arquivosMovidos = arquivosMovidos;
+    }
+    public long getDocumentosRemovidos() {
+        return documentosRemovidos;
+    }
+    public void setDocumentosRemovidos(long documentosRemovidos) {
+        this.documentosRemovidos = documentosRemovidos;
+    }
+    public LocalDateTime getIniciadoEm() {
+        return iniciadoEm;
+    }
+    public void setIniciadoEm(LocalDateTime iniciadoEm) {
+        this.iniciadoEm = iniciadoEm;
+    }
+    public LocalDateTime getConcluidoEm() {
+        return concluidoEm;
+    }
+    public void setConcluidoEm(LocalDateTime concluidoEm) {
+        this.concluidoEm = concluidoEm;
+    }
+}
@@ -0,0 +1,44 @@
+package br.com.fernandoramosjr.sisgerdoc.model.dto;
+
+import java.util.List;
+
+public class SessaoUploadDto {
+    private String id;
+    private String nome;
+    private Integer totalChunks;
+    private List<Integer> chunksRecebidos;
+
+    public SessaoUploadDto() {}
+
+    public SessaoUploadDto(String id, String nome, Integer totalChunks, List<Integer> chunksRecebidos) {
+        this.id = id;
+        this.nome = nome;
+        this.totalChunks = totalChunks;
+        this.chunksRecebidos = chunksRecebidos;
+    }
+
+    public String getId() {
+        return id;
+    }
+    public void setId(String id) {
+        this.id = id;
+    }
+    public String getNome() {
+        return nome;
+    }
+    public void setNome(String nome) {
+        this.nome = nome;
+    }
+    public Integer getTotalChunks() {
+        return totalChunks;
+    }
+    public void setTotalChunks(Integer totalChunks) {
+        this.totalChunks = totalChunks;
+    }
+    public List<Integer> getChunksRecebidos() {
+        return chunksRecebidos;
+    }
+    public void setChunksRecebidos(List<Integer> chunksRecebidos) {
+        this.chunksRecebidos = chunksRecebidos;
+    }
+}
@@ -0,0 +1,86 @@
+package br.com.fernandoramosjr.sisgerdoc.model.dto;
+
+import java.time.LocalDateTime;
+
+public class VersaoDocumentoDto {
+    private Integer numero;
+    private String nome;
+    private String fileName;
+    private Long tamanho;
+    private String etag;
+    // Bytes gravados para guardar a versão: o delta, a versão completa comprimida ou, na atual, o arquivo
+    private Long tamanhoArmazenado;
+    private boolean completa;
+    private boolean atual;
+    private LocalDateTime criadoEm;
+
+    public VersaoDocumentoDto() {}
+
+    public VersaoDocumentoDto(Integer numero, String nome, String fileName, Long tamanho, String etag, Long tamanhoArmazenado,
+                              boolean completa, boolean atual, LocalDateTime criadoEm) {
+        this.numero = numero;
+        this.nome = nome;
+        this.fileName = fileName;
+        this.tamanho = tamanho;
+        this.etag = etag;
+        this.tamanhoArmazenado = tamanhoArmazenado;
+        this.completa = completa;
+        this.atual = atual;
+        this.criadoEm = criadoEm;
+    }
+
+    public Integer getNumero() {
+        return numero;
+    }
+    public void setNumero(Integer numero) {
+        this.numero = numero;
+    }
+    public String getNome() {
+        return nome;
+    }
+    public void setNome(String nome) {
+        this.nome = nome;
+    }
+    public String getFileName() {
+        return fileName;
+    }
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+    public Long getTamanho() {
+        return tamanho;
+    }
+    public void setTamanho(Long tamanho) {
+        this.tamanho = tamanho;
+    }
+    public String getEtag() {
+        return etag;
+    }
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+    public Long getTamanhoArmazenado() {
+        return tamanhoArmazenado;
+    }
+    public void setTamanhoArmazenado(Long tamanhoArmazenado) {
+        this.tamanhoArmazenado = tamanhoArmazenado;
+    }
+    public boolean isCompleta() {
+        return completa;
+    }
+    public void setCompleta(boolean completa) {
+        this.completa = completa;
+    }
+    public boolean isAtual() {
+        return atual;
+    }
+    public void setAtual(boolean atual) {
+        this.atual = atual;
+    }
+    public LocalDateTime getCriadoEm() {
+        return criadoEm;
+    }
+    public void setCriadoEm(LocalDateTime criadoEm) {
+        this.criadoEm = criadoEm;
+    }
+}
@@ -0,0 +1,32 @@
+package br.com.fernandoramosjr.sisgerdoc.repository;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Blob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface BlobRepository extends JpaRepository<Blob, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Blob b where b.hash = :hash")
+    Optional<Blob> findByHashParaAtualizacao(@Param("hash") String hash);
+
+    // Sempre um INSERT: save() faria merge e sobrescreveria o blob registrado por outro upload simultâneo
+    @Transactional
+    @Modifying
+    @Query("insert into Blob (hash, filePath, fileSize, referencias, criadoEm) values (:hash, :filePath, :fileSize, 0, :criadoEm)")
+    int insereSemReferencias(@Param("hash") String hash, @Param("filePath") String filePath,
+                             @Param("fileSize") Long fileSize, @Param("criadoEm") LocalDateTime criadoEm);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Blob b where b.hash = :hash and b.filePath = :filePath and b.referencias = 0")
+    int removeSemReferencias(@Param("hash") String hash, @Param("filePath") String filePath);
+}
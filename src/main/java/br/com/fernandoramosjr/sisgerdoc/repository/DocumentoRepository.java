@@ -1,6 +1,97 @@
 package br.com.fernandoramosjr.sisgerdoc.repository;
 
 import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.EstatisticaArmazenamentoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.LocalizacaoDocumentoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.OcupacaoSegmentoDto;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface DocumentoRepository extends JpaRepository<Documento, Long> {}
\ No newline at end of file
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface DocumentoRepository extends JpaRepository<Documento, Long>, DocumentoRepositoryCustom {
+
+    @Query("select new br.com.fernandoramosjr.sisgerdoc.model.dto.EstatisticaArmazenamentoDto(count(d), coalesce(sum(d.fileSize), 0L)) from Documento d")
+    EstatisticaArmazenamentoDto calculaEstatisticas();
+
+    // Os documentos da camada fria ficam fora dos volumes e não são migrados
+    @Query("select d from Documento d where d.id > :ultimoId and d.blobHash is null and d.filePath is not null and (d.armazenamento is null or d.armazenamento = 'arquivo') order by d.id")
+    List<Documento> buscaLoteParaMigracao(@Param("ultimoId") Long ultimoId, Limit limite);
+
+    // Só altera se o caminho ainda for o lido no início do lote: uma atualização concorrente vence a migração
+    @Modifying
+    @Query("update Documento d set d.filePath = :novo where d.id = :id and d.filePath = :antigo")
+    int atualizaFilePath(@Param("id") Long id, @Param("antigo") String antigo, @Param("novo") String novo);
+
+    // Documentos sem download desde o limite, ou nunca baixados e sem alteração desde ele
+    @Query("select d from Documento d where d.id > :ultimoId and d.blobHash is null and d.filePath is not null and d.fileSize is not null and (d.armazenamento is null or d.armazenamento = 'arquivo') and coalesce(d.ultimoAcesso, d.atualizadoEm, d.criadoEm) < :acessoAte order by d.id")
+    List<Documento> buscaLoteParaCamadaFria(@Param("ultimoId") Long ultimoId, @Param("acessoAte") LocalDateTime acessoAte, Limit limite);
+
+    @Modifying
+    @Query("update Documento d set d.ultimoAcesso = :acesso where d.id in :ids")
+    int registraAcessos(@Param("ids") Collection<Long> ids, @Param("acesso") LocalDateTime acesso);
+
+    // Só altera se o caminho ainda for o lido antes da cópia: uma atualização concorrente vence a troca de camada
+    @Modifying
+    @Query("update Documento d set d.filePath = :novo, d.armazenamento = :armazenamento, d.codificacao = :codificacao, d.tamanhoOriginal = :tamanhoOriginal, d.fileSize = :fileSize where d.id = :id and d.filePath = :antigo")
+    int atualizaCamada(@Param("id") Long id, @Param("antigo") String antigo, @Param("novo") String novo,
+                       @Param("armazenamento") String armazenamento, @Param("codificacao") String codificacao,
+                       @Param("tamanhoOriginal") Long tamanhoOriginal, @Param("fileSize") Long fileSize);
+
+    @Query("select new br.com.fernandoramosjr.sisgerdoc.model.dto.OcupacaoSegmentoDto(d.segmento, count(d), coalesce(sum(d.fileSize), 0L)) from Documento d where d.segmento is not null group by d.segmento")
+    List<OcupacaoSegmentoDto> calculaOcupacaoSegmentos();
+
+    @Query("select d from Documento d where d.segmento = :segmento and d.id > :ultimoId order by d.id")
+    List<Documento> buscaLoteDoSegmento(@Param("segmento") Long segmento, @Param("ultimoId") Long ultimoId, Limit limite);
+
+    // Só altera se o conteúdo ainda estiver na posição lida no início do lote: uma atualização ou exclusão concorrente vence a compactação
+    @Modifying
+    @Query("update Documento d set d.segmento = :novoSegmento, d.segmentoOffset = :novoOffset where d.id = :id and d.segmento = :segmento and d.segmentoOffset = :offset")
+    int atualizaPosicaoSegmento(@Param("id") Long id, @Param("segmento") Long segmento, @Param("offset") Long offset,
+                                @Param("novoSegmento") Long novoSegmento, @Param("novoOffset") Long novoOffset);
+
+    // Documentos ainda sem tamanho estão sendo gravados e serão indexados quando o conteúdo for registrado
+    @Query("select d from Documento d where (d.indexado is null or d.indexado = false) and d.fileSize is not null and d.id > :ultimoId order by d.id")
+    List<Documento> buscaLoteParaIndexacao(@Param("ultimoId") Long ultimoId, Limit limite);
+
+    // Só marca se o documento não mudou desde a leitura: uma atualização concorrente mantém o documento pendente
+    @Modifying
+    @Query("update Documento d set d.indexado = true where d.id = :id and (d.atualizadoEm = :atualizadoEm or (d.atualizadoEm is null and :atualizadoEm is null))")
+    int marcaIndexado(@Param("id") Long id, @Param("atualizadoEm") LocalDateTime atualizadoEm);
+
+    @Query("select new br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto(d.id, d.nome, d.fileName, d.fileSize, d.criadoEm) from Documento d where d.id > :ultimoId order by d.id")
+    List<DocumentoResumoDto> buscaLoteResumos(@Param("ultimoId") Long ultimoId, Limit limite);
+
+    @Query("select new br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto(d.id, d.nome, d.fileName, d.fileSize, d.criadoEm) from Documento d where d.id > :ultimoId and coalesce(d.atualizadoEm, d.criadoEm) >= :desde order by d.id")
+    List<DocumentoResumoDto> buscaLoteResumosAlteradosDesde(@Param("ultimoId") Long ultimoId, @Param("desde") LocalDateTime desde, Limit limite);
+
+    @Query("select new br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto(d.id, d.nome, d.fileName, d.fileSize, d.criadoEm) from Documento d where d.id in :ids")
+    List<DocumentoResumoDto> buscaResumos(@Param("ids") Collection<Long> ids);
+
+    @Query("select new br.com.fernandoramosjr.sisgerdoc.model.dto.LocalizacaoDocumentoDto(d.id, d.filePath, d.segmento, coalesce(d.atualizadoEm, d.criadoEm)) from Documento d where d.id > :ultimoId order by d.id")
+    List<LocalizacaoDocumentoDto> buscaLoteLocalizacoes(@Param("ultimoId") Long ultimoId, Limit limite);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from Documento d where d.id = :id")
+    Optional<Documento> findByIdParaAtualizacao(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d.id from Documento d where d.id in :ids")
+    List<Long> travaParaExclusao(@Param("ids") Collection<Long> ids);
+
+    @Query("select new br.com.fernandoramosjr.sisgerdoc.model.dto.EstatisticaArmazenamentoDto(count(d), coalesce(sum(d.fileSize), 0L)) from Documento d where d.id in :ids")
+    EstatisticaArmazenamentoDto calculaEstatisticas(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("delete from Documento d where d.id in :ids")
+    int excluiTodos(@Param("ids") Collection<Long> ids);
+}
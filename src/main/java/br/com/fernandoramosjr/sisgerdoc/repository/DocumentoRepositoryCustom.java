@@ -0,0 +1,18 @@
+package br.com.fernandoramosjr.sisgerdoc.repository;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.FiltroDocumentoDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface DocumentoRepositoryCustom {
+    List<DocumentoResumoDto> buscaPagina(FiltroDocumentoDto filtro, LocalDateTime cursorCriadoEm, Long cursorId, int limite);
+
+    // Reserva IDs de documentos_seq sem gravar nada; a sequência é lida uma vez a cada 50 IDs
+    List<Long> reservaIds(int quantidade);
+
+    // Persiste documentos novos com o ID já reservado; o INSERT sai no flush, com os campos como estiverem agora
+    void insere(List<Documento> documentos);
+}
@@ -0,0 +1,95 @@
+package br.com.fernandoramosjr.sisgerdoc.repository;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.FiltroDocumentoDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DocumentoRepositoryImpl implements DocumentoRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<DocumentoResumoDto> buscaPagina(FiltroDocumentoDto filtro, LocalDateTime cursorCriadoEm, Long cursorId, int limite) {
+        // Só entram na consulta os filtros informados, para que o banco possa usar o índice adequado
+        StringBuilder jpql = new StringBuilder("select new br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto("
+                + "d.id, d.nome, d.fileName, d.fileSize, d.criadoEm) from Documento d where 1 = 1");
+        Map<String, Object> parametros = new HashMap<>();
+        adicionaFiltros(filtro, jpql, parametros);
+        if (cursorCriadoEm != null && cursorId != null) {
+            jpql.append(" and (d.criadoEm < :cursorCriadoEm or (d.criadoEm = :cursorCriadoEm and d.id < :cursorId))");
+            parametros.put("cursorCriadoEm", cursorCriadoEm);
+            parametros.put("cursorId", cursorId);
+        }
+        jpql.append(" order by d.criadoEm desc, d.id desc");
+
+        TypedQuery<DocumentoResumoDto> query = entityManager.createQuery(jpql.toString(), DocumentoResumoDto.class);
+        parametros.forEach(query::setParameter);
+        return query.setMaxResults(limite).getResultList();
+    }
+
+    @Override
+    @Transactional
+    public List<Long> reservaIds(int quantidade) {
+        // Usa o gerador da própria entidade, para que os blocos reservados aqui e no persist não se sobreponham
+        SharedSessionContractImplementor sessao = entityManager.unwrap(SharedSessionContractImplementor.class);
+        BeforeExecutionGenerator gerador = (BeforeExecutionGenerator) sessao.getFactory().getMappingMetamodel()
+                .getEntityDescriptor(Documento.class).getGenerator();
+        List<Long> ids = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            ids.add((Long) gerador.generate(sessao, null, null, EventType.INSERT));
+        }
+        return ids;
+    }
+
+    @Override
+    @Transactional
+    public void insere(List<Documento> documentos) {
+        for (Documento documento : documentos) {
+            entityManager.persist(documento);
+        }
+    }
+
+    static void adicionaFiltros(FiltroDocumentoDto filtro, StringBuilder jpql, Map<String, Object> parametros) {
+        if (filtro == null) {
+            return;
+        }
+        if (filtro.getNomePrefixo() != null && !filtro.getNomePrefixo().isEmpty()) {
+            jpql.append(" and d.nome like :nomePrefixo escape '!'");
+            parametros.put("nomePrefixo", escapaLike(filtro.getNomePrefixo()) + "%");
+        }
+        if (filtro.getTamanhoMinimo() != null) {
+            jpql.append(" and d.fileSize >= :tamanhoMinimo");
+            parametros.put("tamanhoMinimo", filtro.getTamanhoMinimo());
+        }
+        if (filtro.getTamanhoMaximo() != null) {
+            jpql.append(" and d.fileSize <= :tamanhoMaximo");
+            parametros.put("tamanhoMaximo", filtro.getTamanhoMaximo());
+        }
+        if (filtro.getCriadoDe() != null) {
+            jpql.append(" and d.criadoEm >= :criadoDe");
+            parametros.put("criadoDe", filtro.getCriadoDe());
+        }
+        if (filtro.getCriadoAte() != null) {
+            jpql.append(" and d.criadoEm < :criadoAte");
+            parametros.put("criadoAte", filtro.getCriadoAte());
+        }
+    }
+
+    private static String escapaLike(String valor) {
+        return valor.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+}
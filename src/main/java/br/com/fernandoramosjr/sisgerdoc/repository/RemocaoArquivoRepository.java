@@ -0,0 +1,35 @@
+package br.com.fernandoramosjr.sisgerdoc.repository;
+
+import br.com.fernandoramosjr.sisgerdoc.model.RemocaoArquivo;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface RemocaoArquivoRepository extends JpaRepository<RemocaoArquivo, Long> {
+
+    // Copia a localização do conteúdo direto do banco, sem carregar os documentos
+    @Modifying
+    @Query("insert into RemocaoArquivo (documentoId, armazenamento, filePath, segmento, segmentoOffset, blobHash, tentativas, criadoEm) "
+            + "select d.id, d.armazenamento, d.filePath, d.segmento, d.segmentoOffset, d.blobHash, 0, :agora from Documento d where d.id in :ids")
+    int enfileira(@Param("ids") Collection<Long> ids, @Param("agora") LocalDateTime agora);
+
+    @Query("select r from RemocaoArquivo r where r.documentoId > :ultimoId and r.tentativas < :maximoTentativas order by r.documentoId")
+    List<RemocaoArquivo> buscaLote(@Param("ultimoId") Long ultimoId, @Param("maximoTentativas") int maximoTentativas, Limit limite);
+
+    @Modifying
+    @Query("delete from RemocaoArquivo r where r.documentoId in :ids")
+    int removeTodos(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update RemocaoArquivo r set r.tentativas = r.tentativas + 1 where r.documentoId in :ids")
+    int registraFalha(@Param("ids") Collection<Long> ids);
+
+    @Query("select count(r) from RemocaoArquivo r where r.tentativas < :maximoTentativas")
+    long contaPendentes(@Param("maximoTentativas") int maximoTentativas);
+}
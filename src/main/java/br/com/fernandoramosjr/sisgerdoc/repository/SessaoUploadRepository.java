@@ -0,0 +1,41 @@
+package br.com.fernandoramosjr.sisgerdoc.repository;
+
+import br.com.fernandoramosjr.sisgerdoc.model.SessaoUpload;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface SessaoUploadRepository extends JpaRepository<SessaoUpload, String> {
+
+    @Transactional
+    @Modifying
+    @Query("update SessaoUpload s set s.atualizadoEm = :agora where s.id = :id")
+    int atualizaUltimoAcesso(@Param("id") String id, @Param("agora") LocalDateTime agora);
+
+    @Transactional
+    @Modifying
+    @Query("update SessaoUpload s set s.concluindo = true, s.atualizadoEm = :agora where s.id = :id and s.concluindo = false")
+    int marcaConcluindo(@Param("id") String id, @Param("agora") LocalDateTime agora);
+
+    @Transactional
+    @Modifying
+    @Query("update SessaoUpload s set s.concluindo = false, s.atualizadoEm = :agora where s.id = :id")
+    int desmarcaConcluindo(@Param("id") String id, @Param("agora") LocalDateTime agora);
+
+    @Transactional
+    @Modifying
+    @Query("delete from SessaoUpload s where s.id = :id")
+    int removeSessao(@Param("id") String id);
+
+    @Transactional
+    @Modifying
+    @Query("delete from SessaoUpload s where s.id = :id and s.concluindo = false")
+    int removeSessaoAberta(@Param("id") String id);
+
+    List<SessaoUpload> findByAtualizadoEmBefore(LocalDateTime limite);
+}
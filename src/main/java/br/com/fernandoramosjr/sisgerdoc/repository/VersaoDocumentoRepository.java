@@ -0,0 +1,26 @@
+package br.com.fernandoramosjr.sisgerdoc.repository;
+
+import br.com.fernandoramosjr.sisgerdoc.model.VersaoDocumento;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface VersaoDocumentoRepository extends JpaRepository<VersaoDocumento, Long> {
+
+    List<VersaoDocumento> findByDocumentoIdOrderByNumeroDesc(Long documentoId);
+
+    Optional<VersaoDocumento> findByDocumentoIdAndNumero(Long documentoId, Integer numero);
+
+    // Da versão pedida até a primeira completa acima dela: o necessário para reconstruí-la
+    @Query("select v from VersaoDocumento v where v.documentoId = :documentoId and v.numero >= :numero order by v.numero")
+    List<VersaoDocumento> buscaCadeia(@Param("documentoId") Long documentoId, @Param("numero") Integer numero);
+
+    @Modifying
+    @Query("delete from VersaoDocumento v where v.documentoId in :documentoIds")
+    int removeDosDocumentos(@Param("documentoIds") Collection<Long> documentoIds);
+}
@@ -0,0 +1,34 @@
+package br.com.fernandoramosjr.sisgerdoc.scheduler;
+
+import br.com.fernandoramosjr.sisgerdoc.service.CamadaArmazenamentoService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CamadaArmazenamentoScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(CamadaArmazenamentoScheduler.class);
+    private final CamadaArmazenamentoService camadaArmazenamentoService;
+
+    public CamadaArmazenamentoScheduler(CamadaArmazenamentoService camadaArmazenamentoService) {
+        this.camadaArmazenamentoService = camadaArmazenamentoService;
+    }
+
+    @Async
+    @Scheduled(fixedDelayString = "${documento.acessos.intervalo:PT1M}")
+    public void gravaAcessos() {
+        int gravados = camadaArmazenamentoService.gravarAcessos();
+        logger.debug("Acessos de documentos gravados: {}", gravados);
+    }
+
+    @Async
+    @Scheduled(cron = "${file.storage.camada-fria.cron:0 0 2 * * ?}")
+    public void rebaixaDocumentos() {
+        int rebaixados = camadaArmazenamentoService.rebaixar();
+        if (rebaixados > 0) {
+            logger.info("Documentos levados para a camada fria: {}", rebaixados);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package br.com.fernandoramosjr.sisgerdoc.scheduler;
+
+import br.com.fernandoramosjr.sisgerdoc.service.CompactacaoSegmentosService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CompactacaoSegmentosScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(CompactacaoSegmentosScheduler.class);
+    private final CompactacaoSegmentosService compactacaoSegmentosService;
+
+    public CompactacaoSegmentosScheduler(CompactacaoSegmentosService compactacaoSegmentosService) {
+        this.compactacaoSegmentosService = compactacaoSegmentosService;
+    }
+
+    @Async
+    @Scheduled(fixedDelayString = "${file.storage.segmentos.compactacao.intervalo:PT1H}")
+    public void compactaSegmentos() {
+        int compactados = compactacaoSegmentosService.compactar();
+        if (compactados > 0) {
+            logger.info("Segmentos compactados: {}", compactados);
+        }
+    }
+}
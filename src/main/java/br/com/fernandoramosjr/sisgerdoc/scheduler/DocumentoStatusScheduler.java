@@ -1,6 +1,9 @@
 package br.com.fernandoramosjr.sisgerdoc.scheduler;
 
-import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.EstatisticaArmazenamentoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.ReconciliacaoArmazenamentoDto;
+import br.com.fernandoramosjr.sisgerdoc.service.EstatisticaService;
+import br.com.fernandoramosjr.sisgerdoc.service.ReconciliacaoArmazenamentoService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Async;
@@ -10,20 +13,36 @@ import org.springframework.stereotype.Component;
 @Component
 public class DocumentoStatusScheduler {
     private static final Logger logger = LoggerFactory.getLogger(DocumentoStatusScheduler.class);
-    private final DocumentoRepository documentoRepository;
+    private final EstatisticaService estatisticaService;
+    private final ReconciliacaoArmazenamentoService reconciliacaoArmazenamentoService;
 
-    public DocumentoStatusScheduler(DocumentoRepository documentoRepository) {
-        this.documentoRepository = documentoRepository;
+    public DocumentoStatusScheduler(EstatisticaService estatisticaService,
+                                    ReconciliacaoArmazenamentoService reconciliacaoArmazenamentoService) {
+        this.estatisticaService = estatisticaService;
+        this.reconciliacaoArmazenamentoService = reconciliacaoArmazenamentoService;
     }
 
     @Async
     @Scheduled(cron = "0 30 20 * * ?")
     public void logDocumentoStatus() {
-        long count = documentoRepository.count();
-        long totalBytes = documentoRepository.findAll()
-                .stream()
-                .mapToLong(doc -> doc.getFileSize() != null ? doc.getFileSize() : 0L)
-                .sum();
-        logger.info("Número de arquivos: {}. Total armazenado em bytes: {}", count, totalBytes);
+        EstatisticaArmazenamentoDto estatisticas = estatisticaService.obterEstatisticas();
+        logger.info("Número de arquivos: {}. Total armazenado em bytes: {}", estatisticas.getTotalDocumentos(), estatisticas.getTotalBytes());
+    }
+
+    @Async
+    @Scheduled(cron = "${estatisticas.reconciliacao.cron:0 0 3 * * ?}")
+    public void reconciliaEstatisticas() {
+        EstatisticaArmazenamentoDto estatisticas = estatisticaService.reconciliar();
+        logger.debug("Estatísticas reconciliadas. Arquivos: {}. Bytes: {}", estatisticas.getTotalDocumentos(), estatisticas.getTotalBytes());
+    }
+
+    @Async
+    @Scheduled(cron = "${documento.reconciliacao.cron:0 30 3 * * ?}")
+    public void reconciliaArquivos() {
+        ReconciliacaoArmazenamentoDto resultado = reconciliacaoArmazenamentoService.reconciliar();
+        if (resultado != null && (resultado.getArquivosOrfaos() > 0 || resultado.getDocumentosSemArquivo() > 0)) {
+            logger.warn("Inconsistências no armazenamento. Arquivos órfãos: {}. Documentos sem arquivo: {}",
+                    resultado.getArquivosOrfaos(), resultado.getDocumentosSemArquivo());
+        }
     }
 }
@@ -0,0 +1,28 @@
+package br.com.fernandoramosjr.sisgerdoc.scheduler;
+
+import br.com.fernandoramosjr.sisgerdoc.service.FilaRemocaoService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class FilaRemocaoScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(FilaRemocaoScheduler.class);
+    private final FilaRemocaoService filaRemocaoService;
+
+    public FilaRemocaoScheduler(FilaRemocaoService filaRemocaoService) {
+        this.filaRemocaoService = filaRemocaoService;
+    }
+
+    // Retoma a fila depois de uma queda e tenta de novo os itens que falharam
+    @Async
+    @Scheduled(fixedDelayString = "${documento.remocao.intervalo:PT5M}")
+    public void processaFila() {
+        int removidos = filaRemocaoService.processarPendentes();
+        if (removidos > 0) {
+            logger.info("Arquivos removidos na varredura da fila: {}", removidos);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package br.com.fernandoramosjr.sisgerdoc.scheduler;
+
+import br.com.fernandoramosjr.sisgerdoc.service.IndiceConteudoService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class IndiceConteudoScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(IndiceConteudoScheduler.class);
+    private final IndiceConteudoService indiceConteudoService;
+
+    public IndiceConteudoScheduler(IndiceConteudoService indiceConteudoService) {
+        this.indiceConteudoService = indiceConteudoService;
+    }
+
+    // Indexa o que ficou pendente sem notificação: documentos anteriores ao índice ou alterações de antes de uma queda
+    @Async
+    @Scheduled(fixedDelayString = "${documento.indice.intervalo:PT1M}")
+    public void indexaPendentes() {
+        int indexados = indiceConteudoService.indexarPendentes();
+        if (indexados > 0) {
+            logger.info("Documentos indexados na varredura: {}", indexados);
+        }
+    }
+}
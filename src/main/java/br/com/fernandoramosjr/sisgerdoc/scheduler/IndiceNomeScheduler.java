@@ -0,0 +1,39 @@
+package br.com.fernandoramosjr.sisgerdoc.scheduler;
+
+import br.com.fernandoramosjr.sisgerdoc.service.IndiceNomeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class IndiceNomeScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(IndiceNomeScheduler.class);
+    private final IndiceNomeService indiceNomeService;
+
+    public IndiceNomeScheduler(IndiceNomeService indiceNomeService) {
+        this.indiceNomeService = indiceNomeService;
+    }
+
+    // Abre o índice na inicialização e o reconstrói se a execução anterior não terminou normalmente
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void verificaIndice() {
+        int indexados = indiceNomeService.reconstruirSeNecessario();
+        if (indexados > 0) {
+            logger.info("Nomes reindexados na inicialização: {}", indexados);
+        }
+    }
+
+    // Limita ao intervalo o que precisa ser reindexado depois de uma queda
+    @Async
+    @Scheduled(fixedDelayString = "${documento.busca-nome.intervalo-confirmacao:PT30S}")
+    public void confirmaIndice() {
+        if (indiceNomeService.confirmar()) {
+            logger.debug("Índice de nomes confirmado em disco");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package br.com.fernandoramosjr.sisgerdoc.scheduler;
+
+import br.com.fernandoramosjr.sisgerdoc.service.SessaoUploadService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+@Component
+public class SessaoUploadScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(SessaoUploadScheduler.class);
+    private final SessaoUploadService sessaoUploadService;
+
+    public SessaoUploadScheduler(SessaoUploadService sessaoUploadService) {
+        this.sessaoUploadService = sessaoUploadService;
+    }
+
+    @Async
+    @Scheduled(fixedDelayString = "${file.upload-session.cleanup-interval:PT15M}")
+    public void expiraSessoesAbandonadas() {
+        try {
+            int expiradas = sessaoUploadService.expirarSessoes();
+            if (expiradas > 0) {
+                logger.info("Sessões de upload expiradas: {}", expiradas);
+            }
+        } catch (IOException e) {
+            logger.error("Erro ao expirar sessões de upload. Erro: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -1,24 +1,103 @@
 package br.com.fernandoramosjr.sisgerdoc.security;
 
+import br.com.fernandoramosjr.sisgerdoc.util.DownloadUtil;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.beans.factory.annotation.Value;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import jakarta.servlet.http.Part;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
 
+/**
+ * Autentica pela API key do cabeçalho X-API-KEY e aplica os limites da chave: requisições por segundo, bytes por
+ * segundo e transferências (uploads e downloads) simultâneas. Acima do limite a resposta é 429 com Retry-After.
+ * O limite de transferências vem desativado: com ele, os downloads da chave não usam sendfile e o corpo é copiado
+ * pelo heap, porque só assim a vaga dura todo o envio.
+ * <p>
+ * As chaves ficam numa tabela indexada pelo SHA-256 da chave, de modo que a configuração pode trazer só o hash
+ * ({@code sha256:<hex>}). Os limites usam baldes de tokens sem locks; o custo por requisição é um hash e alguns
+ * compareAndSet.
+ */
 @Component
 public class APIKeyFilter extends OncePerRequestFilter {
 
-    @Value("${api.key}")
-    private String apiKey;
+    private static final String PREFIXO_HASH = "sha256:";
+    private static final String PREFIXO_DOCUMENTO = "/documentos/";
+    private static final String EXPORTACAO = "/documentos/exportar";
+    private static final String VERSOES = "versoes";
+
+    private final Map<String, ClienteApi> clientes;
+
+    public APIKeyFilter(Environment environment, MeterRegistry registry) {
+        Map<String, String> chaves = new HashMap<>();
+        String chavePadrao = environment.getProperty("api.key", "");
+        if (!chavePadrao.isBlank()) {
+            chaves.put("padrao", chavePadrao.trim());
+        }
+        // api.chaves=nome=chave,outro=sha256:<hex>
+        for (String item : environment.getProperty("api.chaves", "").split(",")) {
+            if (item.isBlank()) {
+                continue;
+            }
+            String[] partes = item.split("=", 2);
+            if (partes.length != 2 || partes[0].isBlank() || partes[1].isBlank()) {
+                throw new IllegalArgumentException("Entrada inválida em api.chaves: " + item.trim());
+            }
+            chaves.put(partes[0].trim(), partes[1].trim());
+        }
+
+        Map<String, ClienteApi> tabela = new HashMap<>();
+        for (Map.Entry<String, String> chave : chaves.entrySet()) {
+            String hash = chave.getValue().startsWith(PREFIXO_HASH)
+                    ? chave.getValue().substring(PREFIXO_HASH.length()).toLowerCase()
+                    : hash(chave.getValue());
+            if (tabela.put(hash, criaCliente(chave.getKey(), environment, registry)) != null) {
+                throw new IllegalArgumentException("API key repetida para o cliente " + chave.getKey());
+            }
+        }
+        this.clientes = Map.copyOf(tabela);
+        logger.info("API keys carregadas: " + chaves.keySet());
+    }
+
+    // Os limites de api.limite.* valem para todas as chaves e podem ser redefinidos em api.clientes.<nome>.*
+    private static ClienteApi criaCliente(String nome, Environment environment, MeterRegistry registry) {
+        double requisicoesPorSegundo = limite(environment, nome, "requisicoes-por-segundo", Double.class, 500d);
+        long rajadaRequisicoes = limite(environment, nome, "rajada-requisicoes", Long.class, 1000L);
+        DataSize bytesPorSegundo = DataSize.parse(limite(environment, nome, "bytes-por-segundo", String.class, "200MB"));
+        DataSize rajadaBytes = DataSize.parse(limite(environment, nome, "rajada-bytes", String.class, "400MB"));
+        int transferencias = limite(environment, nome, "transferencias-simultaneas", Integer.class, 0);
+        return new ClienteApi(nome, requisicoesPorSegundo, rajadaRequisicoes, bytesPorSegundo.toBytes(),
+                rajadaBytes.toBytes(), transferencias, registry);
+    }
+
+    private static <T> T limite(Environment environment, String nome, String propriedade, Class<T> tipo, T padrao) {
+        T geral = environment.getProperty("api.limite." + propriedade, tipo, padrao);
+        return environment.getProperty("api.clientes." + nome + "." + propriedade, tipo, geral);
+    }
 
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
@@ -30,7 +109,8 @@ public class APIKeyFilter extends OncePerRequestFilter {
                 || path.equals("/swagger-ui.html")
                 || path.equals("/favicon.ico")
                 || path.equals("/error")
-                || path.startsWith("/h2-console");
+                || path.startsWith("/h2-console")
+                || path.startsWith("/actuator/health");
     }
 
     @Override
@@ -38,18 +118,284 @@ public class APIKeyFilter extends OncePerRequestFilter {
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
         String requestApiKey = request.getHeader("X-API-KEY");
-        if (apiKey.equals(requestApiKey)) {
-            UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
-                    "apiKeyUser",
-                    null,
-                    Collections.singletonList(new SimpleGrantedAuthority("ROLE_API"))
-            );
-            SecurityContextHolder.getContext().setAuthentication(auth);
-            filterChain.doFilter(request, response);
-        } else {
+        ClienteApi cliente = requestApiKey != null ? clientes.get(hash(requestApiKey)) : null;
+        if (cliente == null) {
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             response.getWriter().write("API key inválida ou ausente");
+            return;
+        }
+
+        long agora = System.nanoTime();
+        long espera = cliente.admiteRequisicao(agora);
+        if (espera > 0) {
+            recusa(response, espera, "Limite de requisições por segundo excedido");
+            return;
+        }
+        boolean download = ehDownload(request);
+        boolean upload = !download && ehUpload(request);
+        // O upload é cobrado antes pelo Content-Length e o restante depois da leitura; o download só depois do envio
+        long cobrado = upload ? Math.max(request.getContentLengthLong(), 0) : 0;
+        if (download || upload) {
+            espera = cliente.admiteBytes(cobrado, agora);
+            if (espera > 0) {
+                recusa(response, espera, "Limite de bytes por segundo excedido");
+                return;
+            }
+            if (!cliente.iniciaTransferencia()) {
+                recusa(response, 1_000_000_000L, "Limite de transferências simultâneas excedido");
+                return;
+            }
+        }
+
+        UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
+                cliente.getNome(),
+                null,
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_API"))
+        );
+        SecurityContextHolder.getContext().setAuthentication(auth);
+        if (!download && !upload) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        RespostaMedida resposta = download ? new RespostaMedida(response) : null;
+        RequisicaoMedida entrada = upload ? new RequisicaoMedida(request) : null;
+        HttpServletRequest requisicao = upload ? entrada : request;
+        if (download && cliente.limitaTransferencias()) {
+            // Com sendfile o Tomcat envia o corpo depois que a cadeia retorna, e a vaga seria liberada antes da hora
+            requisicao = new RequisicaoSemSendfile(request);
+        }
+        try {
+            filterChain.doFilter(requisicao, download ? resposta : response);
+        } finally {
+            cliente.terminaTransferencia();
+            if (download) {
+                cliente.debitaBytes(resposta.getTamanho(), System.nanoTime());
+            } else {
+                cliente.debitaBytes(Math.max(entrada.getTamanho() - cobrado, 0), System.nanoTime());
+            }
         }
     }
-}
 
+    private static boolean ehDownload(HttpServletRequest request) {
+        String metodo = request.getMethod();
+        String path = request.getRequestURI();
+        if (path.equals(EXPORTACAO)) {
+            // GET pelos filtros ou POST com os IDs no corpo
+            return "GET".equals(metodo) || "POST".equals(metodo);
+        }
+        if (!"GET".equals(metodo)) {
+            return false;
+        }
+        if (!path.startsWith(PREFIXO_DOCUMENTO)) {
+            return false;
+        }
+        // /documentos/{id} ou /documentos/{id}/versoes/{numero}
+        String[] partes = path.substring(PREFIXO_DOCUMENTO.length()).split("/", -1);
+        if (partes.length == 1) {
+            return numerico(partes[0]);
+        }
+        return partes.length == 3 && numerico(partes[0]) && partes[1].equals(VERSOES) && numerico(partes[2]);
+    }
+
+    private static boolean numerico(String parte) {
+        if (parte.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < parte.length(); i++) {
+            if (!Character.isDigit(parte.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean ehUpload(HttpServletRequest request) {
+        String metodo = request.getMethod();
+        String contentType = request.getContentType();
+        return ("POST".equals(metodo) || "PUT".equals(metodo)) && contentType != null
+                && (contentType.startsWith("multipart/") || contentType.startsWith("application/octet-stream"));
+    }
+
+    private static void recusa(HttpServletResponse response, long esperaNanos, String mensagem) throws IOException {
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (esperaNanos + 999_999_999L) / 1_000_000_000L)));
+        response.getWriter().write(mensagem);
+    }
+
+    private static String hash(String chave) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(chave.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    // Esconde o suporte a sendfile para que o corpo seja copiado dentro da cadeia de filtros
+    private static class RequisicaoSemSendfile extends HttpServletRequestWrapper {
+
+        RequisicaoSemSendfile(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return DownloadUtil.SENDFILE_SUPPORT.equals(name) ? null : super.getAttribute(name);
+        }
+    }
+
+    // Conta os bytes lidos do corpo; o multipart é lido pelo contêiner sem passar por aqui e vale o tamanho das partes
+    private static class RequisicaoMedida extends HttpServletRequestWrapper {
+
+        private long lido;
+        private long partes = -1;
+        private ServletInputStream entrada;
+
+        RequisicaoMedida(HttpServletRequest request) {
+            super(request);
+        }
+
+        long getTamanho() {
+            return Math.max(lido, Math.max(partes, 0));
+        }
+
+        @Override
+        public Collection<Part> getParts() throws IOException, ServletException {
+            Collection<Part> lista = super.getParts();
+            if (partes < 0) {
+                long total = 0;
+                for (Part part : lista) {
+                    total += part.getSize();
+                }
+                partes = total;
+            }
+            return lista;
+        }
+
+        @Override
+        public Part getPart(String name) throws IOException, ServletException {
+            getParts();
+            return super.getPart(name);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (entrada == null) {
+                ServletInputStream original = super.getInputStream();
+                entrada = new ServletInputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        int b = original.read();
+                        if (b >= 0) {
+                            lido++;
+                        }
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        int n = original.read(b, off, len);
+                        if (n > 0) {
+                            lido += n;
+                        }
+                        return n;
+                    }
+
+                    @Override
+                    public int available() throws IOException {
+                        return original.available();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        original.close();
+                    }
+
+                    @Override
+                    public boolean isFinished() {
+                        return original.isFinished();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return original.isReady();
+                    }
+
+                    @Override
+                    public void setReadListener(ReadListener readListener) {
+                        original.setReadListener(readListener);
+                    }
+                };
+            }
+            return entrada;
+        }
+    }
+
+    // Conta os bytes escritos no corpo; com sendfile nada passa por aqui e vale o tamanho declarado
+    private static class RespostaMedida extends HttpServletResponseWrapper {
+
+        private long declarado;
+        private long escrito;
+        private ServletOutputStream saida;
+
+        RespostaMedida(HttpServletResponse response) {
+            super(response);
+        }
+
+        long getTamanho() {
+            return Math.max(declarado, escrito);
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            super.setContentLength(len);
+            declarado = len;
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            super.setContentLengthLong(len);
+            declarado = len;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (saida == null) {
+                ServletOutputStream original = super.getOutputStream();
+                saida = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        original.write(b);
+                        escrito++;
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        original.write(b, off, len);
+                        escrito += len;
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        original.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        original.close();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return original.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        original.setWriteListener(writeListener);
+                    }
+                };
+            }
+            return saida;
+        }
+    }
+}
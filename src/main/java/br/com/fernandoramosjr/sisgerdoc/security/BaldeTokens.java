@@ -0,0 +1,63 @@
+package br.com.fernandoramosjr.sisgerdoc.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Balde de tokens sem locks, no formato de GCRA: em vez de contar tokens, guarda o instante (em nanos) em que o
+ * balde estaria cheio de novo. Consumir é avançar esse instante com um único compareAndSet; o balde está disponível
+ * enquanto o instante não ultrapassa o presente em mais do que a rajada permitida.
+ */
+class BaldeTokens {
+
+    private final double nanosPorUnidade;
+    private final long capacidadeNanos;
+    private final AtomicLong cheioEm = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param unidadesPorSegundo taxa de reposição
+     * @param rajada unidades que podem ser consumidas de uma vez com o balde cheio
+     */
+    BaldeTokens(double unidadesPorSegundo, long rajada) {
+        this.nanosPorUnidade = 1_000_000_000d / unidadesPorSegundo;
+        this.capacidadeNanos = (long) Math.min(Long.MAX_VALUE / 4d, Math.max(rajada, 1) * nanosPorUnidade);
+    }
+
+    /**
+     * Consome as unidades se houver saldo. Um consumo maior que a rajada é aceito com o balde cheio e deixa o balde
+     * em débito, pago pelas requisições seguintes.
+     *
+     * @return 0 quando aceito; senão, os nanos até haver saldo
+     */
+    long tentaConsumir(long unidades, long agora) {
+        long custo = custo(unidades);
+        long exigido = capacidadeNanos - Math.min(custo, capacidadeNanos);
+        while (true) {
+            long atual = cheioEm.get();
+            long base = Math.max(atual, agora);
+            long ocupado = base - agora;
+            if (ocupado > exigido) {
+                return ocupado - exigido;
+            }
+            if (cheioEm.compareAndSet(atual, base + custo)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Consome as unidades sem verificar o saldo, para custos só conhecidos depois de atendida a requisição.
+     */
+    void consome(long unidades, long agora) {
+        long custo = custo(unidades);
+        while (true) {
+            long atual = cheioEm.get();
+            if (cheioEm.compareAndSet(atual, Math.max(atual, agora) + custo)) {
+                return;
+            }
+        }
+    }
+
+    private long custo(long unidades) {
+        return (long) Math.min(Long.MAX_VALUE / 4d, unidades * nanosPorUnidade);
+    }
+}
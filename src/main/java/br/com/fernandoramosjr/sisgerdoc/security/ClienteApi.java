@@ -0,0 +1,116 @@
+package br.com.fernandoramosjr.sisgerdoc.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Estado de uma API key: baldes de requisições e de bytes por segundo e a contagem de transferências em andamento.
+ * Limites com valor 0 ficam desativados.
+ */
+class ClienteApi {
+
+    static final String MOTIVO_REQUISICOES = "requisicoes";
+    static final String MOTIVO_BYTES = "bytes";
+    static final String MOTIVO_TRANSFERENCIAS = "transferencias";
+
+    private final String nome;
+    private final BaldeTokens requisicoes;
+    private final BaldeTokens bytes;
+    private final int maximoTransferencias;
+    private final AtomicInteger transferencias = new AtomicInteger();
+    private final Counter rejeicoesRequisicoes;
+    private final Counter rejeicoesBytes;
+    private final Counter rejeicoesTransferencias;
+
+    ClienteApi(String nome, double requisicoesPorSegundo, long rajadaRequisicoes, double bytesPorSegundo,
+               long rajadaBytes, int maximoTransferencias, MeterRegistry registry) {
+        this.nome = nome;
+        this.requisicoes = requisicoesPorSegundo > 0 ? new BaldeTokens(requisicoesPorSegundo, rajadaRequisicoes) : null;
+        this.bytes = bytesPorSegundo > 0 ? new BaldeTokens(bytesPorSegundo, rajadaBytes) : null;
+        this.maximoTransferencias = maximoTransferencias;
+        this.rejeicoesRequisicoes = contadorRejeicoes(registry, MOTIVO_REQUISICOES);
+        this.rejeicoesBytes = contadorRejeicoes(registry, MOTIVO_BYTES);
+        this.rejeicoesTransferencias = contadorRejeicoes(registry, MOTIVO_TRANSFERENCIAS);
+    }
+
+    String getNome() {
+        return nome;
+    }
+
+    /**
+     * @return 0 quando a requisição é aceita; senão, os nanos até haver saldo
+     */
+    long admiteRequisicao(long agora) {
+        if (requisicoes == null) {
+            return 0;
+        }
+        long espera = requisicoes.tentaConsumir(1, agora);
+        if (espera > 0) {
+            rejeicoesRequisicoes.increment();
+        }
+        return espera;
+    }
+
+    /**
+     * Bytes conhecidos antes do atendimento (o Content-Length de um upload). Com 0, só verifica se o débito de
+     * downloads anteriores já foi pago.
+     *
+     * @return 0 quando aceitos; senão, os nanos até haver saldo
+     */
+    long admiteBytes(long quantidade, long agora) {
+        if (bytes == null) {
+            return 0;
+        }
+        long espera = bytes.tentaConsumir(quantidade, agora);
+        if (espera > 0) {
+            rejeicoesBytes.increment();
+        }
+        return espera;
+    }
+
+    /**
+     * Bytes conhecidos só depois do atendimento (o corpo de um download). Ficam como débito para as próximas
+     * requisições.
+     */
+    void debitaBytes(long quantidade, long agora) {
+        if (bytes != null && quantidade > 0) {
+            bytes.consome(quantidade, agora);
+        }
+    }
+
+    boolean limitaTransferencias() {
+        return maximoTransferencias > 0;
+    }
+
+    boolean iniciaTransferencia() {
+        if (maximoTransferencias <= 0) {
+            return true;
+        }
+        while (true) {
+            int atual = transferencias.get();
+            if (atual >= maximoTransferencias) {
+                rejeicoesTransferencias.increment();
+                return false;
+            }
+            if (transferencias.compareAndSet(atual, atual + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void terminaTransferencia() {
+        if (maximoTransferencias > 0) {
+            transferencias.decrementAndGet();
+        }
+    }
+
+    private Counter contadorRejeicoes(MeterRegistry registry, String motivo) {
+        return Counter.builder("sisgerdoc.api.rejeicoes")
+                .description("Requisições recusadas com 429 por limite da API key")
+                .tag("cliente", nome)
+                .tag("motivo", motivo)
+                .register(registry);
+    }
+}
@@ -29,7 +29,8 @@ public class SecurityConfig {
                             "/swagger-ui.html",
                             "/favicon.ico",
                             "/error",
-                            "/h2-console/**"
+                            "/h2-console/**",
+                            "/actuator/health/**"
                     ).permitAll()
                     .anyRequest().authenticated()
             )
@@ -0,0 +1,11 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Blob;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public interface BlobService {
+    Blob armazenar(Path arquivoTemporario, String hash) throws IOException;
+    void liberarReferencia(String hash) throws IOException;
+}
@@ -0,0 +1,162 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Blob;
+import br.com.fernandoramosjr.sisgerdoc.repository.BlobRepository;
+import br.com.fernandoramosjr.sisgerdoc.util.DocumentoUtil;
+import jakarta.transaction.Transactional;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Service
+@Transactional
+public class BlobServiceImpl implements BlobService {
+
+    private static final int MAXIMO_TENTATIVAS = 3;
+
+    private final BlobRepository blobRepository;
+    private final TransactionTemplate novaTransacao;
+    private static final Logger logger = LogManager.getLogger(BlobServiceImpl.class);
+
+    @Value("${file.upload-dir}")
+    String uploadDir;
+
+    public BlobServiceImpl(BlobRepository blobRepository, TransactionTemplate transactionTemplate) {
+        this.blobRepository = blobRepository;
+        this.novaTransacao = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.novaTransacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Um conteúdo novo é registrado com zero referências numa transação própria e só então contado, com a linha
+     * bloqueada, na transação de quem chamou. Se outro upload do mesmo conteúdo registrar o blob primeiro, a violação
+     * de chave fica na transação própria e este upload passa a contar a referência no blob já existente.
+     */
+    @Override
+    public Blob armazenar(Path arquivoTemporario, String hash) throws IOException {
+        for (int tentativa = 1; ; tentativa++) {
+            Optional<Blob> existente = blobRepository.findByHashParaAtualizacao(hash);
+            if (existente.isPresent()) {
+                Blob blob = existente.get();
+                blob.setReferencias(blob.getReferencias() + 1);
+                Files.deleteIfExists(arquivoTemporario);
+                logger.debug("Conteúdo já armazenado, reaproveitando blob: {} - Referências: {}", hash, blob.getReferencias());
+                return blobRepository.save(blob);
+            }
+            if (tentativa > MAXIMO_TENTATIVAS) {
+                throw new IOException("Não foi possível registrar o blob " + hash);
+            }
+            registraBlob(arquivoTemporario, hash);
+        }
+    }
+
+    private void registraBlob(Path arquivoTemporario, String hash) throws IOException {
+        long fileSize = Files.size(arquivoTemporario);
+        DocumentoUtil documentoUtil = new DocumentoUtil(uploadDir);
+        Path blobPath = documentoUtil.novoBlobPath(hash);
+        try {
+            novaTransacao.executeWithoutResult(status -> {
+                blobRepository.insereSemReferencias(hash, blobPath.toString(), fileSize, LocalDateTime.now());
+                // Dentro da transação: a linha só fica visível com o arquivo já no lugar
+                try {
+                    documentoUtil.moveConteudo(arquivoTemporario, blobPath);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Blob registrado por outro upload simultâneo: {}", hash);
+            return;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        logger.debug("Novo blob armazenado: {} - Bytes: {}", hash, fileSize);
+        aposReversao(() -> descartaSemReferencias(hash, blobPath));
+    }
+
+    // A transação de quem chamou foi desfeita: o blob registrado por ela não chegou a ser usado
+    private void descartaSemReferencias(String hash, Path blobPath) {
+        try {
+            novaTransacao.executeWithoutResult(status -> {
+                if (blobRepository.removeSemReferencias(hash, blobPath.toString()) > 0) {
+                    try {
+                        Files.deleteIfExists(blobPath);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Blob sem referências não removido: {} - Erro: {}", hash, e.getMessage());
+        }
+    }
+
+    @Override
+    public void liberarReferencia(String hash) throws IOException {
+        Optional<Blob> existente = blobRepository.findByHashParaAtualizacao(hash);
+        if (existente.isEmpty()) {
+            logger.warn("Blob não encontrado ao liberar referência: {}", hash);
+            return;
+        }
+        Blob blob = existente.get();
+        blob.setReferencias(blob.getReferencias() - 1);
+        if (blob.getReferencias() > 0) {
+            blobRepository.save(blob);
+            return;
+        }
+        blobRepository.delete(blob);
+        // Só depois da confirmação: se a transação for desfeita, o blob continua referenciado. Um blob registrado
+        // de novo nesse meio tempo usa outro arquivo
+        Path blobPath = Paths.get(blob.getFilePath());
+        aposConfirmacao(() -> {
+            try {
+                if (Files.deleteIfExists(blobPath)) {
+                    logger.debug("Última referência removida, blob apagado: {}", hash);
+                }
+            } catch (IOException e) {
+                logger.warn("Arquivo do blob não apagado: {} - Erro: {}", blobPath, e.getMessage());
+            }
+        });
+    }
+
+    private static void aposConfirmacao(Runnable acao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            acao.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                acao.run();
+            }
+        });
+    }
+
+    private static void aposReversao(Runnable acao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    acao.run();
+                }
+            }
+        });
+    }
+}
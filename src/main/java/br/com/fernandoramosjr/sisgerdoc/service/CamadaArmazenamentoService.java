@@ -0,0 +1,10 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+
+public interface CamadaArmazenamentoService {
+    void registrarAcesso(Documento documento);
+    int gravarAcessos();
+    int rebaixar();
+    boolean promover(Long id);
+}
@@ -0,0 +1,292 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.storage.ArquivoStorageEngine;
+import br.com.fernandoramosjr.sisgerdoc.storage.CamadaFriaStorageEngine;
+import br.com.fernandoramosjr.sisgerdoc.storage.StorageEngine;
+import br.com.fernandoramosjr.sisgerdoc.util.DocumentoUtil;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Move documentos entre a camada quente (o {@link ArquivoStorageEngine}) e a camada fria
+ * ({@link CamadaFriaStorageEngine}) conforme o uso. O download só anota o ID num conjunto em memória; os acessos são
+ * gravados em {@code ultimoAcesso} em lotes, a cada {@code documento.acessos.intervalo}, sem uma escrita no banco por
+ * download.
+ * <p>
+ * O rebaixamento percorre os documentos por ID e leva para a camada fria, comprimidos com gzip, os que não são
+ * baixados (nem alterados) há {@code file.storage.camada-fria.idade-minima}; extensões de formatos já comprimidos
+ * são copiadas como estão. Um download de documento na camada fria é servido de lá e agenda a promoção, que o traz
+ * de volta à camada quente numa thread própria, na codificação que um upload novo teria.
+ * <p>
+ * Nas duas direções o conteúdo é copiado antes de o banco mudar, e a troca do {@code filePath} só acontece se ele
+ * ainda for o lido antes da cópia; o arquivo antigo só é apagado depois disso. Documentos em armazenamento por
+ * conteúdo ou em segmentos continuam onde estão, assim como as versões anteriores, em {@code .versoes}.
+ */
+@Service
+public class CamadaArmazenamentoServiceImpl implements CamadaArmazenamentoService {
+
+    private static final Logger logger = LogManager.getLogger(CamadaArmazenamentoServiceImpl.class);
+
+    private final DocumentoRepository documentoRepository;
+    private final DocumentoCache documentoCache;
+    private final EstatisticaService estatisticaService;
+    private final ArquivoStorageEngine arquivoStorageEngine;
+    private final CamadaFriaStorageEngine camadaFria;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<Long> acessos = ConcurrentHashMap.newKeySet();
+    private final Set<Long> promocoesPendentes = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebaixamentoEmExecucao = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(tarefa -> {
+        Thread thread = new Thread(tarefa, "camada-promocao");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${file.upload-dir}")
+    String uploadDir;
+
+    @Value("${file.storage.camada-fria.idade-minima:P30D}")
+    Duration idadeMinima = Duration.ofDays(30);
+
+    @Value("${file.storage.camada-fria.tamanho-lote:500}")
+    int tamanhoLote = 500;
+
+    @Value("${file.storage.compressao.habilitada:false}")
+    boolean compressao;
+
+    @Value("${file.storage.compressao.tamanho-minimo:1KB}")
+    DataSize compressaoTamanhoMinimo = DataSize.ofKilobytes(1);
+
+    @Value("${file.storage.compressao.extensoes-ignoradas:zip,gz,tgz,bz2,xz,7z,rar,jpg,jpeg,png,gif,webp,mp3,mp4,mkv,avi,mov,docx,xlsx,pptx,odt,ods,odp,jar}")
+    List<String> extensoesNaoComprimidas = List.of("zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "jpg", "jpeg", "png", "gif",
+            "webp", "mp3", "mp4", "mkv", "avi", "mov", "docx", "xlsx", "pptx", "odt", "ods", "odp", "jar");
+
+    public CamadaArmazenamentoServiceImpl(DocumentoRepository documentoRepository, DocumentoCache documentoCache,
+                                          EstatisticaService estatisticaService, ArquivoStorageEngine arquivoStorageEngine,
+                                          CamadaFriaStorageEngine camadaFria, TransactionTemplate transactionTemplate) {
+        this.documentoRepository = documentoRepository;
+        this.documentoCache = documentoCache;
+        this.estatisticaService = estatisticaService;
+        this.arquivoStorageEngine = arquivoStorageEngine;
+        this.camadaFria = camadaFria;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void registrarAcesso(Documento documento) {
+        acessos.add(documento.getId());
+        // Também com a camada fria desligada, para que os documentos que ficaram nela voltem aos poucos
+        if (CamadaFriaStorageEngine.NOME.equals(documento.getArmazenamento())) {
+            agendaPromocao(documento.getId());
+        }
+    }
+
+    @Override
+    public int gravarAcessos() {
+        if (acessos.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(acessos);
+        acessos.removeAll(ids);
+        LocalDateTime agora = LocalDateTime.now();
+        for (int inicio = 0; inicio < ids.size(); inicio += tamanhoLote) {
+            List<Long> lote = ids.subList(inicio, Math.min(inicio + tamanhoLote, ids.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> documentoRepository.registraAcessos(lote, agora));
+            } catch (RuntimeException e) {
+                // Ficam para a próxima gravação
+                acessos.addAll(ids.subList(inicio, ids.size()));
+                throw e;
+            }
+        }
+        logger.debug("Acessos gravados: {}", ids.size());
+        return ids.size();
+    }
+
+    @Override
+    public int rebaixar() {
+        if (!camadaFria.isHabilitada()) {
+            return 0;
+        }
+        if (!rebaixamentoEmExecucao.compareAndSet(false, true)) {
+            logger.warn("Rebaixamento para a camada fria já está em execução");
+            return 0;
+        }
+        try {
+            gravarAcessos();
+            LocalDateTime acessoAte = LocalDateTime.now().minus(idadeMinima);
+            logger.info("Iniciando rebaixamento para a camada fria. Sem acesso desde: {}", acessoAte);
+            int rebaixados = 0;
+            Long ultimoId = 0L;
+            List<Documento> lote;
+            while (!(lote = documentoRepository.buscaLoteParaCamadaFria(ultimoId, acessoAte, Limit.of(tamanhoLote))).isEmpty()) {
+                for (Documento documento : lote) {
+                    // Baixado depois da última gravação dos acessos
+                    if (acessos.contains(documento.getId())) {
+                        continue;
+                    }
+                    if (troca(documento, camadaFria, comprimeNaCamadaFria(documento))) {
+                        rebaixados++;
+                    }
+                }
+                ultimoId = lote.get(lote.size() - 1).getId();
+            }
+            logger.info("Rebaixamento para a camada fria concluído. Documentos: {}", rebaixados);
+            return rebaixados;
+        } finally {
+            rebaixamentoEmExecucao.set(false);
+        }
+    }
+
+    @Override
+    public boolean promover(Long id) {
+        Optional<Documento> documento = documentoRepository.findById(id);
+        if (documento.isEmpty() || !CamadaFriaStorageEngine.NOME.equals(documento.get().getArmazenamento())) {
+            return false;
+        }
+        boolean promovido = troca(documento.get(), arquivoStorageEngine, comprimeNaCamadaQuente(documento.get()));
+        if (promovido) {
+            logger.info("Documento promovido para a camada quente. ID: {}", id);
+        }
+        return promovido;
+    }
+
+    private void agendaPromocao(Long id) {
+        if (!promocoesPendentes.add(id)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    promover(id);
+                } catch (RuntimeException e) {
+                    logger.error("Erro ao promover o documento para a camada quente. ID: {} - Erro: {}", id, e.getMessage());
+                } finally {
+                    promocoesPendentes.remove(id);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            promocoesPendentes.remove(id);
+            logger.debug("Promoção não agendada: serviço encerrado. ID: {}", id);
+        }
+    }
+
+    // Copia o conteúdo para o destino na codificação pedida e troca o caminho do documento se ele não mudou nesse meio tempo
+    private boolean troca(Documento documento, StorageEngine destino, boolean comprimir) {
+        boolean comprimido = DocumentoUtil.CODIFICACAO_GZIP.equals(documento.getCodificacao());
+        long tamanhoOriginal = comprimido ? documento.getTamanhoOriginal() : documento.getFileSize();
+        Documento novo = new Documento(documento);
+        Path origem = Paths.get(documento.getFilePath());
+        Path temporario = null;
+        try {
+            temporario = destino.novoArquivoTemporario(novo);
+            copia(origem, temporario, comprimido, comprimir);
+            destino.armazenar(novo, temporario);
+        } catch (IOException e) {
+            logger.error("Erro ao copiar o documento para a camada {}. ID: {} - Erro: {}", destino.getNome(), documento.getId(), e.getMessage());
+            return false;
+        } finally {
+            if (temporario != null) {
+                removeArquivo(temporario);
+            }
+        }
+        Path copiado = Paths.get(novo.getFilePath());
+        Boolean atualizado;
+        try {
+            long tamanhoEmDisco = Files.size(copiado);
+            atualizado = transactionTemplate.execute(status -> {
+                if (documentoRepository.atualizaCamada(documento.getId(), documento.getFilePath(), novo.getFilePath(),
+                        novo.getArmazenamento(), comprimir ? DocumentoUtil.CODIFICACAO_GZIP : null,
+                        comprimir ? tamanhoOriginal : null, tamanhoEmDisco) != 1) {
+                    return false;
+                }
+                estatisticaService.registrarAtualizacao(documento.getFileSize(), tamanhoEmDisco);
+                documentoCache.invalidar(documento.getId());
+                return true;
+            });
+        } catch (IOException | RuntimeException e) {
+            logger.error("Erro ao trocar a camada do documento. ID: {} - Erro: {}", documento.getId(), e.getMessage());
+            atualizado = false;
+        }
+        if (!Boolean.TRUE.equals(atualizado)) {
+            logger.debug("Documento alterado durante a troca de camada; mantido como está. ID: {}", documento.getId());
+            removeArquivo(copiado);
+            return false;
+        }
+        removeArquivo(origem);
+        return true;
+    }
+
+    private void copia(Path origem, Path destino, boolean comprimido, boolean comprimir) throws IOException {
+        DocumentoUtil documentoUtil = new DocumentoUtil(uploadDir);
+        try (InputStream entrada = Files.newInputStream(origem)) {
+            if (comprimido == comprimir) {
+                documentoUtil.copiaConteudo(entrada, destino, Long.MAX_VALUE);
+            } else if (comprimir) {
+                documentoUtil.copiaConteudoComprimido(entrada, destino, Long.MAX_VALUE);
+            } else {
+                documentoUtil.copiaConteudo(new GZIPInputStream(entrada), destino, Long.MAX_VALUE);
+            }
+        }
+    }
+
+    // Na camada fria comprime sempre que compensa, mesmo com a compressão da camada quente desligada
+    private boolean comprimeNaCamadaFria(Documento documento) {
+        return DocumentoUtil.CODIFICACAO_GZIP.equals(documento.getCodificacao())
+                || (documento.getFileSize() >= compressaoTamanhoMinimo.toBytes()
+                && new DocumentoUtil(uploadDir).deveComprimir(documento.getFileName(), extensoesNaoComprimidas));
+    }
+
+    // Na volta, a mesma decisão de um upload novo
+    private boolean comprimeNaCamadaQuente(Documento documento) {
+        long tamanho = DocumentoUtil.CODIFICACAO_GZIP.equals(documento.getCodificacao())
+                ? documento.getTamanhoOriginal() : documento.getFileSize();
+        return compressao && tamanho >= compressaoTamanhoMinimo.toBytes()
+                && new DocumentoUtil(uploadDir).deveComprimir(documento.getFileName(), extensoesNaoComprimidas);
+    }
+
+    private static void removeArquivo(Path arquivo) {
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            logger.warn("Não foi possível remover o arquivo após a troca de camada: {} - Erro: {}", arquivo, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void fechar() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
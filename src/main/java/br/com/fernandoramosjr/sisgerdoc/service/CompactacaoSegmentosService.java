@@ -0,0 +1,5 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+public interface CompactacaoSegmentosService {
+    int compactar();
+}
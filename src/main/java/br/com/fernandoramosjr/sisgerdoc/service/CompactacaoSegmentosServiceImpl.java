@@ -0,0 +1,137 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.OcupacaoSegmentoDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.storage.SegmentoStorageEngine;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Recupera o espaço de documentos excluídos ou substituídos nos segmentos selados. Segmentos sem nenhum documento
+ * vivo são apagados; os que têm ocupação abaixo de {@code file.storage.segmentos.compactacao.ocupacao-minima} têm
+ * os documentos vivos copiados para o segmento ativo, em lotes, e ficam vazios para a execução seguinte apagá-los.
+ * Esse intervalo entre copiar e apagar dá tempo para leituras que ainda usam a posição antiga terminarem.
+ */
+@Service
+public class CompactacaoSegmentosServiceImpl implements CompactacaoSegmentosService {
+
+    private static final Logger logger = LogManager.getLogger(CompactacaoSegmentosServiceImpl.class);
+    private final DocumentoRepository documentoRepository;
+    private final SegmentoStorageEngine segmentoStorageEngine;
+    private final DocumentoCache documentoCache;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean emExecucao = new AtomicBoolean();
+
+    @Value("${file.storage.segmentos.compactacao.ocupacao-minima:0.5}")
+    double ocupacaoMinima = 0.5;
+
+    // Um documento gravado num segmento pouco antes de ele ser selado pode ainda não ter sido confirmado no banco
+    @Value("${file.storage.segmentos.compactacao.idade-minima:PT10M}")
+    Duration idadeMinima = Duration.ofMinutes(10);
+
+    @Value("${file.storage.segmentos.compactacao.tamanho-lote:500}")
+    int tamanhoLote = 500;
+
+    public CompactacaoSegmentosServiceImpl(DocumentoRepository documentoRepository, SegmentoStorageEngine segmentoStorageEngine,
+                                           DocumentoCache documentoCache, TransactionTemplate transactionTemplate) {
+        this.documentoRepository = documentoRepository;
+        this.segmentoStorageEngine = segmentoStorageEngine;
+        this.documentoCache = documentoCache;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public int compactar() {
+        if (!emExecucao.compareAndSet(false, true)) {
+            logger.warn("Compactação de segmentos já está em execução");
+            return 0;
+        }
+        try {
+            return compactaSelados();
+        } finally {
+            emExecucao.set(false);
+        }
+    }
+
+    private int compactaSelados() {
+        Map<Long, Long> selados;
+        try {
+            selados = segmentoStorageEngine.listarSegmentosSelados(Instant.now().minus(idadeMinima));
+        } catch (IOException e) {
+            logger.error("Erro ao listar os segmentos para compactação. Erro: {}", e.getMessage(), e);
+            return 0;
+        }
+        if (selados.isEmpty()) {
+            return 0;
+        }
+        Map<Long, OcupacaoSegmentoDto> ocupacao = documentoRepository.calculaOcupacaoSegmentos().stream()
+                .collect(Collectors.toMap(OcupacaoSegmentoDto::getSegmento, Function.identity()));
+        int compactados = 0;
+        for (Map.Entry<Long, Long> segmento : selados.entrySet()) {
+            OcupacaoSegmentoDto vivos = ocupacao.get(segmento.getKey());
+            try {
+                if (vivos == null) {
+                    segmentoStorageEngine.descartarSegmento(segmento.getKey());
+                    continue;
+                }
+                long bytesVivos = vivos.getBytes() + vivos.getDocumentos() * SegmentoStorageEngine.TAMANHO_CABECALHO;
+                if (bytesVivos < segmento.getValue() * ocupacaoMinima) {
+                    logger.info("Compactando segmento {}. Documentos vivos: {} - Ocupação: {}%", segmento.getKey(),
+                            vivos.getDocumentos(), bytesVivos * 100 / Math.max(segmento.getValue(), 1));
+                    compactaSegmento(segmento.getKey());
+                    compactados++;
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("Erro ao compactar o segmento {}. Erro: {}", segmento.getKey(), e.getMessage(), e);
+            }
+        }
+        return compactados;
+    }
+
+    private void compactaSegmento(long segmento) {
+        Long ultimoId = 0L;
+        while (ultimoId != null) {
+            Long inicioLote = ultimoId;
+            ultimoId = transactionTemplate.execute(status -> compactaLote(segmento, inicioLote));
+        }
+    }
+
+    // Retorna o último ID processado, ou null quando não há mais documentos no segmento
+    private Long compactaLote(long segmento, Long ultimoId) {
+        List<Documento> lote = documentoRepository.buscaLoteDoSegmento(segmento, ultimoId, Limit.of(tamanhoLote));
+        if (lote.isEmpty()) {
+            return null;
+        }
+        for (Documento documento : lote) {
+            // A cópia desanexada recebe a nova posição; a entidade gerenciada não é alterada
+            Documento realocado = new Documento(documento);
+            try {
+                segmentoStorageEngine.realocar(realocado);
+            } catch (IOException e) {
+                logger.error("Erro ao realocar o documento. ID: {} - Erro: {}", documento.getId(), e.getMessage());
+                continue;
+            }
+            if (documentoRepository.atualizaPosicaoSegmento(documento.getId(), segmento, documento.getSegmentoOffset(),
+                    realocado.getSegmento(), realocado.getSegmentoOffset()) == 1) {
+                documentoCache.invalidar(documento.getId());
+            } else {
+                logger.debug("Documento alterado durante a compactação; a cópia será descartada. ID: {}", documento.getId());
+            }
+        }
+        return lote.get(lote.size() - 1).getId();
+    }
+}
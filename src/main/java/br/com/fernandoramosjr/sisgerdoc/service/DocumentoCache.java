@@ -0,0 +1,66 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.CacheEstatisticasDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Cache limitado em tamanho e tempo para os metadados de {@link Documento} usados no download.
+ * Guarda cópias desanexadas da sessão JPA, de modo que alterações em entidades gerenciadas nunca
+ * vazam para o cache; quem altera um documento deve chamar {@link #invalidar(Long)}.
+ */
+@Component
+public class DocumentoCache {
+
+    private final Cache<Long, Documento> cache;
+
+    public DocumentoCache(@Value("${documento.cache.maximo-entradas:10000}") long maximoEntradas,
+                          @Value("${documento.cache.expiracao:10m}") Duration expiracao) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximoEntradas)
+                .expireAfterWrite(expiracao)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<Documento> buscar(Long id, Function<Long, Optional<Documento>> loader) {
+        Documento documento = cache.getIfPresent(id);
+        if (documento == null) {
+            // Documentos inexistentes não são guardados, para não mascarar criações posteriores
+            documento = loader.apply(id).map(Documento::new).orElse(null);
+            if (documento != null) {
+                cache.put(id, documento);
+            }
+        }
+        return Optional.ofNullable(documento).map(Documento::new);
+    }
+
+    public void invalidar(Long id) {
+        cache.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Uma leitura concorrente pode recarregar o estado antigo antes do commit
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(id);
+                }
+            });
+        }
+    }
+
+    public CacheEstatisticasDto obterEstatisticas() {
+        CacheStats stats = cache.stats();
+        return new CacheEstatisticasDto(cache.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.evictionCount(), stats.hitRate());
+    }
+}
@@ -0,0 +1,116 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Métricas do fluxo de upload e download, exportadas pelo Actuator em {@code /actuator/prometheus}. A duração de
+ * cada etapa é separada em acesso ao banco e E/S de arquivo; o restante do tempo de uma requisição, visto em
+ * {@code http.server.requests}, é rede e processamento. As consultas do repositório têm os próprios timers em
+ * {@code spring.data.repository.invocations}.
+ */
+@Component
+public class DocumentoMetricas {
+
+    public static final String UPLOAD = "upload";
+    public static final String DOWNLOAD = "download";
+    public static final String ATUALIZACAO = "atualizacao";
+    public static final String EXCLUSAO = "exclusao";
+    public static final String BANCO = "banco";
+    public static final String ARQUIVO = "arquivo";
+
+    private final MeterRegistry registry;
+    private final Map<String, AtomicInteger> emAndamento = Map.of(UPLOAD, new AtomicInteger(), DOWNLOAD, new AtomicInteger());
+    private final Counter bytesRecebidos;
+    private final Counter bytesEnviados;
+    private final DistributionSummary tamanhoDocumentos;
+
+    public DocumentoMetricas(MeterRegistry registry) {
+        this.registry = registry;
+        emAndamento.forEach((operacao, quantidade) -> Gauge.builder("sisgerdoc.transferencias.ativas", quantidade, AtomicInteger::get)
+                .description("Uploads e downloads em andamento")
+                .tag("operacao", operacao)
+                .register(registry));
+        this.bytesRecebidos = Counter.builder("sisgerdoc.transferencia.bytes")
+                .description("Bytes recebidos nos uploads e enviados nos downloads")
+                .baseUnit("bytes")
+                .tag("direcao", "entrada")
+                .register(registry);
+        this.bytesEnviados = Counter.builder("sisgerdoc.transferencia.bytes")
+                .description("Bytes recebidos nos uploads e enviados nos downloads")
+                .baseUnit("bytes")
+                .tag("direcao", "saida")
+                .register(registry);
+        this.tamanhoDocumentos = DistributionSummary.builder("sisgerdoc.documento.tamanho")
+                .description("Tamanho original dos arquivos recebidos")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1024.0)
+                .maximumExpectedValue(10.0 * 1024 * 1024 * 1024)
+                .register(registry);
+    }
+
+    public Timer.Sample inicia() {
+        return Timer.start(registry);
+    }
+
+    public void registraDuracao(Timer.Sample amostra, String operacao, String etapa) {
+        amostra.stop(Timer.builder("sisgerdoc." + operacao + ".duracao")
+                .description("Duração das etapas de " + operacao + " no banco e em arquivo")
+                .tag("etapa", etapa)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    // O flush dos INSERTs e UPDATEs acontece no commit, depois que o método transacional retorna
+    public void registraConfirmacao(String operacao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private Timer.Sample amostra;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                amostra = inicia();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (amostra != null) {
+                    registraDuracao(amostra, operacao, BANCO);
+                }
+            }
+        });
+    }
+
+    public void registraRecebido(long bytes) {
+        bytesRecebidos.increment(bytes);
+        tamanhoDocumentos.record(bytes);
+    }
+
+    public void registraEnviado(long bytes) {
+        bytesEnviados.increment(bytes);
+    }
+
+    public void registraErro(String operacao, String resultado) {
+        registry.counter("sisgerdoc.erros", "operacao", operacao, "resultado", resultado).increment();
+    }
+
+    public void iniciaTransferencia(String operacao) {
+        emAndamento.get(operacao).incrementAndGet();
+    }
+
+    public void terminaTransferencia(String operacao) {
+        emAndamento.get(operacao).decrementAndGet();
+    }
+}
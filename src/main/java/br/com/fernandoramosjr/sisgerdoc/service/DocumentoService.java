@@ -2,15 +2,24 @@ package br.com.fernandoramosjr.sisgerdoc.service;
 
 import br.com.fernandoramosjr.sisgerdoc.model.Documento;
 import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoDownloadDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.FiltroDocumentoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.PaginaDocumentosDto;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.nio.file.Path;
+import java.util.List;
 
 public interface DocumentoService {
     Documento criarNovoDocumento(String name, MultipartFile file) throws IOException;
+    List<Documento> criarDocumentosEmLote(List<String> nomes, List<MultipartFile> files) throws IOException;
+    Documento criarNovoDocumentoStreaming(String contentType, InputStream conteudo) throws IOException;
+    Documento criarNovoDocumento(String nome, String nomeOriginal, Path arquivoTemporario) throws IOException;
     void atualizarDocumento(Long id, String nome, MultipartFile file) throws IOException;
     void deletarDocumento(Long id) throws IOException;
+    PaginaDocumentosDto listarDocumentos(FiltroDocumentoDto filtro, String cursor, int limite);
     DocumentoDownloadDto buscarDocumentoParaDownload(Long id) throws MalformedURLException, FileNotFoundException;
 }
@@ -1,40 +1,125 @@
 package br.com.fernandoramosjr.sisgerdoc.service;
 
+import br.com.fernandoramosjr.sisgerdoc.model.Blob;
 import br.com.fernandoramosjr.sisgerdoc.model.Documento;
 import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoDownloadDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.FiltroDocumentoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.PaginaDocumentosDto;
 import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.storage.ArquivoStorageEngine;
+import br.com.fernandoramosjr.sisgerdoc.storage.ConteudoArmazenado;
+import br.com.fernandoramosjr.sisgerdoc.storage.StorageEngineRegistry;
 import br.com.fernandoramosjr.sisgerdoc.util.DocumentoUtil;
+import br.com.fernandoramosjr.sisgerdoc.util.MultipartStreamReader;
+import io.micrometer.core.instrument.Timer;
 import jakarta.transaction.Transactional;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import static br.com.fernandoramosjr.sisgerdoc.service.DocumentoMetricas.ARQUIVO;
+import static br.com.fernandoramosjr.sisgerdoc.service.DocumentoMetricas.BANCO;
+import static br.com.fernandoramosjr.sisgerdoc.service.DocumentoMetricas.DOWNLOAD;
+import static br.com.fernandoramosjr.sisgerdoc.service.DocumentoMetricas.UPLOAD;
 
 @Service
 @Transactional
 public class DocumentoServiceImpl implements DocumentoService {
 
     private final DocumentoRepository documentoRepository;
+    private final BlobService blobService;
+    private final EstatisticaService estatisticaService;
+    private final DocumentoCache documentoCache;
+    private final StorageEngineRegistry storageEngines;
+    private final IndiceConteudoService indiceConteudoService;
+    private final IndiceNomeService indiceNomeService;
+    private final DocumentoMetricas documentoMetricas;
+    private final VersaoDocumentoService versaoDocumentoService;
+    private final CamadaArmazenamentoService camadaArmazenamentoService;
     private static final Logger logger = LogManager.getLogger(DocumentoServiceImpl.class);
 
     @Value("${file.upload-dir}")
     String uploadDir;
 
-    public DocumentoServiceImpl(DocumentoRepository documentoRepository) {
+    @Value("${file.streaming.buffer-size:64KB}")
+    DataSize streamingBufferSize = DataSize.ofKilobytes(64);
+
+    @Value("${file.streaming.max-file-size:10GB}")
+    DataSize streamingMaxFileSize = DataSize.ofGigabytes(10);
+
+    @Value("${file.storage.content-addressed:false}")
+    boolean contentAddressed;
+
+    @Value("${file.storage.compressao.habilitada:false}")
+    boolean compressao;
+
+    @Value("${file.storage.compressao.tamanho-minimo:1KB}")
+    DataSize compressaoTamanhoMinimo = DataSize.ofKilobytes(1);
+
+    @Value("${file.storage.compressao.extensoes-ignoradas:zip,gz,tgz,bz2,xz,7z,rar,jpg,jpeg,png,gif,webp,mp3,mp4,mkv,avi,mov,docx,xlsx,pptx,odt,ods,odp,jar}")
+    List<String> extensoesNaoComprimidas = List.of("zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "jpg", "jpeg", "png", "gif",
+            "webp", "mp3", "mp4", "mkv", "avi", "mov", "docx", "xlsx", "pptx", "odt", "ods", "odp", "jar");
+
+    @Value("${file.lote.maximo-arquivos:1000}")
+    int loteMaximoArquivos = 1000;
+
+    @Value("${file.lote.paralelismo:8}")
+    int loteParalelismo = 8;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    boolean threadsVirtuais;
+
+    public DocumentoServiceImpl(DocumentoRepository documentoRepository, BlobService blobService,
+                                EstatisticaService estatisticaService, DocumentoCache documentoCache,
+                                StorageEngineRegistry storageEngines, IndiceConteudoService indiceConteudoService,
+                                IndiceNomeService indiceNomeService, DocumentoMetricas documentoMetricas,
+                                VersaoDocumentoService versaoDocumentoService,
+                                CamadaArmazenamentoService camadaArmazenamentoService) {
         this.documentoRepository = documentoRepository;
+        this.blobService = blobService;
+        this.estatisticaService = estatisticaService;
+        this.documentoCache = documentoCache;
+        this.storageEngines = storageEngines;
+        this.indiceConteudoService = indiceConteudoService;
+        this.indiceNomeService = indiceNomeService;
+        this.documentoMetricas = documentoMetricas;
+        this.versaoDocumentoService = versaoDocumentoService;
+        this.camadaArmazenamentoService = camadaArmazenamentoService;
     }
 
     @Override
@@ -45,79 +130,375 @@ public class DocumentoServiceImpl implements DocumentoService {
             throw new IOException("Arquivo enviado está vazio.");
         }
 
+        // O ID é reservado antes da gravação do arquivo e a linha só é persistida completa, com um único INSERT
+        Timer.Sample banco = documentoMetricas.inicia();
         Documento documento = new Documento(nome, LocalDateTime.now());
-        documento = documentoRepository.save(documento);
-        logger.debug("Documento salvo para geração do ID. ID: {}", documento.getId());
+        documento.setId(documentoRepository.reservaIds(1).get(0));
+        documentoMetricas.registraDuracao(banco, UPLOAD, BANCO);
+        logger.debug("ID reservado para o documento. ID: {}", documento.getId());
 
         DocumentoUtil fileManager = new DocumentoUtil(uploadDir);
         String fileName = fileManager.geraFileName(nome, documento.getId(), file);
-        Path filePath = fileManager.getFilePath(fileName);
-        fileManager.copiaConteudo(file, filePath);
-
         documento.setFileName(fileName);
-        documento.setFilePath(filePath.toString());
-        documento.setFileSize(file.getSize());
+        Timer.Sample arquivo = documentoMetricas.inicia();
+        armazenaConteudo(documento, file);
+        documentoMetricas.registraDuracao(arquivo, UPLOAD, ARQUIVO);
 
-        documento = documentoRepository.save(documento);
+        banco = documentoMetricas.inicia();
+        documentoRepository.insere(List.of(documento));
+        documentoMetricas.registraDuracao(banco, UPLOAD, BANCO);
+        documentoMetricas.registraConfirmacao(UPLOAD);
+        estatisticaService.registrarCriacao(documento.getFileSize());
+        indexaAposConfirmacao(List.of(documento));
         logger.info("Documento criado com sucesso. ID: {} - fileName: {}", documento.getId(), fileName);
         return documento;
     }
 
+    @Override
+    public List<Documento> criarDocumentosEmLote(List<String> nomes, List<MultipartFile> files) throws IOException {
+        logger.info("Criando lote de documentos. Quantidade: {}", files.size());
+        if (files.isEmpty() || files.size() > loteMaximoArquivos) {
+            logger.error("Lote com quantidade de arquivos inválida: {}", files.size());
+            throw new IllegalArgumentException("O lote deve conter entre 1 e " + loteMaximoArquivos + " arquivos");
+        }
+        if (nomes != null && !nomes.isEmpty() && nomes.size() != files.size()) {
+            logger.error("Lote com {} nomes para {} arquivos", nomes.size(), files.size());
+            throw new IllegalArgumentException("A quantidade de nomes deve ser igual à de arquivos");
+        }
+        for (MultipartFile file : files) {
+            if (file.isEmpty()) {
+                logger.error("Lote contém arquivo vazio: {}", file.getOriginalFilename());
+                throw new IOException("Arquivo enviado está vazio: " + file.getOriginalFilename());
+            }
+        }
+
+        // Os IDs vêm da sequência em blocos, sem INSERT; as linhas só são persistidas depois de completas
+        LocalDateTime agora = LocalDateTime.now();
+        Timer.Sample banco = documentoMetricas.inicia();
+        List<Long> ids = documentoRepository.reservaIds(files.size());
+        documentoMetricas.registraDuracao(banco, UPLOAD, BANCO);
+        List<Documento> documentos = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            String nome = nomes != null && !nomes.isEmpty() ? nomes.get(i) : nomeSemExtensao(files.get(i).getOriginalFilename());
+            Documento documento = new Documento(nome, agora);
+            documento.setId(ids.get(i));
+            documentos.add(documento);
+        }
+
+        Timer.Sample arquivo = documentoMetricas.inicia();
+        DocumentoUtil fileManager = new DocumentoUtil(uploadDir);
+        fileManager.verificaPath();
+        List<Path> gravados = Collections.synchronizedList(new ArrayList<>());
+        List<Documento> armazenados = new ArrayList<>();
+        String[] hashes = new String[files.size()];
+        boolean[] comprimidos = new boolean[files.size()];
+        String[] etags = new String[files.size()];
+        long[] tamanhosEmDisco = new long[files.size()];
+        // Com threads virtuais, a gravação também usa threads virtuais; o paralelismo continua limitado
+        ThreadFactory threadFactory = threadsVirtuais ? Thread.ofVirtual().name("lote-", 0).factory() : Executors.defaultThreadFactory();
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.min(loteParalelismo, files.size()), threadFactory)) {
+            List<Future<?>> tarefas = new ArrayList<>(files.size());
+            for (int i = 0; i < files.size(); i++) {
+                int indice = i;
+                Documento documento = documentos.get(i);
+                MultipartFile file = files.get(i);
+                documento.setFileName(fileManager.geraFileName(documento.getNome(), documento.getId(), file));
+                comprimidos[i] = deveComprimir(file.getOriginalFilename(), file.getSize());
+                // Com vários volumes, cada arquivo é gravado no seu, e o lote escreve em todos ao mesmo tempo
+                Path destino = novoArquivoTemporario(documento);
+                tarefas.add(executor.submit(() -> {
+                    // Só E/S de arquivo aqui: o acesso ao banco e ao storage engine fica na thread da transação
+                    gravados.add(destino);
+                    etags[indice] = fileManager.copiaConteudoComHash(file.getInputStream(), destino, comprimidos[indice]);
+                    if (contentAddressed) {
+                        hashes[indice] = comprimidos[indice] ? fileManager.calculaHash(destino) : etags[indice];
+                    }
+                    tamanhosEmDisco[indice] = Files.size(destino);
+                    return destino;
+                }));
+            }
+            List<Path> destinos = new ArrayList<>(tarefas.size());
+            for (Future<?> tarefa : tarefas) {
+                destinos.add((Path) aguarda(tarefa));
+            }
+            // Os arquivos só são armazenados depois que todas as gravações terminaram sem erro
+            for (int i = 0; i < destinos.size(); i++) {
+                Documento documento = documentos.get(i);
+                if (contentAddressed) {
+                    armazenaConteudoEnderecado(documento, destinos.get(i), hashes[i]);
+                } else {
+                    storageEngines.paraGravacao().armazenar(documento, destinos.get(i));
+                    armazenados.add(documento);
+                }
+                registraTamanho(documento, comprimidos[i], files.get(i).getSize(), tamanhosEmDisco[i]);
+                documento.setEtag(etags[i]);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Erro ao gravar lote de documentos. Removendo arquivos gravados. Erro: {}", e.getMessage());
+            for (Path gravado : gravados) {
+                Files.deleteIfExists(gravado);
+            }
+            for (Documento armazenado : armazenados) {
+                storageEngines.de(armazenado).remover(armazenado);
+            }
+            throw e;
+        }
+        documentoMetricas.registraDuracao(arquivo, UPLOAD, ARQUIVO);
+        banco = documentoMetricas.inicia();
+        documentoRepository.insere(documentos);
+        documentoMetricas.registraDuracao(banco, UPLOAD, BANCO);
+        documentoMetricas.registraConfirmacao(UPLOAD);
+
+        for (Documento documento : documentos) {
+            estatisticaService.registrarCriacao(documento.getFileSize());
+        }
+        indexaAposConfirmacao(documentos);
+        logger.info("Lote de documentos criado com sucesso. Quantidade: {}", documentos.size());
+        return documentos;
+    }
+
+    private Object aguarda(Future<?> tarefa) throws IOException {
+        try {
+            return tarefa.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Gravação do lote interrompida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Erro ao gravar arquivo do lote", e.getCause());
+        }
+    }
+
+    private String nomeSemExtensao(String originalFileName) {
+        if (originalFileName == null || originalFileName.isBlank()) {
+            return "documento";
+        }
+        int ponto = originalFileName.lastIndexOf('.');
+        return ponto > 0 ? originalFileName.substring(0, ponto) : originalFileName;
+    }
+
+    @Override
+    // A transferência pode levar minutos; não mantém uma conexão do pool presa durante o upload
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Documento criarNovoDocumentoStreaming(String contentType, InputStream conteudo) throws IOException {
+        logger.info("Criando documento via streaming");
+        MultipartStreamReader reader = new MultipartStreamReader(conteudo,
+                MultipartStreamReader.extraiBoundary(contentType), (int) streamingBufferSize.toBytes());
+        DocumentoUtil fileManager = new DocumentoUtil(uploadDir);
+        String nome = null;
+        String nomeOriginal = null;
+        Path tempPath = null;
+        long fileSize = 0;
+        boolean comprimido = false;
+        MessageDigest digest = fileManager.novoDigest();
+        try {
+            MultipartStreamReader.Parte parte;
+            while ((parte = reader.proximaParte()) != null) {
+                if ("nome".equals(parte.getNome())) {
+                    nome = reader.lerTexto(1024);
+                } else if ("file".equals(parte.getNome()) && tempPath == null) {
+                    nomeOriginal = parte.getNomeArquivo();
+                    tempPath = fileManager.getTempFilePath();
+                    // O tamanho ainda não é conhecido: só a extensão decide
+                    comprimido = deveComprimir(nomeOriginal, Long.MAX_VALUE);
+                    // Inclui a espera pelo corpo da requisição, que chega pela rede durante a cópia
+                    Timer.Sample arquivo = documentoMetricas.inicia();
+                    fileSize = comprimido
+                            ? fileManager.copiaConteudoComprimido(reader, tempPath, streamingMaxFileSize.toBytes(), digest)
+                            : fileManager.copiaConteudo(reader, tempPath, streamingMaxFileSize.toBytes(), digest);
+                    documentoMetricas.registraDuracao(arquivo, UPLOAD, ARQUIVO);
+                    logger.debug("Arquivo recebido via streaming. Bytes: {}", fileSize);
+                }
+            }
+            if (nome == null || nome.isBlank()) {
+                logger.error("Tentativa de criação via streaming sem nome");
+                throw new IOException("Nome do documento não informado.");
+            }
+            if (tempPath == null || fileSize == 0) {
+                logger.error("Tentativa de criação via streaming com arquivo vazio. Nome: {}", nome);
+                throw new IOException("Arquivo enviado está vazio.");
+            }
+
+            Documento documento = registraArquivo(nome, nomeOriginal, tempPath, comprimido, fileSize,
+                    HexFormat.of().formatHex(digest.digest()));
+            tempPath = null;
+            return documento;
+        } finally {
+            if (tempPath != null) {
+                Files.deleteIfExists(tempPath);
+            }
+        }
+    }
+
+    @Override
+    public Documento criarNovoDocumento(String nome, String nomeOriginal, Path arquivoTemporario) throws IOException {
+        long fileSize = Files.size(arquivoTemporario);
+        DocumentoUtil fileManager = new DocumentoUtil(uploadDir);
+        if (!deveComprimir(nomeOriginal, fileSize)) {
+            return registraArquivo(nome, nomeOriginal, arquivoTemporario, false, fileSize,
+                    fileManager.calculaHash(arquivoTemporario));
+        }
+        Path comprimido = fileManager.getTempFilePath();
+        try {
+            String etag;
+            Timer.Sample arquivo = documentoMetricas.inicia();
+            try (InputStream conteudo = Files.newInputStream(arquivoTemporario)) {
+                etag = fileManager.copiaConteudoComHash(conteudo, comprimido, true);
+            }
+            Files.delete(arquivoTemporario);
+            documentoMetricas.registraDuracao(arquivo, UPLOAD, ARQUIVO);
+            Documento documento = registraArquivo(nome, nomeOriginal, comprimido, true, fileSize, etag);
+            comprimido = null;
+            return documento;
+        } finally {
+            if (comprimido != null) {
+                Files.deleteIfExists(comprimido);
+            }
+        }
+    }
+
+    private Documento registraArquivo(String nome, String nomeOriginal, Path arquivoTemporario, boolean comprimido,
+                                      long tamanhoOriginal, String etag) throws IOException {
+        logger.info("Registrando arquivo recebido como documento. Nome: {}", nome);
+        Timer.Sample banco = documentoMetricas.inicia();
+        Documento documento = new Documento(nome, LocalDateTime.now());
+        documento.setId(documentoRepository.reservaIds(1).get(0));
+        documentoMetricas.registraDuracao(banco, UPLOAD, BANCO);
+        logger.debug("ID reservado para o documento. ID: {}", documento.getId());
+
+        DocumentoUtil fileManager = new DocumentoUtil(uploadDir);
+        String fileName = fileManager.geraFileName(nome, documento.getId(), nomeOriginal);
+        documento.setFileName(fileName);
+        Timer.Sample arquivo = documentoMetricas.inicia();
+        armazenaTemporario(documento, arquivoTemporario, comprimido, tamanhoOriginal, etag);
+        documentoMetricas.registraDuracao(arquivo, UPLOAD, ARQUIVO);
+        banco = documentoMetricas.inicia();
+        documentoRepository.insere(List.of(documento));
+        documentoMetricas.registraDuracao(banco, UPLOAD, BANCO);
+        documentoMetricas.registraConfirmacao(UPLOAD);
+        estatisticaService.registrarCriacao(documento.getFileSize());
+        indexaAposConfirmacao(List.of(documento));
+        logger.info("Documento criado com sucesso. ID: {} - fileName: {}", documento.getId(), fileName);
+        return documento;
+    }
+
+    @Override
+    public PaginaDocumentosDto listarDocumentos(FiltroDocumentoDto filtro, String cursor, int limite) {
+        LocalDateTime cursorCriadoEm = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",", 2);
+                cursorCriadoEm = LocalDateTime.parse(partes[0]);
+                cursorId = Long.valueOf(partes[1]);
+            } catch (RuntimeException e) {
+                logger.error("Cursor de paginação inválido: {}", cursor);
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+        }
+
+        // Busca um registro a mais apenas para saber se existe próxima página
+        List<DocumentoResumoDto> documentos = documentoRepository.buscaPagina(filtro, cursorCriadoEm, cursorId, limite + 1);
+        String proximoCursor = null;
+        if (documentos.size() > limite) {
+            documentos = documentos.subList(0, limite);
+            DocumentoResumoDto ultimo = documentos.get(limite - 1);
+            proximoCursor = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((ultimo.getCriadoEm() + "," + ultimo.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        logger.debug("Listagem de documentos. Itens: {} - Próxima página: {}", documentos.size(), proximoCursor != null);
+        return new PaginaDocumentosDto(documentos, proximoCursor);
+    }
+
     @Override
     public DocumentoDownloadDto buscarDocumentoParaDownload(Long id) throws MalformedURLException, FileNotFoundException {
         logger.info("Preparando download do documento com ID: {}", id);
-        Optional<Documento> documento = documentoRepository.findById(id);
+        Timer.Sample banco = documentoMetricas.inicia();
+        Optional<Documento> documento = documentoCache.buscar(id, documentoRepository::findById);
+        documentoMetricas.registraDuracao(banco, DOWNLOAD, BANCO);
         if (documento.isPresent()) {
             Documento documentoDownload = documento.get();
-            Path filePath = Paths.get(documentoDownload.getFilePath()).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (!resource.exists() || !resource.isReadable()) {
-                logger.error("Arquivo não encontrado ou não legível. ID: {}", id);
-                throw new FileNotFoundException("Arquivo não encontrado ou inelegível");
-            }
+            Timer.Sample arquivo = documentoMetricas.inicia();
+            ConteudoArmazenado conteudo = abreConteudo(documentoDownload);
+            documentoMetricas.registraDuracao(arquivo, DOWNLOAD, ARQUIVO);
+            camadaArmazenamentoService.registrarAcesso(documentoDownload);
 
             String fileName = StringUtils.cleanPath(documentoDownload.getFileName());
             logger.info("Download preparado para o documento. ID: {} - fileName: {}", id, fileName);
-            return new DocumentoDownloadDto(resource, fileName);
+            // Conteúdo empacotado num segmento não tem um arquivo próprio para expor como Resource
+            DocumentoDownloadDto download = new DocumentoDownloadDto(
+                    conteudo.getArquivo() != null ? new UrlResource(conteudo.getArquivo().toUri()) : null, fileName,
+                    documentoDownload.getCodificacao(), documentoDownload.getTamanhoOriginal());
+            download.setConteudo(conteudo);
+            download.setEtag(documentoDownload.getEtag());
+            download.setUltimaModificacao(documentoDownload.getAtualizadoEm() != null
+                    ? documentoDownload.getAtualizadoEm() : documentoDownload.getCriadoEm());
+            return download;
         }
         logger.error("Documento não encontrado para download. ID: {}", id);
         throw new FileNotFoundException("Documento não encontrado");
     }
 
+    private ConteudoArmazenado abreConteudo(Documento documento) throws FileNotFoundException {
+        try {
+            return storageEngines.de(documento).abrir(documento);
+        } catch (FileNotFoundException e) {
+            logger.error("Arquivo não encontrado ou não legível. ID: {}", documento.getId());
+            throw e;
+        } catch (IOException e) {
+            logger.error("Erro ao abrir o conteúdo do documento. ID: {} - Erro: {}", documento.getId(), e.getMessage());
+            FileNotFoundException naoEncontrado = new FileNotFoundException("Arquivo não encontrado ou inelegível");
+            naoEncontrado.initCause(e);
+            throw naoEncontrado;
+        }
+    }
+
+    // Uma falha de E/S também desfaz a versão registrada e o que já foi alterado no documento
     @Override
+    @Transactional(rollbackOn = Exception.class)
     public void atualizarDocumento(Long id, String nome, MultipartFile file) throws IOException {
         logger.info("Atualizando documento com ID: {}", id);
-        Documento documento = documentoRepository.findById(id)
+        // Atualizações simultâneas do mesmo documento esperam a anterior: cada uma parte da versão que a outra gravou
+        Documento documento = documentoRepository.findByIdParaAtualizacao(id)
                 .orElseThrow(() -> {
                     logger.error("Documento não encontrado para atualização. ID: {}", id);
                     return new RuntimeException("Documento não encontrado");
                 });
+        documentoCache.invalidar(id);
+        // O conteúdo e o nome atuais, guardados como versão anterior se o arquivo mudar
+        Documento anterior = new Documento(documento);
         if (nome != null && !nome.isEmpty()) {
             documento.setNome(nome);
             logger.debug("Nome do documento atualizado para: {}", nome);
         }
 
         if (file != null && !file.isEmpty()) {
-            if (documento.getFilePath() != null) {
-                Path antigoFilePath = Paths.get(documento.getFilePath());
-                if (Files.exists(antigoFilePath)) {
-                    Files.delete(antigoFilePath);
-                    logger.debug("Arquivo antigo deletado: {}", documento.getFilePath());
-                }
-            }
-
+            long tamanhoAnterior = documento.getFileSize() != null ? documento.getFileSize() : 0L;
             DocumentoUtil documentoUtil = new DocumentoUtil(uploadDir);
             String fileName = documentoUtil.geraFileName(documento.getNome(), documento.getId(), file);
-            Path newFilePath = documentoUtil.getFilePath(fileName);
-            documentoUtil.copiaConteudo(file, newFilePath);
-
+            Timer.Sample arquivo = documentoMetricas.inicia();
+            documento.setVersao(versaoDocumentoService.registrarVersao(anterior, file));
             documento.setFileName(fileName);
-            documento.setFilePath(newFilePath.toString());
-            documento.setFileSize(file.getSize());
+            if (anterior.getBlobHash() != null) {
+                // Armazena o novo conteúdo antes de liberar o antigo: se forem iguais, o blob não é apagado e recriado.
+                // O arquivo do blob liberado só é apagado depois da confirmação
+                armazenaConteudo(documento, file);
+                removeArquivo(anterior);
+            } else {
+                substituiConteudo(anterior, documento, file);
+            }
+            documentoMetricas.registraDuracao(arquivo, UPLOAD, ARQUIVO);
+            documentoMetricas.registraConfirmacao(UPLOAD);
+
+            estatisticaService.registrarAtualizacao(tamanhoAnterior, documento.getFileSize());
             logger.info("Arquivo atualizado para o documento ID: {} - Novo fileName: {}", documento.getId(), fileName);
         }
+        documento.setAtualizadoEm(LocalDateTime.now());
+        documento.setIndexado(false);
         documentoRepository.save(documento);
+        indexaAposConfirmacao(List.of(documento));
         logger.info("Documento atualizado com sucesso. ID: {}", id);
     }
 
@@ -129,13 +510,175 @@ public class DocumentoServiceImpl implements DocumentoService {
                     logger.error("Documento não encontrado para exclusão. ID: {}", id);
                     return new RuntimeException("Documento não encontrado");
                 });
-        Path filePath = Paths.get(documento.getFilePath());
-        if (Files.exists(filePath)) {
-            Files.delete(filePath);
-            logger.debug("Arquivo deletado: {}", documento.getFilePath());
-        }
+        documentoCache.invalidar(id);
+        removeArquivo(documento);
+        versaoDocumentoService.removerVersoes(id);
         documentoRepository.delete(documento);
+        estatisticaService.registrarExclusao(documento.getFileSize() != null ? documento.getFileSize() : 0L);
+        aposConfirmacao(() -> {
+            indiceNomeService.remover(id);
+            indiceConteudoService.notificarExclusao(id);
+        });
         logger.info("Documento excluído com sucesso. ID: {}", id);
     }
+
+    // O índice de nomes é atualizado com o nome gravado; o de conteúdo lê os documentos pendentes em outra thread
+    private void indexaAposConfirmacao(List<Documento> documentos) {
+        Map<Long, String> nomes = new LinkedHashMap<>();
+        for (Documento documento : documentos) {
+            nomes.put(documento.getId(), documento.getNome());
+        }
+        aposConfirmacao(() -> {
+            nomes.forEach(indiceNomeService::indexar);
+            indiceConteudoService.notificarAlteracao();
+        });
+    }
+
+    /**
+     * Grava o novo conteúdo sem perder o atual antes da confirmação: o arquivo atual é renomeado ao lado, o que
+     * também o protege quando o novo tem o mesmo caminho, e só é apagado depois do commit. Se a transação for
+     * desfeita, volta ao lugar e o novo arquivo é apagado.
+     */
+    private void substituiConteudo(Documento anterior, Documento documento, MultipartFile file) throws IOException {
+        Path original = anterior.getFilePath() != null ? Paths.get(anterior.getFilePath()) : null;
+        Path reserva = null;
+        if (original != null && Files.exists(original)) {
+            reserva = original.resolveSibling(original.getFileName() + "." + UUID.randomUUID() + ".anterior");
+            Files.move(original, reserva, StandardCopyOption.ATOMIC_MOVE);
+            // Recente para a reconciliação, que só trata como órfãos os arquivos antigos sem documento
+            Files.setLastModifiedTime(reserva, FileTime.fromMillis(System.currentTimeMillis()));
+            anterior.setFilePath(reserva.toString());
+        }
+        Path reservado = reserva;
+        try {
+            armazenaConteudo(documento, file);
+        } catch (IOException | RuntimeException e) {
+            restauraConteudo(original, reservado, documento.getFilePath());
+            throw e;
+        }
+        String novo = documento.getFilePath();
+        aposReversao(() -> restauraConteudo(original, reservado, novo));
+        aposConfirmacao(() -> {
+            try {
+                removeArquivo(anterior);
+            } catch (IOException e) {
+                logger.warn("Conteúdo anterior não removido. ID: {} - Erro: {}", anterior.getId(), e.getMessage());
+            }
+        });
+    }
+
+    private void restauraConteudo(Path original, Path reserva, String novo) {
+        try {
+            if (novo != null && !Paths.get(novo).equals(original)) {
+                Files.deleteIfExists(Paths.get(novo));
+            }
+            if (reserva != null && Files.exists(reserva)) {
+                Files.move(reserva, original, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            logger.error("Conteúdo anterior não restaurado: {} - Erro: {}", reserva, e.getMessage());
+        }
+    }
+
+    private static void aposReversao(Runnable acao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    acao.run();
+                }
+            }
+        });
+    }
+
+    // Os índices só podem ver o que foi confirmado no banco
+    private void aposConfirmacao(Runnable notificacao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            notificacao.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                notificacao.run();
+            }
+        });
+    }
+
+    // Arquivos muito pequenos crescem com o cabeçalho do gzip
+    private boolean deveComprimir(String nomeOriginal, long tamanho) {
+        return compressao && tamanho >= compressaoTamanhoMinimo.toBytes()
+                && new DocumentoUtil(uploadDir).deveComprimir(nomeOriginal, extensoesNaoComprimidas);
+    }
+
+    private void armazenaConteudo(Documento documento, MultipartFile file) throws IOException {
+        DocumentoUtil documentoUtil = new DocumentoUtil(uploadDir);
+        boolean comprimido = deveComprimir(file.getOriginalFilename(), file.getSize());
+        Path tempPath = novoArquivoTemporario(documento);
+        try {
+            String etag = documentoUtil.copiaConteudoComHash(file.getInputStream(), tempPath, comprimido);
+            armazenaTemporario(documento, tempPath, comprimido, file.getSize(), etag);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    // Os blobs ficam sempre no diretório de upload; os demais, no volume que o storage engine escolher
+    private Path novoArquivoTemporario(Documento documento) throws IOException {
+        return contentAddressed ? new DocumentoUtil(uploadDir).getTempFilePath()
+                : storageEngines.paraGravacao().novoArquivoTemporario(documento);
+    }
+
+    // Entrega os bytes finais ao armazenamento por conteúdo ou ao storage engine configurado
+    private void armazenaTemporario(Documento documento, Path arquivoTemporario, boolean comprimido, long tamanhoOriginal,
+                                    String etag) throws IOException {
+        long tamanhoEmDisco = Files.size(arquivoTemporario);
+        if (contentAddressed) {
+            // O blob é endereçado pelos bytes gravados: sem compressão, coincidem com o conteúdo original
+            armazenaConteudoEnderecado(documento, arquivoTemporario,
+                    comprimido ? new DocumentoUtil(uploadDir).calculaHash(arquivoTemporario) : etag);
+        } else {
+            storageEngines.paraGravacao().armazenar(documento, arquivoTemporario);
+        }
+        documento.setEtag(etag);
+        registraTamanho(documento, comprimido, tamanhoOriginal, tamanhoEmDisco);
+    }
+
+    private void registraTamanho(Documento documento, boolean comprimido, long tamanhoOriginal, long tamanhoEmDisco) {
+        documentoMetricas.registraRecebido(tamanhoOriginal);
+        if (comprimido) {
+            documento.setCodificacao(DocumentoUtil.CODIFICACAO_GZIP);
+            documento.setTamanhoOriginal(tamanhoOriginal);
+            documento.setFileSize(tamanhoEmDisco);
+            logger.debug("Arquivo comprimido. Original: {} bytes - Em disco: {} bytes", tamanhoOriginal, documento.getFileSize());
+        } else {
+            documento.setCodificacao(null);
+            documento.setTamanhoOriginal(null);
+            documento.setFileSize(tamanhoOriginal);
+        }
+    }
+
+    private void armazenaConteudoEnderecado(Documento documento, Path arquivoTemporario, String hash) throws IOException {
+        Blob blob = blobService.armazenar(arquivoTemporario, hash);
+        documento.setBlobHash(blob.getHash());
+        documento.setFilePath(blob.getFilePath());
+        // O blob é lido como um arquivo comum
+        documento.setArmazenamento(ArquivoStorageEngine.NOME);
+        documento.setSegmento(null);
+        documento.setSegmentoOffset(null);
+    }
+
+    private void removeArquivo(Documento documento) throws IOException {
+        if (documento.getBlobHash() != null) {
+            blobService.liberarReferencia(documento.getBlobHash());
+            logger.debug("Referência ao blob liberada: {}", documento.getBlobHash());
+            documento.setBlobHash(null);
+            return;
+        }
+        storageEngines.de(documento).remover(documento);
+    }
 }
 
@@ -0,0 +1,12 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.EstatisticaArmazenamentoDto;
+
+public interface EstatisticaService {
+    void registrarCriacao(long bytes);
+    void registrarAtualizacao(long bytesAnteriores, long bytesAtuais);
+    void registrarExclusao(long bytes);
+    void registrarExclusoes(long documentos, long bytes);
+    EstatisticaArmazenamentoDto obterEstatisticas();
+    EstatisticaArmazenamentoDto reconciliar();
+}
@@ -0,0 +1,100 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.EstatisticaArmazenamentoDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Mantém em memória o número de documentos e o total de bytes armazenados, atualizados a cada
+ * criação, atualização e exclusão confirmada. Os contadores são carregados do banco no primeiro
+ * acesso e realinhados periodicamente por {@link #reconciliar()}, que usa uma agregação no próprio banco.
+ */
+@Service
+public class EstatisticaServiceImpl implements EstatisticaService {
+
+    private static final Logger logger = LogManager.getLogger(EstatisticaServiceImpl.class);
+    private final DocumentoRepository documentoRepository;
+
+    private final AtomicLong totalDocumentos = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private volatile boolean carregado;
+    // Lock explícito em vez de synchronized: a consulta ao banco dentro da seção crítica
+    // prenderia a thread portadora quando executada em uma thread virtual
+    private final ReentrantLock reconciliacao = new ReentrantLock();
+
+    public EstatisticaServiceImpl(DocumentoRepository documentoRepository) {
+        this.documentoRepository = documentoRepository;
+    }
+
+    @Override
+    public void registrarCriacao(long bytes) {
+        aplicaAposCommit(1, bytes);
+    }
+
+    @Override
+    public void registrarAtualizacao(long bytesAnteriores, long bytesAtuais) {
+        aplicaAposCommit(0, bytesAtuais - bytesAnteriores);
+    }
+
+    @Override
+    public void registrarExclusao(long bytes) {
+        aplicaAposCommit(-1, -bytes);
+    }
+
+    @Override
+    public void registrarExclusoes(long documentos, long bytes) {
+        aplicaAposCommit(-documentos, -bytes);
+    }
+
+    @Override
+    public EstatisticaArmazenamentoDto obterEstatisticas() {
+        if (!carregado) {
+            reconciliar();
+        }
+        return new EstatisticaArmazenamentoDto(totalDocumentos.get(), totalBytes.get());
+    }
+
+    @Override
+    public EstatisticaArmazenamentoDto reconciliar() {
+        reconciliacao.lock();
+        try {
+            EstatisticaArmazenamentoDto calculado = documentoRepository.calculaEstatisticas();
+            long documentosAnteriores = totalDocumentos.getAndSet(calculado.getTotalDocumentos());
+            long bytesAnteriores = totalBytes.getAndSet(calculado.getTotalBytes());
+            if (carregado && (documentosAnteriores != calculado.getTotalDocumentos() || bytesAnteriores != calculado.getTotalBytes())) {
+                logger.warn("Estatísticas reconciliadas com divergência. Documentos: {} -> {}. Bytes: {} -> {}",
+                        documentosAnteriores, calculado.getTotalDocumentos(), bytesAnteriores, calculado.getTotalBytes());
+            }
+            carregado = true;
+            return calculado;
+        } finally {
+            reconciliacao.unlock();
+        }
+    }
+
+    private void aplicaAposCommit(long documentos, long bytes) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Transações desfeitas não devem alterar os contadores
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplica(documentos, bytes);
+                }
+            });
+        } else {
+            aplica(documentos, bytes);
+        }
+    }
+
+    private void aplica(long documentos, long bytes) {
+        totalDocumentos.addAndGet(documentos);
+        totalBytes.addAndGet(bytes);
+    }
+}
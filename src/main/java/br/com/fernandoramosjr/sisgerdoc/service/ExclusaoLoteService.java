@@ -0,0 +1,10 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.ExclusaoLoteDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.FiltroDocumentoDto;
+
+import java.util.List;
+
+public interface ExclusaoLoteService {
+    ExclusaoLoteDto excluir(List<Long> ids, FiltroDocumentoDto filtro);
+}
@@ -0,0 +1,149 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.EstatisticaArmazenamentoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.ExclusaoLoteDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.FiltroDocumentoDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.repository.RemocaoArquivoRepository;
+import br.com.fernandoramosjr.sisgerdoc.repository.VersaoDocumentoRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Exclusão de muitos documentos por lista de IDs ou por filtro. Cada lote de {@code documento.exclusao.tamanho-lote}
+ * documentos é excluído numa transação própria, com comandos sobre o conjunto de IDs: trava das linhas, cópia da
+ * localização do conteúdo para a fila de remoção e DELETE. Os arquivos são removidos depois, pelo
+ * {@link FilaRemocaoService}; a requisição não espera por eles. Uma falha interrompe a exclusão, mas os lotes já
+ * confirmados continuam excluídos.
+ * <p>
+ * As versões anteriores saem do banco no mesmo lote; os arquivos delas são apagados junto com o conteúdo, pela fila.
+ */
+@Service
+public class ExclusaoLoteServiceImpl implements ExclusaoLoteService {
+
+    private static final Logger logger = LogManager.getLogger(ExclusaoLoteServiceImpl.class);
+
+    private final DocumentoRepository documentoRepository;
+    private final RemocaoArquivoRepository remocaoArquivoRepository;
+    private final VersaoDocumentoRepository versaoDocumentoRepository;
+    private final FilaRemocaoService filaRemocaoService;
+    private final EstatisticaService estatisticaService;
+    private final DocumentoCache documentoCache;
+    private final IndiceConteudoService indiceConteudoService;
+    private final IndiceNomeService indiceNomeService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${documento.exclusao.maximo-ids:10000}")
+    int maximoIds = 10000;
+
+    @Value("${documento.exclusao.tamanho-lote:1000}")
+    int tamanhoLote = 1000;
+
+    public ExclusaoLoteServiceImpl(DocumentoRepository documentoRepository, RemocaoArquivoRepository remocaoArquivoRepository,
+                                   VersaoDocumentoRepository versaoDocumentoRepository, FilaRemocaoService filaRemocaoService, EstatisticaService estatisticaService,
+                                   DocumentoCache documentoCache, IndiceConteudoService indiceConteudoService,
+                                   IndiceNomeService indiceNomeService, TransactionTemplate transactionTemplate) {
+        this.documentoRepository = documentoRepository;
+        this.remocaoArquivoRepository = remocaoArquivoRepository;
+        this.versaoDocumentoRepository = versaoDocumentoRepository;
+        this.filaRemocaoService = filaRemocaoService;
+        this.estatisticaService = estatisticaService;
+        this.documentoCache = documentoCache;
+        this.indiceConteudoService = indiceConteudoService;
+        this.indiceNomeService = indiceNomeService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public ExclusaoLoteDto excluir(List<Long> ids, FiltroDocumentoDto filtro) {
+        boolean porIds = ids != null && !ids.isEmpty();
+        if (porIds && ids.size() > maximoIds) {
+            throw new IllegalArgumentException("A exclusão em lote aceita até " + maximoIds + " IDs");
+        }
+        // Sem filtro a exclusão apagaria todos os documentos
+        if (!porIds && filtroVazio(filtro)) {
+            throw new IllegalArgumentException("Informe os IDs ou ao menos um filtro");
+        }
+
+        ExclusaoLoteDto resultado = new ExclusaoLoteDto();
+        if (porIds) {
+            List<Long> distintos = new ArrayList<>(new LinkedHashSet<>(ids));
+            for (int inicio = 0; inicio < distintos.size(); inicio += tamanhoLote) {
+                List<Long> lote = distintos.subList(inicio, Math.min(inicio + tamanhoLote, distintos.size()));
+                excluiLote(lote, resultado);
+            }
+            resultado.setNaoEncontrados(distintos.size() - resultado.getDocumentosExcluidos());
+        } else {
+            // Percorre a listagem por cursor; cada página é excluída antes da leitura da seguinte
+            LocalDateTime cursorCriadoEm = null;
+            Long cursorId = null;
+            List<DocumentoResumoDto> pagina;
+            while (!(pagina = documentoRepository.buscaPagina(filtro, cursorCriadoEm, cursorId, tamanhoLote)).isEmpty()) {
+                excluiLote(pagina.stream().map(DocumentoResumoDto::getId).toList(), resultado);
+                DocumentoResumoDto ultimo = pagina.get(pagina.size() - 1);
+                cursorCriadoEm = ultimo.getCriadoEm();
+                cursorId = ultimo.getId();
+            }
+        }
+        resultado.setRemocoesPendentes(filaRemocaoService.contarPendentes());
+        logger.info("Exclusão em lote concluída. Documentos: {} - Bytes: {} - Não encontrados: {}",
+                resultado.getDocumentosExcluidos(), resultado.getBytesExcluidos(), resultado.getNaoEncontrados());
+        return resultado;
+    }
+
+    private void excluiLote(List<Long> lote, ExclusaoLoteDto resultado) {
+        EstatisticaArmazenamentoDto excluidos = transactionTemplate.execute(status -> {
+            List<Long> existentes = documentoRepository.travaParaExclusao(lote);
+            if (existentes.isEmpty()) {
+                return new EstatisticaArmazenamentoDto(0L, 0L);
+            }
+            EstatisticaArmazenamentoDto total = documentoRepository.calculaEstatisticas(existentes);
+            remocaoArquivoRepository.enfileira(existentes, LocalDateTime.now());
+            versaoDocumentoRepository.removeDosDocumentos(existentes);
+            documentoRepository.excluiTodos(existentes);
+            estatisticaService.registrarExclusoes(total.getTotalDocumentos(), total.getTotalBytes());
+            existentes.forEach(documentoCache::invalidar);
+            aposConfirmacao(() -> {
+                for (Long id : existentes) {
+                    indiceNomeService.remover(id);
+                    indiceConteudoService.notificarExclusao(id);
+                }
+                filaRemocaoService.notificar();
+            });
+            return total;
+        });
+        resultado.setDocumentosExcluidos(resultado.getDocumentosExcluidos() + excluidos.getTotalDocumentos());
+        resultado.setBytesExcluidos(resultado.getBytesExcluidos() + excluidos.getTotalBytes());
+    }
+
+    // Os índices e a fila só podem ver o que foi confirmado no banco
+    private static void aposConfirmacao(Runnable notificacao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            notificacao.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                notificacao.run();
+            }
+        });
+    }
+
+    private static boolean filtroVazio(FiltroDocumentoDto filtro) {
+        return filtro == null || ((filtro.getNomePrefixo() == null || filtro.getNomePrefixo().isEmpty())
+                && filtro.getTamanhoMinimo() == null && filtro.getTamanhoMaximo() == null
+                && filtro.getCriadoDe() == null && filtro.getCriadoAte() == null);
+    }
+}
@@ -0,0 +1,12 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.FiltroDocumentoDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+public interface ExportacaoService {
+    void validar(List<Long> ids, FiltroDocumentoDto filtro);
+    int exportar(List<Long> ids, FiltroDocumentoDto filtro, OutputStream saida) throws IOException;
+}
@@ -0,0 +1,336 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.FiltroDocumentoDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.storage.ConteudoArmazenado;
+import br.com.fernandoramosjr.sisgerdoc.storage.StorageEngineRegistry;
+import br.com.fernandoramosjr.sisgerdoc.util.DocumentoUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Gera um ZIP com vários documentos diretamente na saída, sem arquivo temporário e sem montar o arquivo em memória.
+ * <p>
+ * Até {@code documento.exportacao.paralelismo} documentos são preparados à frente da escrita, em paralelo:
+ * conteúdos de até {@code documento.exportacao.tamanho-maximo-memoria} são lidos (e descomprimidos, quando gravados
+ * com gzip) para a memória; os maiores são escritos a partir do armazenamento. Formatos já comprimidos
+ * ({@code file.storage.compressao.extensoes-ignoradas}) entram sem compressão (STORED), o que exige o CRC antes da
+ * entrada: para os grandes, ele é calculado na preparação com uma leitura extra do arquivo. Documentos que não
+ * puderem ser lidos são listados em {@code exportacao-avisos.txt} no fim do arquivo, já que o status da resposta
+ * foi enviado antes.
+ */
+@Service
+public class ExportacaoServiceImpl implements ExportacaoService {
+
+    static final String ARQUIVO_AVISOS = "exportacao-avisos.txt";
+    private static final Logger logger = LogManager.getLogger(ExportacaoServiceImpl.class);
+    private static final int TAMANHO_LOTE = 100;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DocumentoRepository documentoRepository;
+    private final StorageEngineRegistry storageEngines;
+
+    @Value("${file.upload-dir}")
+    String uploadDir;
+
+    @Value("${documento.exportacao.maximo-documentos:10000}")
+    int maximoDocumentos = 10000;
+
+    @Value("${documento.exportacao.paralelismo:4}")
+    int paralelismo = 4;
+
+    @Value("${documento.exportacao.tamanho-maximo-memoria:4MB}")
+    DataSize tamanhoMaximoMemoria = DataSize.ofMegabytes(4);
+
+    @Value("${file.storage.compressao.extensoes-ignoradas:zip,gz,tgz,bz2,xz,7z,rar,jpg,jpeg,png,gif,webp,mp3,mp4,mkv,avi,mov,docx,xlsx,pptx,odt,ods,odp,jar}")
+    List<String> extensoesComprimidas = List.of("zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "jpg", "jpeg", "png", "gif",
+            "webp", "mp3", "mp4", "mkv", "avi", "mov", "docx", "xlsx", "pptx", "odt", "ods", "odp", "jar");
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    boolean threadsVirtuais;
+
+    public ExportacaoServiceImpl(DocumentoRepository documentoRepository, StorageEngineRegistry storageEngines) {
+        this.documentoRepository = documentoRepository;
+        this.storageEngines = storageEngines;
+    }
+
+    @Override
+    public void validar(List<Long> ids, FiltroDocumentoDto filtro) {
+        boolean porIds = ids != null && !ids.isEmpty();
+        if (porIds && ids.size() > maximoDocumentos) {
+            throw new IllegalArgumentException("A exportação aceita até " + maximoDocumentos + " documentos");
+        }
+        if (!porIds && filtroVazio(filtro)) {
+            throw new IllegalArgumentException("Informe os IDs ou ao menos um filtro");
+        }
+    }
+
+    @Override
+    public int exportar(List<Long> ids, FiltroDocumentoDto filtro, OutputStream saida) throws IOException {
+        validar(ids, filtro);
+        List<String> avisos = new ArrayList<>();
+        Iterator<Documento> documentos = ids != null && !ids.isEmpty()
+                ? new DocumentosPorId(new LinkedHashSet<>(ids), avisos)
+                : new DocumentosPorFiltro(filtro, avisos);
+
+        ThreadFactory threadFactory = threadsVirtuais ? Thread.ofVirtual().name("exportacao-", 0).factory() : Executors.defaultThreadFactory();
+        int exportados = 0;
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(saida, BUFFER_SIZE));
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(paralelismo, 1), threadFactory)) {
+            Deque<Future<Entrada>> janela = new ArrayDeque<>();
+            try {
+                while (!janela.isEmpty() || documentos.hasNext()) {
+                    while (janela.size() < Math.max(paralelismo, 1) && documentos.hasNext()) {
+                        Documento documento = documentos.next();
+                        janela.add(executor.submit(() -> prepara(documento)));
+                    }
+                    Entrada entrada = aguarda(janela.poll());
+                    if (entrada.erro() != null) {
+                        avisos.add("ID " + entrada.documento().getId() + ": " + entrada.erro());
+                        continue;
+                    }
+                    escreve(zip, entrada);
+                    exportados++;
+                }
+            } finally {
+                janela.forEach(pendente -> pendente.cancel(true));
+            }
+        }
+        if (!avisos.isEmpty()) {
+            ZipEntry entradaAvisos = new ZipEntry(ARQUIVO_AVISOS);
+            zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+            zip.putNextEntry(entradaAvisos);
+            zip.write(String.join("\n", avisos).concat("\n").getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        zip.finish();
+        zip.flush();
+        logger.info("Exportação concluída. Documentos: {} - Avisos: {}", exportados, avisos.size());
+        return exportados;
+    }
+
+    /**
+     * Documento pronto para a escrita: conteúdo em memória ({@code dados}) ou a ser lido do armazenamento.
+     * {@code crc} é -1 quando não foi calculado.
+     */
+    private record Entrada(Documento documento, ConteudoArmazenado conteudo, byte[] dados, long tamanho, long crc,
+                           boolean armazenar, String erro) {
+    }
+
+    private Entrada prepara(Documento documento) {
+        try {
+            ConteudoArmazenado conteudo = storageEngines.de(documento).abrir(documento);
+            boolean gzip = DocumentoUtil.CODIFICACAO_GZIP.equals(documento.getCodificacao());
+            long tamanho = gzip ? documento.getTamanhoOriginal() : conteudo.getTamanho();
+            boolean armazenar = !new DocumentoUtil(uploadDir).deveComprimir(documento.getFileName(), extensoesComprimidas);
+            if (tamanho <= tamanhoMaximoMemoria.toBytes()) {
+                byte[] dados;
+                try (InputStream entrada = abre(conteudo, gzip)) {
+                    dados = entrada.readAllBytes();
+                }
+                CRC32 crc = new CRC32();
+                crc.update(dados);
+                return new Entrada(documento, null, dados, dados.length, crc.getValue(), armazenar, null);
+            }
+            long crc = -1;
+            if (armazenar) {
+                try (CheckedInputStream entrada = new CheckedInputStream(abre(conteudo, gzip), new CRC32())) {
+                    entrada.transferTo(OutputStream.nullOutputStream());
+                    crc = entrada.getChecksum().getValue();
+                }
+            }
+            return new Entrada(documento, conteudo, null, tamanho, crc, armazenar, null);
+        } catch (IOException e) {
+            logger.warn("Documento não incluído na exportação. ID: {} - Erro: {}", documento.getId(), e.getMessage());
+            return new Entrada(documento, null, null, 0, -1, false, "conteúdo não encontrado ou ilegível");
+        }
+    }
+
+    private void escreve(ZipOutputStream zip, Entrada entrada) throws IOException {
+        Documento documento = entrada.documento();
+        ZipEntry zipEntry = new ZipEntry(StringUtils.cleanPath(documento.getFileName()));
+        LocalDateTime modificadoEm = documento.getAtualizadoEm() != null ? documento.getAtualizadoEm() : documento.getCriadoEm();
+        if (modificadoEm != null) {
+            zipEntry.setLastModifiedTime(FileTime.from(modificadoEm.atZone(ZoneId.systemDefault()).toInstant()));
+        }
+        if (entrada.armazenar()) {
+            zipEntry.setMethod(ZipEntry.STORED);
+            zipEntry.setSize(entrada.tamanho());
+            zipEntry.setCompressedSize(entrada.tamanho());
+            zipEntry.setCrc(entrada.crc());
+        } else {
+            zipEntry.setMethod(ZipEntry.DEFLATED);
+            zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        }
+        zip.putNextEntry(zipEntry);
+        if (entrada.dados() != null) {
+            zip.write(entrada.dados());
+        } else if (DocumentoUtil.CODIFICACAO_GZIP.equals(documento.getCodificacao())) {
+            try (InputStream conteudo = abre(entrada.conteudo(), true)) {
+                conteudo.transferTo(zip);
+            }
+        } else {
+            entrada.conteudo().transfere(0, entrada.tamanho(), Channels.newChannel(zip));
+        }
+        zip.closeEntry();
+    }
+
+    private static InputStream abre(ConteudoArmazenado conteudo, boolean gzip) throws IOException {
+        InputStream entrada = conteudo.abreStream();
+        return gzip ? new GZIPInputStream(entrada, BUFFER_SIZE) : entrada;
+    }
+
+    private static Entrada aguarda(Future<Entrada> pendente) throws IOException {
+        try {
+            return pendente.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Exportação interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Erro ao preparar documento para exportação", e.getCause());
+        }
+    }
+
+    private static boolean filtroVazio(FiltroDocumentoDto filtro) {
+        return filtro == null || ((filtro.getNomePrefixo() == null || filtro.getNomePrefixo().isEmpty())
+                && filtro.getTamanhoMinimo() == null && filtro.getTamanhoMaximo() == null
+                && filtro.getCriadoDe() == null && filtro.getCriadoAte() == null);
+    }
+
+    // Os documentos são carregados em lotes, na ordem pedida; IDs repetidos entram uma única vez
+    private class DocumentosPorId implements Iterator<Documento> {
+        private final Iterator<Long> ids;
+        private final List<String> avisos;
+        private final Deque<Documento> lote = new ArrayDeque<>();
+
+        DocumentosPorId(Set<Long> ids, List<String> avisos) {
+            this.ids = ids.iterator();
+            this.avisos = avisos;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (lote.isEmpty() && ids.hasNext()) {
+                List<Long> proximos = new ArrayList<>(TAMANHO_LOTE);
+                while (proximos.size() < TAMANHO_LOTE && ids.hasNext()) {
+                    proximos.add(ids.next());
+                }
+                Map<Long, Documento> encontrados = new HashMap<>();
+                documentoRepository.findAllById(proximos).forEach(documento -> encontrados.put(documento.getId(), documento));
+                for (Long id : proximos) {
+                    Documento documento = encontrados.get(id);
+                    if (documento != null) {
+                        lote.add(documento);
+                    } else {
+                        avisos.add("ID " + id + ": documento não encontrado");
+                    }
+                }
+            }
+            return !lote.isEmpty();
+        }
+
+        @Override
+        public Documento next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return lote.poll();
+        }
+    }
+
+    // Percorre a listagem por cursor, do mais recente para o mais antigo, até o máximo de documentos
+    private class DocumentosPorFiltro implements Iterator<Documento> {
+        private final FiltroDocumentoDto filtro;
+        private final List<String> avisos;
+        private final Deque<Documento> lote = new ArrayDeque<>();
+        private LocalDateTime cursorCriadoEm;
+        private Long cursorId;
+        private int lidos;
+        private boolean fim;
+
+        DocumentosPorFiltro(FiltroDocumentoDto filtro, List<String> avisos) {
+            this.filtro = filtro;
+            this.avisos = avisos;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (lote.isEmpty() && !fim) {
+                int limite = Math.min(TAMANHO_LOTE, maximoDocumentos - lidos);
+                List<DocumentoResumoDto> pagina = documentoRepository.buscaPagina(filtro, cursorCriadoEm, cursorId, limite + 1);
+                if (pagina.size() > limite) {
+                    if (lidos + limite >= maximoDocumentos) {
+                        avisos.add("Exportação limitada aos " + maximoDocumentos + " documentos mais recentes do filtro");
+                        fim = true;
+                    }
+                    pagina = pagina.subList(0, limite);
+                } else {
+                    fim = true;
+                }
+                if (pagina.isEmpty()) {
+                    break;
+                }
+                DocumentoResumoDto ultimo = pagina.get(pagina.size() - 1);
+                cursorCriadoEm = ultimo.getCriadoEm();
+                cursorId = ultimo.getId();
+                lidos += pagina.size();
+                Map<Long, Documento> encontrados = new HashMap<>();
+                documentoRepository.findAllById(pagina.stream().map(DocumentoResumoDto::getId).toList())
+                        .forEach(documento -> encontrados.put(documento.getId(), documento));
+                for (DocumentoResumoDto resumo : pagina) {
+                    Documento documento = encontrados.get(resumo.getId());
+                    // Nulo quando excluído entre a listagem e a leitura
+                    if (documento != null) {
+                        lote.add(documento);
+                    }
+                }
+            }
+            return !lote.isEmpty();
+        }
+
+        @Override
+        public Documento next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return lote.poll();
+        }
+    }
+}
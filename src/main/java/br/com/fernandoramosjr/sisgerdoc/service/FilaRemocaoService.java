@@ -0,0 +1,7 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+public interface FilaRemocaoService {
+    void notificar();
+    int processarPendentes();
+    long contarPendentes();
+}
@@ -0,0 +1,222 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.RemocaoArquivo;
+import br.com.fernandoramosjr.sisgerdoc.repository.RemocaoArquivoRepository;
+import br.com.fernandoramosjr.sisgerdoc.storage.StorageEngineRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Remove o conteúdo dos documentos excluídos em lote, a partir da fila {@code remocoes_arquivos}. A fila é gravada
+ * na mesma transação que exclui os documentos, então sobrevive a uma queda; uma remoção repetida depois de uma
+ * queda não tem efeito, porque arquivos ausentes são ignorados e a lápide de segmento pode ser gravada de novo. A
+ * referência a um blob é liberada na mesma transação que retira o item da fila, para não ser descontada duas vezes.
+ * <p>
+ * A exclusão só agenda uma execução numa thread própria; cada lote é removido por até
+ * {@code documento.remocao.paralelismo} threads. Itens que falham voltam na execução seguinte e deixam de ser
+ * tentados depois de {@code documento.remocao.maximo-tentativas}, ficando na tabela para análise.
+ */
+@Service
+public class FilaRemocaoServiceImpl implements FilaRemocaoService {
+
+    private static final Logger logger = LogManager.getLogger(FilaRemocaoServiceImpl.class);
+
+    private final RemocaoArquivoRepository remocaoArquivoRepository;
+    private final StorageEngineRegistry storageEngines;
+    private final BlobService blobService;
+    private final VersaoDocumentoService versaoDocumentoService;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean pendente = new AtomicBoolean();
+    private final AtomicBoolean agendado = new AtomicBoolean();
+    private final AtomicBoolean emExecucao = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(tarefa -> {
+        Thread thread = new Thread(tarefa, "fila-remocao");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${documento.remocao.paralelismo:4}")
+    int paralelismo = 4;
+
+    @Value("${documento.remocao.tamanho-lote:500}")
+    int tamanhoLote = 500;
+
+    @Value("${documento.remocao.maximo-tentativas:5}")
+    int maximoTentativas = 5;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    boolean threadsVirtuais;
+
+    public FilaRemocaoServiceImpl(RemocaoArquivoRepository remocaoArquivoRepository, StorageEngineRegistry storageEngines,
+                                  BlobService blobService, VersaoDocumentoService versaoDocumentoService,
+                                  TransactionTemplate transactionTemplate) {
+        this.remocaoArquivoRepository = remocaoArquivoRepository;
+        this.storageEngines = storageEngines;
+        this.blobService = blobService;
+        this.versaoDocumentoService = versaoDocumentoService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void notificar() {
+        pendente.set(true);
+        // No máximo uma execução aguardando na fila, por mais exclusões que cheguem
+        if (agendado.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    agendado.set(false);
+                    executa();
+                });
+            } catch (RejectedExecutionException e) {
+                agendado.set(false);
+                logger.debug("Remoção de arquivos não agendada: serviço encerrado");
+            }
+        }
+    }
+
+    @Override
+    public int processarPendentes() {
+        pendente.set(true);
+        return executa();
+    }
+
+    @Override
+    public long contarPendentes() {
+        return remocaoArquivoRepository.contaPendentes(maximoTentativas);
+    }
+
+    private int executa() {
+        if (!emExecucao.compareAndSet(false, true)) {
+            return 0;
+        }
+        int removidos = 0;
+        try {
+            while (pendente.getAndSet(false)) {
+                removidos += processaFila();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Erro ao processar a fila de remoção de arquivos. Erro: {}", e.getMessage(), e);
+        } finally {
+            emExecucao.set(false);
+        }
+        // Uma exclusão notificada enquanto a execução terminava não pode ficar para a varredura periódica
+        if (pendente.get()) {
+            notificar();
+        }
+        if (removidos > 0) {
+            logger.info("Conteúdos de documentos excluídos removidos: {}", removidos);
+        }
+        return removidos;
+    }
+
+    private enum Resultado { REMOVIDO, CONFIRMADO, FALHA }
+
+    private int processaFila() {
+        ThreadFactory threadFactory = threadsVirtuais ? Thread.ofVirtual().name("remocao-", 0).factory() : Executors.defaultThreadFactory();
+        int removidos = 0;
+        try (ExecutorService pool = Executors.newFixedThreadPool(Math.max(paralelismo, 1), threadFactory)) {
+            Long ultimoId = 0L;
+            List<RemocaoArquivo> lote;
+            while (!(lote = remocaoArquivoRepository.buscaLote(ultimoId, maximoTentativas, Limit.of(tamanhoLote))).isEmpty()) {
+                List<Future<Resultado>> resultados = new ArrayList<>(lote.size());
+                for (RemocaoArquivo remocao : lote) {
+                    resultados.add(pool.submit(() -> remove(remocao)));
+                }
+                List<Long> concluidos = new ArrayList<>();
+                List<Long> falhas = new ArrayList<>();
+                for (int i = 0; i < lote.size(); i++) {
+                    Resultado resultado = aguarda(resultados.get(i));
+                    Long documentoId = lote.get(i).getDocumentoId();
+                    if (resultado == Resultado.FALHA) {
+                        falhas.add(documentoId);
+                        continue;
+                    }
+                    if (resultado == Resultado.REMOVIDO) {
+                        concluidos.add(documentoId);
+                    }
+                    removidos++;
+                }
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (!concluidos.isEmpty()) {
+                        remocaoArquivoRepository.removeTodos(concluidos);
+                    }
+                    if (!falhas.isEmpty()) {
+                        remocaoArquivoRepository.registraFalha(falhas);
+                    }
+                });
+                ultimoId = lote.get(lote.size() - 1).getDocumentoId();
+            }
+        }
+        return removidos;
+    }
+
+    private Resultado remove(RemocaoArquivo remocao) {
+        try {
+            // Antes do conteúdo: o item só sai da fila depois disso, e apagar de novo um diretório ausente não tem efeito
+            versaoDocumentoService.removerArquivos(remocao.getDocumentoId());
+            if (remocao.getBlobHash() != null) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    try {
+                        blobService.liberarReferencia(remocao.getBlobHash());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    remocaoArquivoRepository.removeTodos(List.of(remocao.getDocumentoId()));
+                });
+                return Resultado.CONFIRMADO;
+            }
+            Documento documento = new Documento();
+            documento.setId(remocao.getDocumentoId());
+            documento.setArmazenamento(remocao.getArmazenamento());
+            documento.setFilePath(remocao.getFilePath());
+            documento.setSegmento(remocao.getSegmento());
+            documento.setSegmentoOffset(remocao.getSegmentoOffset());
+            storageEngines.de(documento).remover(documento);
+            return Resultado.REMOVIDO;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Falha ao remover o conteúdo do documento excluído. ID: {} - Tentativa: {} - Erro: {}",
+                    remocao.getDocumentoId(), remocao.getTentativas() + 1, e.getMessage());
+            return Resultado.FALHA;
+        }
+    }
+
+    private static Resultado aguarda(Future<Resultado> resultado) {
+        try {
+            return resultado.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Resultado.FALHA;
+        } catch (ExecutionException e) {
+            return Resultado.FALHA;
+        }
+    }
+
+    @PreDestroy
+    public void fechar() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
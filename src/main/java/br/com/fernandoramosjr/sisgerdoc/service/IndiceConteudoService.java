@@ -0,0 +1,12 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.PaginaBuscaDto;
+
+import java.io.IOException;
+
+public interface IndiceConteudoService {
+    void notificarAlteracao();
+    void notificarExclusao(Long id);
+    int indexarPendentes();
+    PaginaBuscaDto buscar(String consulta, int pagina, int limite) throws IOException;
+}
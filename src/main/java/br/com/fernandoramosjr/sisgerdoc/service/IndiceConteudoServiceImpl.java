@@ -0,0 +1,329 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoEncontradoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.PaginaBuscaDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.storage.StorageEngineRegistry;
+import br.com.fernandoramosjr.sisgerdoc.util.AnalisadorTexto;
+import br.com.fernandoramosjr.sisgerdoc.util.DocumentoUtil;
+import br.com.fernandoramosjr.sisgerdoc.util.ExtratorTexto;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Índice invertido do nome e do texto dos documentos, mantido com Lucene em {@code documento.indice.diretorio}.
+ * O Lucene grava o índice em segmentos imutáveis e os funde incrementalmente em segundo plano; exclusões são
+ * marcadas e descartadas na fusão.
+ * <p>
+ * A indexação nunca acontece na requisição de upload: depois da confirmação da transação, a alteração apenas agenda
+ * uma execução numa thread própria, que lê os documentos pendentes ({@code indexado} nulo ou falso) em lotes. O
+ * índice é confirmado antes de o banco marcar os documentos como indexados, então uma queda entre os dois só faz o
+ * lote ser indexado de novo. Exclusões ficam numa fila em memória; as perdidas numa queda são removidas quando
+ * aparecem numa busca e o documento não existe mais.
+ */
+@Service
+public class IndiceConteudoServiceImpl implements IndiceConteudoService {
+
+    static final String CAMPO_ID = "id";
+    static final String CAMPO_NOME = "nome";
+    static final String CAMPO_CONTEUDO = "conteudo";
+    private static final int MAXIMO_TERMOS_CONSULTA = 32;
+    // Cada página exige ordenar todos os resultados anteriores a ela
+    private static final int MAXIMO_RESULTADOS = 10_000;
+    private static final float PESO_NOME = 2.0f;
+
+    private static final Logger logger = LogManager.getLogger(IndiceConteudoServiceImpl.class);
+    private final DocumentoRepository documentoRepository;
+    private final StorageEngineRegistry storageEngines;
+    private final TransactionTemplate transactionTemplate;
+    private final AnalisadorTexto analisador = new AnalisadorTexto();
+    private final Queue<Long> exclusoesPendentes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean pendente = new AtomicBoolean();
+    private final AtomicBoolean agendado = new AtomicBoolean();
+    private final AtomicBoolean emExecucao = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(tarefa -> {
+        Thread thread = new Thread(tarefa, "indice-conteudo");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private IndexWriter indexWriter;
+    private SearcherManager searcherManager;
+
+    @Value("${documento.indice.habilitado:true}")
+    boolean habilitado = true;
+
+    @Value("${documento.indice.diretorio:${file.upload-dir}/.indice}")
+    String diretorio;
+
+    @Value("${documento.indice.tamanho-lote:100}")
+    int tamanhoLote = 100;
+
+    // Só o início de conteúdos maiores é indexado
+    @Value("${documento.indice.tamanho-maximo-texto:1MB}")
+    DataSize tamanhoMaximoTexto = DataSize.ofMegabytes(1);
+
+    public IndiceConteudoServiceImpl(DocumentoRepository documentoRepository, StorageEngineRegistry storageEngines,
+                                     TransactionTemplate transactionTemplate) {
+        this.documentoRepository = documentoRepository;
+        this.storageEngines = storageEngines;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void notificarAlteracao() {
+        if (!habilitado) {
+            return;
+        }
+        pendente.set(true);
+        // No máximo uma execução aguardando na fila, por mais alterações que cheguem
+        if (agendado.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    agendado.set(false);
+                    executa();
+                });
+            } catch (RejectedExecutionException e) {
+                agendado.set(false);
+                logger.debug("Indexação não agendada: serviço encerrado");
+            }
+        }
+    }
+
+    @Override
+    public void notificarExclusao(Long id) {
+        if (!habilitado) {
+            return;
+        }
+        exclusoesPendentes.add(id);
+        notificarAlteracao();
+    }
+
+    @Override
+    public int indexarPendentes() {
+        if (!habilitado) {
+            return 0;
+        }
+        pendente.set(true);
+        return executa();
+    }
+
+    private int executa() {
+        if (!emExecucao.compareAndSet(false, true)) {
+            return 0;
+        }
+        int indexados = 0;
+        try {
+            while (pendente.getAndSet(false)) {
+                indexados += processaPendentes();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Erro ao atualizar o índice de conteúdo. Erro: {}", e.getMessage(), e);
+        } finally {
+            emExecucao.set(false);
+        }
+        // Uma alteração notificada enquanto a execução terminava não pode ficar para a varredura periódica
+        if (pendente.get()) {
+            notificarAlteracao();
+        }
+        return indexados;
+    }
+
+    private int processaPendentes() throws IOException {
+        IndexWriter writer = abreIndice();
+        boolean excluidos = false;
+        Long excluido;
+        while ((excluido = exclusoesPendentes.poll()) != null) {
+            writer.deleteDocuments(new Term(CAMPO_ID, excluido.toString()));
+            excluidos = true;
+        }
+
+        int indexados = 0;
+        Long ultimoId = 0L;
+        List<Documento> lote;
+        while (!(lote = documentoRepository.buscaLoteParaIndexacao(ultimoId, Limit.of(tamanhoLote))).isEmpty()) {
+            for (Documento documento : lote) {
+                writer.updateDocument(new Term(CAMPO_ID, documento.getId().toString()), criaDocumentoIndice(documento));
+            }
+            writer.commit();
+            List<Documento> indexadosLote = lote;
+            transactionTemplate.executeWithoutResult(status -> indexadosLote.forEach(documento ->
+                    documentoRepository.marcaIndexado(documento.getId(), documento.getAtualizadoEm())));
+            searcherManager.maybeRefresh();
+            indexados += lote.size();
+            ultimoId = lote.get(lote.size() - 1).getId();
+        }
+        if (excluidos && indexados == 0) {
+            writer.commit();
+            searcherManager.maybeRefresh();
+        }
+        if (indexados > 0) {
+            logger.debug("Documentos indexados: {}", indexados);
+        }
+        return indexados;
+    }
+
+    private Document criaDocumentoIndice(Documento documento) {
+        Document indice = new Document();
+        indice.add(new StringField(CAMPO_ID, documento.getId().toString(), Field.Store.YES));
+        if (documento.getNome() != null) {
+            indice.add(new TextField(CAMPO_NOME, documento.getNome(), Field.Store.NO));
+        }
+        String texto = extraiTexto(documento);
+        if (texto != null) {
+            indice.add(new TextField(CAMPO_CONTEUDO, texto, Field.Store.NO));
+        }
+        return indice;
+    }
+
+    // Sem o conteúdo, o documento ainda é encontrado pelo nome
+    private String extraiTexto(Documento documento) {
+        int maximoBytes = (int) Math.min(tamanhoMaximoTexto.toBytes(), Integer.MAX_VALUE - 8);
+        try (InputStream armazenado = storageEngines.de(documento).abrir(documento).abreStream();
+             InputStream conteudo = DocumentoUtil.CODIFICACAO_GZIP.equals(documento.getCodificacao())
+                     ? new GZIPInputStream(armazenado) : armazenado) {
+            return ExtratorTexto.extrai(conteudo, maximoBytes);
+        } catch (IOException e) {
+            logger.warn("Conteúdo não indexado. ID: {} - Erro: {}", documento.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public PaginaBuscaDto buscar(String consulta, int pagina, int limite) throws IOException {
+        if (!habilitado) {
+            throw new IllegalStateException("Índice de conteúdo desabilitado");
+        }
+        Set<String> termos = analisador.extraiTermos(CAMPO_CONTEUDO, consulta != null ? consulta : "");
+        if (termos.isEmpty()) {
+            throw new IllegalArgumentException("A consulta não contém termos pesquisáveis");
+        }
+        if (termos.size() > MAXIMO_TERMOS_CONSULTA) {
+            throw new IllegalArgumentException("A consulta deve ter no máximo " + MAXIMO_TERMOS_CONSULTA + " termos");
+        }
+        if ((long) (pagina + 1) * limite > MAXIMO_RESULTADOS) {
+            throw new IllegalArgumentException("Só os primeiros " + MAXIMO_RESULTADOS + " resultados podem ser paginados");
+        }
+
+        Query query = criaConsulta(termos);
+        abreIndice();
+        Map<Long, Float> pontuacoes = new LinkedHashMap<>();
+        long total;
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs encontrados = searcher.search(query, (pagina + 1) * limite);
+            total = searcher.count(query);
+            StoredFields campos = searcher.storedFields();
+            ScoreDoc[] resultados = encontrados.scoreDocs;
+            for (int i = pagina * limite; i < resultados.length; i++) {
+                Long id = Long.valueOf(campos.document(resultados[i].doc).get(CAMPO_ID));
+                pontuacoes.put(id, resultados[i].score);
+            }
+        } finally {
+            searcherManager.release(searcher);
+        }
+
+        Map<Long, DocumentoResumoDto> resumos = pontuacoes.isEmpty() ? Map.of()
+                : documentoRepository.buscaResumos(pontuacoes.keySet()).stream()
+                .collect(Collectors.toMap(DocumentoResumoDto::getId, Function.identity()));
+        List<DocumentoEncontradoDto> documentos = new ArrayList<>(pontuacoes.size());
+        for (Map.Entry<Long, Float> pontuacao : pontuacoes.entrySet()) {
+            DocumentoResumoDto resumo = resumos.get(pontuacao.getKey());
+            if (resumo != null) {
+                documentos.add(new DocumentoEncontradoDto(resumo, pontuacao.getValue()));
+            } else {
+                // Exclusão que não chegou ao índice, por exemplo numa queda antes de ser processada
+                logger.debug("Documento excluído ainda presente no índice. ID: {}", pontuacao.getKey());
+                notificarExclusao(pontuacao.getKey());
+            }
+        }
+        logger.debug("Busca por conteúdo. Termos: {} - Total: {} - Itens: {}", termos, total, documentos.size());
+        return new PaginaBuscaDto(documentos, total, pagina, limite);
+    }
+
+    // Todos os termos precisam aparecer, no nome ou no conteúdo; a ocorrência no nome pesa mais
+    private Query criaConsulta(Set<String> termos) {
+        BooleanQuery.Builder consulta = new BooleanQuery.Builder();
+        for (String termo : termos) {
+            Query noNome = new BoostQuery(new TermQuery(new Term(CAMPO_NOME, termo)), PESO_NOME);
+            Query noConteudo = new TermQuery(new Term(CAMPO_CONTEUDO, termo));
+            consulta.add(new BooleanQuery.Builder()
+                    .add(noNome, BooleanClause.Occur.SHOULD)
+                    .add(noConteudo, BooleanClause.Occur.SHOULD)
+                    .build(), BooleanClause.Occur.MUST);
+        }
+        return consulta.build();
+    }
+
+    private synchronized IndexWriter abreIndice() throws IOException {
+        if (indexWriter == null) {
+            IndexWriterConfig config = new IndexWriterConfig(analisador)
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            indexWriter = new IndexWriter(FSDirectory.open(Path.of(diretorio)), config);
+            searcherManager = new SearcherManager(indexWriter, null);
+            logger.info("Índice de conteúdo aberto em {}. Documentos: {}", diretorio, indexWriter.getDocStats().numDocs);
+        }
+        return indexWriter;
+    }
+
+    @PreDestroy
+    public void fechar() throws IOException {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (indexWriter != null) {
+                searcherManager.close();
+                indexWriter.close();
+                indexWriter = null;
+            }
+        }
+    }
+}
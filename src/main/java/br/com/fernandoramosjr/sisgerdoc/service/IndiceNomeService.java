@@ -0,0 +1,13 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.PaginaBuscaDto;
+
+import java.io.IOException;
+
+public interface IndiceNomeService {
+    void indexar(Long id, String nome);
+    void remover(Long id);
+    int reconstruirSeNecessario();
+    boolean confirmar();
+    PaginaBuscaDto buscar(String consulta, int pagina, int limite) throws IOException;
+}
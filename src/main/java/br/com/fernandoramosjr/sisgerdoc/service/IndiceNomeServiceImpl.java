@@ -0,0 +1,423 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoEncontradoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.PaginaBuscaDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.util.TrigramaUtil;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollectorManager;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TopScoreDocCollectorManager;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Índice de trigramas dos nomes dos documentos, para busca por trecho e aproximada sem varrer a tabela. É um índice
+ * Lucene próprio em {@code documento.busca-nome.diretorio}, com um termo por trigrama do nome (ver
+ * {@link TrigramaUtil}), atualizado pelo serviço de documentos logo após a confirmação de cada transação. A
+ * alteração fica em memória e é vista pela busca seguinte; o índice é confirmado em disco periodicamente
+ * ({@link #confirmar()}) e no encerramento.
+ * <p>
+ * Cada confirmação grava o instante em que foi feita. Depois de um encerramento anormal, só os documentos alterados
+ * desde a última confirmação são reindexados a partir do banco, em segundo plano; nomes de documentos excluídos
+ * nesse intervalo saem do índice quando aparecem numa busca. Sem nenhuma confirmação (índice novo), o índice é
+ * reconstruído por inteiro. Alterações feitas durante a recuperação vencem as linhas lidas por ela.
+ */
+@Service
+public class IndiceNomeServiceImpl implements IndiceNomeService {
+
+    static final String CAMPO_ID = "id";
+    static final String CAMPO_TRIGRAMA = "trigrama";
+    static final String CAMPO_CHAVE = "chave";
+    static final String CAMPO_TAMANHO = "tamanho";
+    // Gravada como "true" apenas no encerramento normal
+    private static final String MARCA_ENCERRAMENTO = "encerrado";
+    // Instante da última confirmação: tudo o que foi alterado antes dele está no índice em disco
+    private static final String MARCA_CONFIRMACAO = "confirmadoEm";
+    // Cobre alterações confirmadas no banco pouco antes da confirmação do índice, mas indexadas só depois dela
+    private static final Duration MARGEM_RECUPERACAO = Duration.ofMinutes(1);
+    private static final int TAMANHO_MINIMO_CONSULTA = 3;
+    private static final int TAMANHO_MAXIMO_CONSULTA = 100;
+    // Cada página exige ordenar todos os resultados anteriores a ela
+    private static final int MAXIMO_RESULTADOS = 500;
+    // O índice fica ordenado pelo tamanho do nome, do mais curto, o mais parecido com a consulta, ao mais longo
+    private static final Sort ORDEM_TAMANHO = new Sort(new SortedNumericSortField(CAMPO_TAMANHO, SortField.Type.LONG));
+
+    private static final Logger logger = LogManager.getLogger(IndiceNomeServiceImpl.class);
+    private final DocumentoRepository documentoRepository;
+    private final ReentrantLock escrita = new ReentrantLock();
+    private final Set<Long> alteradosDuranteReconstrucao = ConcurrentHashMap.newKeySet();
+    private volatile boolean reconstruindo;
+    private volatile boolean reconstrucaoNecessaria;
+    // Início do intervalo a reindexar depois de um encerramento anormal; nulo quando o índice está em dia
+    private volatile LocalDateTime recuperarDesde;
+    private IndexWriter indexWriter;
+    private SearcherManager searcherManager;
+
+    @Value("${documento.busca-nome.diretorio:${file.upload-dir}/.indice-nomes}")
+    String diretorio;
+
+    // Fração mínima dos trigramas da consulta presentes no nome para um resultado aproximado
+    @Value("${documento.busca-nome.similaridade-minima:0.5}")
+    double similaridadeMinima = 0.5;
+
+    @Value("${documento.busca-nome.tamanho-lote:1000}")
+    int tamanhoLote = 1000;
+
+    public IndiceNomeServiceImpl(DocumentoRepository documentoRepository) {
+        this.documentoRepository = documentoRepository;
+    }
+
+    @Override
+    public void indexar(Long id, String nome) {
+        try {
+            IndexWriter writer = abreIndice();
+            escrita.lock();
+            try {
+                if (reconstruindo) {
+                    alteradosDuranteReconstrucao.add(id);
+                }
+                writer.updateDocument(new Term(CAMPO_ID, id.toString()), criaDocumentoIndice(id, nome));
+            } finally {
+                escrita.unlock();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Erro ao indexar o nome do documento. ID: {} - Erro: {}", id, e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void remover(Long id) {
+        try {
+            IndexWriter writer = abreIndice();
+            escrita.lock();
+            try {
+                if (reconstruindo) {
+                    alteradosDuranteReconstrucao.add(id);
+                }
+                writer.deleteDocuments(new Term(CAMPO_ID, id.toString()));
+            } finally {
+                escrita.unlock();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Erro ao remover o nome do documento do índice. ID: {} - Erro: {}", id, e.getMessage(), e);
+        }
+    }
+
+    private Document criaDocumentoIndice(Long id, String nome) {
+        String chave = TrigramaUtil.chave(nome != null ? nome : "");
+        Document indice = new Document();
+        indice.add(new StringField(CAMPO_ID, id.toString(), Field.Store.YES));
+        indice.add(new StoredField(CAMPO_CHAVE, chave));
+        Set<String> trigramas = TrigramaUtil.trigramasDasPalavras(chave);
+        indice.add(new LongField(CAMPO_TAMANHO, trigramas.size(), Field.Store.NO));
+        trigramas.addAll(TrigramaUtil.trigramasContinuos(chave));
+        for (String trigrama : trigramas) {
+            indice.add(new StringField(CAMPO_TRIGRAMA, trigrama, Field.Store.NO));
+        }
+        return indice;
+    }
+
+    @Override
+    public int reconstruirSeNecessario() {
+        IndexWriter writer;
+        LocalDateTime desde;
+        escrita.lock();
+        try {
+            writer = abreIndice();
+            if ((!reconstrucaoNecessaria && recuperarDesde == null) || reconstruindo) {
+                return 0;
+            }
+            reconstruindo = true;
+            desde = reconstrucaoNecessaria ? null : recuperarDesde;
+            if (desde == null) {
+                writer.deleteAll();
+            }
+        } catch (IOException e) {
+            logger.error("Erro ao abrir o índice de nomes. Erro: {}", e.getMessage(), e);
+            return 0;
+        } finally {
+            escrita.unlock();
+        }
+
+        if (desde == null) {
+            logger.info("Reconstruindo o índice de nomes a partir do banco");
+        } else {
+            logger.info("Reindexando os nomes alterados desde {}", desde);
+        }
+        int indexados = 0;
+        try {
+            Long ultimoId = 0L;
+            List<DocumentoResumoDto> lote;
+            while (!(lote = desde == null
+                    ? documentoRepository.buscaLoteResumos(ultimoId, Limit.of(tamanhoLote))
+                    : documentoRepository.buscaLoteResumosAlteradosDesde(ultimoId, desde, Limit.of(tamanhoLote))).isEmpty()) {
+                escrita.lock();
+                try {
+                    for (DocumentoResumoDto documento : lote) {
+                        if (!alteradosDuranteReconstrucao.contains(documento.getId())) {
+                            writer.updateDocument(new Term(CAMPO_ID, documento.getId().toString()),
+                                    criaDocumentoIndice(documento.getId(), documento.getNome()));
+                        }
+                    }
+                } finally {
+                    escrita.unlock();
+                }
+                indexados += lote.size();
+                ultimoId = lote.get(lote.size() - 1).getId();
+            }
+            writer.setLiveCommitData(marcas(false, LocalDateTime.now()));
+            writer.commit();
+            searcherManager.maybeRefresh();
+            reconstrucaoNecessaria = false;
+            recuperarDesde = null;
+            logger.info("Índice de nomes em dia. Documentos reindexados: {}", indexados);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Erro ao reconstruir o índice de nomes. Erro: {}", e.getMessage(), e);
+        } finally {
+            escrita.lock();
+            try {
+                reconstruindo = false;
+                alteradosDuranteReconstrucao.clear();
+            } finally {
+                escrita.unlock();
+            }
+        }
+        return indexados;
+    }
+
+    /**
+     * Grava em disco as alterações feitas em memória, exceto durante uma reconstrução ou recuperação, que confirmam
+     * o índice ao terminar.
+     *
+     * @return se houve confirmação
+     */
+    @Override
+    public synchronized boolean confirmar() {
+        if (indexWriter == null || reconstruindo || reconstrucaoNecessaria || recuperarDesde != null
+                || !indexWriter.hasUncommittedChanges()) {
+            return false;
+        }
+        try {
+            indexWriter.setLiveCommitData(marcas(false, LocalDateTime.now()));
+            indexWriter.commit();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Erro ao confirmar o índice de nomes. Erro: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public PaginaBuscaDto buscar(String consulta, int pagina, int limite) throws IOException {
+        String chave = TrigramaUtil.chave(consulta != null ? consulta : "");
+        if (chave.replace("_", "").length() < TAMANHO_MINIMO_CONSULTA || chave.length() > TAMANHO_MAXIMO_CONSULTA) {
+            throw new IllegalArgumentException("A consulta deve ter entre " + TAMANHO_MINIMO_CONSULTA + " e "
+                    + TAMANHO_MAXIMO_CONSULTA + " caracteres");
+        }
+        if ((long) (pagina + 1) * limite > MAXIMO_RESULTADOS) {
+            throw new IllegalArgumentException("Só os primeiros " + MAXIMO_RESULTADOS + " resultados podem ser paginados");
+        }
+        Set<String> trigramasConsulta = TrigramaUtil.trigramasDasPalavras(chave);
+
+        abreIndice();
+        searcherManager.maybeRefresh();
+        int quantidade = (pagina + 1) * limite;
+        Map<Long, Float> pontuacoes = new LinkedHashMap<>();
+        long total;
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            // Primeiro os nomes com todos os trigramas contínuos da consulta, do mais curto ao mais longo. Como é a
+            // ordem do índice, a busca para em cada segmento ao achar nomes suficientes
+            Query trecho = criaConsultaTrecho(chave);
+            StoredFields campos = searcher.storedFields();
+            // Ter os trigramas não garante o trecho ("abcxbcd" tem os de "abcd"): só os nomes que contêm a consulta
+            // ficam à frente, e a busca é ampliada até completar a página com eles. Os demais vêm logo depois
+            List<ScoreDoc> comTrecho = new ArrayList<>();
+            List<ScoreDoc> semTrecho = new ArrayList<>();
+            int candidatos = quantidade;
+            TopFieldDocs porTrecho;
+            while (true) {
+                porTrecho = searcher.search(trecho,
+                        new TopFieldCollectorManager(ORDEM_TAMANHO, candidatos, null, MAXIMO_RESULTADOS));
+                // A ordem é estável, então a busca ampliada só acrescenta candidatos ao fim
+                for (int i = comTrecho.size() + semTrecho.size(); i < porTrecho.scoreDocs.length; i++) {
+                    ScoreDoc candidato = porTrecho.scoreDocs[i];
+                    String chaveDocumento = campos.document(candidato.doc, Set.of(CAMPO_CHAVE)).get(CAMPO_CHAVE);
+                    (chaveDocumento != null && chaveDocumento.contains(chave) ? comTrecho : semTrecho).add(candidato);
+                }
+                if (comTrecho.size() >= quantidade || porTrecho.scoreDocs.length < candidatos
+                        || candidatos >= MAXIMO_RESULTADOS) {
+                    break;
+                }
+                candidatos = Math.min(candidatos * 2, MAXIMO_RESULTADOS);
+            }
+            List<ScoreDoc> resultados = new ArrayList<>(comTrecho);
+            resultados.addAll(semTrecho);
+            total = porTrecho.totalHits.value;
+            // Depois os aproximados, pela quantidade de trigramas da consulta presentes no nome; em cada segmento, os
+            // empates ficam na ordem do índice
+            if (total < MAXIMO_RESULTADOS) {
+                TopDocs aproximados = searcher.search(criaConsultaAproximada(trecho, trigramasConsulta),
+                        new TopScoreDocCollectorManager(Math.max(quantidade - resultados.size(), 1), MAXIMO_RESULTADOS));
+                resultados.addAll(Arrays.asList(aproximados.scoreDocs));
+                total += aproximados.totalHits.value;
+            }
+            total = Math.min(total, MAXIMO_RESULTADOS);
+            for (int i = pagina * limite; i < Math.min(resultados.size(), quantidade); i++) {
+                Document documento = campos.document(resultados.get(i).doc);
+                pontuacoes.put(Long.valueOf(documento.get(CAMPO_ID)),
+                        pontua(documento.get(CAMPO_CHAVE), chave, trigramasConsulta));
+            }
+        } finally {
+            searcherManager.release(searcher);
+        }
+
+        Map<Long, DocumentoResumoDto> resumos = pontuacoes.isEmpty() ? Map.of()
+                : documentoRepository.buscaResumos(pontuacoes.keySet()).stream()
+                .collect(Collectors.toMap(DocumentoResumoDto::getId, Function.identity()));
+        List<DocumentoEncontradoDto> documentos = new ArrayList<>(pontuacoes.size());
+        for (Map.Entry<Long, Float> pontuacao : pontuacoes.entrySet()) {
+            DocumentoResumoDto resumo = resumos.get(pontuacao.getKey());
+            if (resumo != null) {
+                documentos.add(new DocumentoEncontradoDto(resumo, pontuacao.getValue()));
+            } else {
+                logger.debug("Documento excluído ainda presente no índice de nomes. ID: {}", pontuacao.getKey());
+                remover(pontuacao.getKey());
+            }
+        }
+        logger.debug("Busca por nome. Consulta: {} - Total: {} - Itens: {}", chave, total, documentos.size());
+        return new PaginaBuscaDto(documentos, total, pagina, limite);
+    }
+
+    private Query criaConsultaTrecho(String chave) {
+        BooleanQuery.Builder trecho = new BooleanQuery.Builder();
+        for (String trigrama : TrigramaUtil.trigramasContinuos(chave)) {
+            trecho.add(new TermQuery(new Term(CAMPO_TRIGRAMA, trigrama)), BooleanClause.Occur.FILTER);
+        }
+        return new ConstantScoreQuery(trecho.build());
+    }
+
+    // Cada trigrama da consulta presente no nome vale 1 ponto, e o nome precisa ter a fração mínima deles
+    private Query criaConsultaAproximada(Query trecho, Set<String> trigramasConsulta) {
+        BooleanQuery.Builder aproximado = new BooleanQuery.Builder();
+        for (String trigrama : trigramasConsulta) {
+            aproximado.add(new ConstantScoreQuery(new TermQuery(new Term(CAMPO_TRIGRAMA, trigrama))), BooleanClause.Occur.SHOULD);
+        }
+        aproximado.setMinimumNumberShouldMatch((int) Math.ceil(trigramasConsulta.size() * similaridadeMinima));
+        return new BooleanQuery.Builder()
+                .add(aproximado.build(), BooleanClause.Occur.MUST)
+                .add(trecho, BooleanClause.Occur.MUST_NOT)
+                .build();
+    }
+
+    // Fração dos trigramas da consulta encontrados no nome; 1 quando o nome contém a consulta
+    private float pontua(String chaveDocumento, String chave, Set<String> trigramasConsulta) {
+        if (chaveDocumento == null) {
+            return 0.0f;
+        }
+        if (chaveDocumento.contains(chave)) {
+            return 1.0f;
+        }
+        Set<String> encontrados = TrigramaUtil.trigramasDasPalavras(chaveDocumento);
+        encontrados.retainAll(trigramasConsulta);
+        return (float) encontrados.size() / trigramasConsulta.size();
+    }
+
+    private synchronized IndexWriter abreIndice() throws IOException {
+        if (indexWriter == null) {
+            IndexWriterConfig config = new IndexWriterConfig(new KeywordAnalyzer())
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                    .setIndexSort(ORDEM_TAMANHO);
+            IndexWriter writer = new IndexWriter(FSDirectory.open(Path.of(diretorio)), config);
+            Map<String, String> dados = new HashMap<>();
+            if (writer.getLiveCommitData() != null) {
+                writer.getLiveCommitData().forEach(dado -> dados.put(dado.getKey(), dado.getValue()));
+            }
+            LocalDateTime confirmadoEm;
+            if ("true".equals(dados.get(MARCA_ENCERRAMENTO))) {
+                // Sem a aplicação no ar, nada mudou desde o encerramento
+                confirmadoEm = LocalDateTime.now();
+            } else if (dados.containsKey(MARCA_CONFIRMACAO)) {
+                confirmadoEm = LocalDateTime.parse(dados.get(MARCA_CONFIRMACAO));
+                recuperarDesde = confirmadoEm.minus(MARGEM_RECUPERACAO);
+            } else {
+                confirmadoEm = null;
+                reconstrucaoNecessaria = true;
+            }
+            // Até a próxima confirmação, o índice em disco pode não ter as alterações feitas em memória
+            writer.setLiveCommitData(marcas(false, confirmadoEm));
+            writer.commit();
+            searcherManager = new SearcherManager(writer, null);
+            indexWriter = writer;
+            logger.info("Índice de nomes aberto em {}. Documentos: {} - Reconstrução necessária: {} - Recuperar desde: {}",
+                    diretorio, writer.getDocStats().numDocs, reconstrucaoNecessaria, recuperarDesde);
+        }
+        return indexWriter;
+    }
+
+    @PreDestroy
+    public synchronized void fechar() throws IOException {
+        if (indexWriter != null) {
+            // Durante uma reconstrução ou recuperação, as marcas em disco continuam indicando o que falta refazer
+            if (!reconstrucaoNecessaria && recuperarDesde == null && !reconstruindo) {
+                indexWriter.setLiveCommitData(marcas(true, LocalDateTime.now()));
+            }
+            searcherManager.close();
+            indexWriter.close();
+            indexWriter = null;
+        }
+    }
+
+    private static Iterable<Map.Entry<String, String>> marcas(boolean encerrado, LocalDateTime confirmadoEm) {
+        Map<String, String> dados = new HashMap<>();
+        dados.put(MARCA_ENCERRAMENTO, String.valueOf(encerrado));
+        if (confirmadoEm != null) {
+            dados.put(MARCA_CONFIRMACAO, confirmadoEm.toString());
+        }
+        return dados.entrySet();
+    }
+}
@@ -0,0 +1,8 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.MigracaoArmazenamentoDto;
+
+public interface MigracaoArmazenamentoService {
+    boolean iniciarMigracao();
+    MigracaoArmazenamentoDto consultarMigracao();
+}
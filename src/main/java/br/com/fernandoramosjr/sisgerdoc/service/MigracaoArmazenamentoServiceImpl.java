@@ -0,0 +1,204 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.MigracaoArmazenamentoDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.storage.ArquivoStorageEngine;
+import br.com.fernandoramosjr.sisgerdoc.util.DocumentoUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Move os arquivos já gravados para o lugar que o {@link ArquivoStorageEngine} escolhe hoje para eles: o layout de
+ * diretórios de {@code file.storage.diretorios.niveis} e, com vários volumes, o volume da distribuição atual. Só os
+ * arquivos fora do lugar são movidos, então incluir ou drenar um volume move apenas o necessário. Roda em lotes, com
+ * a aplicação no ar. Cada arquivo ganha primeiro um hard link no novo caminho (ou uma cópia, entre volumes), fora de
+ * transação; a transação do lote só troca os {@code filePath}, e o caminho antigo só é apagado depois que ela é
+ * confirmada, de modo que o documento continua acessível durante toda a migração. Documentos em armazenamento por
+ * conteúdo já ficam em {@code .blobs} e não são migrados.
+ */
+@Service
+public class MigracaoArmazenamentoServiceImpl implements MigracaoArmazenamentoService {
+
+    private static final Logger logger = LogManager.getLogger(MigracaoArmazenamentoServiceImpl.class);
+    private final DocumentoRepository documentoRepository;
+    private final DocumentoCache documentoCache;
+    private final ArquivoStorageEngine arquivoStorageEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor taskExecutor;
+
+    @Value("${file.upload-dir}")
+    String uploadDir;
+
+    @Value("${file.storage.diretorios.niveis:0}")
+    int niveisDiretorio;
+
+    @Value("${file.storage.migracao.tamanho-lote:500}")
+    int tamanhoLote = 500;
+
+    private final AtomicBoolean emExecucao = new AtomicBoolean();
+    private final AtomicLong verificados = new AtomicLong();
+    private final AtomicLong migrados = new AtomicLong();
+    private final AtomicLong falhas = new AtomicLong();
+    private volatile LocalDateTime iniciadoEm;
+    private volatile LocalDateTime concluidoEm;
+
+    public MigracaoArmazenamentoServiceImpl(DocumentoRepository documentoRepository, DocumentoCache documentoCache,
+                                            ArquivoStorageEngine arquivoStorageEngine, TransactionTemplate transactionTemplate,
+                                            @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor) {
+        this.documentoRepository = documentoRepository;
+        this.documentoCache = documentoCache;
+        this.arquivoStorageEngine = arquivoStorageEngine;
+        this.transactionTemplate = transactionTemplate;
+        this.taskExecutor = taskExecutor;
+    }
+
+    @Override
+    public boolean iniciarMigracao() {
+        if (!emExecucao.compareAndSet(false, true)) {
+            logger.warn("Migração do armazenamento já está em execução");
+            return false;
+        }
+        verificados.set(0);
+        migrados.set(0);
+        falhas.set(0);
+        iniciadoEm = LocalDateTime.now();
+        concluidoEm = null;
+        try {
+            taskExecutor.execute(this::executaMigracao);
+        } catch (RuntimeException e) {
+            emExecucao.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    @Override
+    public MigracaoArmazenamentoDto consultarMigracao() {
+        return new MigracaoArmazenamentoDto(emExecucao.get(), verificados.get(), migrados.get(), falhas.get(),
+                iniciadoEm, concluidoEm);
+    }
+
+    private void executaMigracao() {
+        logger.info("Iniciando migração do armazenamento. Níveis de diretório: {} - Lote: {}", niveisDiretorio, tamanhoLote);
+        try {
+            Long ultimoId = 0L;
+            while (ultimoId != null) {
+                ultimoId = migraLote(ultimoId);
+            }
+            logger.info("Migração do armazenamento concluída. Verificados: {} - Migrados: {} - Falhas: {}",
+                    verificados.get(), migrados.get(), falhas.get());
+        } catch (RuntimeException e) {
+            logger.error("Migração do armazenamento interrompida. Erro: {}", e.getMessage(), e);
+        } finally {
+            concluidoEm = LocalDateTime.now();
+            emExecucao.set(false);
+        }
+    }
+
+    private record Vinculo(Documento documento, Path antigo, Path novo, Object chave) {
+    }
+
+    // Retorna o último ID processado, ou null quando não há mais documentos
+    private Long migraLote(Long ultimoId) {
+        List<Documento> lote = documentoRepository.buscaLoteParaMigracao(ultimoId, Limit.of(tamanhoLote));
+        if (lote.isEmpty()) {
+            return null;
+        }
+        // Uma cópia entre volumes pode demorar; é feita antes da transação, que não segura as linhas enquanto isso
+        DocumentoUtil documentoUtil = new DocumentoUtil(uploadDir);
+        List<Vinculo> vinculos = new ArrayList<>();
+        for (Documento documento : lote) {
+            verificados.incrementAndGet();
+            try {
+                Path atual = Paths.get(documento.getFilePath());
+                Path destino = arquivoStorageEngine.caminhoPara(documento.getFileName());
+                if (atual.toAbsolutePath().normalize().equals(destino.toAbsolutePath().normalize())) {
+                    continue;
+                }
+                if (!Files.exists(atual)) {
+                    logger.warn("Arquivo do documento não encontrado para migração. ID: {} - Caminho: {}", documento.getId(), atual);
+                    falhas.incrementAndGet();
+                    continue;
+                }
+                documentoUtil.vinculaConteudo(atual, destino);
+                vinculos.add(new Vinculo(documento, atual, destino, chaveArquivo(destino)));
+            } catch (IOException e) {
+                logger.error("Erro ao migrar o arquivo do documento. ID: {} - Erro: {}", documento.getId(), e.getMessage());
+                falhas.incrementAndGet();
+            }
+        }
+        if (!vinculos.isEmpty()) {
+            boolean[] atualizados = new boolean[vinculos.size()];
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (int i = 0; i < vinculos.size(); i++) {
+                        Vinculo vinculo = vinculos.get(i);
+                        atualizados[i] = documentoRepository.atualizaFilePath(vinculo.documento().getId(),
+                                vinculo.documento().getFilePath(), vinculo.novo().toString()) == 1;
+                    }
+                });
+            } catch (RuntimeException e) {
+                vinculos.forEach(this::descartaVinculo);
+                throw e;
+            }
+            for (int i = 0; i < vinculos.size(); i++) {
+                Vinculo vinculo = vinculos.get(i);
+                if (atualizados[i]) {
+                    documentoCache.invalidar(vinculo.documento().getId());
+                    removeArquivo(vinculo.antigo());
+                    migrados.incrementAndGet();
+                } else {
+                    logger.debug("Documento alterado durante a migração; mantido como está. ID: {}", vinculo.documento().getId());
+                    descartaVinculo(vinculo);
+                }
+            }
+        }
+        logger.debug("Lote migrado até o ID: {}", lote.get(lote.size() - 1).getId());
+        return lote.get(lote.size() - 1).getId();
+    }
+
+    // Identifica o arquivo criado no novo caminho, para não apagar um que uma atualização concorrente tenha posto lá
+    private static Object chaveArquivo(Path caminho) throws IOException {
+        return Files.readAttributes(caminho, BasicFileAttributes.class).fileKey();
+    }
+
+    // Só apaga o novo caminho se ele ainda for o vínculo ou a cópia criada pela migração
+    private void descartaVinculo(Vinculo vinculo) {
+        try {
+            boolean criadoPelaMigracao = vinculo.chave() != null
+                    ? Files.exists(vinculo.novo()) && vinculo.chave().equals(chaveArquivo(vinculo.novo()))
+                    : Files.exists(vinculo.antigo()) && Files.isSameFile(vinculo.novo(), vinculo.antigo());
+            if (criadoPelaMigracao) {
+                Files.deleteIfExists(vinculo.novo());
+            }
+        } catch (IOException e) {
+            logger.warn("Não foi possível remover o arquivo criado pela migração: {} - Erro: {}", vinculo.novo(), e.getMessage());
+        }
+    }
+
+    private void removeArquivo(Path arquivo) {
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            logger.warn("Não foi possível remover o arquivo antigo após a migração: {} - Erro: {}", arquivo, e.getMessage());
+        }
+    }
+}
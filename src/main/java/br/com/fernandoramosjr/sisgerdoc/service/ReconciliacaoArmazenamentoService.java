@@ -0,0 +1,7 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.ReconciliacaoArmazenamentoDto;
+
+public interface ReconciliacaoArmazenamentoService {
+    ReconciliacaoArmazenamentoDto reconciliar();
+}
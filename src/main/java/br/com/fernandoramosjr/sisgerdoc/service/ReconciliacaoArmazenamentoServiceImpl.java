@@ -0,0 +1,419 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.LocalizacaoDocumentoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.ReconciliacaoArmazenamentoDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.storage.ArquivoStorageEngine;
+import br.com.fernandoramosjr.sisgerdoc.storage.CamadaFriaStorageEngine;
+import br.com.fernandoramosjr.sisgerdoc.util.OrdenacaoArquivos;
+import br.com.fernandoramosjr.sisgerdoc.util.OrdenacaoArquivos.Entrada;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Confere o diretório de upload com o banco: arquivos sem documento (órfãos, deixados por uma falha entre a
+ * gravação do arquivo e a do registro, ou pela troca do nome na atualização) e documentos cujo arquivo não existe.
+ * <p>
+ * O diretório é percorrido em paralelo e os arquivos são ordenados pelo ID presente no nome
+ * ({@code <nome>_<id><extensão>}) com ordenação externa; os documentos são lidos do banco em lotes pela ordem do ID.
+ * As duas sequências são intercaladas como num merge join, então a memória usada não depende do tamanho do
+ * armazenamento. Diretórios internos ({@code .blobs}, {@code .segmentos}, {@code .sessoes}, índices) ficam de fora;
+ * arquivos temporários de upload abandonados ({@code .upload-*.part}) contam como órfãos. Com vários volumes
+ * ({@code file.storage.volumes.raizes}), todos são percorridos na mesma conferência, junto com o diretório da camada
+ * fria, e um volume ausente cancela a reconciliação.
+ * <p>
+ * Por padrão só registra o que encontrou. Com {@code documento.reconciliacao.reparar=true}, órfãos são movidos para
+ * {@code .orfaos} do próprio volume e documentos sem arquivo são excluídos, desde que cada tipo não passe de
+ * {@code documento.reconciliacao.maximo-reparos}: muitos itens de uma vez indicam um problema maior, como um volume
+ * desmontado, e ficam para análise manual.
+ */
+@Service
+public class ReconciliacaoArmazenamentoServiceImpl implements ReconciliacaoArmazenamentoService {
+
+    private static final Logger logger = LogManager.getLogger(ReconciliacaoArmazenamentoServiceImpl.class);
+    private static final Pattern ID_NO_NOME = Pattern.compile("_(\\d{1,18})(\\.[^.]*)?$");
+    private static final String DIRETORIO_ORFAOS = ".orfaos";
+    private static final String DIRETORIO_TEMPORARIO = ".reconciliacao";
+    private static final int LOTE_LISTAGEM = 1024;
+
+    private final DocumentoRepository documentoRepository;
+    private final DocumentoService documentoService;
+    private final MigracaoArmazenamentoService migracaoArmazenamentoService;
+    private final ArquivoStorageEngine arquivoStorageEngine;
+    private final CamadaFriaStorageEngine camadaFria;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean emExecucao = new AtomicBoolean();
+
+    @Value("${file.upload-dir}")
+    String uploadDir;
+
+    @Value("${documento.reconciliacao.reparar:false}")
+    boolean reparar;
+
+    // Arquivos e documentos alterados há menos tempo podem estar no meio de uma gravação
+    @Value("${documento.reconciliacao.idade-minima:PT1H}")
+    Duration idadeMinima = Duration.ofHours(1);
+
+    @Value("${documento.reconciliacao.maximo-reparos:1000}")
+    int maximoReparos = 1000;
+
+    @Value("${documento.reconciliacao.paralelismo:4}")
+    int paralelismo = 4;
+
+    @Value("${documento.reconciliacao.tamanho-bloco:100000}")
+    int tamanhoBloco = 100000;
+
+    @Value("${documento.reconciliacao.tamanho-lote:1000}")
+    int tamanhoLote = 1000;
+
+    public ReconciliacaoArmazenamentoServiceImpl(DocumentoRepository documentoRepository, DocumentoService documentoService,
+                                                 MigracaoArmazenamentoService migracaoArmazenamentoService,
+                                                 ArquivoStorageEngine arquivoStorageEngine, CamadaFriaStorageEngine camadaFria,
+                                                 TransactionTemplate transactionTemplate) {
+        this.documentoRepository = documentoRepository;
+        this.documentoService = documentoService;
+        this.migracaoArmazenamentoService = migracaoArmazenamentoService;
+        this.arquivoStorageEngine = arquivoStorageEngine;
+        this.camadaFria = camadaFria;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public ReconciliacaoArmazenamentoDto reconciliar() {
+        if (!emExecucao.compareAndSet(false, true)) {
+            logger.warn("Reconciliação do armazenamento já está em execução");
+            return null;
+        }
+        try {
+            // A migração cria um segundo caminho para cada arquivo antes de atualizar o banco
+            if (migracaoArmazenamentoService.consultarMigracao().isEmExecucao()) {
+                logger.warn("Reconciliação do armazenamento adiada: migração em execução");
+                return null;
+            }
+            return executaReconciliacao();
+        } finally {
+            emExecucao.set(false);
+        }
+    }
+
+    private ReconciliacaoArmazenamentoDto executaReconciliacao() {
+        LocalDateTime iniciadoEm = LocalDateTime.now();
+        Path raiz = Paths.get(uploadDir).toAbsolutePath().normalize();
+        // Um volume desmontado faria todos os documentos dele parecerem sem arquivo
+        List<Path> raizes = new ArrayList<>();
+        List<Path> configuradas = new ArrayList<>(arquivoStorageEngine.getRaizes());
+        if (camadaFria.isHabilitada()) {
+            configuradas.add(camadaFria.getDiretorio());
+        }
+        for (Path volume : configuradas) {
+            Path normalizado = volume.toAbsolutePath().normalize();
+            if (!Files.isDirectory(normalizado)) {
+                logger.error("Diretório de armazenamento não encontrado; reconciliação cancelada: {}", normalizado);
+                return null;
+            }
+            if (!raizes.contains(normalizado)) {
+                raizes.add(normalizado);
+            }
+        }
+        long limiteArquivos = System.currentTimeMillis() - idadeMinima.toMillis();
+        LocalDateTime limiteDocumentos = iniciadoEm.minus(idadeMinima);
+        Resultado resultado = new Resultado();
+        Path temporario = raiz.resolve(DIRETORIO_TEMPORARIO);
+        try (OrdenacaoArquivos ordenacao = new OrdenacaoArquivos(temporario, tamanhoBloco)) {
+            for (Path volume : raizes) {
+                listaArquivos(volume, ordenacao, resultado);
+            }
+            Iterator<Entrada> arquivos = ordenacao.ordenadas();
+            Entrada arquivo = arquivos.hasNext() ? arquivos.next() : null;
+            LeitorDocumentos documentos = new LeitorDocumentos();
+            LocalizacaoDocumentoDto documento = documentos.proximo();
+            while (arquivo != null || documento != null) {
+                long id = Math.min(arquivo != null ? arquivo.id() : Long.MAX_VALUE,
+                        documento != null ? documento.getId() : Long.MAX_VALUE);
+                LocalizacaoDocumentoDto doId = null;
+                if (documento != null && documento.getId() == id) {
+                    doId = documento;
+                    documento = documentos.proximo();
+                    resultado.documentosVerificados++;
+                }
+                String esperado = doId != null && doId.getFilePath() != null ? normaliza(doId.getFilePath()) : null;
+                boolean encontrado = false;
+                while (arquivo != null && arquivo.id() == id) {
+                    if (arquivo.caminho().equals(esperado)) {
+                        encontrado = true;
+                    } else {
+                        verificaOrfao(arquivo, limiteArquivos, resultado);
+                    }
+                    arquivo = arquivos.hasNext() ? arquivos.next() : null;
+                }
+                if (doId != null && !encontrado) {
+                    verificaSemArquivo(doId, esperado, limiteDocumentos, resultado);
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Reconciliação do armazenamento interrompida. Erro: {}", e.getMessage(), e);
+            return null;
+        } finally {
+            try {
+                FileSystemUtils.deleteRecursively(temporario);
+            } catch (IOException e) {
+                logger.warn("Não foi possível remover o diretório temporário da reconciliação: {}", temporario);
+            }
+        }
+
+        repara(raizes, resultado);
+        ReconciliacaoArmazenamentoDto dto = new ReconciliacaoArmazenamentoDto(resultado.arquivosVerificados.get(),
+                resultado.documentosVerificados, resultado.arquivosOrfaos, resultado.documentosSemArquivo,
+                resultado.arquivosMovidos, resultado.documentosRemovidos, iniciadoEm, LocalDateTime.now());
+        logger.info("Reconciliação do armazenamento concluída. Arquivos: {} - Documentos: {} - Órfãos: {} - Sem arquivo: {} - Órfãos movidos: {} - Documentos removidos: {}",
+                dto.getArquivosVerificados(), dto.getDocumentosVerificados(), dto.getArquivosOrfaos(),
+                dto.getDocumentosSemArquivo(), dto.getArquivosMovidos(), dto.getDocumentosRemovidos());
+        return dto;
+    }
+
+    private void verificaOrfao(Entrada arquivo, long limiteArquivos, Resultado resultado) {
+        if (arquivo.modificadoEm() >= limiteArquivos) {
+            return;
+        }
+        resultado.arquivosOrfaos++;
+        if (resultado.orfaos.size() <= maximoReparos) {
+            resultado.orfaos.add(arquivo);
+            logger.warn("Arquivo sem documento: {}", arquivo.caminho());
+        }
+    }
+
+    // Documentos em segmentos não têm arquivo próprio; os que estão fora do diretório percorrido (blobs) são
+    // conferidos diretamente
+    private void verificaSemArquivo(LocalizacaoDocumentoDto documento, String esperado, LocalDateTime limiteDocumentos,
+                                    Resultado resultado) {
+        if (documento.getSegmento() != null || (esperado != null && Files.exists(Paths.get(esperado)))
+                || documento.getAtualizadoEm() == null || !documento.getAtualizadoEm().isBefore(limiteDocumentos)) {
+            return;
+        }
+        resultado.documentosSemArquivo++;
+        if (resultado.semArquivo.size() <= maximoReparos) {
+            resultado.semArquivo.add(documento);
+            logger.warn("Documento sem arquivo. ID: {} - Caminho: {}", documento.getId(), documento.getFilePath());
+        }
+    }
+
+    private void repara(List<Path> raizes, Resultado resultado) {
+        if (!reparar) {
+            return;
+        }
+        if (resultado.arquivosOrfaos > maximoReparos || resultado.documentosSemArquivo > maximoReparos) {
+            logger.error("Reconciliação encontrou mais itens que o máximo de reparos ({}); nada foi alterado. Órfãos: {} - Sem arquivo: {}",
+                    maximoReparos, resultado.arquivosOrfaos, resultado.documentosSemArquivo);
+            return;
+        }
+        for (Entrada orfao : resultado.orfaos) {
+            try {
+                if (moveOrfao(raizes, orfao)) {
+                    resultado.arquivosMovidos++;
+                }
+            } catch (IOException e) {
+                logger.error("Erro ao mover arquivo órfão: {} - Erro: {}", orfao.caminho(), e.getMessage());
+            }
+        }
+        for (LocalizacaoDocumentoDto documento : resultado.semArquivo) {
+            try {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> removeDocumento(documento)))) {
+                    resultado.documentosRemovidos++;
+                }
+            } catch (RuntimeException e) {
+                logger.error("Erro ao remover documento sem arquivo. ID: {} - Erro: {}", documento.getId(), e.getMessage());
+            }
+        }
+    }
+
+    // Confere de novo no banco: o documento pode ter passado a usar o arquivo depois da listagem
+    private boolean moveOrfao(List<Path> raizes, Entrada orfao) throws IOException {
+        if (orfao.id() >= 0) {
+            Optional<Documento> documento = documentoRepository.findById(orfao.id());
+            if (documento.isPresent() && documento.get().getFilePath() != null
+                    && normaliza(documento.get().getFilePath()).equals(orfao.caminho())) {
+                return false;
+            }
+        }
+        Path origem = Paths.get(orfao.caminho());
+        if (!Files.exists(origem, LinkOption.NOFOLLOW_LINKS)) {
+            return false;
+        }
+        // A raiz mais longa que contém o arquivo, caso um volume esteja dentro de outro
+        Path raiz = raizes.stream().filter(origem::startsWith).max(Comparator.comparingInt(Path::getNameCount)).orElseThrow();
+        Path destino = raiz.resolve(DIRETORIO_ORFAOS).resolve(raiz.relativize(origem));
+        Files.createDirectories(destino.getParent());
+        try {
+            Files.move(origem, destino);
+        } catch (FileAlreadyExistsException e) {
+            Files.move(origem, destino.resolveSibling(destino.getFileName() + "." + System.currentTimeMillis()));
+        }
+        logger.info("Arquivo órfão movido para {}: {}", DIRETORIO_ORFAOS, orfao.caminho());
+        return true;
+    }
+
+    // Com o registro bloqueado, só exclui se ele continua como foi lido e o arquivo continua ausente
+    private boolean removeDocumento(LocalizacaoDocumentoDto lido) {
+        Optional<Documento> documento = documentoRepository.findByIdParaAtualizacao(lido.getId());
+        if (documento.isEmpty()) {
+            return false;
+        }
+        Documento atual = documento.get();
+        LocalDateTime atualizadoEm = atual.getAtualizadoEm() != null ? atual.getAtualizadoEm() : atual.getCriadoEm();
+        if (!Objects.equals(atual.getFilePath(), lido.getFilePath()) || atual.getSegmento() != null
+                || !Objects.equals(atualizadoEm, lido.getAtualizadoEm())
+                || (atual.getFilePath() != null && Files.exists(Paths.get(atual.getFilePath())))) {
+            return false;
+        }
+        try {
+            documentoService.deletarDocumento(lido.getId());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        logger.info("Documento sem arquivo removido. ID: {}", lido.getId());
+        return true;
+    }
+
+    private void listaArquivos(Path raiz, OrdenacaoArquivos ordenacao, Resultado resultado) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(paralelismo, 1));
+        try {
+            pool.invoke(new ListagemDiretorio(raiz, true, ordenacao, resultado));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Cada diretório é uma tarefa; os subdiretórios (níveis de file.storage.diretorios.niveis) são listados em paralelo
+    private class ListagemDiretorio extends RecursiveAction {
+        private final Path diretorio;
+        private final boolean raiz;
+        private final OrdenacaoArquivos ordenacao;
+        private final Resultado resultado;
+
+        ListagemDiretorio(Path diretorio, boolean raiz, OrdenacaoArquivos ordenacao, Resultado resultado) {
+            this.diretorio = diretorio;
+            this.raiz = raiz;
+            this.ordenacao = ordenacao;
+            this.resultado = resultado;
+        }
+
+        @Override
+        protected void compute() {
+            List<ListagemDiretorio> subdiretorios = new ArrayList<>();
+            List<Entrada> entradas = new ArrayList<>(LOTE_LISTAGEM);
+            try (DirectoryStream<Path> conteudo = Files.newDirectoryStream(diretorio)) {
+                for (Path caminho : conteudo) {
+                    String nome = caminho.getFileName().toString();
+                    boolean temporarioUpload = raiz && nome.startsWith(".upload-") && nome.endsWith(".part");
+                    if (nome.startsWith(".") && !temporarioUpload) {
+                        continue;
+                    }
+                    BasicFileAttributes atributos;
+                    try {
+                        atributos = Files.readAttributes(caminho, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (NoSuchFileException e) {
+                        // Apagado durante a listagem
+                        continue;
+                    }
+                    if (atributos.isDirectory()) {
+                        subdiretorios.add(new ListagemDiretorio(caminho, false, ordenacao, resultado));
+                    } else if (atributos.isRegularFile()) {
+                        entradas.add(new Entrada(temporarioUpload ? -1 : idDoNome(nome),
+                                atributos.lastModifiedTime().toMillis(), caminho.toString()));
+                        if (entradas.size() == LOTE_LISTAGEM) {
+                            adiciona(entradas);
+                            entradas = new ArrayList<>(LOTE_LISTAGEM);
+                        }
+                    }
+                }
+                adiciona(entradas);
+            } catch (NoSuchFileException e) {
+                return;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            invokeAll(subdiretorios);
+        }
+
+        private void adiciona(List<Entrada> entradas) throws IOException {
+            ordenacao.adiciona(entradas);
+            resultado.arquivosVerificados.addAndGet(entradas.size());
+        }
+    }
+
+    private static long idDoNome(String nome) {
+        Matcher matcher = ID_NO_NOME.matcher(nome);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    private static String normaliza(String filePath) {
+        return Paths.get(filePath).toAbsolutePath().normalize().toString();
+    }
+
+    // Lê os documentos em lotes pela ordem do ID, sem manter mais que um lote em memória
+    private class LeitorDocumentos {
+        private List<LocalizacaoDocumentoDto> lote = List.of();
+        private int posicao;
+        private Long ultimoId = 0L;
+        private boolean fim;
+
+        LocalizacaoDocumentoDto proximo() {
+            if (posicao == lote.size()) {
+                if (fim) {
+                    return null;
+                }
+                lote = documentoRepository.buscaLoteLocalizacoes(ultimoId, Limit.of(tamanhoLote));
+                posicao = 0;
+                fim = lote.size() < tamanhoLote;
+                if (lote.isEmpty()) {
+                    return null;
+                }
+                ultimoId = lote.get(lote.size() - 1).getId();
+            }
+            return lote.get(posicao++);
+        }
+    }
+
+    private static class Resultado {
+        private final AtomicLong arquivosVerificados = new AtomicLong();
+        private long documentosVerificados;
+        private long arquivosOrfaos;
+        private long documentosSemArquivo;
+        private long arquivosMovidos;
+        private long documentosRemovidos;
+        // Até maximoReparos + 1 itens de cada tipo, para reparar depois da conferência completa
+        private final List<Entrada> orfaos = new ArrayList<>();
+        private final List<LocalizacaoDocumentoDto> semArquivo = new ArrayList<>();
+    }
+}
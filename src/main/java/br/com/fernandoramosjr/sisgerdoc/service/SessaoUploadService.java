@@ -0,0 +1,16 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.SessaoUploadDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface SessaoUploadService {
+    SessaoUploadDto abrirSessao(String nome, String nomeArquivo, Integer totalChunks) throws IOException;
+    void receberChunk(String sessaoId, int numero, InputStream conteudo) throws IOException;
+    SessaoUploadDto consultarSessao(String sessaoId) throws IOException;
+    Documento concluirSessao(String sessaoId) throws IOException;
+    void cancelarSessao(String sessaoId) throws IOException;
+    int expirarSessoes() throws IOException;
+}
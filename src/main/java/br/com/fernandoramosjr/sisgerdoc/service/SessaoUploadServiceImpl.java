@@ -0,0 +1,189 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.SessaoUpload;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.SessaoUploadDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.SessaoUploadRepository;
+import br.com.fernandoramosjr.sisgerdoc.util.DocumentoUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Service
+public class SessaoUploadServiceImpl implements SessaoUploadService {
+
+    private static final String SUFIXO_CHUNK = ".chunk";
+    private static final Logger logger = LogManager.getLogger(SessaoUploadServiceImpl.class);
+
+    private final SessaoUploadRepository sessaoUploadRepository;
+    private final DocumentoService documentoService;
+
+    @Value("${file.upload-dir}")
+    String uploadDir;
+
+    @Value("${file.upload-session.max-chunk-size:64MB}")
+    DataSize maxChunkSize = DataSize.ofMegabytes(64);
+
+    @Value("${file.upload-session.max-chunks:10000}")
+    int maxChunks = 10000;
+
+    @Value("${file.upload-session.ttl:24h}")
+    Duration ttl = Duration.ofHours(24);
+
+    public SessaoUploadServiceImpl(SessaoUploadRepository sessaoUploadRepository, DocumentoService documentoService) {
+        this.sessaoUploadRepository = sessaoUploadRepository;
+        this.documentoService = documentoService;
+    }
+
+    @Override
+    public SessaoUploadDto abrirSessao(String nome, String nomeArquivo, Integer totalChunks) throws IOException {
+        if (totalChunks == null || totalChunks < 1 || totalChunks > maxChunks) {
+            logger.error("Sessão de upload com quantidade de chunks inválida: {}", totalChunks);
+            throw new IllegalArgumentException("Quantidade de chunks deve estar entre 1 e " + maxChunks);
+        }
+        SessaoUpload sessao = new SessaoUpload(UUID.randomUUID().toString(), nome, nomeArquivo, totalChunks, LocalDateTime.now());
+        new DocumentoUtil(uploadDir).getDiretorioSessao(sessao.getId());
+        sessaoUploadRepository.save(sessao);
+        logger.info("Sessão de upload aberta. ID: {} - Nome: {} - Chunks: {}", sessao.getId(), nome, totalChunks);
+        return new SessaoUploadDto(sessao.getId(), nome, totalChunks, List.of());
+    }
+
+    @Override
+    public void receberChunk(String sessaoId, int numero, InputStream conteudo) throws IOException {
+        SessaoUpload sessao = buscaSessao(sessaoId);
+        if (numero < 0 || numero >= sessao.getTotalChunks()) {
+            logger.error("Chunk fora do intervalo. Sessão: {} - Chunk: {}", sessaoId, numero);
+            throw new IllegalArgumentException("Chunk deve estar entre 0 e " + (sessao.getTotalChunks() - 1));
+        }
+        if (sessao.isConcluindo()) {
+            throw new IllegalStateException("Sessão em conclusão");
+        }
+        DocumentoUtil documentoUtil = new DocumentoUtil(uploadDir);
+        Path diretorio = documentoUtil.getDiretorioSessao(sessaoId);
+        // Cada chunk é gravado em um arquivo próprio e só fica visível depois de completo,
+        // o que permite envios paralelos e reenvios do mesmo chunk sem coordenação
+        Path temporario = diretorio.resolve(numero + SUFIXO_CHUNK + "." + UUID.randomUUID() + ".tmp");
+        try {
+            long bytes = documentoUtil.copiaConteudo(conteudo, temporario, maxChunkSize.toBytes());
+            Files.move(temporario, diretorio.resolve(numero + SUFIXO_CHUNK),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Chunk recebido. Sessão: {} - Chunk: {} - Bytes: {}", sessaoId, numero, bytes);
+        } finally {
+            Files.deleteIfExists(temporario);
+        }
+        sessaoUploadRepository.atualizaUltimoAcesso(sessaoId, LocalDateTime.now());
+    }
+
+    @Override
+    public SessaoUploadDto consultarSessao(String sessaoId) throws IOException {
+        SessaoUpload sessao = buscaSessao(sessaoId);
+        List<Integer> recebidos = chunksRecebidos(new DocumentoUtil(uploadDir).getDiretorioSessao(sessaoId));
+        return new SessaoUploadDto(sessao.getId(), sessao.getNome(), sessao.getTotalChunks(), recebidos);
+    }
+
+    @Override
+    public Documento concluirSessao(String sessaoId) throws IOException {
+        logger.info("Concluindo sessão de upload. ID: {}", sessaoId);
+        SessaoUpload sessao = buscaSessao(sessaoId);
+        DocumentoUtil documentoUtil = new DocumentoUtil(uploadDir);
+        Path diretorio = documentoUtil.getDiretorioSessao(sessaoId);
+
+        List<Integer> recebidos = chunksRecebidos(diretorio);
+        if (recebidos.size() != sessao.getTotalChunks()) {
+            logger.error("Sessão incompleta. ID: {} - Recebidos: {} de {}", sessaoId, recebidos.size(), sessao.getTotalChunks());
+            throw new IllegalStateException("Sessão incompleta: " + recebidos.size() + " de " + sessao.getTotalChunks() + " chunks recebidos");
+        }
+        List<Path> partes = new ArrayList<>(recebidos.size());
+        for (Integer numero : recebidos) {
+            partes.add(diretorio.resolve(numero + SUFIXO_CHUNK));
+        }
+
+        // A marcação impede que dois commits simultâneos gerem duplicatas; os chunks continuam no disco até o
+        // documento ser criado, e uma falha devolve a sessão ao estado aberto para nova tentativa
+        if (sessaoUploadRepository.marcaConcluindo(sessaoId, LocalDateTime.now()) == 0) {
+            throw new IllegalStateException("Sessão já concluída ou em conclusão");
+        }
+        Documento documento;
+        Path temporario = documentoUtil.getTempFilePath();
+        try {
+            long bytes = documentoUtil.concatenaConteudo(partes, temporario);
+            if (bytes == 0) {
+                logger.error("Sessão concluída com arquivo vazio. ID: {}", sessaoId);
+                throw new IOException("Arquivo enviado está vazio.");
+            }
+            documento = documentoService.criarNovoDocumento(sessao.getNome(), sessao.getNomeArquivo(), temporario);
+        } catch (IOException | RuntimeException e) {
+            sessaoUploadRepository.desmarcaConcluindo(sessaoId, LocalDateTime.now());
+            throw e;
+        } finally {
+            Files.deleteIfExists(temporario);
+        }
+
+        // O documento já está gravado: falhas daqui em diante só deixam resíduos para a expiração
+        try {
+            sessaoUploadRepository.removeSessao(sessaoId);
+            documentoUtil.apagaDiretorio(diretorio);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Sessão concluída, mas não removida. ID: {} - Erro: {}", sessaoId, e.getMessage());
+        }
+        logger.info("Sessão de upload concluída. ID: {} - Documento: {}", sessaoId, documento.getId());
+        return documento;
+    }
+
+    @Override
+    public void cancelarSessao(String sessaoId) throws IOException {
+        buscaSessao(sessaoId);
+        if (sessaoUploadRepository.removeSessaoAberta(sessaoId) == 0) {
+            throw new IllegalStateException("Sessão já concluída ou em conclusão");
+        }
+        DocumentoUtil documentoUtil = new DocumentoUtil(uploadDir);
+        documentoUtil.apagaDiretorio(documentoUtil.getDiretorioSessao(sessaoId));
+        logger.info("Sessão de upload cancelada. ID: {}", sessaoId);
+    }
+
+    @Override
+    public int expirarSessoes() throws IOException {
+        DocumentoUtil documentoUtil = new DocumentoUtil(uploadDir);
+        int expiradas = 0;
+        for (SessaoUpload sessao : sessaoUploadRepository.findByAtualizadoEmBefore(LocalDateTime.now().minus(ttl))) {
+            if (sessaoUploadRepository.removeSessao(sessao.getId()) > 0) {
+                documentoUtil.apagaDiretorio(documentoUtil.getDiretorioSessao(sessao.getId()));
+                logger.debug("Sessão de upload expirada. ID: {}", sessao.getId());
+                expiradas++;
+            }
+        }
+        return expiradas;
+    }
+
+    private SessaoUpload buscaSessao(String sessaoId) {
+        return sessaoUploadRepository.findById(sessaoId)
+                .orElseThrow(() -> {
+                    logger.error("Sessão de upload não encontrada. ID: {}", sessaoId);
+                    return new RuntimeException("Sessão de upload não encontrada");
+                });
+    }
+
+    private List<Integer> chunksRecebidos(Path diretorio) throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos.map(arquivo -> arquivo.getFileName().toString())
+                    .filter(nome -> nome.endsWith(SUFIXO_CHUNK))
+                    .map(nome -> Integer.valueOf(nome.substring(0, nome.length() - SUFIXO_CHUNK.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
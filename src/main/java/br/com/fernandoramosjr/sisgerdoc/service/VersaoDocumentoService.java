@@ -0,0 +1,19 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.VersaoDocumentoDto;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+public interface VersaoDocumentoService {
+    int registrarVersao(Documento anterior, InputStreamSource novoConteudo) throws IOException;
+    List<VersaoDocumentoDto> listarVersoes(Long documentoId) throws FileNotFoundException;
+    VersaoDocumentoDto buscarVersao(Long documentoId, int numero) throws FileNotFoundException;
+    void escreverVersao(Long documentoId, int numero, OutputStream saida) throws IOException;
+    void removerVersoes(Long documentoId) throws IOException;
+    void removerArquivos(Long documentoId) throws IOException;
+}
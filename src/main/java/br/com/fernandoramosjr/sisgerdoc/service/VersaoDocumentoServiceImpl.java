@@ -0,0 +1,361 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.VersaoDocumento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.VersaoDocumentoDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.repository.VersaoDocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.storage.ConteudoArmazenado;
+import br.com.fernandoramosjr.sisgerdoc.storage.StorageEngineRegistry;
+import br.com.fernandoramosjr.sisgerdoc.util.DeltaBinario;
+import br.com.fernandoramosjr.sisgerdoc.util.DocumentoUtil;
+import jakarta.transaction.Transactional;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Histórico do conteúdo dos documentos com deltas reversos: a versão atual continua gravada inteira no armazenamento,
+ * como antes, e cada versão anterior é guardada como o delta que a reconstrói a partir da versão seguinte. Assim o
+ * download, os intervalos e os índices não mudam, e uma atualização grava só o delta além do novo conteúdo.
+ * <p>
+ * A cada {@code documento.versoes.intervalo-completa} versões, ou quando o delta não compensa, a versão é guardada
+ * inteira (com gzip); a reconstrução parte da primeira versão completa acima da pedida, ou da atual, e aplica no
+ * máximo esse número de deltas. Cada passo é conferido com o SHA-256 da versão antes de seguir.
+ */
+@Service
+public class VersaoDocumentoServiceImpl implements VersaoDocumentoService {
+
+    private static final Logger logger = LogManager.getLogger(VersaoDocumentoServiceImpl.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DocumentoRepository documentoRepository;
+    private final VersaoDocumentoRepository versaoDocumentoRepository;
+    private final StorageEngineRegistry storageEngines;
+
+    @Value("${file.upload-dir}")
+    String uploadDir;
+
+    @Value("${documento.versoes.habilitado:true}")
+    boolean habilitado = true;
+
+    @Value("${documento.versoes.tamanho-bloco:2KB}")
+    DataSize tamanhoBloco = DataSize.ofKilobytes(2);
+
+    @Value("${documento.versoes.intervalo-completa:10}")
+    int intervaloCompleta = 10;
+
+    @Value("${documento.versoes.limite-delta:0.5}")
+    double limiteDelta = 0.5;
+
+    @Value("${documento.versoes.tamanho-maximo-delta:1GB}")
+    DataSize tamanhoMaximoDelta = DataSize.ofGigabytes(1);
+
+    public VersaoDocumentoServiceImpl(DocumentoRepository documentoRepository, VersaoDocumentoRepository versaoDocumentoRepository,
+                                      StorageEngineRegistry storageEngines) {
+        this.documentoRepository = documentoRepository;
+        this.versaoDocumentoRepository = versaoDocumentoRepository;
+        this.storageEngines = storageEngines;
+    }
+
+    /**
+     * Guarda o conteúdo atual de {@code anterior} como versão anterior ao novo conteúdo e retorna o número da nova
+     * versão atual. Deve ser chamado antes de o conteúdo atual ser removido do armazenamento.
+     */
+    @Override
+    @Transactional
+    public int registrarVersao(Documento anterior, InputStreamSource novoConteudo) throws IOException {
+        int numero = numeroAtual(anterior);
+        if (!habilitado) {
+            return numero;
+        }
+        ConteudoArmazenado conteudo;
+        try {
+            conteudo = storageEngines.de(anterior).abrir(anterior);
+        } catch (FileNotFoundException e) {
+            logger.warn("Conteúdo atual não encontrado; a versão {} do documento ID: {} não será guardada", numero, anterior.getId());
+            return numero;
+        }
+        boolean gzip = DocumentoUtil.CODIFICACAO_GZIP.equals(anterior.getCodificacao());
+        long tamanho = gzip ? anterior.getTamanhoOriginal() : conteudo.getTamanho();
+        // Só a assinatura da versão nova fica em memória, cerca de 20 bytes por bloco mais o mapa
+        boolean completa = numero % intervaloCompleta == 0 || tamanho > tamanhoMaximoDelta.toBytes();
+
+        DocumentoUtil documentoUtil = new DocumentoUtil(uploadDir);
+        Path temporario = documentoUtil.getTempFilePath();
+        try {
+            if (!completa) {
+                DeltaBinario.Assinatura assinatura;
+                try (InputStream novo = novoConteudo.getInputStream()) {
+                    assinatura = DeltaBinario.assinatura(novo, (int) tamanhoBloco.toBytes());
+                }
+                try (InputStream alvo = abre(conteudo, gzip);
+                     OutputStream delta = new GZIPOutputStream(Files.newOutputStream(temporario), BUFFER_SIZE)) {
+                    DeltaBinario.codifica(alvo, assinatura, delta);
+                }
+                // Conteúdo reescrito quase todo: o delta não economiza espaço e só alongaria a reconstrução
+                completa = Files.size(temporario) > tamanho * limiteDelta;
+            }
+            if (completa) {
+                if (gzip) {
+                    try (InputStream armazenado = conteudo.abreStream()) {
+                        Files.copy(armazenado, temporario, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } else {
+                    try (InputStream original = conteudo.abreStream()) {
+                        documentoUtil.copiaConteudoComprimido(original, temporario, Long.MAX_VALUE);
+                    }
+                }
+            }
+            long tamanhoArmazenado = Files.size(temporario);
+            Path diretorio = Files.createDirectories(documentoUtil.getDiretorioVersoes(anterior.getId()));
+            // Nome único: numa atualização concorrente, a que perder no índice único não sobrescreve o arquivo da outra
+            Path destino = diretorio.resolve(numero + "-" + UUID.randomUUID() + (completa ? ".completa" : ".delta"));
+            documentoUtil.moveConteudo(temporario, destino);
+            // Sem a linha da versão, o arquivo ficaria órfão em .versoes
+            aposReversao(() -> descartaArquivo(destino));
+
+            VersaoDocumento versao = new VersaoDocumento();
+            versao.setDocumentoId(anterior.getId());
+            versao.setNumero(numero);
+            versao.setNome(anterior.getNome());
+            versao.setFileName(anterior.getFileName());
+            versao.setTamanho(tamanho);
+            versao.setEtag(anterior.getEtag());
+            versao.setCompleta(completa);
+            versao.setTamanhoArmazenado(tamanhoArmazenado);
+            versao.setFilePath(destino.toString());
+            versao.setCriadoEm(dataDoConteudo(anterior));
+            try {
+                versaoDocumentoRepository.save(versao);
+            } catch (RuntimeException e) {
+                descartaArquivo(destino);
+                throw e;
+            }
+            logger.info("Versão {} do documento ID: {} guardada {}. Tamanho: {} - Armazenado: {}", numero, anterior.getId(),
+                    completa ? "completa" : "como delta", tamanho, tamanhoArmazenado);
+            return numero + 1;
+        } finally {
+            Files.deleteIfExists(temporario);
+        }
+    }
+
+    private static void descartaArquivo(Path arquivo) {
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            logger.warn("Arquivo de versão não registrada não removido: {} - Erro: {}", arquivo, e.getMessage());
+        }
+    }
+
+    private static void aposReversao(Runnable acao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    acao.run();
+                }
+            }
+        });
+    }
+
+    @Override
+    public List<VersaoDocumentoDto> listarVersoes(Long documentoId) throws FileNotFoundException {
+        Documento documento = buscaDocumento(documentoId);
+        List<VersaoDocumentoDto> versoes = new ArrayList<>();
+        versoes.add(paraDto(documento));
+        for (VersaoDocumento versao : versaoDocumentoRepository.findByDocumentoIdOrderByNumeroDesc(documentoId)) {
+            versoes.add(paraDto(versao));
+        }
+        return versoes;
+    }
+
+    @Override
+    public VersaoDocumentoDto buscarVersao(Long documentoId, int numero) throws FileNotFoundException {
+        Documento documento = buscaDocumento(documentoId);
+        if (numero == numeroAtual(documento)) {
+            return paraDto(documento);
+        }
+        return versaoDocumentoRepository.findByDocumentoIdAndNumero(documentoId, numero)
+                .map(VersaoDocumentoServiceImpl::paraDto)
+                .orElseThrow(() -> new FileNotFoundException("Versão não encontrada"));
+    }
+
+    /**
+     * Reconstrói a versão em arquivos temporários e só escreve em {@code saida} depois de conferida, para que um
+     * histórico corrompido resulte em erro e não num arquivo errado.
+     */
+    @Override
+    public void escreverVersao(Long documentoId, int numero, OutputStream saida) throws IOException {
+        Documento documento = buscaDocumento(documentoId);
+        int atual = numeroAtual(documento);
+        if (numero == atual) {
+            ConteudoArmazenado conteudo = storageEngines.de(documento).abrir(documento);
+            try (InputStream entrada = abre(conteudo, DocumentoUtil.CODIFICACAO_GZIP.equals(documento.getCodificacao()))) {
+                entrada.transferTo(saida);
+            }
+            return;
+        }
+        List<VersaoDocumento> cadeia = buscaCadeia(documentoId, numero, atual);
+
+        DocumentoUtil documentoUtil = new DocumentoUtil(uploadDir);
+        List<Path> temporarios = new ArrayList<>();
+        try {
+            int indice = cadeia.size() - 1;
+            VersaoDocumento ultima = cadeia.get(indice);
+            Path base;
+            if (Boolean.TRUE.equals(ultima.getCompleta())) {
+                base = novoTemporario(documentoUtil, temporarios);
+                MessageDigest digest = documentoUtil.novoDigest();
+                try (InputStream entrada = new DigestInputStream(new GZIPInputStream(
+                        Files.newInputStream(Path.of(ultima.getFilePath())), BUFFER_SIZE), digest)) {
+                    Files.copy(entrada, base);
+                }
+                confere(ultima, digest);
+                indice--;
+            } else {
+                base = conteudoAtual(documento, documentoUtil, temporarios);
+            }
+            for (; indice >= 0; indice--) {
+                VersaoDocumento versao = cadeia.get(indice);
+                Path destino = novoTemporario(documentoUtil, temporarios);
+                MessageDigest digest = documentoUtil.novoDigest();
+                try (FileChannel canal = FileChannel.open(base, StandardOpenOption.READ);
+                     InputStream delta = new GZIPInputStream(Files.newInputStream(Path.of(versao.getFilePath())), BUFFER_SIZE);
+                     OutputStream reconstruida = new DigestOutputStream(
+                             new BufferedOutputStream(Files.newOutputStream(destino), BUFFER_SIZE), digest)) {
+                    DeltaBinario.aplica(canal, delta, reconstruida);
+                }
+                confere(versao, digest);
+                base = destino;
+            }
+            Files.copy(base, saida);
+        } finally {
+            for (Path temporario : temporarios) {
+                Files.deleteIfExists(temporario);
+            }
+        }
+    }
+
+    @Override
+    @Transactional
+    public void removerVersoes(Long documentoId) throws IOException {
+        versaoDocumentoRepository.removeDosDocumentos(List.of(documentoId));
+        removerArquivos(documentoId);
+    }
+
+    @Override
+    public void removerArquivos(Long documentoId) throws IOException {
+        DocumentoUtil documentoUtil = new DocumentoUtil(uploadDir);
+        documentoUtil.apagaDiretorio(documentoUtil.getDiretorioVersoes(documentoId));
+    }
+
+    // Da versão pedida até a primeira completa acima dela ou, sem nenhuma, até a anterior à atual
+    private List<VersaoDocumento> buscaCadeia(Long documentoId, int numero, int atual) throws IOException {
+        List<VersaoDocumento> cadeia = new ArrayList<>();
+        for (VersaoDocumento versao : versaoDocumentoRepository.buscaCadeia(documentoId, numero)) {
+            if (versao.getNumero() != numero + cadeia.size()) {
+                break;
+            }
+            cadeia.add(versao);
+            if (Boolean.TRUE.equals(versao.getCompleta())) {
+                return cadeia;
+            }
+        }
+        if (cadeia.isEmpty()) {
+            throw new FileNotFoundException("Versão não encontrada");
+        }
+        if (numero + cadeia.size() != atual) {
+            throw new IOException("Histórico de versões incompleto. Documento ID: " + documentoId + " - Versão: " + numero);
+        }
+        return cadeia;
+    }
+
+    // Base para o primeiro delta: o próprio arquivo da versão atual ou, se comprimido ou num segmento, uma cópia
+    private Path conteudoAtual(Documento documento, DocumentoUtil documentoUtil, List<Path> temporarios) throws IOException {
+        ConteudoArmazenado conteudo = storageEngines.de(documento).abrir(documento);
+        boolean gzip = DocumentoUtil.CODIFICACAO_GZIP.equals(documento.getCodificacao());
+        if (!gzip && conteudo.getArquivo() != null) {
+            return conteudo.getArquivo();
+        }
+        Path copia = novoTemporario(documentoUtil, temporarios);
+        try (InputStream entrada = abre(conteudo, gzip)) {
+            Files.copy(entrada, copia);
+        }
+        return copia;
+    }
+
+    private static Path novoTemporario(DocumentoUtil documentoUtil, List<Path> temporarios) throws IOException {
+        Path temporario = documentoUtil.getTempFilePath();
+        temporarios.add(temporario);
+        return temporario;
+    }
+
+    private static void confere(VersaoDocumento versao, MessageDigest digest) throws IOException {
+        String calculado = HexFormat.of().formatHex(digest.digest());
+        if (versao.getEtag() != null && !versao.getEtag().equalsIgnoreCase(calculado)) {
+            throw new IOException("Versão " + versao.getNumero() + " do documento ID: " + versao.getDocumentoId()
+                    + " reconstruída com conteúdo divergente");
+        }
+    }
+
+    private Documento buscaDocumento(Long documentoId) throws FileNotFoundException {
+        return documentoRepository.findById(documentoId)
+                .orElseThrow(() -> new FileNotFoundException("Documento não encontrado"));
+    }
+
+    private static InputStream abre(ConteudoArmazenado conteudo, boolean gzip) throws IOException {
+        InputStream entrada = conteudo.abreStream();
+        return gzip ? new GZIPInputStream(entrada, BUFFER_SIZE) : entrada;
+    }
+
+    private static int numeroAtual(Documento documento) {
+        return documento.getVersao() != null ? documento.getVersao() : 1;
+    }
+
+    private static LocalDateTime dataDoConteudo(Documento documento) {
+        return documento.getAtualizadoEm() != null ? documento.getAtualizadoEm() : documento.getCriadoEm();
+    }
+
+    private static VersaoDocumentoDto paraDto(Documento documento) {
+        boolean gzip = DocumentoUtil.CODIFICACAO_GZIP.equals(documento.getCodificacao());
+        return new VersaoDocumentoDto(numeroAtual(documento), documento.getNome(), documento.getFileName(),
+                gzip ? documento.getTamanhoOriginal() : documento.getFileSize(), documento.getEtag(), documento.getFileSize(),
+                true, true, dataDoConteudo(documento));
+    }
+
+    private static VersaoDocumentoDto paraDto(VersaoDocumento versao) {
+        return new VersaoDocumentoDto(versao.getNumero(), versao.getNome(), versao.getFileName(), versao.getTamanho(),
+                versao.getEtag(), versao.getTamanhoArmazenado(), Boolean.TRUE.equals(versao.getCompleta()), false,
+                versao.getCriadoEm());
+    }
+}
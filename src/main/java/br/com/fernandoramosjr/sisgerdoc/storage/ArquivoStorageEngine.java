@@ -0,0 +1,185 @@
+package br.com.fernandoramosjr.sisgerdoc.storage;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.util.DocumentoUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Um arquivo por documento no diretório de upload, distribuído nos subdiretórios de
+ * {@code file.storage.diretorios.niveis}. Também lê os documentos em armazenamento por conteúdo, cujo
+ * {@code filePath} aponta para o blob.
+ * <p>
+ * Com {@code file.storage.volumes.raizes}, os arquivos são distribuídos entre vários diretórios, em geral um por
+ * disco, pela {@link DistribuicaoVolumes}. O peso de cada volume é o espaço livre medido no primeiro uso, arredondado
+ * para {@code file.storage.volumes.granularidade-peso} para que pequenas variações entre reinícios não mudem o lugar
+ * dos arquivos. Um volume com menos de {@code file.storage.volumes.espaco-minimo} livre é pulado na gravação. Volumes
+ * em {@code file.storage.volumes.drenando} continuam sendo lidos, mas não recebem arquivos novos; a migração do
+ * armazenamento leva os arquivos deles, e os que estiverem fora do lugar, para o volume escolhido.
+ */
+@Component
+public class ArquivoStorageEngine implements StorageEngine {
+
+    public static final String NOME = "arquivo";
+    private static final Logger logger = LogManager.getLogger(ArquivoStorageEngine.class);
+
+    @Value("${file.upload-dir}")
+    String uploadDir;
+
+    @Value("${file.storage.diretorios.niveis:0}")
+    int niveisDiretorio;
+
+    @Value("${file.storage.volumes.raizes:}")
+    List<String> raizes = List.of();
+
+    @Value("${file.storage.volumes.drenando:}")
+    List<String> drenando = List.of();
+
+    @Value("${file.storage.volumes.granularidade-peso:100GB}")
+    DataSize granularidadePeso = DataSize.ofGigabytes(100);
+
+    @Value("${file.storage.volumes.espaco-minimo:1GB}")
+    DataSize espacoMinimo = DataSize.ofGigabytes(1);
+
+    private final ReentrantLock carregamento = new ReentrantLock();
+    private volatile DistribuicaoVolumes distribuicao;
+    private volatile Map<Path, FileStore> sistemasArquivos = Map.of();
+
+    @Override
+    public String getNome() {
+        return NOME;
+    }
+
+    @Override
+    public void armazenar(Documento documento, Path arquivoTemporario) throws IOException {
+        DocumentoUtil documentoUtil = new DocumentoUtil(uploadDir);
+        Path filePath = caminhoPara(documento.getFileName());
+        documentoUtil.moveConteudo(arquivoTemporario, filePath);
+        documento.setArmazenamento(NOME);
+        documento.setFilePath(filePath.toString());
+        documento.setSegmento(null);
+        documento.setSegmentoOffset(null);
+    }
+
+    // No volume do arquivo, para que armazenar seja só uma renomeação
+    @Override
+    public Path novoArquivoTemporario(Documento documento) throws IOException {
+        return new DocumentoUtil(escolheVolume(documento.getFileName()).toString()).getTempFilePath();
+    }
+
+    @Override
+    public ConteudoArmazenado abrir(Documento documento) throws IOException {
+        if (documento.getFilePath() == null) {
+            throw new FileNotFoundException("Arquivo não encontrado ou inelegível");
+        }
+        Path filePath = Paths.get(documento.getFilePath()).normalize();
+        if (!Files.isRegularFile(filePath) || !Files.isReadable(filePath)) {
+            throw new FileNotFoundException("Arquivo não encontrado ou inelegível");
+        }
+        return ConteudoArmazenado.deArquivo(filePath);
+    }
+
+    @Override
+    public void remover(Documento documento) throws IOException {
+        if (documento.getFilePath() != null) {
+            Path filePath = Paths.get(documento.getFilePath());
+            if (Files.exists(filePath)) {
+                Files.delete(filePath);
+                logger.debug("Arquivo deletado: {}", documento.getFilePath());
+            }
+        }
+    }
+
+    /**
+     * Caminho em que um arquivo com esse nome deve ficar: volume escolhido e subdiretórios configurados.
+     */
+    public Path caminhoPara(String fileName) throws IOException {
+        return new DocumentoUtil(escolheVolume(fileName).toString(), niveisDiretorio).getFilePath(fileName);
+    }
+
+    /**
+     * Diretórios que podem conter arquivos de documentos: o de upload, os volumes ativos e os drenando.
+     */
+    public List<Path> getRaizes() {
+        Set<Path> todas = new LinkedHashSet<>();
+        todas.add(Paths.get(uploadDir));
+        raizes.stream().filter(r -> !r.isBlank()).map(r -> Paths.get(r.trim())).forEach(todas::add);
+        drenando.stream().filter(r -> !r.isBlank()).map(r -> Paths.get(r.trim())).forEach(todas::add);
+        return new ArrayList<>(todas);
+    }
+
+    private Path escolheVolume(String fileName) throws IOException {
+        DistribuicaoVolumes atual = distribuicao();
+        List<Path> preferencias = atual.preferencias(fileName);
+        if (preferencias.size() == 1) {
+            return preferencias.get(0);
+        }
+        for (Path raiz : preferencias) {
+            if (sistemasArquivos.get(raiz).getUsableSpace() >= espacoMinimo.toBytes()) {
+                return raiz;
+            }
+        }
+        // Todos abaixo do mínimo: a gravação falha no volume preferido, com o erro do sistema de arquivos
+        return preferencias.get(0);
+    }
+
+    private DistribuicaoVolumes distribuicao() throws IOException {
+        DistribuicaoVolumes atual = distribuicao;
+        if (atual != null) {
+            return atual;
+        }
+        carregamento.lock();
+        try {
+            if (distribuicao == null) {
+                distribuicao = carregaVolumes();
+            }
+            return distribuicao;
+        } finally {
+            carregamento.unlock();
+        }
+    }
+
+    private DistribuicaoVolumes carregaVolumes() throws IOException {
+        Set<Path> drenados = new LinkedHashSet<>();
+        drenando.stream().filter(r -> !r.isBlank()).map(r -> Paths.get(r.trim())).forEach(drenados::add);
+        List<Path> ativos = new ArrayList<>();
+        raizes.stream().filter(r -> !r.isBlank()).map(r -> Paths.get(r.trim()))
+                .filter(r -> !drenados.contains(r)).distinct().forEach(ativos::add);
+        if (ativos.isEmpty()) {
+            if (!raizes.isEmpty()) {
+                throw new IllegalStateException("Todos os volumes de file.storage.volumes.raizes estão drenando");
+            }
+            // Sem volumes configurados, tudo fica no diretório de upload, como antes
+            return new DistribuicaoVolumes(Map.of(Paths.get(uploadDir), 1L));
+        }
+        Map<Path, Long> pesos = new LinkedHashMap<>();
+        Map<Path, FileStore> lojas = new LinkedHashMap<>();
+        for (Path raiz : ativos) {
+            Files.createDirectories(raiz);
+            FileStore loja = Files.getFileStore(raiz);
+            long peso = Math.max(1, Math.round((double) loja.getUsableSpace() / granularidadePeso.toBytes()));
+            pesos.put(raiz, peso);
+            lojas.put(raiz, loja);
+        }
+        sistemasArquivos = lojas;
+        logger.info("Volumes de armazenamento: {} - Drenando: {}", pesos, drenados);
+        return new DistribuicaoVolumes(pesos);
+    }
+}
@@ -0,0 +1,81 @@
+package br.com.fernandoramosjr.sisgerdoc.storage;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.util.DocumentoUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Camada fria: um arquivo por documento em {@code file.storage.camada-fria.diretorio}, em geral um disco mais
+ * barato, com os mesmos subdiretórios de {@code file.storage.diretorios.niveis}. Os documentos chegam aqui pela
+ * troca de camada, que os comprime, e não pela gravação normal; a leitura e a remoção são as de um arquivo comum.
+ */
+@Component
+public class CamadaFriaStorageEngine implements StorageEngine {
+
+    public static final String NOME = "fria";
+
+    private final ArquivoStorageEngine arquivoStorageEngine;
+
+    @Value("${file.storage.camada-fria.diretorio:}")
+    String diretorio = "";
+
+    @Value("${file.storage.diretorios.niveis:0}")
+    int niveisDiretorio;
+
+    public CamadaFriaStorageEngine(ArquivoStorageEngine arquivoStorageEngine) {
+        this.arquivoStorageEngine = arquivoStorageEngine;
+    }
+
+    @Override
+    public String getNome() {
+        return NOME;
+    }
+
+    public boolean isHabilitada() {
+        return !diretorio.isBlank();
+    }
+
+    /**
+     * Diretório da camada fria, ou nulo se ela não estiver configurada.
+     */
+    public Path getDiretorio() {
+        return isHabilitada() ? Paths.get(diretorio.trim()) : null;
+    }
+
+    @Override
+    public void armazenar(Documento documento, Path arquivoTemporario) throws IOException {
+        Path filePath = new DocumentoUtil(raiz().toString(), niveisDiretorio).getFilePath(documento.getFileName());
+        new DocumentoUtil(raiz().toString()).moveConteudo(arquivoTemporario, filePath);
+        documento.setArmazenamento(NOME);
+        documento.setFilePath(filePath.toString());
+        documento.setSegmento(null);
+        documento.setSegmentoOffset(null);
+    }
+
+    @Override
+    public Path novoArquivoTemporario(Documento documento) throws IOException {
+        return new DocumentoUtil(raiz().toString()).getTempFilePath();
+    }
+
+    @Override
+    public ConteudoArmazenado abrir(Documento documento) throws IOException {
+        return arquivoStorageEngine.abrir(documento);
+    }
+
+    @Override
+    public void remover(Documento documento) throws IOException {
+        arquivoStorageEngine.remover(documento);
+    }
+
+    private Path raiz() {
+        if (!isHabilitada()) {
+            throw new IllegalStateException("Camada fria não configurada em file.storage.camada-fria.diretorio");
+        }
+        return getDiretorio();
+    }
+}
@@ -0,0 +1,104 @@
+package br.com.fernandoramosjr.sisgerdoc.storage;
+
+import br.com.fernandoramosjr.sisgerdoc.util.DocumentoUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Bytes gravados de um documento: um arquivo inteiro ou uma região de memória (em geral a fatia mapeada de um
+ * segmento). Leituras sucessivas não alteram o estado do objeto.
+ */
+public class ConteudoArmazenado {
+
+    private final Path arquivo;
+    private final ByteBuffer buffer;
+
+    private ConteudoArmazenado(Path arquivo, ByteBuffer buffer) {
+        this.arquivo = arquivo;
+        this.buffer = buffer;
+    }
+
+    public static ConteudoArmazenado deArquivo(Path arquivo) {
+        return new ConteudoArmazenado(arquivo, null);
+    }
+
+    public static ConteudoArmazenado deBuffer(ByteBuffer buffer) {
+        return new ConteudoArmazenado(null, buffer.slice());
+    }
+
+    /**
+     * Arquivo cujo conteúdo é exatamente o do documento, ou {@code null} quando o conteúdo está em memória.
+     */
+    public Path getArquivo() {
+        return arquivo;
+    }
+
+    public long getTamanho() throws IOException {
+        return arquivo != null ? Files.size(arquivo) : buffer.capacity();
+    }
+
+    /**
+     * Data de modificação do arquivo em milissegundos, ou -1 quando o conteúdo não está num arquivo próprio.
+     */
+    public long getUltimaModificacao() throws IOException {
+        return arquivo != null ? Files.getLastModifiedTime(arquivo).toMillis() : -1;
+    }
+
+    /**
+     * Escreve no destino os bytes de {@code inicio} (inclusive) a {@code fim} (exclusive).
+     */
+    public void transfere(long inicio, long fim, WritableByteChannel destino) throws IOException {
+        if (arquivo != null) {
+            try (FileChannel channel = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+                DocumentoUtil.transfereIntervalo(channel, inicio, fim, destino);
+            }
+            return;
+        }
+        ByteBuffer intervalo = buffer.slice((int) inicio, (int) (fim - inicio));
+        while (intervalo.hasRemaining()) {
+            destino.write(intervalo);
+        }
+    }
+
+    public InputStream abreStream() throws IOException {
+        return arquivo != null ? Files.newInputStream(arquivo) : new BufferInputStream(buffer.duplicate());
+    }
+
+    private static class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] destino, int offset, int tamanho) {
+            if (tamanho == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int lidos = Math.min(tamanho, buffer.remaining());
+            buffer.get(destino, offset, lidos);
+            return lidos;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
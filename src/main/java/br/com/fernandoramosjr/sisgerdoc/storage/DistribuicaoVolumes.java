@@ -0,0 +1,78 @@
+package br.com.fernandoramosjr.sisgerdoc.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escolha do volume de cada arquivo por hashing de rendezvous com pesos: cada par arquivo/volume recebe uma
+ * pontuação pseudoaleatória, escalada pelo peso do volume, e o arquivo fica no volume de maior pontuação. A fração
+ * de arquivos de cada volume é proporcional ao peso; incluir um volume só tira dos outros os arquivos que passam a
+ * preferi-lo, e retirar um volume só muda o lugar dos arquivos que estavam nele.
+ */
+final class DistribuicaoVolumes {
+
+    private record Volume(Path raiz, long peso, long semente) {
+    }
+
+    private record Pontuacao(Path raiz, double valor) {
+    }
+
+    private final List<Volume> volumes;
+
+    /**
+     * @param pesos raiz de cada volume ativo e o seu peso (maior que zero)
+     */
+    DistribuicaoVolumes(Map<Path, Long> pesos) {
+        if (pesos.isEmpty()) {
+            throw new IllegalArgumentException("Nenhum volume ativo");
+        }
+        List<Volume> lista = new ArrayList<>(pesos.size());
+        // A semente vem do caminho, não da posição na configuração: reordenar os volumes não move arquivos
+        pesos.forEach((raiz, peso) -> lista.add(new Volume(raiz, peso, fnv(raiz.toString()))));
+        this.volumes = List.copyOf(lista);
+    }
+
+    /**
+     * Volumes em ordem de preferência para o arquivo; o primeiro é o seu lugar enquanto tiver espaço.
+     */
+    List<Path> preferencias(String fileName) {
+        if (volumes.size() == 1) {
+            return List.of(volumes.get(0).raiz());
+        }
+        long chave = fnv(fileName);
+        List<Pontuacao> pontuacoes = new ArrayList<>(volumes.size());
+        for (Volume volume : volumes) {
+            pontuacoes.add(new Pontuacao(volume.raiz(), pontua(chave, volume)));
+        }
+        pontuacoes.sort(Comparator.comparingDouble(Pontuacao::valor).reversed());
+        return pontuacoes.stream().map(Pontuacao::raiz).toList();
+    }
+
+    // peso / -ln(u), com u uniforme em (0, 1]: o máximo entre os volumes cai em cada um na proporção do peso
+    private static double pontua(long chave, Volume volume) {
+        long misturado = mistura(chave ^ volume.semente());
+        double u = ((misturado >>> 11) + 1) * 0x1.0p-53;
+        return volume.peso() / -Math.log(u);
+    }
+
+    // Finalizador do SplitMix64
+    private static long mistura(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    // FNV-1a de 64 bits: String.hashCode tem só 32 bits e varia pouco entre nomes parecidos
+    private static long fnv(String texto) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : texto.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,325 @@
+package br.com.fernandoramosjr.sisgerdoc.storage;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.util.DocumentoUtil;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Empacota documentos pequenos em arquivos de segmento grandes, só de acréscimo, em {@code .segmentos} no
+ * diretório de upload. Cada registro tem um cabeçalho (mágico, tipo, ID do documento e tamanho) seguido dos dados;
+ * o documento guarda o segmento e a posição dos dados, e o tamanho é o próprio {@code fileSize}.
+ * <p>
+ * Só o segmento ativo recebe gravações. Ao atingir {@code file.storage.segmentos.tamanho-maximo} ele é selado e
+ * passa a ser lido por mapeamento em memória, sem abrir arquivo a cada download. Exclusões acrescentam uma lápide
+ * no segmento ativo, de modo que os segmentos continuam autodescritivos; o espaço é recuperado pela compactação.
+ * Documentos maiores que {@code file.storage.segmentos.tamanho-maximo-documento} vão para arquivos próprios.
+ */
+@Component
+public class SegmentoStorageEngine implements StorageEngine {
+
+    public static final String NOME = "segmentos";
+    private static final Logger logger = LogManager.getLogger(SegmentoStorageEngine.class);
+    private static final String DIRETORIO = ".segmentos";
+    private static final String PREFIXO = "segmento-";
+    private static final String EXTENSAO = ".dat";
+    private static final int MAGICO = 0x53474431;
+    static final byte TIPO_CONTEUDO = 1;
+    static final byte TIPO_REMOCAO = 2;
+    // Mágico (4), tipo (1), ID do documento (8) e tamanho dos dados (4)
+    public static final int TAMANHO_CABECALHO = 17;
+
+    private final ArquivoStorageEngine arquivoStorageEngine;
+    private final ReentrantLock escrita = new ReentrantLock();
+    // Segmentos já selados não mudam mais e podem ficar mapeados
+    private final Map<Long, MappedByteBuffer> mapeados = new ConcurrentHashMap<>();
+    // Substituído por inteiro ao selar, para que a leitura veja número e canal do mesmo segmento
+    private volatile SegmentoAtivo ativo;
+
+    @Value("${file.upload-dir}")
+    String uploadDir;
+
+    @Value("${file.storage.segmentos.tamanho-maximo:256MB}")
+    DataSize tamanhoMaximoSegmento = DataSize.ofMegabytes(256);
+
+    @Value("${file.storage.segmentos.tamanho-maximo-documento:16KB}")
+    DataSize tamanhoMaximoDocumento = DataSize.ofKilobytes(16);
+
+    public SegmentoStorageEngine(ArquivoStorageEngine arquivoStorageEngine) {
+        this.arquivoStorageEngine = arquivoStorageEngine;
+    }
+
+    @Override
+    public String getNome() {
+        return NOME;
+    }
+
+    @Override
+    public void armazenar(Documento documento, Path arquivoTemporario) throws IOException {
+        long tamanho = Files.size(arquivoTemporario);
+        if (tamanho > tamanhoMaximoDocumento.toBytes()) {
+            arquivoStorageEngine.armazenar(documento, arquivoTemporario);
+            return;
+        }
+        Posicao posicao;
+        try (FileChannel origem = FileChannel.open(arquivoTemporario, StandardOpenOption.READ)) {
+            posicao = acrescenta(TIPO_CONTEUDO, documento.getId(), (int) tamanho,
+                    (destino, inicio) -> DocumentoUtil.recebeIntervalo(origem, tamanho, destino, inicio));
+        }
+        Files.delete(arquivoTemporario);
+        documento.setArmazenamento(NOME);
+        documento.setFilePath(null);
+        documento.setSegmento(posicao.segmento);
+        documento.setSegmentoOffset(posicao.offset);
+    }
+
+    // O tamanho ainda não é conhecido: os documentos grandes vão para o engine de arquivos, que decide o volume
+    @Override
+    public Path novoArquivoTemporario(Documento documento) throws IOException {
+        return arquivoStorageEngine.novoArquivoTemporario(documento);
+    }
+
+    @Override
+    public ConteudoArmazenado abrir(Documento documento) throws IOException {
+        if (documento.getSegmento() == null || documento.getSegmentoOffset() == null || documento.getFileSize() == null) {
+            throw new FileNotFoundException("Arquivo não encontrado ou inelegível");
+        }
+        return ConteudoArmazenado.deBuffer(le(documento.getSegmento(), documento.getSegmentoOffset(), documento.getFileSize()));
+    }
+
+    @Override
+    public void remover(Documento documento) throws IOException {
+        if (documento.getSegmento() == null) {
+            return;
+        }
+        ByteBuffer lapide = ByteBuffer.allocate(16).putLong(documento.getSegmento()).putLong(documento.getSegmentoOffset()).flip();
+        acrescenta(TIPO_REMOCAO, documento.getId(), lapide.remaining(), (destino, inicio) -> escreve(destino, lapide, inicio));
+        logger.debug("Lápide gravada para o documento {} no segmento {}", documento.getId(), documento.getSegmento());
+        documento.setSegmento(null);
+        documento.setSegmentoOffset(null);
+    }
+
+    /**
+     * Copia o conteúdo do documento para o segmento ativo e atualiza a posição no objeto recebido,
+     * que deve estar desanexado da sessão JPA. Usado pela compactação.
+     */
+    public void realocar(Documento documento) throws IOException {
+        ByteBuffer conteudo = le(documento.getSegmento(), documento.getSegmentoOffset(), documento.getFileSize());
+        Posicao posicao = acrescenta(TIPO_CONTEUDO, documento.getId(), conteudo.remaining(),
+                (destino, inicio) -> escreve(destino, conteudo, inicio));
+        documento.setSegmento(posicao.segmento);
+        documento.setSegmentoOffset(posicao.offset);
+    }
+
+    /**
+     * Retorna número e tamanho dos segmentos selados sem gravações desde o instante informado. O segmento de
+     * maior número nunca é incluído: é o ativo ou será reaberto como ativo na próxima gravação.
+     */
+    public Map<Long, Long> listarSegmentosSelados(Instant modificadosAntesDe) throws IOException {
+        Map<Long, Long> segmentos = new TreeMap<>();
+        Path diretorio = getDiretorio();
+        if (!Files.isDirectory(diretorio)) {
+            return segmentos;
+        }
+        long maior = -1;
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            for (Path arquivo : arquivos.toList()) {
+                long numero = numeroDoSegmento(arquivo);
+                if (numero < 0) {
+                    continue;
+                }
+                maior = Math.max(maior, numero);
+                if (Files.getLastModifiedTime(arquivo).toInstant().isBefore(modificadosAntesDe)) {
+                    segmentos.put(numero, Files.size(arquivo));
+                }
+            }
+        }
+        segmentos.remove(maior);
+        return segmentos;
+    }
+
+    public void descartarSegmento(long numero) throws IOException {
+        SegmentoAtivo atual = ativo;
+        if (atual != null && atual.numero == numero) {
+            throw new IllegalStateException("O segmento ativo não pode ser descartado: " + numero);
+        }
+        mapeados.remove(numero);
+        Files.deleteIfExists(getSegmentoPath(numero));
+        logger.info("Segmento descartado: {}", numero);
+    }
+
+    @PreDestroy
+    public void fechar() throws IOException {
+        escrita.lock();
+        try {
+            if (ativo != null) {
+                ativo.canal.close();
+                ativo = null;
+            }
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    private Posicao acrescenta(byte tipo, Long documentoId, int tamanho, GravacaoDados dados) throws IOException {
+        ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO)
+                .putInt(MAGICO).put(tipo).putLong(documentoId != null ? documentoId : 0L).putInt(tamanho).flip();
+        escrita.lock();
+        try {
+            SegmentoAtivo segmento = garanteEspaco(TAMANHO_CABECALHO + tamanho);
+            escreve(segmento.canal, cabecalho, segmento.fim);
+            dados.grava(segmento.canal, segmento.fim + TAMANHO_CABECALHO);
+            // Uma falha antes deste ponto deixa o fim onde estava: a próxima gravação sobrescreve o registro incompleto
+            Posicao posicao = new Posicao(segmento.numero, segmento.fim + TAMANHO_CABECALHO);
+            segmento.fim += TAMANHO_CABECALHO + tamanho;
+            return posicao;
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    // Chamado com a trava de escrita
+    private SegmentoAtivo garanteEspaco(long bytes) throws IOException {
+        if (ativo == null) {
+            Files.createDirectories(getDiretorio());
+            long numero = 1;
+            try (Stream<Path> arquivos = Files.list(getDiretorio())) {
+                numero = Math.max(numero, arquivos.mapToLong(this::numeroDoSegmento).max().orElse(1));
+            }
+            ativo = abreSegmento(numero);
+            logger.info("Segmento ativo: {} - Bytes: {}", numero, ativo.fim);
+        }
+        // Buffers mapeados são limitados a 2 GB
+        long limite = Math.min(tamanhoMaximoSegmento.toBytes(), Integer.MAX_VALUE);
+        if (ativo.fim > 0 && ativo.fim + bytes > limite) {
+            SegmentoAtivo selado = ativo;
+            ativo = abreSegmento(selado.numero + 1);
+            selado.canal.close();
+            logger.info("Segmento {} selado com {} bytes. Novo segmento ativo: {}", selado.numero, selado.fim, ativo.numero);
+        }
+        return ativo;
+    }
+
+    private SegmentoAtivo abreSegmento(long numero) throws IOException {
+        FileChannel canal = FileChannel.open(getSegmentoPath(numero), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        return new SegmentoAtivo(numero, canal, canal.size());
+    }
+
+    private ByteBuffer le(long numero, long offset, long tamanho) throws IOException {
+        SegmentoAtivo atual = ativo;
+        if (atual != null && atual.numero == numero) {
+            try {
+                // O segmento ativo cresce a cada gravação; lê direto do canal já aberto em vez de remapeá-lo
+                ByteBuffer buffer = ByteBuffer.allocate((int) tamanho);
+                while (buffer.hasRemaining()) {
+                    if (atual.canal.read(buffer, offset + buffer.position()) < 0) {
+                        throw new EOFException("Conteúdo além do fim do segmento " + numero);
+                    }
+                }
+                return buffer.flip();
+            } catch (ClosedChannelException e) {
+                logger.debug("Segmento {} selado durante a leitura; lendo pelo mapeamento", numero);
+            }
+        }
+        long limite = offset + tamanho;
+        MappedByteBuffer mapa = mapeados.get(numero);
+        if (mapa == null || mapa.capacity() < limite) {
+            // Um segmento ainda não reaberto após reiniciar a aplicação pode ter crescido desde o último mapeamento
+            mapa = mapeia(numero);
+            mapeados.put(numero, mapa);
+        }
+        if (mapa.capacity() < limite) {
+            throw new FileNotFoundException("Conteúdo fora dos limites do segmento " + numero);
+        }
+        return mapa.slice((int) offset, (int) tamanho);
+    }
+
+    private MappedByteBuffer mapeia(long numero) throws IOException {
+        Path path = getSegmentoPath(numero);
+        if (!Files.exists(path)) {
+            throw new FileNotFoundException("Segmento não encontrado: " + numero);
+        }
+        try (FileChannel canal = FileChannel.open(path, StandardOpenOption.READ)) {
+            // O mapeamento continua válido depois que o canal é fechado
+            return canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        }
+    }
+
+    private static void escreve(FileChannel destino, ByteBuffer dados, long posicao) throws IOException {
+        long atual = posicao;
+        while (dados.hasRemaining()) {
+            atual += destino.write(dados, atual);
+        }
+    }
+
+    private long numeroDoSegmento(Path arquivo) {
+        String nome = arquivo.getFileName().toString();
+        if (!nome.startsWith(PREFIXO) || !nome.endsWith(EXTENSAO)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(nome.substring(PREFIXO.length(), nome.length() - EXTENSAO.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private Path getDiretorio() {
+        return Paths.get(uploadDir).resolve(DIRETORIO);
+    }
+
+    private Path getSegmentoPath(long numero) {
+        return getDiretorio().resolve(PREFIXO + String.format("%010d", numero) + EXTENSAO);
+    }
+
+    @FunctionalInterface
+    private interface GravacaoDados {
+        void grava(FileChannel destino, long posicao) throws IOException;
+    }
+
+    private static class Posicao {
+        private final long segmento;
+        private final long offset;
+
+        Posicao(long segmento, long offset) {
+            this.segmento = segmento;
+            this.offset = offset;
+        }
+    }
+
+    private static class SegmentoAtivo {
+        private final long numero;
+        private final FileChannel canal;
+        // Alterado somente com a trava de escrita
+        private long fim;
+
+        SegmentoAtivo(long numero, FileChannel canal, long fim) {
+            this.numero = numero;
+            this.canal = canal;
+            this.fim = fim;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package br.com.fernandoramosjr.sisgerdoc.storage;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Forma de guardar o conteúdo dos documentos em disco. O serviço de documentos grava primeiro um arquivo
+ * temporário com os bytes finais (já comprimidos, quando for o caso) e entrega ao engine, que decide onde
+ * eles ficam e registra essa localização no próprio {@link Documento}.
+ */
+public interface StorageEngine {
+
+    /**
+     * Nome gravado em {@link Documento#getArmazenamento()}, usado para escolher o engine na leitura.
+     */
+    String getNome();
+
+    /**
+     * Move o conteúdo do arquivo temporário para o armazenamento. O nome do arquivo do documento já deve estar
+     * definido; ao final, o arquivo temporário não existe mais.
+     */
+    void armazenar(Documento documento, Path arquivoTemporario) throws IOException;
+
+    /**
+     * Caminho para o arquivo temporário com o conteúdo do documento, no mesmo volume em que {@link #armazenar} o
+     * guardará. O nome do arquivo do documento já deve estar definido.
+     */
+    Path novoArquivoTemporario(Documento documento) throws IOException;
+
+    /**
+     * Abre os bytes gravados do documento. Lança {@link java.io.FileNotFoundException} se não estiverem disponíveis.
+     */
+    ConteudoArmazenado abrir(Documento documento) throws IOException;
+
+    void remover(Documento documento) throws IOException;
+}
@@ -0,0 +1,42 @@
+package br.com.fernandoramosjr.sisgerdoc.storage;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Escolhe o {@link StorageEngine}: o configurado em {@code file.storage.engine} para novas gravações e, na leitura,
+ * o que gravou cada documento. Trocar o engine não exige migrar os documentos existentes.
+ */
+@Component
+public class StorageEngineRegistry {
+
+    private final Map<String, StorageEngine> engines;
+    private final StorageEngine engineGravacao;
+
+    public StorageEngineRegistry(List<StorageEngine> engines, @Value("${file.storage.engine:arquivo}") String engineGravacao) {
+        this.engines = engines.stream().collect(Collectors.toMap(StorageEngine::getNome, Function.identity()));
+        this.engineGravacao = this.engines.get(engineGravacao);
+        if (this.engineGravacao == null) {
+            throw new IllegalStateException("Storage engine desconhecido: " + engineGravacao + ". Disponíveis: " + this.engines.keySet());
+        }
+    }
+
+    public StorageEngine paraGravacao() {
+        return engineGravacao;
+    }
+
+    public StorageEngine de(Documento documento) {
+        String nome = documento.getArmazenamento() != null ? documento.getArmazenamento() : ArquivoStorageEngine.NOME;
+        StorageEngine engine = engines.get(nome);
+        if (engine == null) {
+            throw new IllegalStateException("Storage engine desconhecido: " + nome);
+        }
+        return engine;
+    }
+}
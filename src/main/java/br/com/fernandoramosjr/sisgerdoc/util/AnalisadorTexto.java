@@ -0,0 +1,45 @@
+package br.com.fernandoramosjr.sisgerdoc.util;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Separa o texto em palavras sem distinguir maiúsculas nem acentos: "Relatório" e "relatorio" geram o mesmo termo.
+ * É usado tanto na indexação quanto na consulta, para que os termos coincidam.
+ */
+public class AnalisadorTexto extends Analyzer {
+
+    @Override
+    protected TokenStreamComponents createComponents(String campo) {
+        StandardTokenizer tokenizer = new StandardTokenizer();
+        TokenStream termos = new ASCIIFoldingFilter(new LowerCaseFilter(tokenizer));
+        return new TokenStreamComponents(tokenizer, termos);
+    }
+
+    @Override
+    protected TokenStream normalize(String campo, TokenStream entrada) {
+        return new ASCIIFoldingFilter(new LowerCaseFilter(entrada));
+    }
+
+    // Termos distintos do texto, na ordem em que aparecem
+    public Set<String> extraiTermos(String campo, String texto) throws IOException {
+        Set<String> termos = new LinkedHashSet<>();
+        try (TokenStream stream = tokenStream(campo, texto)) {
+            CharTermAttribute termo = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                termos.add(termo.toString());
+            }
+            stream.end();
+        }
+        return termos;
+    }
+}
@@ -0,0 +1,309 @@
+package br.com.fernandoramosjr.sisgerdoc.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delta binário no estilo do rsync. A assinatura da base guarda, para cada bloco de tamanho fixo, um checksum fraco
+ * que pode ser deslizado byte a byte e um MD5. O alvo é lido em sequência com uma janela do tamanho do bloco: quando o
+ * checksum fraco e o MD5 da janela coincidem com um bloco da base, a janela vira uma cópia da base; senão, o primeiro
+ * byte vira literal e a janela avança um byte. Só a assinatura fica em memória.
+ * <p>
+ * Formato: cabeçalho ({@code SGDD}, tamanho do bloco) seguido de operações {@code C} (posição e tamanho na base),
+ * {@code L} (bytes literais) e {@code F} (fim, com o tamanho do alvo).
+ */
+public final class DeltaBinario {
+
+    private static final int MAGICO = 0x53474444;
+    private static final byte COPIA = 'C';
+    private static final byte LITERAL = 'L';
+    private static final byte FIM = 'F';
+    private static final int MAXIMO_LITERAL = 64 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private DeltaBinario() {
+    }
+
+    public static final class Assinatura {
+        private final int tamanhoBloco;
+        // Checksum fraco -> índices dos blocos com esse checksum
+        private final Map<Integer, int[]> blocos = new HashMap<>();
+        private final List<byte[]> fortes = new ArrayList<>();
+
+        private Assinatura(int tamanhoBloco) {
+            this.tamanhoBloco = tamanhoBloco;
+        }
+
+        public int getTamanhoBloco() {
+            return tamanhoBloco;
+        }
+
+        public int getQuantidadeBlocos() {
+            return fortes.size();
+        }
+
+        private void adiciona(int fraco, byte[] forte) {
+            int indice = fortes.size();
+            fortes.add(forte);
+            blocos.merge(fraco, new int[]{indice}, (atuais, novo) -> {
+                int[] todos = Arrays.copyOf(atuais, atuais.length + 1);
+                todos[atuais.length] = indice;
+                return todos;
+            });
+        }
+    }
+
+    /**
+     * Assinatura dos blocos completos da base; um último bloco menor não é assinado e aparece como literal no delta.
+     */
+    public static Assinatura assinatura(InputStream base, int tamanhoBloco) throws IOException {
+        Assinatura assinatura = new Assinatura(tamanhoBloco);
+        MessageDigest md5 = md5();
+        byte[] bloco = new byte[tamanhoBloco];
+        while (base.readNBytes(bloco, 0, tamanhoBloco) == tamanhoBloco) {
+            assinatura.adiciona(checksumFraco(bloco, 0, tamanhoBloco), md5.digest(bloco));
+        }
+        return assinatura;
+    }
+
+    /**
+     * Escreve em {@code saida} o delta que reconstrói {@code alvo} a partir da base assinada.
+     */
+    public static void codifica(InputStream alvo, Assinatura assinatura, OutputStream saida) throws IOException {
+        int tamanhoBloco = assinatura.tamanhoBloco;
+        DataOutputStream delta = new DataOutputStream(saida);
+        delta.writeInt(MAGICO);
+        delta.writeInt(tamanhoBloco);
+        MessageDigest md5 = md5();
+        Codificador codificador = new Codificador(delta);
+
+        byte[] buffer = new byte[Math.max(BUFFER_SIZE, tamanhoBloco * 4)];
+        int inicio = 0;
+        int fim = 0;
+        boolean esgotado = false;
+        boolean janelaValida = false;
+        int a = 0;
+        int b = 0;
+        long lidos = 0;
+        while (true) {
+            // Garante o bloco da janela mais o byte seguinte, necessário para deslizar
+            if (fim - inicio <= tamanhoBloco && !esgotado) {
+                System.arraycopy(buffer, inicio, buffer, 0, fim - inicio);
+                fim -= inicio;
+                inicio = 0;
+                int n;
+                while (fim < buffer.length && (n = alvo.read(buffer, fim, buffer.length - fim)) > 0) {
+                    fim += n;
+                }
+                esgotado = fim < buffer.length;
+            }
+            if (fim - inicio < tamanhoBloco || assinatura.fortes.isEmpty()) {
+                codificador.literal(buffer, inicio, fim - inicio);
+                lidos += fim - inicio;
+                inicio = fim;
+                if (esgotado) {
+                    break;
+                }
+                continue;
+            }
+            if (!janelaValida) {
+                a = 0;
+                b = 0;
+                for (int i = 0; i < tamanhoBloco; i++) {
+                    int x = buffer[inicio + i] & 0xff;
+                    a += x;
+                    b += (tamanhoBloco - i) * x;
+                }
+                a &= 0xffff;
+                b &= 0xffff;
+                janelaValida = true;
+            }
+            int[] candidatos = assinatura.blocos.get(a | (b << 16));
+            int encontrado = -1;
+            if (candidatos != null) {
+                md5.update(buffer, inicio, tamanhoBloco);
+                byte[] forte = md5.digest();
+                for (int candidato : candidatos) {
+                    if (MessageDigest.isEqual(forte, assinatura.fortes.get(candidato))) {
+                        encontrado = candidato;
+                        break;
+                    }
+                }
+            }
+            if (encontrado >= 0) {
+                codificador.copia((long) encontrado * tamanhoBloco, tamanhoBloco);
+                inicio += tamanhoBloco;
+                lidos += tamanhoBloco;
+                janelaValida = false;
+                continue;
+            }
+            codificador.literal(buffer, inicio, 1);
+            lidos++;
+            if (fim - inicio > tamanhoBloco) {
+                int sai = buffer[inicio] & 0xff;
+                int entra = buffer[inicio + tamanhoBloco] & 0xff;
+                a = (a - sai + entra) & 0xffff;
+                b = (b - tamanhoBloco * sai + a) & 0xffff;
+            } else {
+                janelaValida = false;
+            }
+            inicio++;
+        }
+        codificador.descarrega();
+        delta.writeByte(FIM);
+        delta.writeLong(lidos);
+        delta.flush();
+    }
+
+    /**
+     * Reconstrói o alvo a partir da base e do delta, escrevendo-o em {@code saida}. Retorna o tamanho do alvo.
+     */
+    public static long aplica(FileChannel base, InputStream delta, OutputStream saida) throws IOException {
+        DataInputStream entrada = new DataInputStream(delta);
+        if (entrada.readInt() != MAGICO) {
+            throw new IOException("Delta inválido");
+        }
+        entrada.readInt();
+        ByteBuffer copia = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] literal = new byte[BUFFER_SIZE];
+        long escritos = 0;
+        while (true) {
+            byte operacao;
+            try {
+                operacao = entrada.readByte();
+            } catch (EOFException e) {
+                throw new IOException("Delta truncado", e);
+            }
+            if (operacao == FIM) {
+                long tamanho = entrada.readLong();
+                if (tamanho != escritos) {
+                    throw new IOException("Delta inconsistente: esperado " + tamanho + " bytes, reconstruído " + escritos);
+                }
+                return escritos;
+            }
+            if (operacao == COPIA) {
+                long posicao = entrada.readLong();
+                int restante = entrada.readInt();
+                while (restante > 0) {
+                    copia.clear().limit(Math.min(restante, copia.capacity()));
+                    int n = base.read(copia, posicao);
+                    if (n <= 0) {
+                        throw new IOException("Delta aponta para além do fim da base");
+                    }
+                    saida.write(copia.array(), 0, n);
+                    posicao += n;
+                    restante -= n;
+                    escritos += n;
+                }
+            } else if (operacao == LITERAL) {
+                int tamanho = entrada.readInt();
+                while (tamanho > 0) {
+                    int n = Math.min(tamanho, literal.length);
+                    entrada.readFully(literal, 0, n);
+                    saida.write(literal, 0, n);
+                    tamanho -= n;
+                    escritos += n;
+                }
+            } else {
+                throw new IOException("Operação desconhecida no delta: " + operacao);
+            }
+        }
+    }
+
+    // Checksum de Adler usado pelo rsync: a = soma dos bytes, b = soma ponderada pela distância ao fim do bloco
+    static int checksumFraco(byte[] dados, int inicio, int tamanho) {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < tamanho; i++) {
+            int x = dados[inicio + i] & 0xff;
+            a += x;
+            b += (tamanho - i) * x;
+        }
+        return (a & 0xffff) | ((b & 0xffff) << 16);
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 indisponível", e);
+        }
+    }
+
+    // Agrupa literais consecutivos e cópias contíguas da base numa única operação
+    private static final class Codificador {
+        private final DataOutputStream saida;
+        private final byte[] literais = new byte[MAXIMO_LITERAL];
+        private int tamanhoLiterais;
+        private long copiaPosicao = -1;
+        private int copiaTamanho;
+
+        Codificador(DataOutputStream saida) {
+            this.saida = saida;
+        }
+
+        void literal(byte[] dados, int inicio, int tamanho) throws IOException {
+            if (tamanho == 0) {
+                return;
+            }
+            descarregaCopia();
+            while (tamanho > 0) {
+                int n = Math.min(tamanho, literais.length - tamanhoLiterais);
+                System.arraycopy(dados, inicio, literais, tamanhoLiterais, n);
+                tamanhoLiterais += n;
+                inicio += n;
+                tamanho -= n;
+                if (tamanhoLiterais == literais.length) {
+                    descarregaLiterais();
+                }
+            }
+        }
+
+        void copia(long posicao, int tamanho) throws IOException {
+            descarregaLiterais();
+            if (copiaPosicao >= 0 && copiaPosicao + copiaTamanho == posicao && copiaTamanho <= Integer.MAX_VALUE - tamanho) {
+                copiaTamanho += tamanho;
+                return;
+            }
+            descarregaCopia();
+            copiaPosicao = posicao;
+            copiaTamanho = tamanho;
+        }
+
+        void descarrega() throws IOException {
+            descarregaLiterais();
+            descarregaCopia();
+        }
+
+        private void descarregaLiterais() throws IOException {
+            if (tamanhoLiterais > 0) {
+                saida.writeByte(LITERAL);
+                saida.writeInt(tamanhoLiterais);
+                saida.write(literais, 0, tamanhoLiterais);
+                tamanhoLiterais = 0;
+            }
+        }
+
+        private void descarregaCopia() throws IOException {
+            if (copiaPosicao >= 0) {
+                saida.writeByte(COPIA);
+                saida.writeLong(copiaPosicao);
+                saida.writeInt(copiaTamanho);
+                copiaPosicao = -1;
+            }
+        }
+    }
+}
@@ -2,53 +2,416 @@ package br.com.fernandoramosjr.sisgerdoc.util;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.Normalizer;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 public class DocumentoUtil {
+    public static final String CODIFICACAO_GZIP = "gzip";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAXIMO_TENTATIVAS_SEM_PROGRESSO = 16;
+    // Diretórios já criados ou verificados nesta JVM. A aplicação nunca os remove; se alguém os remover, a gravação
+    // que não achar o diretório o tira daqui e o recria (comDiretorio)
+    private static final Set<Path> DIRETORIOS_EXISTENTES = ConcurrentHashMap.newKeySet();
+
     private final String uploadDir;
+    private final int niveisDiretorio;
 
     public DocumentoUtil(String uploadDir) {
+        this(uploadDir, 0);
+    }
+
+    /**
+     * @param niveisDiretorio quantidade de níveis de subdiretórios (prefixos do hash do nome do arquivo)
+     *                        usados por {@link #getFilePath(String)}; 0 grava todos os arquivos no diretório de upload
+     */
+    public DocumentoUtil(String uploadDir, int niveisDiretorio) {
         this.uploadDir = uploadDir;
+        this.niveisDiretorio = niveisDiretorio;
     }
 
     public Path verificaPath() throws IOException {
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+        return garanteDiretorio(Paths.get(uploadDir));
+    }
+
+    private static Path garanteDiretorio(Path diretorio) throws IOException {
+        if (!DIRETORIOS_EXISTENTES.contains(diretorio)) {
+            Files.createDirectories(diretorio);
+            DIRETORIOS_EXISTENTES.add(diretorio);
         }
-        return uploadPath;
+        return diretorio;
     }
 
     public String getExtensao(MultipartFile file) {
-        String originalFileName = file.getOriginalFilename();
-        if (originalFileName.lastIndexOf('.') != -1) {
+        return getExtensao(file.getOriginalFilename());
+    }
+
+    public String getExtensao(String originalFileName) {
+        if (originalFileName != null && originalFileName.lastIndexOf('.') != -1) {
             return originalFileName.substring(originalFileName.lastIndexOf('.'));
         }
         return "";
     }
 
-    public String normalizaNome(String nome) {
+    public boolean deveComprimir(String originalFileName, Collection<String> extensoesIgnoradas) {
+        String extensao = getExtensao(originalFileName);
+        if (extensao.isEmpty()) {
+            return true;
+        }
+        String semPonto = extensao.substring(1).toLowerCase(Locale.ROOT);
+        return extensoesIgnoradas.stream().noneMatch(semPonto::equalsIgnoreCase);
+    }
+
+    public static String normalizaNome(String nome) {
         return Normalizer.normalize(nome, Normalizer.Form.NFD)
                 .replaceAll("\\p{InCombiningDiacriticalMarks}+", "")
                 .replaceAll(" ", "_");
     }
 
     public String geraFileName(String nome, Long id, MultipartFile file) {
+        return geraFileName(nome, id, file.getOriginalFilename());
+    }
+
+    public String geraFileName(String nome, Long id, String originalFileName) {
         String normalizedName = normalizaNome(nome);
-        String extension = getExtensao(file);
+        String extension = getExtensao(originalFileName);
         return normalizedName + "_" + String.format("%02d", id) + extension;
     }
 
     public Path getFilePath(String fileName) throws IOException {
-        return verificaPath().resolve(fileName);
+        Path diretorio = verificaPath();
+        if (niveisDiretorio > 0) {
+            // Dois caracteres hexadecimais por nível: até 256 subdiretórios em cada um
+            String hash = HexFormat.of().formatHex(novoDigest().digest(fileName.getBytes(StandardCharsets.UTF_8)));
+            for (int nivel = 0; nivel < niveisDiretorio; nivel++) {
+                diretorio = diretorio.resolve(hash.substring(nivel * 2, nivel * 2 + 2));
+            }
+            garanteDiretorio(diretorio);
+        }
+        return diretorio.resolve(fileName);
     }
 
     public void copiaConteudo(MultipartFile file, Path targetPath) throws IOException {
-        Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+        try (InputStream conteudo = file.getInputStream()) {
+            comDiretorio(targetPath, () -> Files.copy(conteudo, targetPath, StandardCopyOption.REPLACE_EXISTING));
+        }
+    }
+
+    /**
+     * Cria em destino um segundo nome (hard link) para o arquivo de origem, sem copiar o conteúdo.
+     * Se o sistema de arquivos não suportar, ou se estiverem em volumes diferentes, copia o arquivo.
+     * Nunca substitui um destino existente: falha com {@link FileAlreadyExistsException}, exceto se ele já for um
+     * vínculo para a origem (deixado por uma tentativa anterior).
+     */
+    public void vinculaConteudo(Path origem, Path destino) throws IOException {
+        try {
+            comDiretorio(destino, () -> Files.createLink(destino, origem));
+        } catch (FileAlreadyExistsException e) {
+            if (!Files.isSameFile(origem, destino)) {
+                throw e;
+            }
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            copiaEntreVolumes(origem, destino, false);
+        }
+    }
+
+    public Path getTempFilePath() throws IOException {
+        return verificaPath().resolve(".upload-" + UUID.randomUUID() + ".part");
+    }
+
+    public long copiaConteudo(MultipartStreamReader reader, Path targetPath, long tamanhoMaximo, MessageDigest digest) throws IOException {
+        try (FileChannel channel = comDiretorio(targetPath,
+                () -> FileChannel.open(targetPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))) {
+            return reader.transfere(new DigestChannel(channel, digest), tamanhoMaximo);
+        }
+    }
+
+    public long copiaConteudo(InputStream conteudo, Path targetPath, long tamanhoMaximo) throws IOException {
+        ReadableByteChannel origem = Channels.newChannel(conteudo);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long total = 0;
+        try (FileChannel channel = comDiretorio(targetPath, () -> FileChannel.open(targetPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+            while (origem.read(buffer) >= 0) {
+                buffer.flip();
+                total += buffer.remaining();
+                if (total > tamanhoMaximo) {
+                    throw new IOException("Conteúdo excede o tamanho máximo permitido de " + tamanhoMaximo + " bytes");
+                }
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Copia o conteúdo comprimindo-o com gzip e retorna o tamanho original, em bytes.
+     */
+    public long copiaConteudoComprimido(InputStream conteudo, Path targetPath, long tamanhoMaximo) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        try (OutputStream saida = new GZIPOutputStream(comDiretorio(targetPath, () -> Files.newOutputStream(targetPath)),
+                BUFFER_SIZE)) {
+            int lidos;
+            while ((lidos = conteudo.read(buffer)) >= 0) {
+                total += lidos;
+                if (total > tamanhoMaximo) {
+                    throw new IOException("Conteúdo excede o tamanho máximo permitido de " + tamanhoMaximo + " bytes");
+                }
+                saida.write(buffer, 0, lidos);
+            }
+        }
+        return total;
+    }
+
+    public long copiaConteudoComprimido(MultipartStreamReader reader, Path targetPath, long tamanhoMaximo,
+                                        MessageDigest digest) throws IOException {
+        try (WritableByteChannel channel = Channels.newChannel(new GZIPOutputStream(comDiretorio(targetPath,
+                () -> Files.newOutputStream(targetPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)), BUFFER_SIZE))) {
+            return reader.transfere(new DigestChannel(channel, digest), tamanhoMaximo);
+        }
+    }
+
+    /**
+     * Copia o conteúdo, comprimido com gzip ou não, e retorna o SHA-256 do conteúdo original.
+     */
+    public String copiaConteudoComHash(InputStream conteudo, Path targetPath, boolean comprimir) throws IOException {
+        MessageDigest digest = novoDigest();
+        try (InputStream entrada = new DigestInputStream(conteudo, digest)) {
+            if (comprimir) {
+                copiaConteudoComprimido(entrada, targetPath, Long.MAX_VALUE);
+            } else {
+                copiaConteudo(entrada, targetPath, Long.MAX_VALUE);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public String calculaHash(Path arquivo) throws IOException {
+        MessageDigest digest = novoDigest();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Um arquivo novo a cada chamada: uploads simultâneos do mesmo conteúdo nunca gravam no mesmo caminho
+    public Path novoBlobPath(String hash) throws IOException {
+        return garanteDiretorio(verificaPath().resolve(".blobs").resolve(hash.substring(0, 2))).resolve(hash + "-" + UUID.randomUUID());
+    }
+
+    public MessageDigest novoDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    public long concatenaConteudo(List<Path> partes, Path targetPath) throws IOException {
+        long total = 0;
+        try (FileChannel destino = comDiretorio(targetPath,
+                () -> FileChannel.open(targetPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))) {
+            for (Path parte : partes) {
+                try (FileChannel origem = FileChannel.open(parte, StandardOpenOption.READ)) {
+                    long tamanho = origem.size();
+                    transfereIntervalo(origem, 0, tamanho, destino);
+                    total += tamanho;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Copia os bytes de {@code inicio} (inclusive) a {@code fim} (exclusive) com {@link FileChannel#transferTo}.
+     * Falha com {@link EOFException} se o arquivo terminar antes de {@code fim} (truncado durante a leitura) e com
+     * {@link IOException} se o destino deixar de aceitar bytes, em vez de repetir a chamada indefinidamente.
+     */
+    public static void transfereIntervalo(FileChannel origem, long inicio, long fim, WritableByteChannel destino) throws IOException {
+        long posicao = inicio;
+        int tentativasSemProgresso = 0;
+        while (posicao < fim) {
+            long transferidos = origem.transferTo(posicao, fim - posicao, destino);
+            if (transferidos > 0) {
+                posicao += transferidos;
+                tentativasSemProgresso = 0;
+                continue;
+            }
+            if (posicao >= origem.size()) {
+                throw new EOFException("Arquivo terminou na posição " + posicao + ", antes de " + fim);
+            }
+            if (++tentativasSemProgresso >= MAXIMO_TENTATIVAS_SEM_PROGRESSO) {
+                throw new IOException("O destino não aceitou bytes após " + tentativasSemProgresso + " tentativas");
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Grava em {@code destino}, a partir de {@code posicao}, os próximos {@code tamanho} bytes de {@code origem} com
+     * {@link FileChannel#transferFrom}. Como {@link #transfereIntervalo}, falha com {@link EOFException} se a origem
+     * terminar antes e com {@link IOException} se ela deixar de fornecer bytes, em vez de repetir a chamada.
+     */
+    public static void recebeIntervalo(FileChannel origem, long tamanho, FileChannel destino, long posicao) throws IOException {
+        long copiados = 0;
+        int tentativasSemProgresso = 0;
+        while (copiados < tamanho) {
+            long transferidos = destino.transferFrom(origem, posicao + copiados, tamanho - copiados);
+            if (transferidos > 0) {
+                copiados += transferidos;
+                tentativasSemProgresso = 0;
+                continue;
+            }
+            if (origem.position() >= origem.size()) {
+                throw new EOFException("Arquivo terminou após " + copiados + " de " + tamanho + " bytes");
+            }
+            if (++tentativasSemProgresso >= MAXIMO_TENTATIVAS_SEM_PROGRESSO) {
+                throw new IOException("A origem não forneceu bytes após " + tentativasSemProgresso + " tentativas");
+            }
+            Thread.yield();
+        }
+    }
+
+    public Path getDiretorioSessao(String sessaoId) throws IOException {
+        Path diretorio = verificaPath().resolve(".sessoes").resolve(sessaoId);
+        Files.createDirectories(diretorio);
+        return diretorio;
+    }
+
+    // Não cria o diretório: também é usado para apagar as versões de um documento que pode não ter nenhuma
+    public Path getDiretorioVersoes(Long documentoId) throws IOException {
+        return verificaPath().resolve(".versoes").resolve(String.valueOf(documentoId));
+    }
+
+    public void apagaDiretorio(Path diretorio) throws IOException {
+        if (!Files.exists(diretorio)) {
+            return;
+        }
+        try (Stream<Path> arquivos = Files.walk(diretorio)) {
+            for (Path arquivo : arquivos.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(arquivo);
+            }
+        }
+    }
+
+    public void moveConteudo(Path origem, Path targetPath) throws IOException {
+        try {
+            // Mesmo diretório e sistema de arquivos: a movimentação é só uma renomeação, sem regravar o conteúdo
+            comDiretorio(targetPath, () -> Files.move(origem, targetPath, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE));
+        } catch (AtomicMoveNotSupportedException e) {
+            copiaEntreVolumes(origem, targetPath, true);
+            Files.delete(origem);
+        }
+    }
+
+    // Copia para um arquivo parcial ao lado do destino e renomeia: o destino nunca fica com parte do conteúdo
+    private static void copiaEntreVolumes(Path origem, Path destino, boolean substitui) throws IOException {
+        Path parcial = destino.resolveSibling(destino.getFileName() + "." + UUID.randomUUID() + ".part");
+        try {
+            comDiretorio(parcial, () -> Files.copy(origem, parcial));
+            if (substitui) {
+                Files.move(parcial, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                Files.move(parcial, destino);
+            }
+        } finally {
+            Files.deleteIfExists(parcial);
+        }
+    }
+
+    /**
+     * Executa uma operação que grava em destino. Se o diretório dele tiver sido removido por fora da aplicação
+     * (limpeza manual, volume remontado), o cache de diretórios ainda o daria como existente: ele sai do cache,
+     * é recriado e a operação é repetida uma vez.
+     */
+    private static <T> T comDiretorio(Path destino, OperacaoNoDestino<T> operacao) throws IOException {
+        try {
+            return operacao.executa();
+        } catch (NoSuchFileException e) {
+            Path diretorio = destino.getParent();
+            if (diretorio == null || Files.isDirectory(diretorio)) {
+                throw e;
+            }
+            for (Path ancestral = diretorio; ancestral != null; ancestral = ancestral.getParent()) {
+                DIRETORIOS_EXISTENTES.remove(ancestral);
+            }
+            garanteDiretorio(diretorio);
+            return operacao.executa();
+        }
+    }
+
+    @FunctionalInterface
+    private interface OperacaoNoDestino<T> {
+        T executa() throws IOException;
+    }
+
+    // Atualiza o digest com os bytes efetivamente escritos no canal de destino
+    private static class DigestChannel implements WritableByteChannel {
+        private final WritableByteChannel destino;
+        private final MessageDigest digest;
+
+        DigestChannel(WritableByteChannel destino, MessageDigest digest) {
+            this.destino = destino;
+            this.digest = digest;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            ByteBuffer escritos = src.duplicate();
+            int bytes = destino.write(src);
+            escritos.limit(escritos.position() + bytes);
+            digest.update(escritos);
+            return bytes;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return destino.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            destino.close();
+        }
     }
 }
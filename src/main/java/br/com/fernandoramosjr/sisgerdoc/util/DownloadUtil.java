@@ -0,0 +1,292 @@
+package br.com.fernandoramosjr.sisgerdoc.util;
+
+import br.com.fernandoramosjr.sisgerdoc.storage.ConteudoArmazenado;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Envia o conteúdo dos documentos com suporte a Range, If-Range e multipart/byteranges.
+ * Sempre que o conector suporta e o conteúdo está num arquivo próprio, o corpo é entregue pelo próprio container
+ * via sendfile; caso contrário é copiado com {@link FileChannel#transferTo} ou direto da memória mapeada.
+ */
+public class DownloadUtil {
+
+    // Atributos de requisição usados pelo Tomcat para servir o corpo via sendfile
+    public static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final HttpServletRequest request;
+    private final HttpServletResponse response;
+    private final String etag;
+    private final long ultimaModificacao;
+    private long bytesEnviados;
+
+    public DownloadUtil(HttpServletRequest request, HttpServletResponse response) {
+        this(request, response, null, -1);
+    }
+
+    /**
+     * @param etag validador forte do conteúdo original, sem aspas; {@code null} quando desconhecido
+     * @param ultimaModificacao data da última alteração em milissegundos; negativa para usar a do arquivo
+     */
+    public DownloadUtil(HttpServletRequest request, HttpServletResponse response, String etag, long ultimaModificacao) {
+        this.request = request;
+        this.response = response;
+        this.etag = etag;
+        this.ultimaModificacao = ultimaModificacao;
+    }
+
+    public void enviaArquivo(ConteudoArmazenado conteudo, String contentDisposition) throws IOException {
+        enviaArquivo(conteudo, contentDisposition, etag != null ? "\"" + etag + "\"" : null);
+    }
+
+    private void enviaArquivo(ConteudoArmazenado conteudo, String contentDisposition, String etagRepresentacao) throws IOException {
+        long lastModified = ultimaModificacao >= 0 ? ultimaModificacao : conteudo.getUltimaModificacao();
+        if (naoModificado(etagRepresentacao, lastModified)) {
+            return;
+        }
+        long tamanho = conteudo.getTamanho();
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (lastModified >= 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+
+        List<HttpRange> ranges;
+        try {
+            ranges = rangesAplicaveis(lastModified, etagRepresentacao);
+        } catch (IllegalArgumentException e) {
+            // Unidade desconhecida ou sintaxe inválida: a RFC 9110 manda ignorar o Range e enviar tudo. O 416 fica
+            // para intervalos válidos que não alcançam o arquivo
+            ranges = Collections.emptyList();
+        }
+
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            defineTamanhoCorpo(tamanho);
+            enviaIntervalo(conteudo, 0, tamanho);
+            return;
+        }
+
+        List<long[]> intervalos = new ArrayList<>(ranges.size());
+        long totalSolicitado = 0;
+        for (HttpRange range : ranges) {
+            long inicio;
+            long fim;
+            try {
+                inicio = range.getRangeStart(tamanho);
+                fim = range.getRangeEnd(tamanho);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            if (inicio >= tamanho || fim < inicio) {
+                continue;
+            }
+            intervalos.add(new long[]{inicio, fim});
+            totalSolicitado += fim - inicio + 1;
+        }
+        if (intervalos.isEmpty()) {
+            respondeRangeInvalido(tamanho);
+            return;
+        }
+        if (intervalos.size() > 1 && totalSolicitado > tamanho) {
+            // Intervalos sobrepostos que somam mais que o arquivo inteiro: mais barato enviar tudo
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            defineTamanhoCorpo(tamanho);
+            enviaIntervalo(conteudo, 0, tamanho);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (intervalos.size() == 1) {
+            long[] intervalo = intervalos.get(0);
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(intervalo[0], intervalo[1], tamanho));
+            defineTamanhoCorpo(intervalo[1] - intervalo[0] + 1);
+            enviaIntervalo(conteudo, intervalo[0], intervalo[1] + 1);
+            return;
+        }
+        enviaMultiplosIntervalos(conteudo, intervalos, tamanho);
+    }
+
+    /**
+     * Envia o arquivo gravado com a codificação informada (ex.: gzip) sem decodificá-lo. Range e If-Range
+     * passam a se referir aos bytes codificados, como define a RFC 9110.
+     */
+    public void enviaArquivoCodificado(ConteudoArmazenado conteudo, String contentDisposition, String codificacao) throws IOException {
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, codificacao);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        // Cada codificação é uma representação diferente e precisa de um ETag forte próprio
+        enviaArquivo(conteudo, contentDisposition, etag != null ? "\"" + etag + "-" + codificacao + "\"" : null);
+    }
+
+    /**
+     * Descomprime um arquivo gravado com gzip durante o envio, para clientes que não aceitam essa codificação.
+     * Sem acesso aleatório ao conteúdo original, Range é ignorado e o arquivo é sempre enviado inteiro.
+     */
+    public void enviaArquivoDescomprimido(ConteudoArmazenado conteudo, String contentDisposition, long tamanhoOriginal) throws IOException {
+        long lastModified = ultimaModificacao >= 0 ? ultimaModificacao : conteudo.getUltimaModificacao();
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (naoModificado(etag != null ? "\"" + etag + "\"" : null, lastModified)) {
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "none");
+        if (lastModified >= 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        defineTamanhoCorpo(tamanhoOriginal);
+        try (InputStream descomprimido = new GZIPInputStream(conteudo.abreStream(), BUFFER_SIZE)) {
+            descomprimido.transferTo(response.getOutputStream());
+        }
+    }
+
+    /**
+     * Tamanho do corpo da resposta definido pelo último envio; 0 quando nada foi enviado (304, 412 ou 416). Com
+     * sendfile, os bytes ainda serão enviados pelo container depois que o método de envio retorna.
+     */
+    public long getBytesEnviados() {
+        return bytesEnviados;
+    }
+
+    /**
+     * Verifica no cabeçalho Accept-Encoding se o cliente aceita a codificação, respeitando q=0 e o curinga "*".
+     */
+    public boolean aceitaCodificacao(String codificacao) {
+        Boolean curinga = null;
+        Enumeration<String> cabecalhos = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        while (cabecalhos != null && cabecalhos.hasMoreElements()) {
+            for (String item : cabecalhos.nextElement().split(",")) {
+                String[] partes = item.trim().split(";");
+                boolean aceito = true;
+                for (int i = 1; i < partes.length; i++) {
+                    String parametro = partes[i].trim();
+                    if (parametro.startsWith("q=")) {
+                        try {
+                            aceito = Double.parseDouble(parametro.substring(2)) > 0;
+                        } catch (NumberFormatException e) {
+                            aceito = false;
+                        }
+                    }
+                }
+                if (partes[0].trim().equalsIgnoreCase(codificacao)) {
+                    return aceito;
+                }
+                if (partes[0].trim().equals("*")) {
+                    curinga = aceito;
+                }
+            }
+        }
+        return Boolean.TRUE.equals(curinga);
+    }
+
+    /**
+     * Trata If-None-Match, If-Modified-Since e as pré-condições If-Match/If-Unmodified-Since.
+     * Retorna {@code true} quando a resposta (304 ou 412) já está definida e o corpo não deve ser enviado.
+     */
+    private boolean naoModificado(String etagRepresentacao, long lastModified) {
+        return new ServletWebRequest(request, response).checkNotModified(etagRepresentacao, lastModified);
+    }
+
+    private List<HttpRange> rangesAplicaveis(long lastModified, String etagRepresentacao) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range == null || range.isBlank()) {
+            return Collections.emptyList();
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && ifRange.trim().startsWith("W/")) {
+            // If-Range exige comparação forte: ETag fraco nunca corresponde
+            return Collections.emptyList();
+        }
+        if (ifRange != null && ifRange.trim().startsWith("\"")) {
+            return ifRange.trim().equals(etagRepresentacao) ? HttpRange.parseRanges(range) : Collections.emptyList();
+        }
+        if (ifRange != null && !ifRange.isBlank()) {
+            long ifRangeData;
+            try {
+                ifRangeData = request.getDateHeader(HttpHeaders.IF_RANGE);
+            } catch (IllegalArgumentException e) {
+                return Collections.emptyList();
+            }
+            if (ifRangeData / 1000 != lastModified / 1000) {
+                return Collections.emptyList();
+            }
+        }
+        return HttpRange.parseRanges(range);
+    }
+
+    private void enviaMultiplosIntervalos(ConteudoArmazenado conteudo, List<long[]> intervalos, long tamanho) throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> cabecalhos = new ArrayList<>(intervalos.size());
+        long contentLength = 0;
+        for (long[] intervalo : intervalos) {
+            byte[] cabecalho = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + MediaType.APPLICATION_OCTET_STREAM_VALUE + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(intervalo[0], intervalo[1], tamanho) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            cabecalhos.add(cabecalho);
+            contentLength += cabecalho.length + intervalo[1] - intervalo[0] + 1;
+        }
+        byte[] rodape = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += rodape.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        defineTamanhoCorpo(contentLength);
+        WritableByteChannel destino = Channels.newChannel(response.getOutputStream());
+        for (int i = 0; i < intervalos.size(); i++) {
+            response.getOutputStream().write(cabecalhos.get(i));
+            conteudo.transfere(intervalos.get(i)[0], intervalos.get(i)[1] + 1, destino);
+        }
+        response.getOutputStream().write(rodape);
+    }
+
+    private void enviaIntervalo(ConteudoArmazenado conteudo, long inicio, long fim) throws IOException {
+        if (conteudo.getArquivo() != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, conteudo.getArquivo().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, inicio);
+            request.setAttribute(SENDFILE_END, fim);
+            return;
+        }
+        conteudo.transfere(inicio, fim, Channels.newChannel(response.getOutputStream()));
+    }
+
+    private void defineTamanhoCorpo(long tamanho) {
+        response.setContentLengthLong(tamanho);
+        bytesEnviados = tamanho;
+    }
+
+    private void respondeRangeInvalido(long tamanho) {
+        response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + tamanho);
+    }
+
+    private String contentRange(long inicio, long fim, long tamanho) {
+        return "bytes " + inicio + "-" + fim + "/" + tamanho;
+    }
+}
@@ -0,0 +1,53 @@
+package br.com.fernandoramosjr.sisgerdoc.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Extrai o texto indexável de um conteúdo armazenado. Só formatos de texto são suportados: conteúdo com bytes nulos
+ * no início é tratado como binário e ignorado. O texto é lido como UTF-8 e, se não for UTF-8 válido, como ISO-8859-1.
+ */
+public final class ExtratorTexto {
+
+    private static final int AMOSTRA_BINARIO = 8 * 1024;
+
+    private ExtratorTexto() {}
+
+    // Retorna null quando o conteúdo não é texto; lê no máximo maximoBytes
+    public static String extrai(InputStream entrada, int maximoBytes) throws IOException {
+        byte[] bytes = entrada.readNBytes(maximoBytes);
+        for (int i = 0; i < Math.min(bytes.length, AMOSTRA_BINARIO); i++) {
+            if (bytes[i] == 0) {
+                return null;
+            }
+        }
+        // Um conteúdo truncado pode terminar no meio de um caractere multibyte
+        int tamanho = bytes.length == maximoBytes ? semSequenciaIncompleta(bytes) : bytes.length;
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes, 0, tamanho))
+                    .toString();
+        } catch (CharacterCodingException e) {
+            return new String(bytes, 0, tamanho, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private static int semSequenciaIncompleta(byte[] bytes) {
+        int fim = bytes.length;
+        for (int i = fim - 1; i >= Math.max(0, fim - 4); i--) {
+            int b = bytes[i] & 0xFF;
+            if ((b & 0xC0) == 0x80) {
+                continue;
+            }
+            int esperado = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+            return fim - i < esperado ? i : fim;
+        }
+        return fim;
+    }
+}
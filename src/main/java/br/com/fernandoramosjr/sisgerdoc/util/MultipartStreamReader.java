@@ -0,0 +1,242 @@
+package br.com.fernandoramosjr.sisgerdoc.util;
+
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Leitor incremental de corpos multipart/form-data. Percorre as partes na ordem em que chegam,
+ * usando um único buffer direto de tamanho fixo, sem materializar o corpo em memória ou em disco.
+ */
+public class MultipartStreamReader {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final byte[] delimitador;
+    private boolean eof;
+    private boolean finalizado;
+    // Indica que ainda há conteúdo (ou o preâmbulo) antes do próximo delimitador
+    private boolean parteAberta = true;
+
+    public MultipartStreamReader(InputStream inputStream, String boundary, int bufferSize) {
+        this.delimitador = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        if (bufferSize < delimitador.length * 2) {
+            throw new IllegalArgumentException("Buffer menor que o delimitador multipart");
+        }
+        this.channel = Channels.newChannel(inputStream);
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        // O primeiro delimitador não é precedido por CRLF; simulamos um para tratar todos da mesma forma
+        this.buffer.put(CRLF).flip();
+    }
+
+    public static String extraiBoundary(String contentType) throws IOException {
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            String boundary = mediaType.getParameter("boundary");
+            if (MediaType.MULTIPART_FORM_DATA.includes(mediaType) && boundary != null && !boundary.isEmpty()) {
+                return boundary.startsWith("\"") ? boundary.substring(1, boundary.length() - 1) : boundary;
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Content-Type inválido: " + contentType, e);
+        }
+        throw new IOException("Requisição multipart sem boundary");
+    }
+
+    /**
+     * Avança até a próxima parte e retorna seus cabeçalhos, ou {@code null} quando o corpo terminou.
+     * O conteúdo da parte anterior que não tiver sido consumido é descartado.
+     */
+    public Parte proximaParte() throws IOException {
+        if (finalizado) {
+            return null;
+        }
+        if (parteAberta) {
+            transfere(null, Long.MAX_VALUE);
+        }
+        if (!garante(2)) {
+            throw new IOException("Corpo multipart truncado");
+        }
+        if (buffer.get(buffer.position()) == '-' && buffer.get(buffer.position() + 1) == '-') {
+            finalizado = true;
+            return null;
+        }
+        int fimCabecalhos = procura(HEADER_END, buffer.position());
+        while (fimCabecalhos < 0) {
+            if (buffer.remaining() == buffer.capacity()) {
+                throw new IOException("Cabeçalhos multipart excedem o buffer");
+            }
+            if (!preenche()) {
+                throw new IOException("Corpo multipart truncado");
+            }
+            fimCabecalhos = procura(HEADER_END, buffer.position());
+        }
+        byte[] bytes = new byte[fimCabecalhos + HEADER_END.length - buffer.position()];
+        buffer.get(bytes);
+        parteAberta = true;
+        return Parte.parse(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Copia o conteúdo da parte corrente para o canal de destino direto do buffer, sem cópias intermediárias.
+     * Retorna o número de bytes escritos ou lança {@link IOException} se o limite for excedido.
+     */
+    public long transfere(WritableByteChannel destino, long limite) throws IOException {
+        long total = 0;
+        while (true) {
+            int indice = procura(delimitador, buffer.position());
+            int fim = indice >= 0 ? indice : Math.max(buffer.position(), buffer.limit() - delimitador.length + 1);
+            int tamanho = fim - buffer.position();
+            total += tamanho;
+            if (total > limite) {
+                throw new IOException("Arquivo excede o tamanho máximo permitido de " + limite + " bytes");
+            }
+            escreve(destino, fim);
+            if (indice >= 0) {
+                buffer.position(indice + delimitador.length);
+                parteAberta = false;
+                return total;
+            }
+            if (!preenche()) {
+                throw new IOException("Corpo multipart truncado");
+            }
+        }
+    }
+
+    public String lerTexto(int limite) throws IOException {
+        ByteBufferCollector collector = new ByteBufferCollector(limite);
+        transfere(collector, limite);
+        return collector.toString();
+    }
+
+    private void escreve(WritableByteChannel destino, int fim) throws IOException {
+        if (destino == null) {
+            buffer.position(fim);
+            return;
+        }
+        int limit = buffer.limit();
+        buffer.limit(fim);
+        while (buffer.hasRemaining()) {
+            destino.write(buffer);
+        }
+        buffer.limit(limit);
+    }
+
+    private boolean garante(int bytes) throws IOException {
+        while (buffer.remaining() < bytes) {
+            if (!preenche()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean preenche() throws IOException {
+        if (eof) {
+            return false;
+        }
+        buffer.compact();
+        int lidos = channel.read(buffer);
+        buffer.flip();
+        if (lidos < 0) {
+            eof = true;
+            return false;
+        }
+        return true;
+    }
+
+    private int procura(byte[] padrao, int inicio) {
+        int ultimo = buffer.limit() - padrao.length;
+        for (int i = inicio; i <= ultimo; i++) {
+            int j = 0;
+            while (j < padrao.length && buffer.get(i + j) == padrao[j]) {
+                j++;
+            }
+            if (j == padrao.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static class Parte {
+        private final String nome;
+        private final String nomeArquivo;
+
+        Parte(String nome, String nomeArquivo) {
+            this.nome = nome;
+            this.nomeArquivo = nomeArquivo;
+        }
+
+        static Parte parse(String cabecalhos) {
+            String nome = null;
+            String nomeArquivo = null;
+            for (String linha : cabecalhos.split("\r\n")) {
+                int separador = linha.indexOf(':');
+                if (separador < 0 || !linha.substring(0, separador).trim().equalsIgnoreCase("Content-Disposition")) {
+                    continue;
+                }
+                for (String atributo : linha.substring(separador + 1).split(";")) {
+                    String[] chaveValor = atributo.trim().split("=", 2);
+                    if (chaveValor.length != 2) {
+                        continue;
+                    }
+                    String valor = chaveValor[1].trim();
+                    if (valor.length() >= 2 && valor.startsWith("\"") && valor.endsWith("\"")) {
+                        valor = valor.substring(1, valor.length() - 1);
+                    }
+                    if (chaveValor[0].equalsIgnoreCase("name")) {
+                        nome = valor;
+                    } else if (chaveValor[0].equalsIgnoreCase("filename")) {
+                        nomeArquivo = valor;
+                    }
+                }
+            }
+            return new Parte(nome, nomeArquivo);
+        }
+
+        public String getNome() {
+            return nome;
+        }
+        public String getNomeArquivo() {
+            return nomeArquivo;
+        }
+    }
+
+    private static class ByteBufferCollector implements WritableByteChannel {
+        private final ByteBuffer destino;
+
+        ByteBufferCollector(int limite) {
+            this.destino = ByteBuffer.allocate(limite);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int bytes = src.remaining();
+            destino.put(src);
+            return bytes;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return new String(destino.array(), 0, destino.position(), StandardCharsets.UTF_8);
+        }
+    }
+}
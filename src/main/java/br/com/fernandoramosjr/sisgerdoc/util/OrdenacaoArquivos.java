@@ -0,0 +1,151 @@
+package br.com.fernandoramosjr.sisgerdoc.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Ordenação externa de arquivos listados do diretório de upload, pelo ID do documento e depois pelo caminho.
+ * Guarda em memória no máximo {@code tamanhoBloco} entradas; cada bloco cheio é ordenado e gravado num arquivo
+ * em {@code diretorio}, e a leitura intercala os blocos gravados. Pode receber entradas de várias threads.
+ */
+public class OrdenacaoArquivos implements Closeable {
+
+    /**
+     * @param id ID do documento extraído do nome do arquivo; -1 quando o nome não segue o padrão
+     */
+    public record Entrada(long id, long modificadoEm, String caminho) {
+    }
+
+    private static final Comparator<Entrada> ORDEM = Comparator.comparingLong(Entrada::id).thenComparing(Entrada::caminho);
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final Path diretorio;
+    private final int tamanhoBloco;
+    private final List<Path> blocosGravados = new ArrayList<>();
+    private final List<DataInputStream> leitores = new ArrayList<>();
+    private List<Entrada> bloco = new ArrayList<>();
+
+    public OrdenacaoArquivos(Path diretorio, int tamanhoBloco) {
+        this.diretorio = diretorio;
+        this.tamanhoBloco = Math.max(tamanhoBloco, 1);
+    }
+
+    public void adiciona(Collection<Entrada> entradas) throws IOException {
+        List<Entrada> cheio = null;
+        synchronized (this) {
+            bloco.addAll(entradas);
+            if (bloco.size() >= tamanhoBloco) {
+                cheio = bloco;
+                bloco = new ArrayList<>();
+            }
+        }
+        // A gravação do bloco cheio não impede as outras threads de continuarem adicionando
+        if (cheio != null) {
+            Path gravado = gravaBloco(cheio);
+            synchronized (this) {
+                blocosGravados.add(gravado);
+            }
+        }
+    }
+
+    /**
+     * Entradas em ordem. Deve ser chamado depois que todas as entradas foram adicionadas.
+     */
+    public synchronized Iterator<Entrada> ordenadas() throws IOException {
+        if (blocosGravados.isEmpty()) {
+            bloco.sort(ORDEM);
+            return bloco.iterator();
+        }
+        if (!bloco.isEmpty()) {
+            blocosGravados.add(gravaBloco(bloco));
+            bloco = new ArrayList<>();
+        }
+        PriorityQueue<Cabeca> cabecas = new PriorityQueue<>(Comparator.comparing(Cabeca::entrada, ORDEM));
+        for (Path gravado : blocosGravados) {
+            DataInputStream leitor = new DataInputStream(new BufferedInputStream(Files.newInputStream(gravado), BUFFER_SIZE));
+            leitores.add(leitor);
+            Entrada primeira = le(leitor);
+            if (primeira != null) {
+                cabecas.add(new Cabeca(primeira, leitor));
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !cabecas.isEmpty();
+            }
+
+            @Override
+            public Entrada next() {
+                Cabeca cabeca = cabecas.poll();
+                if (cabeca == null) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    Entrada seguinte = le(cabeca.leitor());
+                    if (seguinte != null) {
+                        cabecas.add(new Cabeca(seguinte, cabeca.leitor()));
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return cabeca.entrada();
+            }
+        };
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (DataInputStream leitor : leitores) {
+            leitor.close();
+        }
+        for (Path gravado : blocosGravados) {
+            Files.deleteIfExists(gravado);
+        }
+        leitores.clear();
+        blocosGravados.clear();
+        bloco = new ArrayList<>();
+    }
+
+    private record Cabeca(Entrada entrada, DataInputStream leitor) {
+    }
+
+    private Path gravaBloco(List<Entrada> entradas) throws IOException {
+        entradas.sort(ORDEM);
+        Files.createDirectories(diretorio);
+        Path arquivo = Files.createTempFile(diretorio, "bloco-", ".tmp");
+        try (DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(arquivo), BUFFER_SIZE))) {
+            for (Entrada entrada : entradas) {
+                saida.writeLong(entrada.id());
+                saida.writeLong(entrada.modificadoEm());
+                saida.writeUTF(entrada.caminho());
+            }
+        }
+        return arquivo;
+    }
+
+    private static Entrada le(DataInputStream leitor) throws IOException {
+        long id;
+        try {
+            id = leitor.readLong();
+        } catch (EOFException e) {
+            return null;
+        }
+        return new Entrada(id, leitor.readLong(), leitor.readUTF());
+    }
+}
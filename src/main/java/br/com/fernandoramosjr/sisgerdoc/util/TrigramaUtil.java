@@ -0,0 +1,44 @@
+package br.com.fernandoramosjr.sisgerdoc.util;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Trigramas do nome normalizado por {@link DocumentoUtil#normalizaNome(String)}, sem acentos e em minúsculas. Cada
+ * palavra gera os trigramas com duas posições de borda no início e uma no fim, como no pg_trgm, o que aproxima
+ * nomes com erros de digitação; os trigramas contínuos do nome inteiro localizam qualquer trecho com 3 caracteres
+ * ou mais.
+ */
+public final class TrigramaUtil {
+
+    private static final String BORDA = " ";
+
+    private TrigramaUtil() {}
+
+    public static String chave(String nome) {
+        return DocumentoUtil.normalizaNome(nome.strip()).toLowerCase(Locale.ROOT);
+    }
+
+    public static Set<String> trigramasDasPalavras(String chave) {
+        Set<String> trigramas = new LinkedHashSet<>();
+        for (String palavra : chave.split("_")) {
+            if (!palavra.isEmpty()) {
+                adicionaTrigramas(BORDA + BORDA + palavra + BORDA, trigramas);
+            }
+        }
+        return trigramas;
+    }
+
+    public static Set<String> trigramasContinuos(String chave) {
+        Set<String> trigramas = new LinkedHashSet<>();
+        adicionaTrigramas(chave, trigramas);
+        return trigramas;
+    }
+
+    private static void adicionaTrigramas(String texto, Set<String> trigramas) {
+        for (int i = 0; i + 3 <= texto.length(); i++) {
+            trigramas.add(texto.substring(i, i + 3));
+        }
+    }
+}
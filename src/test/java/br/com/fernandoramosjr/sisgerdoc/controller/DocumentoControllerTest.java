@@ -2,8 +2,17 @@ package br.com.fernandoramosjr.sisgerdoc.controller;
 
 import br.com.fernandoramosjr.sisgerdoc.model.Documento;
 import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoDownloadDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoEncontradoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.PaginaBuscaDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.PaginaDocumentosDto;
 import br.com.fernandoramosjr.sisgerdoc.service.DocumentoService;
+import br.com.fernandoramosjr.sisgerdoc.service.IndiceConteudoService;
+import br.com.fernandoramosjr.sisgerdoc.service.IndiceNomeService;
+import br.com.fernandoramosjr.sisgerdoc.storage.ConteudoArmazenado;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -12,6 +21,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
@@ -20,12 +30,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
@@ -39,12 +61,34 @@ public class DocumentoControllerTest {
     @Autowired
     private DocumentoService documentoService;
 
+    @Autowired
+    private IndiceConteudoService indiceConteudoService;
+
+    @Autowired
+    private IndiceNomeService indiceNomeService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @TempDir
+    Path tempDir;
+
     @TestConfiguration
     static class MocksConfig {
         @Bean
         public DocumentoService documentoService() {
             return Mockito.mock(DocumentoService.class);
         }
+
+        @Bean
+        public IndiceConteudoService indiceConteudoService() {
+            return Mockito.mock(IndiceConteudoService.class);
+        }
+
+        @Bean
+        public IndiceNomeService indiceNomeService() {
+            return Mockito.mock(IndiceNomeService.class);
+        }
     }
 
     @Test
@@ -77,6 +121,55 @@ public class DocumentoControllerTest {
                 .andExpect(content().string("Erro ao salvar o documento"));
     }
 
+    @Test
+    public void criarDocumentoStreamingComSucessoTest() throws Exception {
+        String contentType = "multipart/form-data; boundary=limite";
+        byte[] corpo = "--limite--\r\n".getBytes();
+
+        Documento documento = new Documento();
+        documento.setId(2L);
+        Mockito.when(documentoService.criarNovoDocumentoStreaming(eq(contentType), any())).thenReturn(documento);
+
+        mockMvc.perform(post("/documentos/stream")
+                        .contentType(contentType)
+                        .content(corpo))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Documento criado com ID: " + documento.getId()));
+    }
+
+    @Test
+    public void criarDocumentosEmLoteTest() throws Exception {
+        Documento documento = new Documento(4L, "contrato", "/uploads/contrato_04.pdf", 8L, "contrato_04.pdf", LocalDateTime.of(2025, 1, 10, 8, 30));
+        Mockito.when(documentoService.criarDocumentosEmLote(eq(List.of("contrato")), any())).thenReturn(List.of(documento));
+
+        mockMvc.perform(multipart("/documentos/lote")
+                        .file(new MockMultipartFile("files", "contrato.pdf", "application/pdf", "Contrato".getBytes()))
+                        .param("nomes", "contrato"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(4))
+                .andExpect(jsonPath("$[0].fileName").value("contrato_04.pdf"));
+    }
+
+    @Test
+    public void listarDocumentosTest() throws Exception {
+        PaginaDocumentosDto pagina = new PaginaDocumentosDto(
+                List.of(new DocumentoResumoDto(1L, "teste", "teste_01.txt", 8L, LocalDateTime.of(2025, 1, 10, 8, 30))), "proximo");
+        Mockito.when(documentoService.listarDocumentos(any(), eq("atual"), eq(10))).thenReturn(pagina);
+
+        mockMvc.perform(get("/documentos")
+                        .param("nome", "tes")
+                        .param("criadoDe", "2025-01-01T00:00:00")
+                        .param("cursor", "atual")
+                        .param("limite", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.documentos[0].id").value(1))
+                .andExpect(jsonPath("$.documentos[0].fileName").value("teste_01.txt"))
+                .andExpect(jsonPath("$.proximoCursor").value("proximo"));
+
+        mockMvc.perform(get("/documentos").param("limite", "1000"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void buscarDocumentoComSucessoTest() throws Exception {
         Long id = 1L;
@@ -93,6 +186,169 @@ public class DocumentoControllerTest {
                 .andExpect(content().bytes(conteudo));
     }
 
+    @Test
+    public void buscarDocumentoComRangeTest() throws Exception {
+        Long id = 3L;
+        Path filePath = tempDir.resolve("teste_1.txt");
+        Files.write(filePath, "0123456789".getBytes());
+        Mockito.when(documentoService.buscarDocumentoParaDownload(id))
+                .thenReturn(new DocumentoDownloadDto(new UrlResource(filePath.toUri()), "teste_1.txt"));
+
+        mockMvc.perform(get("/documentos/{id}", id).header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(content().bytes("2345".getBytes()));
+
+        mockMvc.perform(get("/documentos/{id}", id).header(HttpHeaders.RANGE, "bytes=0-1,-2"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, startsWith("multipart/byteranges")))
+                .andExpect(content().string(containsString("Content-Range: bytes 0-1/10\r\n\r\n01")))
+                .andExpect(content().string(containsString("Content-Range: bytes 8-9/10\r\n\r\n89")));
+
+        mockMvc.perform(get("/documentos/{id}", id).header(HttpHeaders.RANGE, "bytes=20-30"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+
+        mockMvc.perform(get("/documentos/{id}", id)
+                        .header(HttpHeaders.RANGE, "bytes=2-5")
+                        .header(HttpHeaders.IF_RANGE, "Wed, 21 Oct 2015 07:28:00 GMT"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes("0123456789".getBytes()));
+    }
+
+    @Test
+    public void buscarDocumentoComRangeIgnoradoTest() throws Exception {
+        Long id = 4L;
+        Path filePath = tempDir.resolve("teste_4.txt");
+        Files.write(filePath, "0123456789".getBytes());
+        DocumentoDownloadDto download = new DocumentoDownloadDto(new UrlResource(filePath.toUri()), "teste_4.txt");
+        download.setEtag("abc123");
+        download.setUltimaModificacao(LocalDateTime.of(2025, 1, 10, 8, 30));
+        Mockito.when(documentoService.buscarDocumentoParaDownload(id)).thenReturn(download);
+        String lastModified = mockMvc.perform(get("/documentos/{id}", id))
+                .andReturn().getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+
+        // Unidade desconhecida e sintaxe inválida: o Range é ignorado
+        for (String range : List.of("items=0-1", "bytes=abc", "bytes=5-2")) {
+            mockMvc.perform(get("/documentos/{id}", id).header(HttpHeaders.RANGE, range))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+                    .andExpect(content().bytes("0123456789".getBytes()));
+        }
+
+        // Intervalos sobrepostos que somam mais que o arquivo: enviado inteiro
+        mockMvc.perform(get("/documentos/{id}", id).header(HttpHeaders.RANGE, "bytes=0-7,2-9"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes("0123456789".getBytes()));
+
+        // If-Range com a data e o ETag atuais vale o Range; com outros, ou com ETag fraco, envia tudo
+        mockMvc.perform(get("/documentos/{id}", id)
+                        .header(HttpHeaders.RANGE, "bytes=2-5")
+                        .header(HttpHeaders.IF_RANGE, lastModified))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes("2345".getBytes()));
+        mockMvc.perform(get("/documentos/{id}", id)
+                        .header(HttpHeaders.RANGE, "bytes=2-5")
+                        .header(HttpHeaders.IF_RANGE, "\"abc123\""))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes("2345".getBytes()));
+        for (String ifRange : List.of("\"outro\"", "W/\"abc123\"", "Wed, 21 Oct 2015 07:28:00 GMT")) {
+            mockMvc.perform(get("/documentos/{id}", id)
+                            .header(HttpHeaders.RANGE, "bytes=2-5")
+                            .header(HttpHeaders.IF_RANGE, ifRange))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes("0123456789".getBytes()));
+        }
+    }
+
+    @Test
+    public void buscarDocumentoCondicionalTest() throws Exception {
+        Long id = 6L;
+        Path filePath = tempDir.resolve("teste_6.txt");
+        Files.write(filePath, "0123456789".getBytes());
+        DocumentoDownloadDto download = new DocumentoDownloadDto(new UrlResource(filePath.toUri()), "teste_6.txt");
+        download.setEtag("abc123");
+        download.setUltimaModificacao(LocalDateTime.of(2025, 1, 10, 8, 30));
+        Mockito.when(documentoService.buscarDocumentoParaDownload(id)).thenReturn(download);
+
+        String lastModified = mockMvc.perform(get("/documentos/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc123\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andReturn().getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+
+        mockMvc.perform(get("/documentos/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "\"abc123\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+
+        mockMvc.perform(get("/documentos/{id}", id).header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/documentos/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "\"outro\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes("0123456789".getBytes()));
+
+        mockMvc.perform(get("/documentos/{id}", id)
+                        .header(HttpHeaders.RANGE, "bytes=2-5")
+                        .header(HttpHeaders.IF_RANGE, "\"abc123\""))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes("2345".getBytes()));
+    }
+
+    @Test
+    public void buscarDocumentoEmSegmentoTest() throws Exception {
+        Long id = 7L;
+        // Fatia no meio de um segmento: só os bytes do documento podem ser enviados
+        ByteBuffer segmento = ByteBuffer.wrap("xxxx0123456789yyyy".getBytes());
+        DocumentoDownloadDto download = new DocumentoDownloadDto(null, "teste_7.txt");
+        download.setConteudo(ConteudoArmazenado.deBuffer(segmento.slice(4, 10)));
+        download.setEtag("hash7");
+        download.setUltimaModificacao(LocalDateTime.of(2025, 1, 10, 8, 30));
+        Mockito.when(documentoService.buscarDocumentoParaDownload(id)).thenReturn(download);
+
+        mockMvc.perform(get("/documentos/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"hash7\""))
+                .andExpect(content().bytes("0123456789".getBytes()));
+
+        mockMvc.perform(get("/documentos/{id}", id).header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(content().bytes("2345".getBytes()));
+    }
+
+    @Test
+    public void buscarDocumentoComprimidoTest() throws Exception {
+        Long id = 5L;
+        byte[] conteudo = "conteúdo comprimido em disco".getBytes(StandardCharsets.UTF_8);
+        Path filePath = tempDir.resolve("teste_5.txt");
+        try (OutputStream saida = new GZIPOutputStream(Files.newOutputStream(filePath))) {
+            saida.write(conteudo);
+        }
+        DocumentoDownloadDto download = new DocumentoDownloadDto(
+                new UrlResource(filePath.toUri()), "teste_5.txt", "gzip", (long) conteudo.length);
+        download.setEtag("hash5");
+        Mockito.when(documentoService.buscarDocumentoParaDownload(id)).thenReturn(download);
+
+        mockMvc.perform(get("/documentos/{id}", id).header(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(content().bytes(Files.readAllBytes(filePath)));
+
+        mockMvc.perform(get("/documentos/{id}", id)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"hash5-gzip\""))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/documentos/{id}", id).header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, conteudo.length))
+                .andExpect(content().bytes(conteudo));
+    }
+
     @Test
     public void buscarDocumentoNaoEncontradoTest() throws Exception {
         Long id = 1L;
@@ -103,6 +359,27 @@ public class DocumentoControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void registrarMetricasDoDownloadTest() throws Exception {
+        Long id = 10L;
+        DocumentoDownloadDto download = new DocumentoDownloadDto(null, "teste_10.txt");
+        download.setConteudo(ConteudoArmazenado.deBuffer(ByteBuffer.wrap("0123456789".getBytes())));
+        Mockito.when(documentoService.buscarDocumentoParaDownload(id)).thenReturn(download);
+        Mockito.when(documentoService.buscarDocumentoParaDownload(11L))
+                .thenThrow(new FileNotFoundException("Documento n\u00e3o encontrado"));
+        double enviados = meterRegistry.counter("sisgerdoc.transferencia.bytes", "direcao", "saida").count();
+        double naoEncontrados = meterRegistry.counter("sisgerdoc.erros", "operacao", "download", "resultado", "nao_encontrado").count();
+
+        mockMvc.perform(get("/documentos/{id}", id).header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent());
+        mockMvc.perform(get("/documentos/{id}", 11L))
+                .andExpect(status().isNotFound());
+
+        assertEquals(enviados + 4, meterRegistry.counter("sisgerdoc.transferencia.bytes", "direcao", "saida").count());
+        assertEquals(naoEncontrados + 1, meterRegistry.counter("sisgerdoc.erros", "operacao", "download", "resultado", "nao_encontrado").count());
+        assertEquals(0, meterRegistry.get("sisgerdoc.transferencias.ativas").tag("operacao", "download").gauge().value());
+    }
+
     @Test
     public void deletarDocumentoComSucessoTest() throws Exception {
         Long id = 1L;
@@ -131,4 +408,41 @@ public class DocumentoControllerTest {
         mockMvc.perform(delete("/documentos/{id}", id))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    public void buscarPorConteudoTest() throws Exception {
+        DocumentoResumoDto resumo = new DocumentoResumoDto(8L, "Contrato", "contrato_8.txt", 120L, LocalDateTime.of(2025, 1, 10, 8, 30));
+        Mockito.when(indiceConteudoService.buscar("aluguel", 1, 10))
+                .thenReturn(new PaginaBuscaDto(List.of(new DocumentoEncontradoDto(resumo, 1.5f)), 11, 1, 10));
+        Mockito.when(indiceConteudoService.buscar(eq("!!"), eq(0), eq(20)))
+                .thenThrow(new IllegalArgumentException("A consulta não contém termos pesquisáveis"));
+
+        mockMvc.perform(get("/documentos/search").param("q", "aluguel").param("pagina", "1").param("limite", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(11))
+                .andExpect(jsonPath("$.documentos[0].id").value(8))
+                .andExpect(jsonPath("$.documentos[0].pontuacao").value(1.5));
+
+        mockMvc.perform(get("/documentos/search").param("q", "!!"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/documentos/search").param("q", "aluguel").param("limite", "1000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void buscarPorNomeTest() throws Exception {
+        DocumentoResumoDto resumo = new DocumentoResumoDto(9L, "Relatório anual", "Relatorio_anual_09.pdf", 2048L, LocalDateTime.of(2025, 2, 1, 9, 0));
+        Mockito.when(indiceNomeService.buscar("relat", 0, 20))
+                .thenReturn(new PaginaBuscaDto(List.of(new DocumentoEncontradoDto(resumo, 1.0f)), 1, 0, 20));
+        Mockito.when(indiceNomeService.buscar(eq("ab"), eq(0), eq(20)))
+                .thenThrow(new IllegalArgumentException("A consulta deve ter entre 3 e 100 caracteres"));
+
+        mockMvc.perform(get("/documentos/search/nome").param("q", "relat"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.documentos[0].id").value(9))
+                .andExpect(jsonPath("$.documentos[0].fileName").value("Relatorio_anual_09.pdf"));
+
+        mockMvc.perform(get("/documentos/search/nome").param("q", "ab"))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,223 @@
+package br.com.fernandoramosjr.sisgerdoc.security;
+
+import br.com.fernandoramosjr.sisgerdoc.util.DownloadUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class APIKeyFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void limpaContexto() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void recusarChaveInvalidaTest() throws Exception {
+        APIKeyFilter filter = new APIKeyFilter(new MockEnvironment().withProperty("api.key", "123"), registry);
+
+        MockHttpServletResponse response = executa(filter, requisicao("GET", "/documentos", "999"), (req, res) -> {
+        });
+
+        assertEquals(401, response.getStatus());
+    }
+
+    @Test
+    void aceitarChaveConfiguradaPeloHashTest() throws Exception {
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest("segredo".getBytes(StandardCharsets.UTF_8)));
+        APIKeyFilter filter = new APIKeyFilter(new MockEnvironment()
+                .withProperty("api.chaves", "integracao=sha256:" + hash), registry);
+        AtomicReference<String> usuario = new AtomicReference<>();
+
+        MockHttpServletResponse response = executa(filter, requisicao("GET", "/documentos", "segredo"),
+                (req, res) -> usuario.set(SecurityContextHolder.getContext().getAuthentication().getName()));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("integracao", usuario.get());
+    }
+
+    @Test
+    void limitarRequisicoesPorSegundoTest() throws Exception {
+        APIKeyFilter filter = new APIKeyFilter(new MockEnvironment()
+                .withProperty("api.key", "123")
+                .withProperty("api.clientes.padrao.requisicoes-por-segundo", "0.01")
+                .withProperty("api.clientes.padrao.rajada-requisicoes", "2"), registry);
+
+        assertEquals(200, executa(filter, requisicao("GET", "/documentos", "123"), (req, res) -> {
+        }).getStatus());
+        assertEquals(200, executa(filter, requisicao("GET", "/documentos", "123"), (req, res) -> {
+        }).getStatus());
+        MockHttpServletResponse recusada = executa(filter, requisicao("GET", "/documentos", "123"), (req, res) -> {
+        });
+
+        assertEquals(429, recusada.getStatus());
+        assertEquals(100, Long.parseLong(recusada.getHeader("Retry-After")), 1);
+        assertEquals(1.0, registry.get("sisgerdoc.api.rejeicoes").tag("cliente", "padrao")
+                .tag("motivo", ClienteApi.MOTIVO_REQUISICOES).counter().count());
+    }
+
+    @Test
+    void limitarTransferenciasSimultaneasTest() throws Exception {
+        APIKeyFilter filter = new APIKeyFilter(new MockEnvironment()
+                .withProperty("api.key", "123")
+                .withProperty("api.limite.transferencias-simultaneas", "1"), registry);
+        AtomicReference<MockHttpServletResponse> concorrente = new AtomicReference<>();
+        AtomicReference<MockHttpServletResponse> listagem = new AtomicReference<>();
+
+        MockHttpServletResponse response = executa(filter, requisicao("GET", "/documentos/1", "123"), (req, res) -> {
+            concorrente.set(executa(filter, requisicao("GET", "/documentos/2", "123"), (r, s) -> {
+            }));
+            // Requisições que não transferem conteúdo não ocupam vaga
+            listagem.set(executa(filter, requisicao("GET", "/documentos", "123"), (r, s) -> {
+            }));
+        });
+
+        assertEquals(200, response.getStatus());
+        assertEquals(429, concorrente.get().getStatus());
+        assertEquals("1", concorrente.get().getHeader("Retry-After"));
+        assertEquals(200, listagem.get().getStatus());
+        assertEquals(200, executa(filter, requisicao("GET", "/documentos/2", "123"), (req, res) -> {
+        }).getStatus());
+    }
+
+    @Test
+    void desativarSendfileComLimiteDeTransferenciasTest() throws Exception {
+        APIKeyFilter limitado = new APIKeyFilter(new MockEnvironment()
+                .withProperty("api.key", "123")
+                .withProperty("api.limite.transferencias-simultaneas", "1"), registry);
+        // Sem configuração o limite fica desativado e o sendfile continua disponível
+        APIKeyFilter livre = new APIKeyFilter(new MockEnvironment().withProperty("api.key", "123"), registry);
+        AtomicReference<Object> comLimite = new AtomicReference<>();
+        AtomicReference<Object> semLimite = new AtomicReference<>();
+
+        executa(limitado, downloadComSendfile(), (req, res) -> comLimite.set(req.getAttribute(DownloadUtil.SENDFILE_SUPPORT)));
+        executa(livre, downloadComSendfile(), (req, res) -> semLimite.set(req.getAttribute(DownloadUtil.SENDFILE_SUPPORT)));
+
+        assertNull(comLimite.get());
+        assertEquals(Boolean.TRUE, semLimite.get());
+    }
+
+    @Test
+    void cobrarBytesDoDownloadDepoisDoEnvioTest() throws Exception {
+        APIKeyFilter filter = new APIKeyFilter(new MockEnvironment()
+                .withProperty("api.key", "123")
+                .withProperty("api.limite.bytes-por-segundo", "1KB")
+                .withProperty("api.limite.rajada-bytes", "1KB"), registry);
+
+        MockHttpServletResponse response = executa(filter, requisicao("GET", "/documentos/1", "123"),
+                (req, res) -> res.setContentLengthLong(11 * 1024));
+        MockHttpServletResponse recusada = executa(filter, requisicao("GET", "/documentos/1", "123"), (req, res) -> {
+        });
+
+        assertEquals(200, response.getStatus());
+        assertEquals(429, recusada.getStatus());
+        assertEquals(10, Long.parseLong(recusada.getHeader("Retry-After")), 1);
+    }
+
+    @Test
+    void cobrarBytesEscritosSemContentLengthTest() throws Exception {
+        APIKeyFilter filter = new APIKeyFilter(new MockEnvironment()
+                .withProperty("api.key", "123")
+                .withProperty("api.limite.bytes-por-segundo", "1KB")
+                .withProperty("api.limite.rajada-bytes", "1KB"), registry);
+
+        // A exportação envia o ZIP sem Content-Length
+        MockHttpServletRequest exportacao = requisicao("POST", "/documentos/exportar", "123");
+        exportacao.setContentType("application/json");
+        MockHttpServletResponse response = executa(filter, exportacao,
+                (req, res) -> res.getOutputStream().write(new byte[6 * 1024]));
+        MockHttpServletResponse recusada = executa(filter, requisicao("GET", "/documentos/1", "123"), (req, res) -> {
+        });
+
+        assertEquals(6 * 1024, response.getContentAsByteArray().length);
+        assertEquals(429, recusada.getStatus());
+        assertEquals(5, Long.parseLong(recusada.getHeader("Retry-After")), 1);
+    }
+
+    @Test
+    void cobrarBytesDoUploadPeloContentLengthTest() throws Exception {
+        APIKeyFilter filter = new APIKeyFilter(new MockEnvironment()
+                .withProperty("api.key", "123")
+                .withProperty("api.limite.bytes-por-segundo", "1KB")
+                .withProperty("api.limite.rajada-bytes", "4KB"), registry);
+        MockHttpServletRequest primeiro = requisicao("POST", "/documentos", "123");
+        primeiro.setContentType("multipart/form-data; boundary=x");
+        primeiro.setContent(new byte[3 * 1024]);
+        MockHttpServletRequest segundo = requisicao("POST", "/documentos", "123");
+        segundo.setContentType("multipart/form-data; boundary=x");
+        segundo.setContent(new byte[3 * 1024]);
+
+        assertEquals(200, executa(filter, primeiro, (req, res) -> {
+        }).getStatus());
+        MockHttpServletResponse recusada = executa(filter, segundo, (req, res) -> {
+        });
+
+        assertEquals(429, recusada.getStatus());
+        assertEquals(2, Long.parseLong(recusada.getHeader("Retry-After")), 1);
+    }
+
+    @Test
+    void cobrarBytesLidosDoUploadSemContentLengthTest() throws Exception {
+        APIKeyFilter filter = new APIKeyFilter(new MockEnvironment()
+                .withProperty("api.key", "123")
+                .withProperty("api.limite.bytes-por-segundo", "1KB")
+                .withProperty("api.limite.rajada-bytes", "1KB"), registry);
+        // Upload chunked: o corpo chega sem Content-Length
+        MockHttpServletRequest chunked = new MockHttpServletRequest("PUT", "/documentos/1") {
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        chunked.addHeader("X-API-KEY", "123");
+        chunked.setContentType("application/octet-stream");
+        chunked.setContent(new byte[6 * 1024]);
+        AtomicReference<Integer> recebido = new AtomicReference<>();
+
+        executa(filter, chunked, (req, res) -> recebido.set(req.getInputStream().readAllBytes().length));
+        MockHttpServletResponse recusada = executa(filter, requisicao("GET", "/documentos/1", "123"), (req, res) -> {
+        });
+
+        assertEquals(6 * 1024, recebido.get());
+        assertEquals(429, recusada.getStatus());
+        assertEquals(5, Long.parseLong(recusada.getHeader("Retry-After")), 1);
+    }
+
+    private MockHttpServletRequest requisicao(String metodo, String uri, String apiKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest(metodo, uri);
+        request.addHeader("X-API-KEY", apiKey);
+        return request;
+    }
+
+    private MockHttpServletRequest downloadComSendfile() {
+        MockHttpServletRequest request = requisicao("GET", "/documentos/1", "123");
+        request.setAttribute(DownloadUtil.SENDFILE_SUPPORT, Boolean.TRUE);
+        return request;
+    }
+
+    private MockHttpServletResponse executa(APIKeyFilter filter, MockHttpServletRequest request, FilterChain chain) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,166 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Blob;
+import br.com.fernandoramosjr.sisgerdoc.repository.BlobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BlobServiceImplTest {
+
+    private static final String HASH = "ab12cd34";
+
+    @Mock
+    private BlobRepository blobRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BlobServiceImpl blobService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setup() {
+        blobService = new BlobServiceImpl(blobRepository, new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(blobService, "uploadDir", tempDir.toString());
+        Mockito.lenient().when(blobRepository.save(Mockito.any(Blob.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    public void armazenarNovoBlobTest() throws IOException {
+        Path temporario = Files.write(tempDir.resolve("upload.part"), "Conteúdo".getBytes());
+        ArgumentCaptor<String> filePath = ArgumentCaptor.forClass(String.class);
+        Mockito.when(blobRepository.insereSemReferencias(Mockito.eq(HASH), filePath.capture(), Mockito.eq(Files.size(temporario)),
+                Mockito.any())).thenAnswer(invocation -> {
+            // O arquivo ainda não foi movido quando a linha é inserida
+            assertTrue(Files.exists(temporario));
+            return 1;
+        });
+        Mockito.when(blobRepository.findByHashParaAtualizacao(HASH))
+                .thenReturn(Optional.empty())
+                .thenAnswer(invocation -> Optional.of(new Blob(HASH, filePath.getValue(), 9L, 0L, null)));
+
+        Blob blob = blobService.armazenar(temporario, HASH);
+
+        assertEquals(1L, blob.getReferencias());
+        assertEquals(tempDir.resolve(".blobs").resolve("ab"), Path.of(blob.getFilePath()).getParent());
+        assertTrue(Path.of(blob.getFilePath()).getFileName().toString().startsWith(HASH + "-"));
+        assertTrue(Files.exists(Path.of(blob.getFilePath())));
+        assertFalse(Files.exists(temporario));
+    }
+
+    @Test
+    public void armazenarBlobRegistradoPorUploadSimultaneoTest() throws IOException {
+        Path temporario = Files.write(tempDir.resolve("upload.part"), "Conteúdo".getBytes());
+        Blob concorrente = new Blob(HASH, tempDir.resolve(HASH).toString(), 9L, 1L, null);
+        Mockito.when(blobRepository.insereSemReferencias(Mockito.eq(HASH), Mockito.anyString(), Mockito.anyLong(), Mockito.any()))
+                .thenThrow(new DataIntegrityViolationException("chave duplicada"));
+        Mockito.when(blobRepository.findByHashParaAtualizacao(HASH))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(concorrente));
+
+        Blob blob = blobService.armazenar(temporario, HASH);
+
+        assertSame(concorrente, blob);
+        assertEquals(2L, blob.getReferencias());
+        assertFalse(Files.exists(temporario));
+        try (var arquivos = Files.walk(tempDir.resolve(".blobs"))) {
+            assertEquals(0, arquivos.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    public void descartarBlobNovoQuandoTransacaoEDesfeitaTest() throws IOException {
+        Path temporario = Files.write(tempDir.resolve("upload.part"), "Conteúdo".getBytes());
+        ArgumentCaptor<String> filePath = ArgumentCaptor.forClass(String.class);
+        Mockito.when(blobRepository.insereSemReferencias(Mockito.eq(HASH), filePath.capture(), Mockito.anyLong(), Mockito.any()))
+                .thenReturn(1);
+        Mockito.when(blobRepository.findByHashParaAtualizacao(HASH))
+                .thenReturn(Optional.empty())
+                .thenAnswer(invocation -> Optional.of(new Blob(HASH, filePath.getValue(), 9L, 0L, null)));
+        Mockito.when(blobRepository.removeSemReferencias(Mockito.eq(HASH), Mockito.anyString())).thenReturn(1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            blobService.armazenar(temporario, HASH);
+            assertTrue(Files.exists(Path.of(filePath.getValue())));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sincronizacao -> sincronizacao.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        Mockito.verify(blobRepository).removeSemReferencias(HASH, filePath.getValue());
+        assertFalse(Files.exists(Path.of(filePath.getValue())));
+    }
+
+    @Test
+    public void armazenarBlobExistenteReaproveitaConteudoTest() throws IOException {
+        Path temporario = Files.write(tempDir.resolve("upload.part"), "Conteúdo".getBytes());
+        Blob existente = new Blob(HASH, tempDir.resolve(HASH).toString(), 9L, 1L, null);
+        Mockito.when(blobRepository.findByHashParaAtualizacao(HASH)).thenReturn(Optional.of(existente));
+
+        Blob blob = blobService.armazenar(temporario, HASH);
+
+        assertEquals(2L, blob.getReferencias());
+        assertFalse(Files.exists(temporario));
+    }
+
+    @Test
+    public void liberarUltimaReferenciaApagaBlobTest() throws IOException {
+        Path blobPath = Files.write(tempDir.resolve(HASH), "Conteúdo".getBytes());
+        Blob existente = new Blob(HASH, blobPath.toString(), 9L, 2L, null);
+        Mockito.when(blobRepository.findByHashParaAtualizacao(HASH)).thenReturn(Optional.of(existente));
+
+        blobService.liberarReferencia(HASH);
+        assertTrue(Files.exists(blobPath));
+        Mockito.verify(blobRepository, Mockito.never()).delete(existente);
+
+        blobService.liberarReferencia(HASH);
+        assertFalse(Files.exists(blobPath));
+        Mockito.verify(blobRepository).delete(existente);
+    }
+
+    @Test
+    public void manterArquivoDoBlobAteAConfirmacaoTest() throws IOException {
+        Path blobPath = Files.write(tempDir.resolve(HASH), "Conteúdo".getBytes());
+        Blob existente = new Blob(HASH, blobPath.toString(), 9L, 1L, null);
+        Mockito.when(blobRepository.findByHashParaAtualizacao(HASH)).thenReturn(Optional.of(existente));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            blobService.liberarReferencia(HASH);
+            assertTrue(Files.exists(blobPath));
+            // Transação desfeita: o arquivo continua lá
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sincronizacao -> sincronizacao.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+            assertTrue(Files.exists(blobPath));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertFalse(Files.exists(blobPath));
+    }
+}
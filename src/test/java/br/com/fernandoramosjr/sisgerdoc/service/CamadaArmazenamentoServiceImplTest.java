@@ -0,0 +1,153 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.storage.ArquivoStorageEngine;
+import br.com.fernandoramosjr.sisgerdoc.storage.CamadaFriaStorageEngine;
+import br.com.fernandoramosjr.sisgerdoc.util.DocumentoUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CamadaArmazenamentoServiceImplTest {
+
+    @Mock
+    private DocumentoRepository documentoRepository;
+
+    @Mock
+    private EstatisticaService estatisticaService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CamadaArmazenamentoServiceImpl camadaService;
+    private Path quente;
+    private Path fria;
+
+    @TempDir
+    Path tempDir;
+
+    private final String texto = "relatorio mensal de atividades\n".repeat(200);
+
+    @BeforeEach
+    public void setup() throws IOException {
+        quente = Files.createDirectories(tempDir.resolve("quente"));
+        fria = tempDir.resolve("fria");
+        ArquivoStorageEngine arquivoStorageEngine = new ArquivoStorageEngine();
+        ReflectionTestUtils.setField(arquivoStorageEngine, "uploadDir", quente.toString());
+        CamadaFriaStorageEngine camadaFria = new CamadaFriaStorageEngine(arquivoStorageEngine);
+        ReflectionTestUtils.setField(camadaFria, "diretorio", fria.toString());
+        camadaService = new CamadaArmazenamentoServiceImpl(documentoRepository, new DocumentoCache(100, Duration.ofMinutes(1)),
+                estatisticaService, arquivoStorageEngine, camadaFria, new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(camadaService, "uploadDir", quente.toString());
+    }
+
+    @Test
+    public void rebaixarDocumentosSemAcessoTest() throws IOException {
+        Path arquivo = Files.writeString(quente.resolve("relatorio_5.txt"), texto);
+        Documento relatorio = new Documento(5L, "relatorio", arquivo.toString(), (long) texto.length(), "relatorio_5.txt",
+                LocalDateTime.now().minusDays(90));
+        Path foto = Files.write(quente.resolve("foto_6.jpg"), new byte[4096]);
+        Documento imagem = new Documento(6L, "foto", foto.toString(), 4096L, "foto_6.jpg", LocalDateTime.now().minusDays(90));
+        Documento baixado = new Documento(7L, "ata", quente.resolve("ata_7.txt").toString(), 10L, "ata_7.txt",
+                LocalDateTime.now().minusDays(90));
+        camadaService.registrarAcesso(baixado);
+        Mockito.when(documentoRepository.buscaLoteParaCamadaFria(Mockito.eq(0L), Mockito.any(), Mockito.any(Limit.class)))
+                .thenReturn(List.of(relatorio, imagem));
+        Mockito.when(documentoRepository.buscaLoteParaCamadaFria(Mockito.eq(6L), Mockito.any(), Mockito.any(Limit.class)))
+                .thenReturn(List.of());
+        Mockito.when(documentoRepository.atualizaCamada(Mockito.anyLong(), Mockito.anyString(), Mockito.anyString(),
+                Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.anyLong())).thenReturn(1);
+
+        assertEquals(2, camadaService.rebaixar());
+
+        // Os acessos pendentes são gravados antes da busca
+        Mockito.verify(documentoRepository).registraAcessos(Mockito.<Collection<Long>>argThat(ids -> ids.contains(7L)), Mockito.any());
+        ArgumentCaptor<String> novo = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Long> tamanho = ArgumentCaptor.forClass(Long.class);
+        Mockito.verify(documentoRepository).atualizaCamada(Mockito.eq(5L), Mockito.eq(arquivo.toString()), novo.capture(),
+                Mockito.eq(CamadaFriaStorageEngine.NOME), Mockito.eq(DocumentoUtil.CODIFICACAO_GZIP),
+                Mockito.eq((long) texto.length()), tamanho.capture());
+        Path rebaixado = Path.of(novo.getValue());
+        assertEquals(fria, rebaixado.getParent());
+        assertFalse(Files.exists(arquivo));
+        assertEquals(Files.size(rebaixado), tamanho.getValue());
+        assertTrue(tamanho.getValue() < texto.length());
+        try (InputStream entrada = new GZIPInputStream(Files.newInputStream(rebaixado))) {
+            assertEquals(texto, new String(entrada.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        // Formato já comprimido vai como está
+        Mockito.verify(documentoRepository).atualizaCamada(Mockito.eq(6L), Mockito.eq(foto.toString()),
+                Mockito.eq(fria.resolve("foto_6.jpg").toString()), Mockito.eq(CamadaFriaStorageEngine.NOME),
+                Mockito.isNull(), Mockito.isNull(), Mockito.eq(4096L));
+        Mockito.verify(estatisticaService).registrarAtualizacao(texto.length(), tamanho.getValue());
+    }
+
+    @Test
+    public void promoverDocumentoDescomprimindoTest() throws IOException {
+        Files.createDirectories(fria);
+        Path arquivo = fria.resolve("relatorio_5.txt");
+        new DocumentoUtil(fria.toString()).copiaConteudoComprimido(
+                new ByteArrayInputStream(texto.getBytes(StandardCharsets.UTF_8)), arquivo, Long.MAX_VALUE);
+        Documento relatorio = new Documento(5L, "relatorio", arquivo.toString(), Files.size(arquivo), "relatorio_5.txt",
+                LocalDateTime.now().minusDays(90));
+        relatorio.setArmazenamento(CamadaFriaStorageEngine.NOME);
+        relatorio.setCodificacao(DocumentoUtil.CODIFICACAO_GZIP);
+        relatorio.setTamanhoOriginal((long) texto.length());
+        Mockito.when(documentoRepository.findById(5L)).thenReturn(Optional.of(relatorio));
+        Path destino = quente.resolve("relatorio_5.txt");
+        Mockito.when(documentoRepository.atualizaCamada(5L, arquivo.toString(), destino.toString(), ArquivoStorageEngine.NOME,
+                null, null, (long) texto.length())).thenReturn(1);
+
+        assertTrue(camadaService.promover(5L));
+
+        assertEquals(texto, Files.readString(destino));
+        assertFalse(Files.exists(arquivo));
+    }
+
+    @Test
+    public void manterDocumentoAlteradoDuranteATrocaTest() throws IOException {
+        Path arquivo = Files.writeString(quente.resolve("relatorio_5.txt"), texto);
+        Documento relatorio = new Documento(5L, "relatorio", arquivo.toString(), (long) texto.length(), "relatorio_5.txt",
+                LocalDateTime.now().minusDays(90));
+        Mockito.when(documentoRepository.buscaLoteParaCamadaFria(Mockito.eq(0L), Mockito.any(), Mockito.any(Limit.class)))
+                .thenReturn(List.of(relatorio));
+        Mockito.when(documentoRepository.buscaLoteParaCamadaFria(Mockito.eq(5L), Mockito.any(), Mockito.any(Limit.class)))
+                .thenReturn(List.of());
+        Mockito.when(documentoRepository.atualizaCamada(Mockito.eq(5L), Mockito.anyString(), Mockito.anyString(),
+                Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.anyLong())).thenReturn(0);
+
+        assertEquals(0, camadaService.rebaixar());
+
+        assertEquals(texto, Files.readString(arquivo));
+        try (var arquivos = Files.walk(fria)) {
+            assertEquals(0, arquivos.filter(Files::isRegularFile).count());
+        }
+        Mockito.verifyNoInteractions(estatisticaService);
+    }
+}
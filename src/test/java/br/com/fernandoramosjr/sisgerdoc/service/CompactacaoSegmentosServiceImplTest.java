@@ -0,0 +1,112 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.OcupacaoSegmentoDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.storage.ArquivoStorageEngine;
+import br.com.fernandoramosjr.sisgerdoc.storage.SegmentoStorageEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CompactacaoSegmentosServiceImplTest {
+
+    @Mock
+    private DocumentoRepository documentoRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SegmentoStorageEngine segmentoStorageEngine;
+
+    private CompactacaoSegmentosServiceImpl compactacaoService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setup() {
+        ArquivoStorageEngine arquivoStorageEngine = new ArquivoStorageEngine();
+        ReflectionTestUtils.setField(arquivoStorageEngine, "uploadDir", tempDir.toString());
+        segmentoStorageEngine = new SegmentoStorageEngine(arquivoStorageEngine);
+        ReflectionTestUtils.setField(segmentoStorageEngine, "uploadDir", tempDir.toString());
+        ReflectionTestUtils.setField(segmentoStorageEngine, "tamanhoMaximoSegmento", DataSize.ofBytes(120));
+        compactacaoService = new CompactacaoSegmentosServiceImpl(documentoRepository, segmentoStorageEngine,
+                new DocumentoCache(100, Duration.ofMinutes(1)), new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(compactacaoService, "idadeMinima", Duration.ofSeconds(-60));
+    }
+
+    @AfterEach
+    public void fecha() throws IOException {
+        segmentoStorageEngine.fechar();
+    }
+
+    @Test
+    public void compactarSegmentoComPoucosDocumentosVivosTest() throws IOException {
+        Documento vivo = armazena(1L, "Documento mantido");
+        Documento excluido = armazena(2L, "Documento excluído depois");
+        armazena(3L, "Grava no segmento seguinte e sela o primeiro segmento");
+        assertEquals(1L, vivo.getSegmento());
+        assertEquals(1L, excluido.getSegmento());
+
+        Mockito.when(documentoRepository.calculaOcupacaoSegmentos())
+                .thenReturn(List.of(new OcupacaoSegmentoDto(1L, 1, vivo.getFileSize())));
+        Mockito.when(documentoRepository.buscaLoteDoSegmento(Mockito.eq(1L), Mockito.eq(0L), Mockito.any(Limit.class)))
+                .thenReturn(List.of(vivo));
+        Mockito.when(documentoRepository.buscaLoteDoSegmento(Mockito.eq(1L), Mockito.eq(1L), Mockito.any(Limit.class)))
+                .thenReturn(List.of());
+        Mockito.when(documentoRepository.atualizaPosicaoSegmento(Mockito.eq(1L), Mockito.eq(1L), Mockito.eq(vivo.getSegmentoOffset()),
+                Mockito.anyLong(), Mockito.anyLong())).thenReturn(1);
+
+        assertEquals(1, compactacaoService.compactar());
+
+        ArgumentCaptor<Long> novoSegmento = ArgumentCaptor.forClass(Long.class);
+        ArgumentCaptor<Long> novoOffset = ArgumentCaptor.forClass(Long.class);
+        Mockito.verify(documentoRepository).atualizaPosicaoSegmento(Mockito.eq(1L), Mockito.eq(1L),
+                Mockito.eq(vivo.getSegmentoOffset()), novoSegmento.capture(), novoOffset.capture());
+        assertEquals(2L, novoSegmento.getValue());
+        Documento realocado = new Documento(vivo);
+        realocado.setSegmento(novoSegmento.getValue());
+        realocado.setSegmentoOffset(novoOffset.getValue());
+        try (InputStream entrada = segmentoStorageEngine.abrir(realocado).abreStream()) {
+            assertEquals("Documento mantido", new String(entrada.readAllBytes()));
+        }
+
+        // Na execução seguinte o segmento não tem mais documentos vivos e é apagado
+        Path segmento = tempDir.resolve(".segmentos").resolve("segmento-0000000001.dat");
+        assertTrue(Files.exists(segmento));
+        Mockito.when(documentoRepository.calculaOcupacaoSegmentos()).thenReturn(List.of());
+        assertEquals(0, compactacaoService.compactar());
+        assertFalse(Files.exists(segmento));
+    }
+
+    private Documento armazena(Long id, String conteudo) throws IOException {
+        Documento documento = new Documento(id, "documento", null, null, "documento_" + id + ".txt", LocalDateTime.now());
+        Path temporario = Files.writeString(tempDir.resolve(".upload-" + id + ".part"), conteudo);
+        documento.setFileSize(Files.size(temporario));
+        segmentoStorageEngine.armazenar(documento, temporario);
+        return documento;
+    }
+}
@@ -0,0 +1,116 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Conta os comandos enviados ao H2: cada documento novo deve ser gravado com um único INSERT, sem UPDATE
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.datasource.url=jdbc:h2:mem:persistencia",
+        // A indexação de conteúdo marca os documentos novos com UPDATEs próprios, em segundo plano
+        "documento.indice.habilitado=false",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+public class DocumentoPersistenciaTest {
+
+    @TempDir
+    static Path uploadDir;
+
+    @Autowired
+    private DocumentoService documentoService;
+
+    @Autowired
+    private DocumentoRepository documentoRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @DynamicPropertySource
+    static void propriedades(DynamicPropertyRegistry registry) {
+        registry.add("file.upload-dir", uploadDir::toString);
+    }
+
+    @BeforeEach
+    void zeraEstatisticas() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void criarDocumentoComUmInsertTest() throws Exception {
+        documentoService.criarNovoDocumento("contrato", arquivo("contrato.txt"));
+
+        assertUmInsertPorDocumento(1);
+    }
+
+    @Test
+    void criarLoteComUmInsertPorDocumentoTest() throws Exception {
+        List<Documento> criados = documentoService.criarDocumentosEmLote(null,
+                List.of(arquivo("a.txt"), arquivo("b.txt"), arquivo("c.txt")));
+
+        assertUmInsertPorDocumento(3);
+        assertEquals("b", documentoRepository.findById(criados.get(1).getId()).orElseThrow().getNome());
+    }
+
+    @Test
+    void registrarArquivoRecebidoComUmInsertTest() throws Exception {
+        Path temporario = Files.writeString(Files.createTempFile(uploadDir, "recebido", ".tmp"), "conteudo recebido");
+
+        documentoService.criarNovoDocumento("recebido", "recebido.txt", temporario);
+
+        assertUmInsertPorDocumento(1);
+    }
+
+    @Test
+    void criarDocumentoViaStreamingComUmInsertTest() throws Exception {
+        // Sem transação durante a cópia: a reserva do ID e o INSERT rodam cada um na sua
+        String corpo = "--limite\r\n"
+                + "Content-Disposition: form-data; name=\"nome\"\r\n\r\nstreaming\r\n"
+                + "--limite\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"streaming.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\nconteudo via streaming\r\n"
+                + "--limite--\r\n";
+
+        Documento documento = documentoService.criarNovoDocumentoStreaming("multipart/form-data; boundary=limite",
+                new ByteArrayInputStream(corpo.getBytes(StandardCharsets.UTF_8)));
+
+        assertUmInsertPorDocumento(1);
+        Documento gravado = documentoRepository.findById(documento.getId()).orElseThrow();
+        assertEquals(documento.getFileName(), gravado.getFileName());
+        assertEquals("streaming", gravado.getNome());
+    }
+
+    // Sem UPDATE depois do INSERT e sem o SELECT que um merge faria para um ID já atribuído
+    private void assertUmInsertPorDocumento(int quantidade) {
+        EntityStatistics documentos = statistics.getEntityStatistics(Documento.class.getName());
+        assertEquals(quantidade, documentos.getInsertCount());
+        assertEquals(0, documentos.getUpdateCount());
+        assertEquals(0, documentos.getLoadCount());
+    }
+
+    private MockMultipartFile arquivo(String nome) {
+        return new MockMultipartFile("file", nome, "text/plain", ("conteudo de " + nome).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,24 +1,46 @@
 package br.com.fernandoramosjr.sisgerdoc.service;
 
+import br.com.fernandoramosjr.sisgerdoc.model.Blob;
 import br.com.fernandoramosjr.sisgerdoc.model.Documento;
 import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoDownloadDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.PaginaDocumentosDto;
 import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.storage.ArquivoStorageEngine;
+import br.com.fernandoramosjr.sisgerdoc.storage.SegmentoStorageEngine;
+import br.com.fernandoramosjr.sisgerdoc.storage.StorageEngineRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -28,6 +50,40 @@ public class DocumentoServiceImplTest {
     @Mock
     private DocumentoRepository documentoRepository;
 
+    @Mock
+    private BlobService blobService;
+
+    @Mock
+    private EstatisticaService estatisticaService;
+
+    @Mock
+    private IndiceConteudoService indiceConteudoService;
+
+    @Mock
+    private IndiceNomeService indiceNomeService;
+
+    @Mock
+    private VersaoDocumentoService versaoDocumentoService;
+
+    @Mock
+    private CamadaArmazenamentoService camadaArmazenamentoService;
+
+    @Spy
+    private DocumentoCache documentoCache = new DocumentoCache(100, Duration.ofMinutes(1));
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private DocumentoMetricas documentoMetricas = new DocumentoMetricas(meterRegistry);
+
+    private final ArquivoStorageEngine arquivoStorageEngine = new ArquivoStorageEngine();
+
+    private final SegmentoStorageEngine segmentoStorageEngine = new SegmentoStorageEngine(arquivoStorageEngine);
+
+    @Spy
+    private StorageEngineRegistry storageEngines = new StorageEngineRegistry(
+            List.of(arquivoStorageEngine, segmentoStorageEngine), ArquivoStorageEngine.NOME);
+
     @InjectMocks
     private DocumentoServiceImpl documentoService;
 
@@ -37,6 +93,8 @@ public class DocumentoServiceImplTest {
     @BeforeEach
     public void setup() {
         ReflectionTestUtils.setField(documentoService, "uploadDir", tempDir.toString());
+        ReflectionTestUtils.setField(arquivoStorageEngine, "uploadDir", tempDir.toString());
+        ReflectionTestUtils.setField(segmentoStorageEngine, "uploadDir", tempDir.toString());
     }
 
     @Test
@@ -45,26 +103,28 @@ public class DocumentoServiceImplTest {
         byte[] content = "Conteúdo".getBytes();
         MockMultipartFile file = new MockMultipartFile("file", "teste.txt", "text/plain", content);
 
-        Mockito.when(documentoRepository.save(Mockito.any(Documento.class))).thenAnswer(invocation -> {
-            Documento doc = invocation.getArgument(0);
-            if (doc.getId() == null) {
-                doc.setId(1L);
-            }
-            return doc;
-        });
+        Mockito.when(documentoRepository.reservaIds(1)).thenReturn(List.of(1L));
 
         Documento documento = documentoService.criarNovoDocumento(nome, file);
+        Mockito.verify(estatisticaService).registrarCriacao(content.length);
 
         assertNotNull(documento.getId());
         assertEquals(nome, documento.getNome());
         assertNotNull(documento.getFileName());
         assertNotNull(documento.getFilePath());
         assertTrue(documento.getFileSize() > 0);
+        assertEquals(sha256(content), documento.getEtag());
+        assertEquals(documento.getCriadoEm(), documento.getAtualizadoEm());
 
         Path filePath = Path.of(documento.getFilePath());
         assertTrue(Files.exists(filePath));
         byte[] fileContent = Files.readAllBytes(filePath);
         assertArrayEquals(content, fileContent);
+
+        assertEquals(content.length, meterRegistry.get("sisgerdoc.transferencia.bytes").tag("direcao", "entrada").counter().count());
+        assertEquals(1, meterRegistry.get("sisgerdoc.documento.tamanho").summary().count());
+        assertEquals(2, meterRegistry.get("sisgerdoc.upload.duracao").tag("etapa", "banco").timer().count());
+        assertEquals(1, meterRegistry.get("sisgerdoc.upload.duracao").tag("etapa", "arquivo").timer().count());
     }
 
     @Test
@@ -78,6 +138,138 @@ public class DocumentoServiceImplTest {
         assertEquals("Arquivo enviado está vazio.", exception.getMessage());
     }
 
+    @Test
+    public void criarDocumentoComCompressaoTest() throws IOException {
+        ReflectionTestUtils.setField(documentoService, "compressao", true);
+        byte[] content = "linha repetida\n".repeat(200).getBytes();
+        MockMultipartFile texto = new MockMultipartFile("file", "relatorio.csv", "text/csv", content);
+        MockMultipartFile zip = new MockMultipartFile("file", "pacote.ZIP", "application/zip", content);
+
+        Mockito.when(documentoRepository.reservaIds(1)).thenReturn(List.of(20L));
+
+        Documento comprimido = documentoService.criarNovoDocumento("relatorio", texto);
+        assertEquals("gzip", comprimido.getCodificacao());
+        assertEquals(sha256(content), comprimido.getEtag());
+        assertEquals(content.length, comprimido.getTamanhoOriginal());
+        assertTrue(comprimido.getFileSize() < content.length);
+        Mockito.verify(estatisticaService).registrarCriacao(comprimido.getFileSize());
+        try (InputStream entrada = new GZIPInputStream(Files.newInputStream(Path.of(comprimido.getFilePath())))) {
+            assertArrayEquals(content, entrada.readAllBytes());
+        }
+
+        Documento original = documentoService.criarNovoDocumento("pacote", zip);
+        assertNull(original.getCodificacao());
+        assertEquals(content.length, original.getFileSize());
+        assertArrayEquals(content, Files.readAllBytes(Path.of(original.getFilePath())));
+    }
+
+    @Test
+    public void criarDocumentosEmLoteComSucessoTest() throws IOException {
+        List<MultipartFile> files = List.of(
+                new MockMultipartFile("files", "contrato.pdf", "application/pdf", "Contrato".getBytes()),
+                new MockMultipartFile("files", "recibo.txt", "text/plain", "Recibo 123".getBytes()));
+
+        Mockito.when(documentoRepository.reservaIds(2)).thenReturn(List.of(10L, 11L));
+
+        List<Documento> documentos = documentoService.criarDocumentosEmLote(null, files);
+
+        // Uma única persistência, com os documentos já completos
+        Mockito.verify(documentoRepository).insere(documentos);
+        Mockito.verify(documentoRepository, Mockito.never()).save(Mockito.any(Documento.class));
+        assertEquals(2, documentos.size());
+        assertEquals("contrato", documentos.get(0).getNome());
+        assertEquals("recibo", documentos.get(1).getNome());
+        for (int i = 0; i < files.size(); i++) {
+            Documento documento = documentos.get(i);
+            assertEquals(files.get(i).getSize(), documento.getFileSize());
+            assertTrue(documento.getFileName().contains(String.valueOf(documento.getId())));
+            assertArrayEquals(files.get(i).getBytes(), Files.readAllBytes(Path.of(documento.getFilePath())));
+            Mockito.verify(estatisticaService).registrarCriacao(files.get(i).getSize());
+        }
+    }
+
+    @Test
+    public void criarDocumentosEmLoteComNomesInvalidosTest() {
+        List<MultipartFile> files = List.of(
+                new MockMultipartFile("files", "a.txt", "text/plain", "a".getBytes()),
+                new MockMultipartFile("files", "b.txt", "text/plain", "b".getBytes()));
+
+        assertThrows(IllegalArgumentException.class, () -> documentoService.criarDocumentosEmLote(List.of("a"), files));
+        Mockito.verifyNoInteractions(documentoRepository);
+    }
+
+    @Test
+    public void criarDocumentoStreamingComSucessoTest() throws IOException {
+        byte[] content = "Conteúdo transmitido em partes".getBytes();
+        String corpo = "--limite\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"teste.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + new String(content) + "\r\n"
+                + "--limite\r\n"
+                + "Content-Disposition: form-data; name=\"nome\"\r\n\r\n"
+                + "teste\r\n"
+                + "--limite--\r\n";
+        ReflectionTestUtils.setField(documentoService, "streamingBufferSize", DataSize.ofBytes(128));
+
+        Mockito.when(documentoRepository.reservaIds(1)).thenReturn(List.of(1L));
+
+        Documento documento = documentoService.criarNovoDocumentoStreaming(
+                "multipart/form-data; boundary=limite", new ByteArrayInputStream(corpo.getBytes()));
+
+        assertEquals("teste", documento.getNome());
+        assertEquals("teste_01.txt", documento.getFileName());
+        assertEquals(content.length, documento.getFileSize());
+        assertArrayEquals(content, Files.readAllBytes(Path.of(documento.getFilePath())));
+        try (Stream<Path> arquivos = Files.list(tempDir)) {
+            assertEquals(1, arquivos.count());
+        }
+    }
+
+    @Test
+    public void criarDocumentoStreamingAcimaDoLimiteTest() throws IOException {
+        String corpo = "--limite\r\n"
+                + "Content-Disposition: form-data; name=\"nome\"\r\n\r\n"
+                + "teste\r\n"
+                + "--limite\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"teste.txt\"\r\n\r\n"
+                + "0123456789\r\n"
+                + "--limite--\r\n";
+        ReflectionTestUtils.setField(documentoService, "streamingMaxFileSize", DataSize.ofBytes(5));
+
+        assertThrows(IOException.class, () -> documentoService.criarNovoDocumentoStreaming(
+                "multipart/form-data; boundary=limite", new ByteArrayInputStream(corpo.getBytes())));
+        try (Stream<Path> arquivos = Files.list(tempDir)) {
+            assertEquals(0, arquivos.count());
+        }
+        Mockito.verifyNoInteractions(documentoRepository);
+    }
+
+    @Test
+    public void listarDocumentosComProximaPaginaTest() {
+        LocalDateTime data = LocalDateTime.of(2025, 1, 10, 8, 30);
+        List<DocumentoResumoDto> resultado = List.of(
+                new DocumentoResumoDto(3L, "c", "c_03.txt", 10L, data),
+                new DocumentoResumoDto(2L, "b", "b_02.txt", 10L, data),
+                new DocumentoResumoDto(1L, "a", "a_01.txt", 10L, data));
+        Mockito.when(documentoRepository.buscaPagina(null, null, null, 3)).thenReturn(resultado);
+
+        PaginaDocumentosDto pagina = documentoService.listarDocumentos(null, null, 2);
+
+        assertEquals(2, pagina.getDocumentos().size());
+        assertNotNull(pagina.getProximoCursor());
+
+        Mockito.when(documentoRepository.buscaPagina(null, data, 2L, 3)).thenReturn(List.of(resultado.get(2)));
+        PaginaDocumentosDto proxima = documentoService.listarDocumentos(null, pagina.getProximoCursor(), 2);
+
+        assertEquals(1, proxima.getDocumentos().size());
+        assertNull(proxima.getProximoCursor());
+    }
+
+    @Test
+    public void listarDocumentosComCursorInvalidoTest() {
+        assertThrows(IllegalArgumentException.class, () -> documentoService.listarDocumentos(null, "invalido", 10));
+    }
+
     @Test
     public void buscarDocumentoParaDownloadComSucessoTest() throws IOException {
         Documento documento = new Documento();
@@ -98,6 +290,31 @@ public class DocumentoServiceImplTest {
         assertEquals("teste_1.txt", dto.getFileName());
         assertNotNull(dto.getResource());
         assertTrue(dto.getResource().exists());
+        Mockito.verify(camadaArmazenamentoService).registrarAcesso(Mockito.argThat(d -> d.getId() == 1L));
+    }
+
+    @Test
+    public void buscarDocumentoParaDownloadUsaCacheAteAtualizacaoTest() throws IOException {
+        Documento documento = new Documento();
+        documento.setId(1L);
+        documento.setNome("teste");
+        Path filePath = tempDir.resolve("teste_1.txt");
+        Files.write(filePath, "Conteúdo".getBytes());
+        documento.setFileName("teste_1.txt");
+        documento.setFilePath(filePath.toString());
+
+        Mockito.when(documentoRepository.findById(1L)).thenReturn(Optional.of(documento));
+        Mockito.when(documentoRepository.save(Mockito.any(Documento.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        documentoService.buscarDocumentoParaDownload(1L);
+        documentoService.buscarDocumentoParaDownload(1L);
+        Mockito.verify(documentoRepository, Mockito.times(1)).findById(1L);
+        assertEquals(1, documentoCache.obterEstatisticas().getAcertos());
+
+        Mockito.when(documentoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(documento));
+        documentoService.atualizarDocumento(1L, "novo", null);
+        documentoService.buscarDocumentoParaDownload(1L);
+        Mockito.verify(documentoRepository, Mockito.times(2)).findById(1L);
     }
 
     @Test
@@ -134,7 +351,7 @@ public class DocumentoServiceImplTest {
         documento.setFilePath(tempDir.resolve("old.txt").toString());
         Files.write(Path.of(documento.getFilePath()), "Old Content".getBytes());
 
-        Mockito.when(documentoRepository.findById(1L)).thenReturn(Optional.of(documento));
+        Mockito.when(documentoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(documento));
         Mockito.when(documentoRepository.save(Mockito.any(Documento.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         documentoService.atualizarDocumento(1L, "newName", null);
@@ -142,6 +359,10 @@ public class DocumentoServiceImplTest {
         assertEquals("newName", documento.getNome());
         // Verifica que o arquivo antigo continua existente
         assertTrue(Files.exists(Path.of(documento.getFilePath())));
+        // A alteração de nome também precisa chegar ao índice de conteúdo
+        assertEquals(Boolean.FALSE, documento.getIndexado());
+        Mockito.verify(indiceConteudoService).notificarAlteracao();
+        Mockito.verify(indiceNomeService).indexar(1L, "newName");
     }
 
     @Test
@@ -152,15 +373,23 @@ public class DocumentoServiceImplTest {
         documento.setFilePath(tempDir.resolve("old.txt").toString());
         Files.write(Path.of(documento.getFilePath()), "Old Content".getBytes());
 
-        Mockito.when(documentoRepository.findById(1L)).thenReturn(Optional.of(documento));
+        Mockito.when(documentoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(documento));
         Mockito.when(documentoRepository.save(Mockito.any(Documento.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         String newContent = "New Content";
         MockMultipartFile newFile = new MockMultipartFile("file", "new.txt", "text/plain", newContent.getBytes());
+        Mockito.when(versaoDocumentoService.registrarVersao(Mockito.any(Documento.class), Mockito.eq(newFile))).thenAnswer(invocation -> {
+            // A versão anterior é registrada com o nome antigo e antes de o arquivo antigo ser removido
+            Documento anterior = invocation.getArgument(0);
+            assertEquals("oldName", anterior.getNome());
+            assertTrue(Files.exists(tempDir.resolve("old.txt")));
+            return 2;
+        });
 
         documentoService.atualizarDocumento(1L, "newName", newFile);
 
         assertFalse(Files.exists(tempDir.resolve("old.txt")));
+        assertEquals(2, documento.getVersao());
 
         assertEquals("newName", documento.getNome());
         assertNotNull(documento.getFileName());
@@ -171,9 +400,43 @@ public class DocumentoServiceImplTest {
         assertArrayEquals(newContent.getBytes(), updatedContent);
     }
 
+    @Test
+    public void manterConteudoAnteriorAteAConfirmacaoTest() throws IOException {
+        // O novo conteúdo tem o mesmo nome de arquivo, e portanto o mesmo caminho, que o atual
+        Path atual = Files.write(tempDir.resolve("contrato_01.txt"), "Old Content".getBytes());
+        Documento documento = new Documento(1L, "contrato", atual.toString(), 11L, "contrato_01.txt", LocalDateTime.now());
+        Mockito.when(documentoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.of(documento));
+        MockMultipartFile novo = new MockMultipartFile("file", "novo.txt", "text/plain", "New Content".getBytes());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            documentoService.atualizarDocumento(1L, null, novo);
+            assertEquals(atual.toString(), documento.getFilePath());
+            assertEquals("New Content", Files.readString(atual));
+            completa(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        // Desfeita a transação, o documento volta a apontar para o conteúdo anterior, que precisa estar lá
+        assertEquals("Old Content", Files.readString(atual));
+        assertEquals(List.of(atual), arquivosEm(tempDir));
+
+        documento.setFilePath(atual.toString());
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            documentoService.atualizarDocumento(1L, null, novo);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            completa(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals("New Content", Files.readString(atual));
+        assertEquals(List.of(atual), arquivosEm(tempDir));
+    }
+
     @Test
     public void atualizarDocumentoNaoEncontradoTest() {
-        Mockito.when(documentoRepository.findById(1L)).thenReturn(Optional.empty());
+        Mockito.when(documentoRepository.findByIdParaAtualizacao(1L)).thenReturn(Optional.empty());
 
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
             documentoService.atualizarDocumento(1L, "newName", null);
@@ -200,6 +463,79 @@ public class DocumentoServiceImplTest {
 
         assertFalse(Files.exists(filePath));
         Mockito.verify(documentoRepository).delete(documento);
+        Mockito.verify(estatisticaService).registrarExclusao(7L);
+        Mockito.verify(versaoDocumentoService).removerVersoes(1L);
+        Mockito.verify(indiceConteudoService).notificarExclusao(1L);
+        Mockito.verify(indiceNomeService).remover(1L);
+    }
+
+    @Test
+    public void criarDocumentoComConteudoEnderecadoTest() throws IOException {
+        ReflectionTestUtils.setField(documentoService, "contentAddressed", true);
+        byte[] content = "Conteúdo".getBytes();
+        MockMultipartFile file = new MockMultipartFile("file", "teste.txt", "text/plain", content);
+        String hash = sha256(content);
+
+        Mockito.when(documentoRepository.reservaIds(1)).thenReturn(List.of(1L));
+        Mockito.when(blobService.armazenar(Mockito.any(Path.class), Mockito.eq(hash)))
+                .thenReturn(new Blob(hash, tempDir.resolve(hash).toString(), (long) content.length, 2L, null));
+
+        Documento documento = documentoService.criarNovoDocumento("teste", file);
+
+        assertEquals(hash, documento.getBlobHash());
+        assertEquals(tempDir.resolve(hash).toString(), documento.getFilePath());
+        assertEquals("teste_01.txt", documento.getFileName());
+        try (Stream<Path> arquivos = Files.list(tempDir)) {
+            assertEquals(0, arquivos.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    public void deletarDocumentoComConteudoEnderecadoTest() throws IOException {
+        Documento documento = new Documento();
+        documento.setId(1L);
+        Path filePath = tempDir.resolve("blob");
+        Files.write(filePath, "Content".getBytes());
+        documento.setFilePath(filePath.toString());
+        documento.setBlobHash("abc");
+
+        Mockito.when(documentoRepository.findById(1L)).thenReturn(Optional.of(documento));
+
+        documentoService.deletarDocumento(1L);
+
+        Mockito.verify(blobService).liberarReferencia("abc");
+        assertTrue(Files.exists(filePath));
+        Mockito.verify(documentoRepository).delete(documento);
+    }
+
+    @Test
+    public void criarBaixarEDeletarDocumentoEmSegmentoTest() throws IOException {
+        ReflectionTestUtils.setField(storageEngines, "engineGravacao", segmentoStorageEngine);
+        byte[] content = "Conteúdo pequeno".getBytes();
+        MockMultipartFile file = new MockMultipartFile("file", "pequeno.txt", "text/plain", content);
+
+        Mockito.when(documentoRepository.reservaIds(1)).thenReturn(List.of(30L));
+
+        Documento documento = documentoService.criarNovoDocumento("pequeno", file);
+        assertEquals(SegmentoStorageEngine.NOME, documento.getArmazenamento());
+        assertNull(documento.getFilePath());
+        assertEquals(1L, documento.getSegmento());
+        assertEquals(content.length, documento.getFileSize());
+
+        Mockito.when(documentoRepository.findById(30L)).thenReturn(Optional.of(documento));
+        DocumentoDownloadDto download = documentoService.buscarDocumentoParaDownload(30L);
+        assertNull(download.getResource());
+        try (InputStream entrada = download.getConteudo().abreStream()) {
+            assertArrayEquals(content, entrada.readAllBytes());
+        }
+
+        documentoService.deletarDocumento(30L);
+        Mockito.verify(documentoRepository).delete(documento);
+        Mockito.verify(estatisticaService).registrarExclusao(content.length);
+        try (Stream<Path> arquivos = Files.list(tempDir)) {
+            // Só o diretório de segmentos: nem o arquivo temporário nem um arquivo próprio do documento
+            assertEquals(List.of(tempDir.resolve(".segmentos")), arquivos.toList());
+        }
     }
 
     @Test
@@ -211,4 +547,22 @@ public class DocumentoServiceImplTest {
         });
         assertEquals("Documento não encontrado", exception.getMessage());
     }
+
+    private static void completa(int status) {
+        TransactionSynchronizationManager.getSynchronizations().forEach(sincronizacao -> sincronizacao.afterCompletion(status));
+    }
+
+    private static List<Path> arquivosEm(Path diretorio) throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,55 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.EstatisticaArmazenamentoDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EstatisticaServiceImplTest {
+
+    @Mock
+    private DocumentoRepository documentoRepository;
+
+    @InjectMocks
+    private EstatisticaServiceImpl estatisticaService;
+
+    @Test
+    public void obterEstatisticasAcumulaOperacoesTest() {
+        Mockito.when(documentoRepository.calculaEstatisticas()).thenReturn(new EstatisticaArmazenamentoDto(2, 100));
+
+        estatisticaService.registrarCriacao(50);
+        EstatisticaArmazenamentoDto estatisticas = estatisticaService.obterEstatisticas();
+        assertEquals(2, estatisticas.getTotalDocumentos());
+        assertEquals(100, estatisticas.getTotalBytes());
+
+        estatisticaService.registrarCriacao(50);
+        estatisticaService.registrarAtualizacao(50, 20);
+        estatisticaService.registrarExclusao(100);
+        estatisticas = estatisticaService.obterEstatisticas();
+
+        assertEquals(2, estatisticas.getTotalDocumentos());
+        assertEquals(20, estatisticas.getTotalBytes());
+        Mockito.verify(documentoRepository, Mockito.times(1)).calculaEstatisticas();
+    }
+
+    @Test
+    public void reconciliarSubstituiContadoresTest() {
+        Mockito.when(documentoRepository.calculaEstatisticas())
+                .thenReturn(new EstatisticaArmazenamentoDto(1, 10), new EstatisticaArmazenamentoDto(5, 500));
+
+        estatisticaService.obterEstatisticas();
+        estatisticaService.registrarCriacao(10);
+        estatisticaService.reconciliar();
+
+        EstatisticaArmazenamentoDto estatisticas = estatisticaService.obterEstatisticas();
+        assertEquals(5, estatisticas.getTotalDocumentos());
+        assertEquals(500, estatisticas.getTotalBytes());
+    }
+}
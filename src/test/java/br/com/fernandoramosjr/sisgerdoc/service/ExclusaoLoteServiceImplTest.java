@@ -0,0 +1,137 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.EstatisticaArmazenamentoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.ExclusaoLoteDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.FiltroDocumentoDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.repository.RemocaoArquivoRepository;
+import br.com.fernandoramosjr.sisgerdoc.repository.VersaoDocumentoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ExclusaoLoteServiceImplTest {
+
+    @Mock
+    private DocumentoRepository documentoRepository;
+
+    @Mock
+    private RemocaoArquivoRepository remocaoArquivoRepository;
+
+    @Mock
+    private VersaoDocumentoRepository versaoDocumentoRepository;
+
+    @Mock
+    private FilaRemocaoService filaRemocaoService;
+
+    @Mock
+    private EstatisticaService estatisticaService;
+
+    @Mock
+    private IndiceConteudoService indiceConteudoService;
+
+    @Mock
+    private IndiceNomeService indiceNomeService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ExclusaoLoteServiceImpl exclusaoLoteService;
+
+    // Documentos existentes, com 10 bytes cada
+    private final TreeSet<Long> existentes = new TreeSet<>(List.of(1L, 2L, 3L, 4L, 5L));
+
+    @BeforeEach
+    public void setup() {
+        exclusaoLoteService = new ExclusaoLoteServiceImpl(documentoRepository, remocaoArquivoRepository,
+                versaoDocumentoRepository, filaRemocaoService, estatisticaService, new DocumentoCache(100, Duration.ofMinutes(1)), indiceConteudoService,
+                indiceNomeService, new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(exclusaoLoteService, "tamanhoLote", 2);
+        Mockito.lenient().when(documentoRepository.travaParaExclusao(Mockito.anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().filter(existentes::contains).toList();
+        });
+        Mockito.lenient().when(documentoRepository.calculaEstatisticas(Mockito.anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return new EstatisticaArmazenamentoDto(ids.size(), ids.size() * 10L);
+        });
+        Mockito.lenient().when(documentoRepository.excluiTodos(Mockito.anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            existentes.removeAll(ids);
+            return ids.size();
+        });
+    }
+
+    @Test
+    public void excluirPorIdsEmLotesTest() {
+        Mockito.when(filaRemocaoService.contarPendentes()).thenReturn(3L);
+
+        ExclusaoLoteDto resultado = exclusaoLoteService.excluir(List.of(1L, 2L, 9L, 2L, 3L), null);
+
+        assertEquals(3, resultado.getDocumentosExcluidos());
+        assertEquals(30, resultado.getBytesExcluidos());
+        assertEquals(1, resultado.getNaoEncontrados());
+        assertEquals(3, resultado.getRemocoesPendentes());
+        assertEquals(Set.of(4L, 5L), existentes);
+        Mockito.verify(remocaoArquivoRepository).enfileira(Mockito.eq(List.of(1L, 2L)), Mockito.any(LocalDateTime.class));
+        Mockito.verify(remocaoArquivoRepository).enfileira(Mockito.eq(List.of(3L)), Mockito.any(LocalDateTime.class));
+        Mockito.verify(versaoDocumentoRepository).removeDosDocumentos(List.of(1L, 2L));
+        Mockito.verify(versaoDocumentoRepository).removeDosDocumentos(List.of(3L));
+        Mockito.verify(estatisticaService).registrarExclusoes(2, 20);
+        Mockito.verify(estatisticaService).registrarExclusoes(1, 10);
+        Mockito.verify(indiceNomeService).remover(3L);
+        Mockito.verify(indiceConteudoService).notificarExclusao(3L);
+        Mockito.verify(filaRemocaoService, Mockito.times(2)).notificar();
+    }
+
+    @Test
+    public void excluirPorFiltroTest() {
+        FiltroDocumentoDto filtro = new FiltroDocumentoDto(null, null, null, null, LocalDateTime.of(2025, 1, 1, 0, 0));
+        Mockito.when(documentoRepository.buscaPagina(Mockito.eq(filtro), Mockito.any(), Mockito.any(), Mockito.eq(2)))
+                .thenAnswer(invocation -> {
+                    Long cursorId = invocation.getArgument(2);
+                    List<DocumentoResumoDto> pagina = new ArrayList<>();
+                    // Listagem do mais recente para o mais antigo; os excluídos não aparecem mais
+                    for (Long id : existentes.descendingSet()) {
+                        if ((cursorId == null || id < cursorId) && pagina.size() < 2) {
+                            pagina.add(new DocumentoResumoDto(id, "doc", "doc_" + id, 10L, LocalDateTime.of(2024, 1, 1, 0, 0)));
+                        }
+                    }
+                    return pagina;
+                });
+
+        ExclusaoLoteDto resultado = exclusaoLoteService.excluir(null, filtro);
+
+        assertEquals(5, resultado.getDocumentosExcluidos());
+        assertEquals(0, resultado.getNaoEncontrados());
+        assertTrue(existentes.isEmpty());
+        Mockito.verify(documentoRepository, Mockito.times(3)).excluiTodos(Mockito.anyCollection());
+    }
+
+    @Test
+    public void rejeitarSemIdsOuFiltroTest() {
+        ReflectionTestUtils.setField(exclusaoLoteService, "maximoIds", 2);
+
+        assertThrows(IllegalArgumentException.class, () -> exclusaoLoteService.excluir(List.of(), new FiltroDocumentoDto()));
+        assertThrows(IllegalArgumentException.class, () -> exclusaoLoteService.excluir(List.of(1L, 2L, 3L), null));
+        Mockito.verifyNoInteractions(documentoRepository, remocaoArquivoRepository, versaoDocumentoRepository);
+    }
+}
@@ -0,0 +1,175 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.FiltroDocumentoDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.storage.ArquivoStorageEngine;
+import br.com.fernandoramosjr.sisgerdoc.storage.StorageEngineRegistry;
+import br.com.fernandoramosjr.sisgerdoc.util.DocumentoUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ExportacaoServiceImplTest {
+
+    @Mock
+    private DocumentoRepository documentoRepository;
+
+    private ExportacaoServiceImpl exportacaoService;
+
+    @TempDir
+    Path tempDir;
+
+    private final LocalDateTime criadoEm = LocalDateTime.of(2025, 3, 10, 14, 30);
+    private final String textoGrande = "linha de texto repetida\n".repeat(200);
+
+    @BeforeEach
+    public void setup() throws IOException {
+        ArquivoStorageEngine arquivoStorageEngine = new ArquivoStorageEngine();
+        ReflectionTestUtils.setField(arquivoStorageEngine, "uploadDir", tempDir.toString());
+        exportacaoService = new ExportacaoServiceImpl(documentoRepository,
+                new StorageEngineRegistry(List.of(arquivoStorageEngine), ArquivoStorageEngine.NOME));
+        ReflectionTestUtils.setField(exportacaoService, "uploadDir", tempDir.toString());
+        // Limite baixo para que os documentos grandes sejam copiados do armazenamento durante a escrita
+        ReflectionTestUtils.setField(exportacaoService, "tamanhoMaximoMemoria", DataSize.ofBytes(64));
+        ReflectionTestUtils.setField(exportacaoService, "paralelismo", 2);
+    }
+
+    @Test
+    public void exportarPorIdsTest() throws IOException {
+        Documento relatorio = documento(1L, "relatorio_01.txt", "conteudo do relatorio".getBytes(StandardCharsets.UTF_8));
+        byte[] foto = new byte[5000];
+        for (int i = 0; i < foto.length; i++) {
+            foto[i] = (byte) (i * 31);
+        }
+        Documento imagem = documento(2L, "foto_02.jpg", foto);
+        Documento notas = documento(3L, "notas_03.txt", gzip(textoGrande));
+        notas.setCodificacao(DocumentoUtil.CODIFICACAO_GZIP);
+        notas.setTamanhoOriginal((long) textoGrande.length());
+        Documento perdido = new Documento(4L, "perdido", tempDir.resolve("perdido_04.pdf").toString(), 10L, "perdido_04.pdf", criadoEm);
+        Map<Long, Documento> banco = Map.of(1L, relatorio, 2L, imagem, 3L, notas, 4L, perdido);
+        Mockito.when(documentoRepository.findAllById(Mockito.anyIterable())).thenAnswer(invocation -> {
+            List<Documento> encontrados = new ArrayList<>();
+            for (Long id : invocation.<Iterable<Long>>getArgument(0)) {
+                if (banco.containsKey(id)) {
+                    encontrados.add(banco.get(id));
+                }
+            }
+            return encontrados;
+        });
+
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        int exportados = exportacaoService.exportar(List.of(2L, 1L, 3L, 4L, 5L, 1L), null, saida);
+
+        assertEquals(3, exportados);
+        Map<String, ZipEntry> entradas = new LinkedHashMap<>();
+        Map<String, byte[]> conteudos = le(saida.toByteArray(), entradas);
+        assertEquals(List.of("foto_02.jpg", "relatorio_01.txt", "notas_03.txt", ExportacaoServiceImpl.ARQUIVO_AVISOS),
+                new ArrayList<>(entradas.keySet()));
+        assertEquals(ZipEntry.STORED, entradas.get("foto_02.jpg").getMethod());
+        assertArrayEquals(foto, conteudos.get("foto_02.jpg"));
+        assertEquals(ZipEntry.DEFLATED, entradas.get("relatorio_01.txt").getMethod());
+        assertEquals("conteudo do relatorio", new String(conteudos.get("relatorio_01.txt"), StandardCharsets.UTF_8));
+        assertEquals(ZipEntry.DEFLATED, entradas.get("notas_03.txt").getMethod());
+        assertEquals(textoGrande, new String(conteudos.get("notas_03.txt"), StandardCharsets.UTF_8));
+        String avisos = new String(conteudos.get(ExportacaoServiceImpl.ARQUIVO_AVISOS), StandardCharsets.UTF_8);
+        assertTrue(avisos.contains("ID 4"));
+        assertTrue(avisos.contains("ID 5"));
+        Mockito.verify(documentoRepository).findAllById(List.of(2L, 1L, 3L, 4L, 5L));
+    }
+
+    @Test
+    public void exportarPorFiltroAteOMaximoTest() throws IOException {
+        ReflectionTestUtils.setField(exportacaoService, "maximoDocumentos", 2);
+        List<Documento> documentos = List.of(
+                documento(9L, "c_09.txt", "c".getBytes(StandardCharsets.UTF_8)),
+                documento(8L, "b_08.txt", "b".getBytes(StandardCharsets.UTF_8)),
+                documento(7L, "a_07.txt", "a".getBytes(StandardCharsets.UTF_8)));
+        FiltroDocumentoDto filtro = new FiltroDocumentoDto("doc", null, null, null, null);
+        Mockito.when(documentoRepository.buscaPagina(Mockito.eq(filtro), Mockito.any(), Mockito.any(), Mockito.anyInt()))
+                .thenAnswer(invocation -> {
+                    Long cursorId = invocation.getArgument(2);
+                    int limite = invocation.getArgument(3);
+                    return documentos.stream()
+                            .filter(d -> cursorId == null || d.getId() < cursorId)
+                            .limit(limite)
+                            .map(d -> new DocumentoResumoDto(d.getId(), d.getNome(), d.getFileName(), d.getFileSize(), d.getCriadoEm()))
+                            .toList();
+                });
+        Mockito.when(documentoRepository.findAllById(Mockito.anyIterable())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return documentos.stream().filter(d -> ids.contains(d.getId())).toList();
+        });
+
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        int exportados = exportacaoService.exportar(null, filtro, saida);
+
+        assertEquals(2, exportados);
+        Map<String, ZipEntry> entradas = new LinkedHashMap<>();
+        Map<String, byte[]> conteudos = le(saida.toByteArray(), entradas);
+        assertEquals(List.of("c_09.txt", "b_08.txt", ExportacaoServiceImpl.ARQUIVO_AVISOS), new ArrayList<>(entradas.keySet()));
+        assertTrue(new String(conteudos.get(ExportacaoServiceImpl.ARQUIVO_AVISOS), StandardCharsets.UTF_8).contains("limitada"));
+    }
+
+    @Test
+    public void rejeitarSemIdsOuFiltroTest() {
+        ReflectionTestUtils.setField(exportacaoService, "maximoDocumentos", 2);
+        OutputStream saida = new ByteArrayOutputStream();
+
+        assertThrows(IllegalArgumentException.class, () -> exportacaoService.exportar(List.of(), new FiltroDocumentoDto(), saida));
+        assertThrows(IllegalArgumentException.class, () -> exportacaoService.exportar(List.of(1L, 2L, 3L), null, saida));
+        Mockito.verifyNoInteractions(documentoRepository);
+    }
+
+    private Documento documento(Long id, String fileName, byte[] conteudo) throws IOException {
+        Path arquivo = Files.write(tempDir.resolve(fileName), conteudo);
+        return new Documento(id, fileName, arquivo.toString(), (long) conteudo.length, fileName, criadoEm);
+    }
+
+    private static byte[] gzip(String texto) throws IOException {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(saida)) {
+            gzip.write(texto.getBytes(StandardCharsets.UTF_8));
+        }
+        return saida.toByteArray();
+    }
+
+    private static Map<String, byte[]> le(byte[] zip, Map<String, ZipEntry> entradas) throws IOException {
+        Map<String, byte[]> conteudos = new LinkedHashMap<>();
+        try (ZipInputStream entrada = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry zipEntry;
+            while ((zipEntry = entrada.getNextEntry()) != null) {
+                conteudos.put(zipEntry.getName(), entrada.readAllBytes());
+                entradas.put(zipEntry.getName(), zipEntry);
+            }
+        }
+        return conteudos;
+    }
+}
@@ -0,0 +1,125 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.RemocaoArquivo;
+import br.com.fernandoramosjr.sisgerdoc.repository.RemocaoArquivoRepository;
+import br.com.fernandoramosjr.sisgerdoc.storage.ArquivoStorageEngine;
+import br.com.fernandoramosjr.sisgerdoc.storage.StorageEngineRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FilaRemocaoServiceImplTest {
+
+    @Mock
+    private RemocaoArquivoRepository remocaoArquivoRepository;
+
+    @Mock
+    private BlobService blobService;
+
+    @Mock
+    private VersaoDocumentoService versaoDocumentoService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private FilaRemocaoServiceImpl filaRemocaoService;
+
+    @TempDir
+    Path tempDir;
+
+    private final List<RemocaoArquivo> fila = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        ArquivoStorageEngine arquivoStorageEngine = new ArquivoStorageEngine();
+        ReflectionTestUtils.setField(arquivoStorageEngine, "uploadDir", tempDir.toString());
+        filaRemocaoService = new FilaRemocaoServiceImpl(remocaoArquivoRepository,
+                new StorageEngineRegistry(List.of(arquivoStorageEngine), ArquivoStorageEngine.NOME),
+                blobService, versaoDocumentoService, new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(filaRemocaoService, "tamanhoLote", 2);
+        ReflectionTestUtils.setField(filaRemocaoService, "maximoTentativas", 2);
+
+        // A fila simulada devolve os itens em ordem de ID e aplica as remoções e falhas registradas
+        Mockito.when(remocaoArquivoRepository.buscaLote(Mockito.anyLong(), Mockito.anyInt(), Mockito.any(Limit.class)))
+                .thenAnswer(invocation -> {
+                    long ultimoId = invocation.getArgument(0);
+                    int maximoTentativas = invocation.getArgument(1);
+                    Limit limite = invocation.getArgument(2);
+                    return fila.stream()
+                            .filter(r -> r.getDocumentoId() > ultimoId && r.getTentativas() < maximoTentativas)
+                            .limit(limite.max())
+                            .toList();
+                });
+        Mockito.lenient().when(remocaoArquivoRepository.removeTodos(Mockito.anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            fila.removeIf(r -> ids.contains(r.getDocumentoId()));
+            return ids.size();
+        });
+        Mockito.lenient().when(remocaoArquivoRepository.registraFalha(Mockito.anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            fila.stream().filter(r -> ids.contains(r.getDocumentoId())).forEach(r -> r.setTentativas(r.getTentativas() + 1));
+            return ids.size();
+        });
+    }
+
+    @Test
+    public void removerArquivosEBlobsTest() throws IOException {
+        Path contrato = Files.writeString(tempDir.resolve("contrato_01.pdf"), "conteudo");
+        fila.add(remocao(1L, ArquivoStorageEngine.NOME, contrato.toString(), null));
+        // Arquivo já removido antes de uma queda: a remoção repetida não falha
+        fila.add(remocao(2L, null, tempDir.resolve("removido_02.pdf").toString(), null));
+        fila.add(remocao(3L, null, null, "aa11"));
+
+        int removidos = filaRemocaoService.processarPendentes();
+
+        assertEquals(3, removidos);
+        assertFalse(Files.exists(contrato));
+        assertTrue(fila.isEmpty());
+        Mockito.verify(blobService).liberarReferencia("aa11");
+        Mockito.verify(remocaoArquivoRepository).removeTodos(List.of(3L));
+        Mockito.verify(versaoDocumentoService).removerArquivos(1L);
+        Mockito.verify(versaoDocumentoService).removerArquivos(3L);
+    }
+
+    @Test
+    public void manterItensComFalhaAteOMaximoDeTentativasTest() {
+        fila.add(remocao(1L, "desconhecido", null, null));
+
+        assertEquals(0, filaRemocaoService.processarPendentes());
+        assertEquals(1, fila.get(0).getTentativas());
+        assertEquals(0, filaRemocaoService.processarPendentes());
+        assertEquals(2, fila.get(0).getTentativas());
+
+        // Acima do máximo o item fica na tabela e não é mais tentado
+        assertEquals(0, filaRemocaoService.processarPendentes());
+        assertEquals(2, fila.get(0).getTentativas());
+    }
+
+    private static RemocaoArquivo remocao(Long documentoId, String armazenamento, String filePath, String blobHash) {
+        RemocaoArquivo remocao = new RemocaoArquivo();
+        remocao.setDocumentoId(documentoId);
+        remocao.setArmazenamento(armazenamento);
+        remocao.setFilePath(filePath);
+        remocao.setBlobHash(blobHash);
+        remocao.setTentativas(0);
+        return remocao;
+    }
+}
@@ -0,0 +1,161 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoEncontradoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.PaginaBuscaDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.storage.ArquivoStorageEngine;
+import br.com.fernandoramosjr.sisgerdoc.storage.StorageEngineRegistry;
+import br.com.fernandoramosjr.sisgerdoc.util.DocumentoUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class IndiceConteudoServiceImplTest {
+
+    @Mock
+    private DocumentoRepository documentoRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IndiceConteudoServiceImpl indiceService;
+
+    private final List<Documento> documentos = new ArrayList<>();
+    private final List<Documento> pendentes = new ArrayList<>();
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setup() {
+        ArquivoStorageEngine arquivoStorageEngine = new ArquivoStorageEngine();
+        ReflectionTestUtils.setField(arquivoStorageEngine, "uploadDir", tempDir.toString());
+        indiceService = new IndiceConteudoServiceImpl(documentoRepository,
+                new StorageEngineRegistry(List.of(arquivoStorageEngine), ArquivoStorageEngine.NOME),
+                new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(indiceService, "diretorio", tempDir.resolve(".indice").toString());
+
+        // O repositório simulado devolve os pendentes em ordem de ID e os remove quando marcados
+        Mockito.when(documentoRepository.buscaLoteParaIndexacao(Mockito.anyLong(), Mockito.any(Limit.class)))
+                .thenAnswer(invocation -> {
+                    Long ultimoId = invocation.getArgument(0);
+                    return pendentes.stream().filter(documento -> documento.getId() > ultimoId).toList();
+                });
+        Mockito.lenient().when(documentoRepository.marcaIndexado(Mockito.anyLong(), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    Long id = invocation.getArgument(0);
+                    return pendentes.removeIf(documento -> documento.getId().equals(id)) ? 1 : 0;
+                });
+        Mockito.lenient().when(documentoRepository.buscaResumos(Mockito.anyCollection()))
+                .thenAnswer(invocation -> {
+                    Collection<Long> ids = invocation.getArgument(0);
+                    return documentos.stream().filter(documento -> ids.contains(documento.getId()))
+                            .map(documento -> new DocumentoResumoDto(documento.getId(), documento.getNome(),
+                                    documento.getFileName(), documento.getFileSize(), documento.getCriadoEm()))
+                            .toList();
+                });
+    }
+
+    @AfterEach
+    public void fecha() throws IOException {
+        indiceService.fechar();
+    }
+
+    @Test
+    public void indexarEBuscarPorConteudoTest() throws IOException {
+        armazena(1L, "Contrato de aluguel", "Relat\u00f3rio anual de vendas".getBytes(StandardCharsets.UTF_8), false);
+        armazena(2L, "Relat\u00f3rio", "Planilha de vendas do trimestre".getBytes(StandardCharsets.UTF_8), true);
+        armazena(3L, "Foto", new byte[]{(byte) 0x89, 'P', 'N', 'G', 0, 0, 'v', 'e', 'n', 'd', 'a', 's'}, false);
+
+        assertEquals(3, indiceService.indexarPendentes());
+        assertTrue(pendentes.isEmpty());
+
+        // Sem acento e em minúsculas (os literais acentuados usam escapes para não depender da codificação do fonte);
+        // o termo no nome pesa mais que no conteúdo
+        PaginaBuscaDto resultado = indiceService.buscar("relatorio", 0, 10);
+        assertEquals(2, resultado.getTotal());
+        assertEquals(List.of(2L, 1L), resultado.getDocumentos().stream().map(DocumentoEncontradoDto::getId).toList());
+        assertTrue(resultado.getDocumentos().get(0).getPontuacao() > resultado.getDocumentos().get(1).getPontuacao());
+
+        // Todos os termos precisam aparecer; o conteúdo binário não é indexado
+        assertEquals(List.of(1L), ids(indiceService.buscar("VENDAS anual", 0, 10)));
+        assertEquals(List.of(1L, 2L), ids(indiceService.buscar("vendas", 0, 10)).stream().sorted().toList());
+
+        PaginaBuscaDto segundaPagina = indiceService.buscar("vendas", 1, 1);
+        assertEquals(2, segundaPagina.getTotal());
+        assertEquals(1, segundaPagina.getDocumentos().size());
+
+        assertThrows(IllegalArgumentException.class, () -> indiceService.buscar(" ?! ", 0, 10));
+    }
+
+    @Test
+    public void atualizarERemoverDoIndiceTest() throws IOException, InterruptedException {
+        Documento documento = armazena(1L, "Contrato", "Cl\u00e1usula de rescis\u00e3o".getBytes(StandardCharsets.UTF_8), false);
+        assertEquals(1, indiceService.indexarPendentes());
+        assertEquals(List.of(1L), ids(indiceService.buscar("rescisao", 0, 10)));
+
+        // Documento alterado: a nova versão substitui a anterior no índice
+        Files.writeString(Path.of(documento.getFilePath()), "Cl\u00e1usula de renova\u00e7\u00e3o");
+        documento.setAtualizadoEm(LocalDateTime.now());
+        pendentes.add(documento);
+        assertEquals(1, indiceService.indexarPendentes());
+        assertEquals(0, indiceService.buscar("rescisao", 0, 10).getTotal());
+        assertEquals(List.of(1L), ids(indiceService.buscar("renovacao", 0, 10)));
+
+        // Excluído do banco, mas ainda no índice: some da busca antes mesmo de a exclusão ser processada
+        documentos.remove(documento);
+        assertTrue(indiceService.buscar("renovacao", 0, 10).getDocumentos().isEmpty());
+        for (int i = 0; i < 50 && indiceService.buscar("renovacao", 0, 10).getTotal() > 0; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(0, indiceService.buscar("renovacao", 0, 10).getTotal());
+    }
+
+    private Documento armazena(Long id, String nome, byte[] conteudo, boolean comprimido) throws IOException {
+        Path filePath = tempDir.resolve("documento_" + id);
+        if (comprimido) {
+            try (OutputStream saida = new GZIPOutputStream(Files.newOutputStream(filePath))) {
+                saida.write(conteudo);
+            }
+        } else {
+            Files.write(filePath, conteudo);
+        }
+        Documento documento = new Documento(id, nome, filePath.toString(), Files.size(filePath), "documento_" + id, LocalDateTime.now());
+        documento.setArmazenamento(ArquivoStorageEngine.NOME);
+        if (comprimido) {
+            documento.setCodificacao(DocumentoUtil.CODIFICACAO_GZIP);
+        }
+        documentos.add(documento);
+        pendentes.add(documento);
+        return documento;
+    }
+
+    private List<Long> ids(PaginaBuscaDto resultado) {
+        return resultado.getDocumentos().stream().map(DocumentoEncontradoDto::getId).toList();
+    }
+}
@@ -0,0 +1,170 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoEncontradoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.DocumentoResumoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.PaginaBuscaDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import org.apache.lucene.index.IndexWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class IndiceNomeServiceImplTest {
+
+    @Mock
+    private DocumentoRepository documentoRepository;
+
+    private IndiceNomeServiceImpl indiceService;
+
+    private final List<DocumentoResumoDto> documentos = new ArrayList<>();
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setup() {
+        indiceService = novoIndice();
+        Mockito.lenient().when(documentoRepository.buscaResumos(Mockito.anyCollection()))
+                .thenAnswer(invocation -> {
+                    Collection<Long> ids = invocation.getArgument(0);
+                    return documentos.stream().filter(documento -> ids.contains(documento.getId())).toList();
+                });
+        Mockito.lenient().when(documentoRepository.buscaLoteResumos(Mockito.anyLong(), Mockito.any(Limit.class)))
+                .thenAnswer(invocation -> {
+                    Long ultimoId = invocation.getArgument(0);
+                    return documentos.stream().filter(documento -> documento.getId() > ultimoId).toList();
+                });
+    }
+
+    @AfterEach
+    public void fecha() throws IOException {
+        indiceService.fechar();
+    }
+
+    @Test
+    public void buscarPorTrechoEAproximadoTest() throws IOException {
+        // Literais acentuados com escapes para não depender da codificação do fonte
+        indexa(1L, "Relat\u00f3rio anual de vendas");
+        indexa(2L, "Contrato de aluguel");
+        indexa(3L, "Contrato de presta\u00e7\u00e3o de servi\u00e7os");
+        indexa(4L, "Planilha");
+
+        // Trecho no meio do nome, sem acento e em minúsculas
+        assertEquals(List.of(1L), ids(indiceService.buscar("LATORIO", 0, 10)));
+        assertEquals(List.of(3L), ids(indiceService.buscar("prestacao", 0, 10)));
+        // Mesmo trecho em vários nomes: o nome mais curto é o mais parecido
+        assertEquals(List.of(2L, 3L), ids(indiceService.buscar("contrato de", 0, 10)));
+
+        // Erro de digitação: encontrado pela similaridade dos trigramas
+        PaginaBuscaDto aproximado = indiceService.buscar("alugel", 0, 10);
+        assertEquals(List.of(2L), ids(aproximado));
+        assertTrue(aproximado.getDocumentos().get(0).getPontuacao() < 1.0f);
+
+        assertTrue(indiceService.buscar("xyzw", 0, 10).getDocumentos().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> indiceService.buscar(" a ", 0, 10));
+
+        // Renomeado e excluído
+        indexa(4L, "Planilha de custos");
+        assertEquals(List.of(4L), ids(indiceService.buscar("custos", 0, 10)));
+        indiceService.remover(2L);
+        assertEquals(List.of(3L), ids(indiceService.buscar("contrato", 0, 10)));
+    }
+
+    @Test
+    public void buscarTrechoSemFalsosPositivosTest() throws IOException {
+        // Tem os trigramas de "rato" (piRATa, contATO), mas não o trecho, e é mais curto
+        indexa(1L, "Pirata contato");
+        indexa(2L, "Contrato de aluguel");
+
+        assertEquals(List.of(2L), ids(indiceService.buscar("rato", 0, 1)));
+        PaginaBuscaDto resultado = indiceService.buscar("rato", 0, 10);
+        assertEquals(List.of(2L, 1L), ids(resultado));
+        assertEquals(1.0f, resultado.getDocumentos().get(0).getPontuacao());
+        assertTrue(resultado.getDocumentos().get(1).getPontuacao() < 1.0f);
+        assertEquals(List.of(1L), ids(indiceService.buscar("rato", 1, 1)));
+    }
+
+    @Test
+    public void reconstruirAposEncerramentoAnormalTest() throws IOException {
+        documentos.add(new DocumentoResumoDto(1L, "Contrato de aluguel", "c.txt", 10L, LocalDateTime.now()));
+        documentos.add(new DocumentoResumoDto(2L, "Planilha", "p.xlsx", 10L, LocalDateTime.now()));
+
+        // Índice novo: ainda não houve encerramento normal
+        assertEquals(2, indiceService.reconstruirSeNecessario());
+        assertEquals(List.of(1L), ids(indiceService.buscar("aluguel", 0, 10)));
+
+        // Após o encerramento normal, o índice é reaberto sem reconstruir
+        indexa(3L, "Outro contrato");
+        indiceService.fechar();
+        indiceService = novoIndice();
+        assertEquals(0, indiceService.reconstruirSeNecessario());
+        assertEquals(List.of(3L), ids(indiceService.buscar("outro", 0, 10)));
+        Mockito.verify(documentoRepository, Mockito.times(2)).buscaLoteResumos(Mockito.anyLong(), Mockito.any(Limit.class));
+    }
+
+    @Test
+    public void recuperarSoAlteracoesAposUltimaConfirmacaoTest() throws IOException {
+        documentos.add(new DocumentoResumoDto(1L, "Contrato de aluguel", "c.txt", 10L, LocalDateTime.now().minusDays(30)));
+        documentos.add(new DocumentoResumoDto(2L, "Planilha", "p.xlsx", 10L, LocalDateTime.now().minusDays(30)));
+        Mockito.when(documentoRepository.buscaLoteResumosAlteradosDesde(Mockito.anyLong(), Mockito.any(), Mockito.any(Limit.class)))
+                .thenAnswer(invocation -> {
+                    Long ultimoId = invocation.getArgument(0);
+                    LocalDateTime desde = invocation.getArgument(1);
+                    return documentos.stream()
+                            .filter(documento -> documento.getId() > ultimoId && !documento.getCriadoEm().isBefore(desde))
+                            .toList();
+                });
+        assertEquals(2, indiceService.reconstruirSeNecessario());
+        assertFalse(indiceService.confirmar());
+
+        indexa(3L, "Outro contrato");
+        assertTrue(indiceService.confirmar());
+        indexa(4L, "Planilha de custos");
+
+        // Queda: o que não foi confirmado se perde
+        IndexWriter writer = (IndexWriter) ReflectionTestUtils.getField(indiceService, "indexWriter");
+        writer.rollback();
+        ReflectionTestUtils.setField(indiceService, "indexWriter", null);
+
+        indiceService = novoIndice();
+        assertEquals(2, indiceService.reconstruirSeNecessario());
+        assertEquals(List.of(3L, 1L), ids(indiceService.buscar("contrato", 0, 10)));
+        assertEquals(List.of(4L), ids(indiceService.buscar("custos", 0, 10)));
+        // Só a reconstrução do índice novo leu todos os documentos
+        Mockito.verify(documentoRepository, Mockito.times(2)).buscaLoteResumos(Mockito.anyLong(), Mockito.any(Limit.class));
+        assertEquals(0, indiceService.reconstruirSeNecessario());
+    }
+
+    private IndiceNomeServiceImpl novoIndice() {
+        IndiceNomeServiceImpl indice = new IndiceNomeServiceImpl(documentoRepository);
+        ReflectionTestUtils.setField(indice, "diretorio", tempDir.resolve(".indice-nomes").toString());
+        return indice;
+    }
+
+    private void indexa(Long id, String nome) {
+        documentos.removeIf(documento -> documento.getId().equals(id));
+        documentos.add(new DocumentoResumoDto(id, nome, "documento_" + id, 10L, LocalDateTime.now()));
+        indiceService.indexar(id, nome);
+    }
+
+    private List<Long> ids(PaginaBuscaDto resultado) {
+        return resultado.getDocumentos().stream().map(DocumentoEncontradoDto::getId).toList();
+    }
+}
@@ -0,0 +1,165 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.MigracaoArmazenamentoDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.storage.ArquivoStorageEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MigracaoArmazenamentoServiceImplTest {
+
+    @Mock
+    private DocumentoRepository documentoRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MigracaoArmazenamentoServiceImpl migracaoService;
+    private ArquivoStorageEngine arquivoStorageEngine;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setup() {
+        arquivoStorageEngine = new ArquivoStorageEngine();
+        ReflectionTestUtils.setField(arquivoStorageEngine, "uploadDir", tempDir.toString());
+        ReflectionTestUtils.setField(arquivoStorageEngine, "niveisDiretorio", 2);
+        migracaoService = new MigracaoArmazenamentoServiceImpl(documentoRepository, new DocumentoCache(100, Duration.ofMinutes(1)),
+                arquivoStorageEngine, new TransactionTemplate(transactionManager), new SyncTaskExecutor());
+        ReflectionTestUtils.setField(migracaoService, "uploadDir", tempDir.toString());
+        ReflectionTestUtils.setField(migracaoService, "niveisDiretorio", 2);
+    }
+
+    @Test
+    public void migrarArquivosParaSubdiretoriosTest() throws IOException {
+        Path antigo = Files.write(tempDir.resolve("contrato_7.pdf"), "Contrato".getBytes());
+        Documento migravel = new Documento(7L, "contrato", antigo.toString(), 8L, "contrato_7.pdf", LocalDateTime.now());
+        Documento semArquivo = new Documento(8L, "recibo", tempDir.resolve("recibo_8.pdf").toString(), 6L, "recibo_8.pdf", LocalDateTime.now());
+        Mockito.when(documentoRepository.buscaLoteParaMigracao(Mockito.eq(0L), Mockito.any(Limit.class)))
+                .thenReturn(List.of(migravel, semArquivo));
+        Mockito.when(documentoRepository.buscaLoteParaMigracao(Mockito.eq(8L), Mockito.any(Limit.class))).thenReturn(List.of());
+        Mockito.when(documentoRepository.atualizaFilePath(Mockito.eq(7L), Mockito.eq(antigo.toString()), Mockito.anyString()))
+                .thenReturn(1);
+
+        assertTrue(migracaoService.iniciarMigracao());
+
+        MigracaoArmazenamentoDto status = migracaoService.consultarMigracao();
+        assertFalse(status.isEmExecucao());
+        assertEquals(2, status.getVerificados());
+        assertEquals(1, status.getMigrados());
+        assertEquals(1, status.getFalhas());
+        assertNotNull(status.getConcluidoEm());
+
+        ArgumentCaptor<String> novo = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(documentoRepository).atualizaFilePath(Mockito.eq(7L), Mockito.eq(antigo.toString()), novo.capture());
+        Path destino = Path.of(novo.getValue());
+        assertEquals(tempDir, destino.getParent().getParent().getParent());
+        assertEquals(2, destino.getParent().getFileName().toString().length());
+        assertArrayEquals("Contrato".getBytes(), Files.readAllBytes(destino));
+        assertFalse(Files.exists(antigo));
+    }
+
+    @Test
+    public void migrarDocumentoAlteradoDuranteMigracaoTest() throws IOException {
+        Path antigo = Files.write(tempDir.resolve("contrato_9.pdf"), "Contrato".getBytes());
+        Documento documento = new Documento(9L, "contrato", antigo.toString(), 8L, "contrato_9.pdf", LocalDateTime.now());
+        Mockito.when(documentoRepository.buscaLoteParaMigracao(Mockito.eq(0L), Mockito.any(Limit.class))).thenReturn(List.of(documento));
+        Mockito.when(documentoRepository.buscaLoteParaMigracao(Mockito.eq(9L), Mockito.any(Limit.class))).thenReturn(List.of());
+        Mockito.when(documentoRepository.atualizaFilePath(Mockito.eq(9L), Mockito.anyString(), Mockito.anyString())).thenReturn(0);
+
+        migracaoService.iniciarMigracao();
+
+        assertEquals(0, migracaoService.consultarMigracao().getMigrados());
+        assertTrue(Files.exists(antigo));
+        try (var arquivos = Files.walk(tempDir)) {
+            assertEquals(1, arquivos.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    public void naoSobrescreverOutroArquivoNoDestinoTest() throws IOException {
+        Path antigo = Files.write(tempDir.resolve("contrato_7.pdf"), "Contrato".getBytes());
+        Path ocupado = Files.write(arquivoStorageEngine.caminhoPara("contrato_7.pdf"), "Outro".getBytes());
+        Documento documento = new Documento(7L, "contrato", antigo.toString(), 8L, "contrato_7.pdf", LocalDateTime.now());
+        Mockito.when(documentoRepository.buscaLoteParaMigracao(Mockito.eq(0L), Mockito.any(Limit.class))).thenReturn(List.of(documento));
+        Mockito.when(documentoRepository.buscaLoteParaMigracao(Mockito.eq(7L), Mockito.any(Limit.class))).thenReturn(List.of());
+
+        migracaoService.iniciarMigracao();
+
+        assertEquals(1, migracaoService.consultarMigracao().getFalhas());
+        assertArrayEquals("Outro".getBytes(), Files.readAllBytes(ocupado));
+        assertArrayEquals("Contrato".getBytes(), Files.readAllBytes(antigo));
+        Mockito.verify(documentoRepository, Mockito.never()).atualizaFilePath(Mockito.anyLong(), Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    public void recriarSubdiretorioRemovidoTest() throws IOException {
+        Path antigo = Files.write(tempDir.resolve("contrato_7.pdf"), "Contrato".getBytes());
+        // O subdiretório fica no cache ao ser criado; depois é removido por fora da aplicação
+        Path destino = arquivoStorageEngine.caminhoPara("contrato_7.pdf");
+        Files.delete(destino.getParent());
+        Files.delete(destino.getParent().getParent());
+        Documento documento = new Documento(7L, "contrato", antigo.toString(), 8L, "contrato_7.pdf", LocalDateTime.now());
+        Mockito.when(documentoRepository.buscaLoteParaMigracao(Mockito.eq(0L), Mockito.any(Limit.class))).thenReturn(List.of(documento));
+        Mockito.when(documentoRepository.buscaLoteParaMigracao(Mockito.eq(7L), Mockito.any(Limit.class))).thenReturn(List.of());
+        Mockito.when(documentoRepository.atualizaFilePath(7L, antigo.toString(), destino.toString())).thenReturn(1);
+
+        migracaoService.iniciarMigracao();
+
+        assertEquals(1, migracaoService.consultarMigracao().getMigrados());
+        assertArrayEquals("Contrato".getBytes(), Files.readAllBytes(destino));
+    }
+
+    @Test
+    public void drenarVolumeTest() throws IOException {
+        Path volumeA = Files.createDirectories(tempDir.resolve("volume-a"));
+        Path volumeB = Files.createDirectories(tempDir.resolve("volume-b"));
+        ReflectionTestUtils.setField(arquivoStorageEngine, "niveisDiretorio", 0);
+        ReflectionTestUtils.setField(arquivoStorageEngine, "raizes", List.of(volumeA.toString(), volumeB.toString()));
+        ReflectionTestUtils.setField(arquivoStorageEngine, "drenando", List.of(volumeB.toString()));
+        ReflectionTestUtils.setField(arquivoStorageEngine, "espacoMinimo", DataSize.ofBytes(0));
+        Path noDrenado = Files.write(volumeB.resolve("laudo_3.pdf"), "Laudo".getBytes());
+        Path noLugar = Files.write(volumeA.resolve("ata_4.pdf"), "Ata".getBytes());
+        Documento drenado = new Documento(3L, "laudo", noDrenado.toString(), 5L, "laudo_3.pdf", LocalDateTime.now());
+        Documento mantido = new Documento(4L, "ata", noLugar.toString(), 3L, "ata_4.pdf", LocalDateTime.now());
+        Mockito.when(documentoRepository.buscaLoteParaMigracao(Mockito.eq(0L), Mockito.any(Limit.class)))
+                .thenReturn(List.of(drenado, mantido));
+        Mockito.when(documentoRepository.buscaLoteParaMigracao(Mockito.eq(4L), Mockito.any(Limit.class))).thenReturn(List.of());
+        Mockito.when(documentoRepository.atualizaFilePath(3L, noDrenado.toString(), volumeA.resolve("laudo_3.pdf").toString()))
+                .thenReturn(1);
+
+        migracaoService.iniciarMigracao();
+
+        MigracaoArmazenamentoDto status = migracaoService.consultarMigracao();
+        assertEquals(2, status.getVerificados());
+        assertEquals(1, status.getMigrados());
+        assertEquals(0, status.getFalhas());
+        assertFalse(Files.exists(noDrenado));
+        assertArrayEquals("Laudo".getBytes(), Files.readAllBytes(volumeA.resolve("laudo_3.pdf")));
+        Mockito.verify(documentoRepository, Mockito.never()).atualizaFilePath(Mockito.eq(4L), Mockito.anyString(), Mockito.anyString());
+    }
+}
@@ -0,0 +1,149 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.LocalizacaoDocumentoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.MigracaoArmazenamentoDto;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.ReconciliacaoArmazenamentoDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.storage.ArquivoStorageEngine;
+import br.com.fernandoramosjr.sisgerdoc.storage.CamadaFriaStorageEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReconciliacaoArmazenamentoServiceImplTest {
+
+    @Mock
+    private DocumentoRepository documentoRepository;
+
+    @Mock
+    private DocumentoService documentoService;
+
+    @Mock
+    private MigracaoArmazenamentoService migracaoArmazenamentoService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ReconciliacaoArmazenamentoServiceImpl reconciliacaoService;
+
+    @TempDir
+    Path tempDir;
+
+    private final LocalDateTime antigo = LocalDateTime.now().minusHours(2).truncatedTo(ChronoUnit.SECONDS);
+    private Path contrato;
+    private Path recibo;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        ArquivoStorageEngine arquivoStorageEngine = new ArquivoStorageEngine();
+        ReflectionTestUtils.setField(arquivoStorageEngine, "uploadDir", tempDir.toString());
+        reconciliacaoService = new ReconciliacaoArmazenamentoServiceImpl(documentoRepository, documentoService,
+                migracaoArmazenamentoService, arquivoStorageEngine, new CamadaFriaStorageEngine(arquivoStorageEngine),
+                new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(reconciliacaoService, "uploadDir", tempDir.toString());
+        // Blocos e lotes pequenos para passar pela ordenação externa e pela leitura em vários lotes
+        ReflectionTestUtils.setField(reconciliacaoService, "tamanhoBloco", 2);
+        ReflectionTestUtils.setField(reconciliacaoService, "tamanhoLote", 2);
+        Mockito.when(migracaoArmazenamentoService.consultarMigracao()).thenReturn(new MigracaoArmazenamentoDto());
+
+        contrato = arquivoAntigo(tempDir.resolve("contrato_07.pdf"));
+        arquivoAntigo(tempDir.resolve("contrato_antigo_07.pdf"));
+        Files.createDirectories(tempDir.resolve("ab"));
+        recibo = arquivoAntigo(tempDir.resolve("ab").resolve("recibo_09.txt"));
+        arquivoAntigo(tempDir.resolve(".upload-interrompido.part"));
+        Files.writeString(tempDir.resolve("novo_11.pdf"), "gravando");
+        Files.createDirectories(tempDir.resolve(".blobs").resolve("aa"));
+        Path blob = arquivoAntigo(tempDir.resolve(".blobs").resolve("aa").resolve("aa11"));
+
+        List<LocalizacaoDocumentoDto> documentos = List.of(
+                new LocalizacaoDocumentoDto(7L, contrato.toString(), null, antigo),
+                new LocalizacaoDocumentoDto(8L, tempDir.resolve("perdido_08.pdf").toString(), null, antigo),
+                new LocalizacaoDocumentoDto(10L, null, 3L, antigo),
+                new LocalizacaoDocumentoDto(12L, blob.toString(), null, antigo),
+                new LocalizacaoDocumentoDto(13L, tempDir.resolve("recente_13.pdf").toString(), null, LocalDateTime.now()));
+        Mockito.when(documentoRepository.buscaLoteLocalizacoes(Mockito.anyLong(), Mockito.any(Limit.class)))
+                .thenAnswer(invocation -> {
+                    long ultimoId = invocation.getArgument(0);
+                    Limit limite = invocation.getArgument(1);
+                    return documentos.stream().filter(d -> d.getId() > ultimoId).limit(limite.max()).toList();
+                });
+    }
+
+    @Test
+    public void relatarOrfaosEDocumentosSemArquivoTest() {
+        ReconciliacaoArmazenamentoDto resultado = reconciliacaoService.reconciliar();
+
+        assertEquals(5, resultado.getArquivosVerificados());
+        assertEquals(5, resultado.getDocumentosVerificados());
+        assertEquals(3, resultado.getArquivosOrfaos());
+        assertEquals(1, resultado.getDocumentosSemArquivo());
+        assertEquals(0, resultado.getArquivosMovidos());
+        assertEquals(0, resultado.getDocumentosRemovidos());
+        assertTrue(Files.exists(recibo));
+        assertFalse(Files.exists(tempDir.resolve(".reconciliacao")));
+        Mockito.verifyNoInteractions(documentoService);
+    }
+
+    @Test
+    public void repararOrfaosEDocumentosSemArquivoTest() throws IOException {
+        ReflectionTestUtils.setField(reconciliacaoService, "reparar", true);
+        Documento perdido = new Documento(8L, "perdido", tempDir.resolve("perdido_08.pdf").toString(), 10L, "perdido_08.pdf", antigo);
+        Mockito.when(documentoRepository.findByIdParaAtualizacao(8L)).thenReturn(Optional.of(perdido));
+        Mockito.when(documentoRepository.findById(7L)).thenReturn(Optional.of(
+                new Documento(7L, "contrato", contrato.toString(), 8L, "contrato_07.pdf", antigo)));
+
+        ReconciliacaoArmazenamentoDto resultado = reconciliacaoService.reconciliar();
+
+        assertEquals(3, resultado.getArquivosMovidos());
+        assertEquals(1, resultado.getDocumentosRemovidos());
+        assertTrue(Files.exists(contrato));
+        assertTrue(Files.exists(tempDir.resolve("novo_11.pdf")));
+        assertFalse(Files.exists(recibo));
+        assertTrue(Files.exists(tempDir.resolve(".orfaos").resolve("ab").resolve("recibo_09.txt")));
+        assertTrue(Files.exists(tempDir.resolve(".orfaos").resolve("contrato_antigo_07.pdf")));
+        assertTrue(Files.exists(tempDir.resolve(".orfaos").resolve(".upload-interrompido.part")));
+        Mockito.verify(documentoService).deletarDocumento(8L);
+    }
+
+    @Test
+    public void naoRepararAcimaDoMaximoTest() {
+        ReflectionTestUtils.setField(reconciliacaoService, "reparar", true);
+        ReflectionTestUtils.setField(reconciliacaoService, "maximoReparos", 2);
+
+        ReconciliacaoArmazenamentoDto resultado = reconciliacaoService.reconciliar();
+
+        assertEquals(3, resultado.getArquivosOrfaos());
+        assertEquals(0, resultado.getArquivosMovidos());
+        assertEquals(0, resultado.getDocumentosRemovidos());
+        assertTrue(Files.exists(recibo));
+        Mockito.verifyNoInteractions(documentoService);
+    }
+
+    private Path arquivoAntigo(Path arquivo) throws IOException {
+        Files.writeString(arquivo, "conteudo");
+        Files.setLastModifiedTime(arquivo, FileTime.from(Instant.now().minusSeconds(7200)));
+        return arquivo;
+    }
+}
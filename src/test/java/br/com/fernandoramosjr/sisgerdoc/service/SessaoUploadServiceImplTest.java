@@ -0,0 +1,135 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.SessaoUpload;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.SessaoUploadDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.SessaoUploadRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SessaoUploadServiceImplTest {
+
+    @Mock
+    private SessaoUploadRepository sessaoUploadRepository;
+
+    @Mock
+    private DocumentoService documentoService;
+
+    @InjectMocks
+    private SessaoUploadServiceImpl sessaoUploadService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setup() {
+        ReflectionTestUtils.setField(sessaoUploadService, "uploadDir", tempDir.toString());
+    }
+
+    @Test
+    public void concluirSessaoComChunksForaDeOrdemTest() throws IOException {
+        SessaoUploadDto aberta = sessaoUploadService.abrirSessao("teste", "teste.txt", 3);
+        SessaoUpload sessao = new SessaoUpload(aberta.getId(), "teste", "teste.txt", 3, null);
+        Mockito.when(sessaoUploadRepository.findById(aberta.getId())).thenReturn(Optional.of(sessao));
+        Mockito.when(sessaoUploadRepository.marcaConcluindo(Mockito.eq(aberta.getId()), Mockito.any())).thenReturn(1);
+
+        sessaoUploadService.receberChunk(aberta.getId(), 2, new ByteArrayInputStream("C".getBytes()));
+        sessaoUploadService.receberChunk(aberta.getId(), 0, new ByteArrayInputStream("AA".getBytes()));
+        assertEquals(List.of(0, 2), sessaoUploadService.consultarSessao(aberta.getId()).getChunksRecebidos());
+        sessaoUploadService.receberChunk(aberta.getId(), 1, new ByteArrayInputStream("BBB".getBytes()));
+
+        Documento documento = new Documento();
+        documento.setId(1L);
+        Mockito.when(documentoService.criarNovoDocumento(Mockito.eq("teste"), Mockito.eq("teste.txt"), Mockito.any(Path.class)))
+                .thenAnswer(invocation -> {
+                    assertEquals("AABBBC", Files.readString(invocation.getArgument(2)));
+                    return documento;
+                });
+
+        assertEquals(documento, sessaoUploadService.concluirSessao(aberta.getId()));
+        assertFalse(Files.exists(tempDir.resolve(".sessoes").resolve(aberta.getId())));
+        Mockito.verify(sessaoUploadRepository).removeSessao(aberta.getId());
+    }
+
+    @Test
+    public void manterChunksQuandoCriacaoFalhaTest() throws IOException {
+        SessaoUploadDto aberta = sessaoUploadService.abrirSessao("teste", "teste.txt", 2);
+        SessaoUpload sessao = new SessaoUpload(aberta.getId(), "teste", "teste.txt", 2, null);
+        Mockito.when(sessaoUploadRepository.findById(aberta.getId())).thenReturn(Optional.of(sessao));
+        Mockito.when(sessaoUploadRepository.marcaConcluindo(Mockito.eq(aberta.getId()), Mockito.any())).thenReturn(1);
+        sessaoUploadService.receberChunk(aberta.getId(), 0, new ByteArrayInputStream("AA".getBytes()));
+        sessaoUploadService.receberChunk(aberta.getId(), 1, new ByteArrayInputStream("BB".getBytes()));
+        Mockito.when(documentoService.criarNovoDocumento(Mockito.eq("teste"), Mockito.eq("teste.txt"), Mockito.any(Path.class)))
+                .thenThrow(new IOException("Disco cheio"));
+
+        assertThrows(IOException.class, () -> sessaoUploadService.concluirSessao(aberta.getId()));
+
+        Mockito.verify(sessaoUploadRepository).desmarcaConcluindo(Mockito.eq(aberta.getId()), Mockito.any());
+        Mockito.verify(sessaoUploadRepository, Mockito.never()).removeSessao(aberta.getId());
+        assertEquals(List.of(0, 1), sessaoUploadService.consultarSessao(aberta.getId()).getChunksRecebidos());
+    }
+
+    @Test
+    public void recusarCommitDeSessaoEmConclusaoTest() throws IOException {
+        SessaoUploadDto aberta = sessaoUploadService.abrirSessao("teste", "teste.txt", 1);
+        SessaoUpload sessao = new SessaoUpload(aberta.getId(), "teste", "teste.txt", 1, null);
+        Mockito.when(sessaoUploadRepository.findById(aberta.getId())).thenReturn(Optional.of(sessao));
+        sessaoUploadService.receberChunk(aberta.getId(), 0, new ByteArrayInputStream("AA".getBytes()));
+        Mockito.when(sessaoUploadRepository.marcaConcluindo(Mockito.eq(aberta.getId()), Mockito.any())).thenReturn(0);
+
+        assertThrows(IllegalStateException.class, () -> sessaoUploadService.concluirSessao(aberta.getId()));
+
+        Mockito.verifyNoInteractions(documentoService);
+        Mockito.verify(sessaoUploadRepository, Mockito.never()).desmarcaConcluindo(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void concluirSessaoIncompletaTest() throws IOException {
+        SessaoUploadDto aberta = sessaoUploadService.abrirSessao("teste", "teste.txt", 2);
+        SessaoUpload sessao = new SessaoUpload(aberta.getId(), "teste", "teste.txt", 2, null);
+        Mockito.when(sessaoUploadRepository.findById(aberta.getId())).thenReturn(Optional.of(sessao));
+
+        sessaoUploadService.receberChunk(aberta.getId(), 0, new ByteArrayInputStream("AA".getBytes()));
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> sessaoUploadService.concluirSessao(aberta.getId()));
+        assertEquals("Sessão incompleta: 1 de 2 chunks recebidos", exception.getMessage());
+        Mockito.verifyNoInteractions(documentoService);
+    }
+
+    @Test
+    public void receberChunkForaDoIntervaloTest() throws IOException {
+        SessaoUploadDto aberta = sessaoUploadService.abrirSessao("teste", "teste.txt", 2);
+        SessaoUpload sessao = new SessaoUpload(aberta.getId(), "teste", "teste.txt", 2, null);
+        Mockito.when(sessaoUploadRepository.findById(aberta.getId())).thenReturn(Optional.of(sessao));
+
+        assertThrows(IllegalArgumentException.class, () ->
+                sessaoUploadService.receberChunk(aberta.getId(), 2, new ByteArrayInputStream("A".getBytes())));
+    }
+
+    @Test
+    public void receberChunkSessaoNaoEncontradaTest() {
+        Mockito.when(sessaoUploadRepository.findById("inexistente")).thenReturn(Optional.empty());
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () ->
+                sessaoUploadService.receberChunk("inexistente", 0, new ByteArrayInputStream("A".getBytes())));
+        assertEquals("Sessão de upload não encontrada", exception.getMessage());
+    }
+}
@@ -0,0 +1,216 @@
+package br.com.fernandoramosjr.sisgerdoc.service;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.model.VersaoDocumento;
+import br.com.fernandoramosjr.sisgerdoc.model.dto.VersaoDocumentoDto;
+import br.com.fernandoramosjr.sisgerdoc.repository.DocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.repository.VersaoDocumentoRepository;
+import br.com.fernandoramosjr.sisgerdoc.storage.ArquivoStorageEngine;
+import br.com.fernandoramosjr.sisgerdoc.storage.StorageEngineRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class VersaoDocumentoServiceImplTest {
+
+    @Mock
+    private DocumentoRepository documentoRepository;
+
+    @Mock
+    private VersaoDocumentoRepository versaoDocumentoRepository;
+
+    private VersaoDocumentoServiceImpl versaoDocumentoService;
+
+    @TempDir
+    Path tempDir;
+
+    private final List<VersaoDocumento> versoes = new ArrayList<>();
+    private Documento documento;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        ArquivoStorageEngine arquivoStorageEngine = new ArquivoStorageEngine();
+        ReflectionTestUtils.setField(arquivoStorageEngine, "uploadDir", tempDir.toString());
+        versaoDocumentoService = new VersaoDocumentoServiceImpl(documentoRepository, versaoDocumentoRepository,
+                new StorageEngineRegistry(List.of(arquivoStorageEngine), ArquivoStorageEngine.NOME));
+        ReflectionTestUtils.setField(versaoDocumentoService, "uploadDir", tempDir.toString());
+        ReflectionTestUtils.setField(versaoDocumentoService, "tamanhoBloco", DataSize.ofBytes(1024));
+        ReflectionTestUtils.setField(versaoDocumentoService, "intervaloCompleta", 3);
+
+        documento = new Documento(7L, "contrato", tempDir.resolve("contrato_7.bin").toString(), 0L, "contrato_7.bin",
+                LocalDateTime.of(2025, 3, 10, 14, 30));
+        Mockito.lenient().when(documentoRepository.findById(7L)).thenAnswer(invocation -> Optional.of(documento));
+        // Tabela de versões simulada em memória
+        Mockito.lenient().when(versaoDocumentoRepository.save(Mockito.any(VersaoDocumento.class))).thenAnswer(invocation -> {
+            VersaoDocumento versao = invocation.getArgument(0);
+            versoes.add(versao);
+            return versao;
+        });
+        Mockito.lenient().when(versaoDocumentoRepository.buscaCadeia(Mockito.eq(7L), Mockito.anyInt())).thenAnswer(invocation -> {
+            int numero = invocation.getArgument(1);
+            return versoes.stream().filter(v -> v.getNumero() >= numero)
+                    .sorted(Comparator.comparing(VersaoDocumento::getNumero)).toList();
+        });
+        Mockito.lenient().when(versaoDocumentoRepository.findByDocumentoIdAndNumero(Mockito.eq(7L), Mockito.anyInt()))
+                .thenAnswer(invocation -> {
+                    Integer numero = invocation.getArgument(1);
+                    return versoes.stream().filter(v -> v.getNumero().equals(numero)).findFirst();
+                });
+        Mockito.lenient().when(versaoDocumentoRepository.findByDocumentoIdOrderByNumeroDesc(7L)).thenAnswer(invocation ->
+                versoes.stream().sorted(Comparator.comparing(VersaoDocumento::getNumero).reversed()).toList());
+    }
+
+    @Test
+    public void reconstruirVersoesComDeltasEVersoesCompletasTest() throws IOException {
+        Random random = new Random(42);
+        byte[] v1 = new byte[50_000];
+        random.nextBytes(v1);
+        // Alteração no meio, inserção e remoção do início: todas preservam a maior parte dos blocos
+        byte[] v2 = v1.clone();
+        for (int i = 10_000; i < 10_100; i++) {
+            v2[i] = (byte) ~v2[i];
+        }
+        byte[] inserido = new byte[500];
+        random.nextBytes(inserido);
+        byte[] v3 = concatena(Arrays.copyOfRange(v2, 0, 30_000), inserido, Arrays.copyOfRange(v2, 30_000, v2.length));
+        byte[] v4 = Arrays.copyOfRange(v3, 3_000, v3.length);
+        byte[] v5 = new byte[40_000];
+        random.nextBytes(v5);
+        List<byte[]> conteudos = List.of(v1, v2, v3, v4, v5);
+
+        grava(v1);
+        for (byte[] novo : conteudos.subList(1, conteudos.size())) {
+            documento.setVersao(versaoDocumentoService.registrarVersao(new Documento(documento), new ByteArrayResource(novo)));
+            grava(novo);
+        }
+
+        assertEquals(5, documento.getVersao());
+        assertEquals(List.of(false, false, true, true), versoes.stream().map(VersaoDocumento::getCompleta).toList());
+        // A 3 é completa pelo intervalo; a 4 porque a 5 foi toda reescrita e o delta não compensaria
+        assertTrue(versoes.get(0).getTamanhoArmazenado() < v1.length / 10);
+        assertTrue(versoes.get(1).getTamanhoArmazenado() < v2.length / 10);
+        for (int numero = 1; numero <= 5; numero++) {
+            ByteArrayOutputStream saida = new ByteArrayOutputStream();
+            versaoDocumentoService.escreverVersao(7L, numero, saida);
+            assertArrayEquals(conteudos.get(numero - 1), saida.toByteArray(), "Versão " + numero);
+        }
+
+        List<VersaoDocumentoDto> lista = versaoDocumentoService.listarVersoes(7L);
+        assertEquals(List.of(5, 4, 3, 2, 1), lista.stream().map(VersaoDocumentoDto::getNumero).toList());
+        assertTrue(lista.get(0).isAtual());
+        assertEquals((long) v3.length, lista.get(2).getTamanho());
+        assertThrows(FileNotFoundException.class, () -> versaoDocumentoService.buscarVersao(7L, 6));
+        assertThrows(FileNotFoundException.class, () -> versaoDocumentoService.escreverVersao(7L, 0, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void recusarVersaoReconstruidaComConteudoDivergenteTest() throws IOException {
+        byte[] v1 = new byte[20_000];
+        new Random(7).nextBytes(v1);
+        byte[] v2 = v1.clone();
+        v2[5_000] ^= 1;
+        grava(v1);
+        documento.setVersao(versaoDocumentoService.registrarVersao(new Documento(documento), new ByteArrayResource(v2)));
+        grava(v2);
+        // A versão atual mudou sem passar pelo versionamento: o delta agora é aplicado sobre outra base
+        byte[] alterado = v2.clone();
+        alterado[100] ^= 1;
+        Files.write(Path.of(documento.getFilePath()), alterado);
+
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        IOException erro = assertThrows(IOException.class, () -> versaoDocumentoService.escreverVersao(7L, 1, saida));
+        assertTrue(erro.getMessage().contains("divergente"));
+        assertEquals(0, saida.size());
+    }
+
+    @Test
+    public void removerVersoesDoDocumentoTest() throws IOException {
+        byte[] v1 = "primeira versao do contrato".getBytes();
+        grava(v1);
+        documento.setVersao(versaoDocumentoService.registrarVersao(new Documento(documento), new ByteArrayResource("segunda".getBytes())));
+        Path diretorio = tempDir.resolve(".versoes").resolve("7");
+        assertTrue(Files.exists(Path.of(versoes.get(0).getFilePath())));
+
+        versaoDocumentoService.removerVersoes(7L);
+
+        assertFalse(Files.exists(diretorio));
+        Mockito.verify(versaoDocumentoRepository).removeDosDocumentos(List.of(7L));
+    }
+
+    @Test
+    public void removerArquivoDaVersaoDesfeitaTest() throws IOException {
+        grava("primeira versao do contrato".getBytes());
+        Path diretorio = tempDir.resolve(".versoes").resolve("7");
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            versaoDocumentoService.registrarVersao(new Documento(documento), new ByteArrayResource("segunda".getBytes()));
+            assertTrue(Files.exists(Path.of(versoes.get(0).getFilePath())));
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sincronizacao -> sincronizacao.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertFalse(Files.exists(Path.of(versoes.get(0).getFilePath())));
+
+        // Versão recusada pelo banco (atualização concorrente com o mesmo número)
+        Mockito.when(versaoDocumentoRepository.save(Mockito.any(VersaoDocumento.class)))
+                .thenThrow(new DataIntegrityViolationException("versao duplicada"));
+        assertThrows(DataIntegrityViolationException.class, () ->
+                versaoDocumentoService.registrarVersao(new Documento(documento), new ByteArrayResource("terceira".getBytes())));
+        try (var arquivos = Files.list(diretorio)) {
+            assertEquals(0, arquivos.count());
+        }
+    }
+
+    private void grava(byte[] conteudo) throws IOException {
+        Files.write(Path.of(documento.getFilePath()), conteudo);
+        documento.setFileSize((long) conteudo.length);
+        documento.setEtag(sha256(conteudo));
+    }
+
+    private static byte[] concatena(byte[]... partes) {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        for (byte[] parte : partes) {
+            saida.writeBytes(parte);
+        }
+        return saida.toByteArray();
+    }
+
+    private static String sha256(byte[] conteudo) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(conteudo));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package br.com.fernandoramosjr.sisgerdoc.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConteudoArmazenadoTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void transferirIntervaloDoArquivoTest() throws IOException {
+        Path arquivo = Files.writeString(tempDir.resolve("contrato.txt"), "contrato de prestacao");
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        ConteudoArmazenado.deArquivo(arquivo).transfere(12, 21, Channels.newChannel(saida));
+
+        assertEquals("prestacao", saida.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void falharComArquivoTruncadoTest() throws IOException {
+        // O tamanho foi lido antes de o arquivo ser truncado
+        Path arquivo = Files.writeString(tempDir.resolve("contrato.txt"), "contrato");
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertThrows(EOFException.class,
+                () -> ConteudoArmazenado.deArquivo(arquivo).transfere(0, 100, Channels.newChannel(saida))));
+        assertEquals("contrato", saida.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void falharComDestinoSemProgressoTest() throws IOException {
+        Path arquivo = Files.writeString(tempDir.resolve("contrato.txt"), "contrato");
+        WritableByteChannel cheio = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) {
+                return 0;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertThrows(IOException.class,
+                () -> ConteudoArmazenado.deArquivo(arquivo).transfere(0, 8, cheio)));
+    }
+}
@@ -0,0 +1,87 @@
+package br.com.fernandoramosjr.sisgerdoc.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DistribuicaoVolumesTest {
+
+    private static final int ARQUIVOS = 20000;
+    private final Path volumeA = Path.of("/mnt/a");
+    private final Path volumeB = Path.of("/mnt/b");
+    private final Path volumeC = Path.of("/mnt/c");
+
+    @Test
+    public void distribuirProporcionalAoPesoTest() {
+        DistribuicaoVolumes distribuicao = new DistribuicaoVolumes(pesos(volumeA, 1L, volumeB, 3L));
+
+        Map<Path, Integer> contagem = new HashMap<>();
+        for (int i = 0; i < ARQUIVOS; i++) {
+            contagem.merge(distribuicao.preferencias(nome(i)).get(0), 1, Integer::sum);
+        }
+
+        assertEquals(0.25, contagem.get(volumeA) / (double) ARQUIVOS, 0.02);
+        assertEquals(0.75, contagem.get(volumeB) / (double) ARQUIVOS, 0.02);
+    }
+
+    @Test
+    public void incluirVolumeMoveSoParaONovoTest() {
+        DistribuicaoVolumes antes = new DistribuicaoVolumes(pesos(volumeA, 1L, volumeB, 1L));
+        Map<Path, Long> comNovo = pesos(volumeA, 1L, volumeB, 1L);
+        comNovo.put(volumeC, 1L);
+        DistribuicaoVolumes depois = new DistribuicaoVolumes(comNovo);
+
+        int movidos = 0;
+        for (int i = 0; i < ARQUIVOS; i++) {
+            Path anterior = antes.preferencias(nome(i)).get(0);
+            Path atual = depois.preferencias(nome(i)).get(0);
+            if (!anterior.equals(atual)) {
+                assertEquals(volumeC, atual);
+                movidos++;
+            }
+        }
+
+        assertEquals(1.0 / 3, movidos / (double) ARQUIVOS, 0.02);
+    }
+
+    @Test
+    public void retirarVolumeMoveSoOsDeleTest() {
+        Map<Path, Long> tres = pesos(volumeA, 2L, volumeB, 1L);
+        tres.put(volumeC, 1L);
+        DistribuicaoVolumes antes = new DistribuicaoVolumes(tres);
+        DistribuicaoVolumes depois = new DistribuicaoVolumes(pesos(volumeA, 2L, volumeB, 1L));
+
+        for (int i = 0; i < ARQUIVOS; i++) {
+            Path anterior = antes.preferencias(nome(i)).get(0);
+            if (!anterior.equals(volumeC)) {
+                assertEquals(anterior, depois.preferencias(nome(i)).get(0));
+            }
+        }
+    }
+
+    @Test
+    public void ordemDosVolumesNaoMudaOLugarTest() {
+        DistribuicaoVolumes ab = new DistribuicaoVolumes(pesos(volumeA, 1L, volumeB, 2L));
+        DistribuicaoVolumes ba = new DistribuicaoVolumes(pesos(volumeB, 2L, volumeA, 1L));
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(ab.preferencias(nome(i)), ba.preferencias(nome(i)));
+        }
+    }
+
+    private static Map<Path, Long> pesos(Path primeiro, Long pesoPrimeiro, Path segundo, Long pesoSegundo) {
+        Map<Path, Long> pesos = new LinkedHashMap<>();
+        pesos.put(primeiro, pesoPrimeiro);
+        pesos.put(segundo, pesoSegundo);
+        return pesos;
+    }
+
+    private static String nome(int i) {
+        return "documento_" + i + ".pdf";
+    }
+}
@@ -0,0 +1,132 @@
+package br.com.fernandoramosjr.sisgerdoc.storage;
+
+import br.com.fernandoramosjr.sisgerdoc.model.Documento;
+import br.com.fernandoramosjr.sisgerdoc.util.DocumentoUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentoStorageEngineTest {
+
+    private ArquivoStorageEngine arquivoStorageEngine;
+    private SegmentoStorageEngine segmentoStorageEngine;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setup() {
+        arquivoStorageEngine = new ArquivoStorageEngine();
+        ReflectionTestUtils.setField(arquivoStorageEngine, "uploadDir", tempDir.toString());
+        segmentoStorageEngine = new SegmentoStorageEngine(arquivoStorageEngine);
+        ReflectionTestUtils.setField(segmentoStorageEngine, "uploadDir", tempDir.toString());
+        ReflectionTestUtils.setField(segmentoStorageEngine, "tamanhoMaximoDocumento", DataSize.ofBytes(64));
+    }
+
+    @AfterEach
+    public void fecha() throws IOException {
+        segmentoStorageEngine.fechar();
+    }
+
+    @Test
+    public void armazenarDocumentosPequenosNoMesmoSegmentoTest() throws IOException {
+        Documento contrato = armazena(1L, "Contrato");
+        Documento recibo = armazena(2L, "Recibo 123");
+        Documento grande = armazena(3L, "x".repeat(100));
+
+        assertEquals(SegmentoStorageEngine.NOME, contrato.getArmazenamento());
+        assertEquals(1L, contrato.getSegmento());
+        assertEquals(1L, recibo.getSegmento());
+        assertEquals(SegmentoStorageEngine.TAMANHO_CABECALHO, contrato.getSegmentoOffset());
+        assertEquals(2 * SegmentoStorageEngine.TAMANHO_CABECALHO + 8, recibo.getSegmentoOffset());
+        assertEquals("Contrato", le(contrato));
+        assertEquals("Recibo 123", le(recibo));
+
+        // Acima do limite, o documento ganha um arquivo próprio
+        assertEquals(ArquivoStorageEngine.NOME, grande.getArmazenamento());
+        assertNull(grande.getSegmento());
+        assertTrue(Files.exists(Path.of(grande.getFilePath())));
+    }
+
+    @Test
+    public void selarSegmentoELerPorMapeamentoTest() throws IOException {
+        ReflectionTestUtils.setField(segmentoStorageEngine, "tamanhoMaximoSegmento", DataSize.ofBytes(40));
+        Documento primeiro = armazena(1L, "Primeiro");
+        Documento segundo = armazena(2L, "Segundo");
+
+        assertEquals(1L, primeiro.getSegmento());
+        assertEquals(2L, segundo.getSegmento());
+        assertEquals("Primeiro", le(primeiro));
+        assertEquals("Segundo", le(segundo));
+
+        Map<Long, Long> selados = segmentoStorageEngine.listarSegmentosSelados(Instant.now().plusSeconds(60));
+        assertEquals(Map.of(1L, (long) SegmentoStorageEngine.TAMANHO_CABECALHO + 8), selados);
+        assertThrows(IllegalStateException.class, () -> segmentoStorageEngine.descartarSegmento(2L));
+    }
+
+    @Test
+    public void realocarERemoverComLapideTest() throws IOException {
+        Documento documento = armazena(1L, "Conteúdo");
+        Path segmento = tempDir.resolve(".segmentos").resolve("segmento-0000000001.dat");
+        long tamanhoAntes = Files.size(segmento);
+
+        Documento copia = new Documento(documento);
+        segmentoStorageEngine.realocar(copia);
+        assertEquals(1L, copia.getSegmento());
+        assertTrue(copia.getSegmentoOffset() > documento.getSegmentoOffset());
+        assertEquals(le(documento), le(copia));
+
+        segmentoStorageEngine.remover(documento);
+        assertNull(documento.getSegmento());
+        // Registro realocado mais a lápide (cabeçalho, segmento e posição do registro removido)
+        long realocado = SegmentoStorageEngine.TAMANHO_CABECALHO + copia.getFileSize();
+        assertEquals(tamanhoAntes + realocado + SegmentoStorageEngine.TAMANHO_CABECALHO + 16, Files.size(segmento));
+        assertEquals("Conteúdo", le(copia));
+    }
+
+    @Test
+    public void falharComOrigemTerminadaAntesDoTamanhoTest() throws IOException {
+        // O tamanho foi lido antes de o arquivo temporário ser truncado
+        Path origem = Files.writeString(tempDir.resolve("contrato.txt"), "Contrato");
+        try (FileChannel leitura = FileChannel.open(origem, StandardOpenOption.READ);
+             FileChannel destino = FileChannel.open(tempDir.resolve("segmento"), StandardOpenOption.CREATE,
+                     StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertThrows(EOFException.class,
+                    () -> DocumentoUtil.recebeIntervalo(leitura, 100, destino, 0)));
+            assertEquals("Contrato", Files.readString(tempDir.resolve("segmento")));
+        }
+    }
+
+    private Documento armazena(Long id, String conteudo) throws IOException {
+        Documento documento = new Documento(id, "documento", null, null, "documento_" + id + ".txt", LocalDateTime.now());
+        Path temporario = Files.writeString(tempDir.resolve(".upload-" + id + ".part"), conteudo);
+        documento.setFileSize(Files.size(temporario));
+        segmentoStorageEngine.armazenar(documento, temporario);
+        assertFalse(Files.exists(temporario));
+        return documento;
+    }
+
+    private String le(Documento documento) throws IOException {
+        StorageEngine engine = documento.getSegmento() != null ? segmentoStorageEngine : arquivoStorageEngine;
+        try (InputStream entrada = engine.abrir(documento).abreStream()) {
+            return new String(entrada.readAllBytes());
+        }
+    }
+}